@@ -0,0 +1,68 @@
+package com.acmebank.account_manager.benchmarks;
+
+import com.acmebank.account_manager.services.AccountManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.acmebank.account_manager.benchmarks.BenchmarkContext.createAccount;
+
+/*
+ * AccountManager.getAccountBalance from the database, through the balance cache and from the sharded ledger.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BalanceBenchmark {
+    @Param({"uncached", "cached", "sharded"})
+    public String source;
+
+    private ConfigurableApplicationContext context;
+    private AccountManager accountManager;
+    private long accountId;
+
+    @Setup(Level.Trial)
+    public void start() {
+        if("sharded".equals(source)) {
+            context = BenchmarkContext.start("acmebank.ledger.engine=sharded");
+        } else {
+            context = BenchmarkContext.start("acmebank.balance-cache.enabled=" + "cached".equals(source));
+        }
+        accountManager = context.getBean(AccountManager.class);
+        accountId = createAccount(context);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object singleThread() {
+        return accountManager.getAccountBalance(accountId).getBody();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object sameAccountFromFourThreads() {
+        return accountManager.getAccountBalance(accountId).getBody();
+    }
+}
@@ -0,0 +1,57 @@
+package com.acmebank.account_manager.benchmarks;
+
+import com.acmebank.account_manager.AccountManagerApplication;
+import lombok.val;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Starts the service without the web layer against a private in-memory H2 database.
+ */
+final class BenchmarkContext {
+    static final BigDecimal BALANCE = new BigDecimal("100000000000");
+    private static final AtomicLong accountIds = new AtomicLong(50000000L);
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(final String... properties) {
+        val application = new SpringApplication(AccountManagerApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        val args = new ArrayList<String>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:benchmark-" + System.nanoTime(),
+                "--spring.h2.console.enabled=false",
+                "--logging.level.root=WARN",
+                "--acmebank.ledger.journal-dir=" + tempDirectory()));
+        for(val property : properties) {
+            args.add("--" + property);
+        }
+        return application.run(args.toArray(new String[0]));
+    }
+
+    static long createAccount(final ConfigurableApplicationContext context) {
+        val accountId = accountIds.incrementAndGet();
+        context.getBean(JdbcTemplate.class).update(
+                "INSERT INTO \"account\" (\"id\", \"balance\", \"currency\", \"type\", \"created_at\", \"updated_at\") VALUES (?, ?, 0, 0, now(), now())",
+                accountId, BALANCE);
+        return accountId;
+    }
+
+    private static String tempDirectory() {
+        try {
+            return Files.createTempDirectory("acmebank-benchmark-journal").toString();
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.acmebank.account_manager.benchmarks;
+
+/*
+ * Log-linear histogram of microseconds: exact below 128, above that each power of two is split into 64 buckets,
+ * so a percentile is off by less than 1.6%. One per worker thread, merged once the run is over.
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int HALF_SUB_BUCKETS = 1 << (SUB_BUCKET_BITS - 1);
+    private final long[] counts = new long[(64 - SUB_BUCKET_BITS + 2) * HALF_SUB_BUCKETS];
+    private long total;
+    private long max;
+
+    void record(final long micros) {
+        counts[index(Math.max(0, micros))]++;
+        total++;
+        max = Math.max(max, micros);
+    }
+
+    void add(final LatencyHistogram other) {
+        for(int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    long getTotal() {
+        return total;
+    }
+
+    long getMax() {
+        return max;
+    }
+
+    /*
+     * Upper bound of the bucket holding the given quantile, 0 when nothing was recorded.
+     */
+    long percentile(final double quantile) {
+        if(total == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for(int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if(seen >= rank) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int index(final long micros) {
+        if(micros < 2 * HALF_SUB_BUCKETS) {
+            return (int) micros;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(micros) - (SUB_BUCKET_BITS - 1);
+        return (shift << (SUB_BUCKET_BITS - 1)) + (int) (micros >>> shift);
+    }
+
+    private static long upperBound(final int index) {
+        if(index < 2 * HALF_SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = (index >> (SUB_BUCKET_BITS - 1)) - 1;
+        final long subBucket = index - ((long) shift << (SUB_BUCKET_BITS - 1));
+        return (subBucket << shift) + (1L << shift) - 1;
+    }
+}
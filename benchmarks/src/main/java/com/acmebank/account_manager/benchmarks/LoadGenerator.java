@@ -0,0 +1,351 @@
+package com.acmebank.account_manager.benchmarks;
+
+import com.acmebank.account_manager.shared.ErrorCode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.val;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Replays production-like contention against a locally started AccountManagerApplication over HTTP. Provisions
+ * --accounts accounts through /actuator/provisioning, then --threads closed-loop workers send GET /account/{id} or
+ * POST /accounts/transfer in a --read-ratio mix, picking accounts by rank from a Zipf distribution of --zipf skew,
+ * rank 0 being --first-account-id. Reports throughput and latency percentiles per request type, every ErrorCode and
+ * HTTP failure, and the lock failures the service counted in acmebank.transfer.lock.failures over the run.
+ *
+ * ./mvnw spring-boot:run -Dspring-boot.run.arguments=--management.endpoint.provisioning.enabled=true
+ * ./mvnw -f benchmarks/pom.xml package exec:exec -Pload -Dload.args="--threads=32 --zipf=1.1"
+ */
+public final class LoadGenerator {
+    private static final String[] LOCK_FAILURE_CAUSES = {"lock-timeout", "lock-acquisition", "optimistic-conflict"};
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] PERCENTILE_HEADERS = {"p50 ms", "p90 ms", "p99 ms", "p99.9 ms"};
+    private static final int HOT_RANKS = 10;
+    private final Options options;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<Integer, String> errorNames = new HashMap<>();
+
+    private LoadGenerator(final Options options) {
+        this.options = options;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(options.timeout)
+                .build();
+        for(val errorCode : ErrorCode.values()) {
+            errorNames.put(errorCode.getCode(), errorCode.name());
+        }
+    }
+
+    public static void main(final String[] args) throws Exception {
+        new LoadGenerator(Options.parse(args)).run();
+    }
+
+    private void run() throws Exception {
+        val zipf = new ZipfSampler(options.accounts, options.zipf);
+        if(options.provision) {
+            provision();
+        }
+        System.out.printf("%d threads, %.0f%% balance reads, %d accounts from %d, zipf %.2f: the %d hottest take %.1f%% of picks%n",
+                options.threads, options.readRatio * 100, options.accounts, options.firstAccountId, options.zipf,
+                Math.min(HOT_RANKS, options.accounts), zipf.share(HOT_RANKS) * 100);
+
+        val workers = new ArrayList<Worker>(options.threads);
+        val executor = Executors.newFixedThreadPool(options.threads);
+        val done = new CountDownLatch(options.threads);
+        val measureFrom = System.nanoTime() + options.warmup.toNanos();
+        val measureUntil = measureFrom + options.duration.toNanos();
+        for(int t = 0; t < options.threads; t++) {
+            val worker = new Worker(zipf, new Random(options.seed + t), measureFrom, measureUntil);
+            workers.add(worker);
+            executor.execute(() -> {
+                try {
+                    worker.run();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        TimeUnit.NANOSECONDS.sleep(Math.max(0, measureFrom - System.nanoTime()));
+        val lockFailuresBefore = lockFailures();
+        done.await();
+        executor.shutdown();
+        val lockFailuresAfter = lockFailures();
+        report(workers, lockFailuresBefore, lockFailuresAfter);
+    }
+
+    private void provision() throws IOException, InterruptedException {
+        val body = "{\"firstAccountId\":" + options.firstAccountId + ",\"count\":" + options.accounts
+                + ",\"balance\":" + options.balance.toPlainString() + ",\"currency\":\"HKD\"}";
+        val response = client.send(HttpRequest.newBuilder(URI.create(options.url + "/actuator/provisioning"))
+                .timeout(Duration.ofMinutes(10))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if(response.statusCode() != 200) {
+            throw new IllegalStateException("Provisioning failed with HTTP " + response.statusCode() + " " + response.body()
+                    + ", start the service with --management.endpoint.provisioning.enabled=true or pass --provision=false");
+        }
+        System.out.println("Provisioned " + response.body());
+    }
+
+    /*
+     * Lock failure counts by cause, empty when the service does not publish them, e.g. on the sharded engine.
+     */
+    private Map<String, Double> lockFailures() {
+        val failures = new LinkedHashMap<String, Double>();
+        for(val cause : LOCK_FAILURE_CAUSES) {
+            try {
+                val response = client.send(HttpRequest.newBuilder(URI.create(
+                                options.url + "/actuator/metrics/acmebank.transfer.lock.failures?tag=cause:" + cause))
+                        .timeout(options.timeout).GET().build(), HttpResponse.BodyHandlers.ofString());
+                if(response.statusCode() == 200) {
+                    failures.put(cause, objectMapper.readTree(response.body()).path("measurements").path(0).path("value").asDouble());
+                }
+            } catch (IOException ioe) {
+                return failures;
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return failures;
+            }
+        }
+        return failures;
+    }
+
+    private void report(final List<Worker> workers, final Map<String, Double> before, final Map<String, Double> after) {
+        val seconds = options.duration.toNanos() / 1e9;
+        val reads = new Results();
+        val transfers = new Results();
+        for(val worker : workers) {
+            reads.add(worker.reads);
+            transfers.add(worker.transfers);
+        }
+        System.out.printf("%n%-10s %10s %10s %10s", "request", "count", "per s", "ok");
+        for(val header : PERCENTILE_HEADERS) {
+            System.out.printf(" %9s", header);
+        }
+        System.out.printf(" %9s%n", "max ms");
+        reads.print("balance", seconds);
+        transfers.print("transfer", seconds);
+        reads.printOutcomes("balance", seconds);
+        transfers.printOutcomes("transfer", seconds);
+        if(after.isEmpty()) {
+            System.out.println("\nacmebank.transfer.lock.failures not published by the service");
+            return;
+        }
+        System.out.printf("%n%-32s %10s %10s%n", "lock failures", "count", "per s");
+        for(val cause : after.entrySet()) {
+            val count = cause.getValue() - before.getOrDefault(cause.getKey(), 0.0);
+            System.out.printf("%-32s %10.0f %10.1f%n", cause.getKey(), count, count / seconds);
+        }
+    }
+
+    private final class Worker {
+        private final ZipfSampler zipf;
+        private final Random random;
+        private final long measureFrom;
+        private final long measureUntil;
+        private final Results reads = new Results();
+        private final Results transfers = new Results();
+
+        private Worker(final ZipfSampler zipf, final Random random, final long measureFrom, final long measureUntil) {
+            this.zipf = zipf;
+            this.random = random;
+            this.measureFrom = measureFrom;
+            this.measureUntil = measureUntil;
+        }
+
+        private void run() {
+            long now;
+            while((now = System.nanoTime()) < measureUntil && !Thread.currentThread().isInterrupted()) {
+                val read = random.nextDouble() < options.readRatio;
+                val request = read ? balanceRequest() : transferRequest();
+                val results = now >= measureFrom ? (read ? reads : transfers) : null;
+                val start = System.nanoTime();
+                try {
+                    val response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                    if(results != null) {
+                        results.record((System.nanoTime() - start) / 1000, outcome(response));
+                    }
+                } catch (HttpTimeoutException hte) {
+                    if(results != null) {
+                        results.record((System.nanoTime() - start) / 1000, "client timeout");
+                    }
+                } catch (IOException ioe) {
+                    if(results != null) {
+                        results.record((System.nanoTime() - start) / 1000, "I/O " + ioe.getClass().getSimpleName());
+                    }
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private HttpRequest balanceRequest() {
+            return HttpRequest.newBuilder(URI.create(options.url + "/account/" + accountId(zipf.sample(random))))
+                    .timeout(options.timeout).GET().build();
+        }
+
+        /*
+         * Hot accounts both send and receive, so their balances hover around where they started.
+         */
+        private HttpRequest transferRequest() {
+            val from = zipf.sample(random);
+            int to = zipf.sample(random);
+            if(to == from) {
+                to = (to + 1) % options.accounts;
+            }
+            val body = "{\"fromAccountId\":" + accountId(from) + ",\"toAccountId\":" + accountId(to)
+                    + ",\"amount\":" + options.amount.toPlainString() + "}";
+            return HttpRequest.newBuilder(URI.create(options.url + "/accounts/transfer"))
+                    .timeout(options.timeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+
+        private long accountId(final int rank) {
+            return options.firstAccountId + rank;
+        }
+    }
+
+    /*
+     * null for a 2xx, otherwise the ErrorCode name from the error body, the fields failing validation,
+     * or the HTTP status alone.
+     */
+    private String outcome(final HttpResponse<byte[]> response) {
+        if(response.statusCode() / 100 == 2) {
+            return null;
+        }
+        try {
+            val body = objectMapper.readTree(response.body());
+            val code = body.path("code");
+            if(code.isInt()) {
+                return errorNames.getOrDefault(code.asInt(), "error " + code.asInt());
+            }
+            if(body.isObject() && !body.has("status")) {
+                return "HTTP " + response.statusCode() + " invalid " + String.join(", ", (Iterable<String>) body::fieldNames);
+            }
+        } catch (IOException ioe) {
+            // not a JSON body, reported by status
+        }
+        return "HTTP " + response.statusCode();
+    }
+
+    private static final class Results {
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final Map<String, Long> failures = new TreeMap<>();
+        private long ok;
+
+        private void record(final long micros, final String failure) {
+            latencies.record(micros);
+            if(failure == null) {
+                ok++;
+            } else {
+                failures.merge(failure, 1L, Long::sum);
+            }
+        }
+
+        private void add(final Results other) {
+            latencies.add(other.latencies);
+            other.failures.forEach((failure, count) -> failures.merge(failure, count, Long::sum));
+            ok += other.ok;
+        }
+
+        private void print(final String request, final double seconds) {
+            System.out.printf("%-10s %10d %10.1f %10d", request, latencies.getTotal(), latencies.getTotal() / seconds, ok);
+            for(val percentile : PERCENTILES) {
+                System.out.printf(" %9.2f", latencies.percentile(percentile) / 1000.0);
+            }
+            System.out.printf(" %9.2f%n", latencies.getMax() / 1000.0);
+        }
+
+        private void printOutcomes(final String request, final double seconds) {
+            if(failures.isEmpty()) {
+                return;
+            }
+            System.out.printf("%n%-32s %10s %10s %10s%n", request + " failures", "count", "per s", "share");
+            failures.forEach((failure, count) -> System.out.printf("%-32s %10d %10.1f %9.2f%%%n",
+                    failure, count, count / seconds, 100.0 * count / latencies.getTotal()));
+        }
+    }
+
+    private static final class Options {
+        private String url = "http://localhost:8080";
+        private int accounts = 10000;
+        private long firstAccountId = 20000001L;
+        private BigDecimal balance = new BigDecimal("1000000000");
+        private boolean provision = true;
+        private int threads = 16;
+        private Duration warmup = Duration.ofSeconds(5);
+        private Duration duration = Duration.ofSeconds(30);
+        private double readRatio = 0.8;
+        private double zipf = 1.0;
+        private BigDecimal amount = new BigDecimal("100");
+        private long seed = 42;
+        private Duration timeout = Duration.ofSeconds(5);
+
+        /*
+         * --name=value pairs, durations as 500ms, 30s or 2m.
+         */
+        private static Options parse(final String[] args) {
+            val options = new Options();
+            for(val arg : args) {
+                val separator = arg.indexOf('=');
+                if(!arg.startsWith("--") || separator < 0) {
+                    throw new IllegalArgumentException("Expected --name=value, got " + arg);
+                }
+                val value = arg.substring(separator + 1);
+                switch(arg.substring(2, separator)) {
+                    case "url": options.url = value.replaceAll("/+$", ""); break;
+                    case "accounts": options.accounts = Integer.parseInt(value); break;
+                    case "first-account-id": options.firstAccountId = Long.parseLong(value); break;
+                    case "balance": options.balance = new BigDecimal(value); break;
+                    case "provision": options.provision = Boolean.parseBoolean(value); break;
+                    case "threads": options.threads = Integer.parseInt(value); break;
+                    case "warmup": options.warmup = duration(value); break;
+                    case "duration": options.duration = duration(value); break;
+                    case "read-ratio": options.readRatio = Double.parseDouble(value); break;
+                    case "zipf": options.zipf = Double.parseDouble(value); break;
+                    case "amount": options.amount = new BigDecimal(value); break;
+                    case "seed": options.seed = Long.parseLong(value); break;
+                    case "timeout": options.timeout = duration(value); break;
+                    default: throw new IllegalArgumentException("Unknown option " + arg + ", expected one of --url, --accounts, "
+                            + "--first-account-id, --balance, --provision, --threads, --warmup, --duration, --read-ratio, "
+                            + "--zipf, --amount, --seed, --timeout");
+                }
+            }
+            if(options.accounts < 2 || options.threads < 1 || options.readRatio < 0 || options.readRatio > 1 || options.duration.isZero()) {
+                throw new IllegalArgumentException("Need 2 or more accounts, 1 or more threads, a read ratio within [0, 1] and a duration");
+            }
+            return options;
+        }
+
+        private static Duration duration(final String value) {
+            if(value.endsWith("ms")) {
+                return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+            }
+            if(value.endsWith("m")) {
+                return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+            }
+            return Duration.ofSeconds(Long.parseLong(value.endsWith("s") ? value.substring(0, value.length() - 1) : value));
+        }
+    }
+}
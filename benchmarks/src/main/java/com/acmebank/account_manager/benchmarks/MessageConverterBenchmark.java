@@ -0,0 +1,140 @@
+package com.acmebank.account_manager.benchmarks;
+
+import com.acmebank.account_manager.data.converters.PreEncodedJsonHttpMessageConverter;
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.data.models.responses.AccountBalance;
+import com.acmebank.account_manager.data.models.responses.Transaction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+import static com.acmebank.account_manager.shared.AccountType.CURRENT;
+import static com.acmebank.account_manager.shared.AccountType.SAVING;
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+/*
+ * The message conversion each request to Endpoint.GET_ACCOUNT and Endpoint.TRANSFER goes through, with the
+ * application's ObjectMapper: getAccount writes an AccountBalance, transfer reads a TransferRequest and writes a
+ * Transaction. converter is Spring's Jackson converter or PreEncodedJsonHttpMessageConverter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageConverterBenchmark {
+    private static final byte[] TRANSFER_REQUEST =
+            "{\"fromAccountId\":88888888,\"toAccountId\":12345678,\"amount\":100,\"currency\":\"HKD\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"jackson", "pre-encoded"})
+    public String converter;
+
+    private ConfigurableApplicationContext context;
+    private HttpMessageConverter<Object> messageConverter;
+    private final AccountBalance accountBalance = AccountBalance.of(new BigDecimal("999900.00"), HKD, CURRENT);
+    private final Transaction transaction = new Transaction(
+            1000001L,
+            88888888L,
+            AccountBalance.of(new BigDecimal("999900.00"), HKD, SAVING),
+            12345678L,
+            AccountBalance.of(new BigDecimal("1000100.00"), HKD, CURRENT),
+            new Timestamp(1700000000000L));
+    private final OutputMessage outputMessage = new OutputMessage();
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void start() {
+        context = BenchmarkContext.start();
+        messageConverter = "jackson".equals(converter)
+                ? new MappingJackson2HttpMessageConverter(context.getBean(ObjectMapper.class))
+                : context.getBean(PreEncodedJsonHttpMessageConverter.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getAccount() throws IOException {
+        outputMessage.reset();
+        messageConverter.write(accountBalance, APPLICATION_JSON, outputMessage);
+        return outputMessage.body.size();
+    }
+
+    @Benchmark
+    public int transfer() throws IOException {
+        final Object transferRequest = messageConverter.read((Class) TransferRequest.class, new InputMessage(TRANSFER_REQUEST));
+        outputMessage.reset();
+        messageConverter.write(transaction, APPLICATION_JSON, outputMessage);
+        return outputMessage.body.size() + transferRequest.hashCode();
+    }
+
+    private static final class OutputMessage implements HttpOutputMessage {
+        private final HttpHeaders headers = new HttpHeaders();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+
+        private void reset() {
+            headers.clear();
+            body.reset();
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+
+    private static final class InputMessage implements HttpInputMessage {
+        private final HttpHeaders headers = new HttpHeaders();
+        private final byte[] body;
+
+        private InputMessage(final byte[] body) {
+            this.body = body;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
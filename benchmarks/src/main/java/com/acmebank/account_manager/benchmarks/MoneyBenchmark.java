@@ -0,0 +1,51 @@
+package com.acmebank.account_manager.benchmarks;
+
+import com.acmebank.account_manager.shared.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * The debit, funds check and credit of a transfer on BigDecimal balances and on Money, compare gc.alloc.rate.norm
+ * of the two under -prof gc.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoneyBenchmark {
+    private final BigDecimal amount = new BigDecimal("100.25");
+    private final Money money = Money.of(amount);
+    private long minorUnits;
+
+    @Benchmark
+    public long bigDecimal() {
+        final BigDecimal from = BigDecimal.valueOf(100_000_000_00L + ++minorUnits, Money.SCALE).subtract(amount);
+        if(from.compareTo(BigDecimal.ZERO) < 0) {
+            return -1;
+        }
+        final BigDecimal to = BigDecimal.valueOf(minorUnits, Money.SCALE).add(amount);
+        return from.unscaledValue().longValue() ^ to.unscaledValue().longValue();
+    }
+
+    @Benchmark
+    public long money() {
+        final Money from = Money.ofMinorUnits(100_000_000_00L + ++minorUnits).minus(money);
+        if(from.isNegative()) {
+            return -1;
+        }
+        final Money to = Money.ofMinorUnits(minorUnits).plus(money);
+        return from.getMinorUnits() ^ to.getMinorUnits();
+    }
+}
@@ -0,0 +1,92 @@
+package com.acmebank.account_manager.benchmarks;
+
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.data.models.responses.ErrorResponse;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.services.AccountManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.text.MessageFormat;
+import java.util.concurrent.TimeUnit;
+
+import static com.acmebank.account_manager.benchmarks.BenchmarkContext.createAccount;
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static com.acmebank.account_manager.shared.ErrorCode.INSUFFICIENT_FUND;
+
+/*
+ * The cost of rejecting a transfer. withStackTrace and messageFormat are the exception and message the service used
+ * to build for every rejection, rejection and template are what it builds now. rejectedTransfer runs an insufficient
+ * fund transfer through AccountManager on the sharded engine, so no database is involved, and renders its
+ * ErrorResponse like the exception handler; run with -prof gc to see the allocation per rejection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RejectionBenchmark {
+    private long accountId = 12345678L;
+
+    @State(Scope.Benchmark)
+    public static class ShardedLedger {
+        ConfigurableApplicationContext context;
+        AccountManager accountManager;
+        TransferRequest overdraft;
+
+        @Setup(Level.Trial)
+        public void start() {
+            context = BenchmarkContext.start("acmebank.ledger.engine=sharded");
+            accountManager = context.getBean(AccountManager.class);
+            overdraft = new TransferRequest(createAccount(context), createAccount(context),
+                    BenchmarkContext.BALANCE.add(BigDecimal.ONE), HKD.name());
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public RuntimeException withStackTrace() {
+        return new RuntimeException(Long.toString(accountId));
+    }
+
+    @Benchmark
+    public AccountManagerException rejection() {
+        return new AccountManagerException(INSUFFICIENT_FUND, accountId);
+    }
+
+    @Benchmark
+    public String messageFormat() {
+        return MessageFormat.format(INSUFFICIENT_FUND.getMsg(), Long.toString(accountId));
+    }
+
+    @Benchmark
+    public String template() {
+        return INSUFFICIENT_FUND.format(Long.toString(accountId));
+    }
+
+    @Benchmark
+    public Object rejectedTransfer(final ShardedLedger ledger) {
+        try {
+            return ledger.accountManager.transfer(ledger.overdraft);
+        } catch (AccountManagerException ame) {
+            return new ErrorResponse(ame.getErrorCode(), ame.getParamsArray());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.acmebank.account_manager.benchmarks;
+
+import com.acmebank.account_manager.data.models.responses.AccountBalance;
+import com.acmebank.account_manager.data.models.responses.ErrorResponse;
+import com.acmebank.account_manager.data.models.responses.Transaction;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+import static com.acmebank.account_manager.shared.AccountType.CURRENT;
+import static com.acmebank.account_manager.shared.AccountType.SAVING;
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static com.acmebank.account_manager.shared.ErrorCode.INSUFFICIENT_FUND;
+
+/*
+ * Building an ErrorResponse, whose message is formatted on construction, and writing responses as JSON
+ * with the same ObjectMapper defaults Spring Boot configures.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseBenchmark {
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final Transaction transaction = new Transaction(
+            1000001L,
+            12345678L,
+            AccountBalance.of(new BigDecimal("999900.00"), HKD, CURRENT),
+            88888888L,
+            AccountBalance.of(new BigDecimal("1000100.00"), HKD, SAVING),
+            new Timestamp(1700000000000L));
+    private final ErrorResponse errorResponse = new ErrorResponse(INSUFFICIENT_FUND, "12345678");
+    private String accountId = "12345678";
+
+    @Benchmark
+    public ErrorResponse formatErrorResponse() {
+        return new ErrorResponse(INSUFFICIENT_FUND, accountId);
+    }
+
+    @Benchmark
+    public byte[] serializeErrorResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(errorResponse);
+    }
+
+    @Benchmark
+    public byte[] serializeTransaction() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(transaction);
+    }
+}
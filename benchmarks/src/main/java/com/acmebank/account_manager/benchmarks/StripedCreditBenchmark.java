@@ -0,0 +1,96 @@
+package com.acmebank.account_manager.benchmarks;
+
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.services.AccountManager;
+import com.acmebank.account_manager.services.striping.StripedBalances;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import static com.acmebank.account_manager.benchmarks.BenchmarkContext.createAccount;
+import static com.acmebank.account_manager.shared.Currency.HKD;
+
+/*
+ * 8 threads credit the same account, each from an account of its own, with the account split into `stripes`
+ * credit slots (0 is an ordinary account) under each `concurrency` of the jpa engine.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StripedCreditBenchmark {
+    private static final BigDecimal AMOUNT = BigDecimal.valueOf(100);
+
+    @Param({"pessimistic", "conditional"})
+    public String concurrency;
+
+    @Param({"0", "1", "4", "16"})
+    public int stripes;
+
+    private ConfigurableApplicationContext context;
+    private AccountManager accountManager;
+    private long collectionAccountId;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkContext.start("acmebank.ledger.concurrency=" + concurrency);
+        accountManager = context.getBean(AccountManager.class);
+        collectionAccountId = createAccount(context);
+        if(stripes > 0) {
+            context.getBean(StripedBalances.class).stripe(collectionAccountId, stripes);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Payer {
+        TransferRequest transfer;
+
+        @Setup(Level.Trial)
+        public void createAccount(final StripedCreditBenchmark benchmark) {
+            transfer = new TransferRequest(BenchmarkContext.createAccount(benchmark.context), benchmark.collectionAccountId, AMOUNT, HKD.name());
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Outcomes {
+        public long completed;
+        public long rejected;
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object credit(final Payer payer, final Outcomes outcomes) {
+        try {
+            final Object transaction = accountManager.transfer(payer.transfer).getBody();
+            outcomes.completed++;
+            return transaction;
+        } catch (RuntimeException re) {
+            outcomes.rejected++;
+            return re;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.acmebank.account_manager.benchmarks;
+
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.services.AccountManager;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import static com.acmebank.account_manager.benchmarks.BenchmarkContext.createAccount;
+import static com.acmebank.account_manager.shared.Currency.HKD;
+
+/*
+ * AccountManager.transfer against embedded H2 for every ledger engine and concurrency strategy, and for group commit.
+ * singleAccount and uncontended give every thread its own pair of accounts, contended has all threads
+ * transfer between the same two accounts; rejected transfers are counted apart from completed ones.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransferBenchmark {
+    private static final BigDecimal AMOUNT = BigDecimal.valueOf(100);
+
+    @Param({"pessimistic", "optimistic", "conditional", "sharded", "group-commit"})
+    public String ledger;
+
+    private ConfigurableApplicationContext context;
+    private AccountManager accountManager;
+    private TransferRequest sharedTransfer;
+
+    @Setup(Level.Trial)
+    public void start() {
+        if("sharded".equals(ledger)) {
+            context = BenchmarkContext.start("acmebank.ledger.engine=sharded");
+        } else if("group-commit".equals(ledger)) {
+            context = BenchmarkContext.start("acmebank.ledger.group-commit=true");
+        } else {
+            context = BenchmarkContext.start("acmebank.ledger.concurrency=" + ledger);
+        }
+        accountManager = context.getBean(AccountManager.class);
+        sharedTransfer = new TransferRequest(createAccount(context), createAccount(context), AMOUNT, HKD.name());
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class OwnAccounts {
+        TransferRequest transfer;
+
+        @Setup(Level.Trial)
+        public void createAccounts(final TransferBenchmark benchmark) {
+            transfer = new TransferRequest(createAccount(benchmark.context), createAccount(benchmark.context), AMOUNT, HKD.name());
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Outcomes {
+        public long completed;
+        public long rejected;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object singleAccount(final OwnAccounts own, final Outcomes outcomes) {
+        return transfer(own.transfer, outcomes);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object uncontended(final OwnAccounts own, final Outcomes outcomes) {
+        return transfer(own.transfer, outcomes);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object contended(final Outcomes outcomes) {
+        return transfer(sharedTransfer, outcomes);
+    }
+
+    private Object transfer(final TransferRequest transferRequest, final Outcomes outcomes) {
+        try {
+            final Object transaction = accountManager.transfer(transferRequest).getBody();
+            outcomes.completed++;
+            return transaction;
+        } catch (RuntimeException re) {
+            outcomes.rejected++;
+            return re;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.acmebank.account_manager.benchmarks;
+
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.validations.ValueOfEnum;
+import com.acmebank.account_manager.validations.validators.ValueOfEnumValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * ValueOfEnumValidator.isValid as configured on TransferRequest.currency, for an accepted and a rejected value.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+    private final ValueOfEnumValidator validator = new ValueOfEnumValidator();
+    private String accepted = "HKD";
+    private String rejected = "JPY";
+
+    @Setup
+    public void initialize() throws NoSuchFieldException {
+        validator.initialize(TransferRequest.class.getDeclaredField("currency").getAnnotation(ValueOfEnum.class));
+    }
+
+    @Benchmark
+    public boolean acceptedCurrency() {
+        return validator.isValid(accepted, null);
+    }
+
+    @Benchmark
+    public boolean rejectedCurrency() {
+        return validator.isValid(rejected, null);
+    }
+}
@@ -0,0 +1,46 @@
+package com.acmebank.account_manager.benchmarks;
+
+import java.util.Random;
+
+/*
+ * Draws ranks 0..n-1 with probability proportional to 1 / (rank + 1)^skew, rank 0 being the hottest.
+ * Skew 0 is uniform, around 1 a few accounts take most of the traffic. The cumulative weights are computed once,
+ * a draw is a binary search over them.
+ */
+final class ZipfSampler {
+    private final double[] cumulative;
+
+    ZipfSampler(final int n, final double skew) {
+        if(n <= 0 || skew < 0) {
+            throw new IllegalArgumentException("Zipf needs at least one rank and a skew of 0 or more: " + n + ", " + skew);
+        }
+        this.cumulative = new double[n];
+        double total = 0;
+        for(int rank = 0; rank < n; rank++) {
+            total += 1 / Math.pow(rank + 1, skew);
+            cumulative[rank] = total;
+        }
+    }
+
+    int sample(final Random random) {
+        final double target = random.nextDouble() * cumulative[cumulative.length - 1];
+        int low = 0;
+        int high = cumulative.length - 1;
+        while(low < high) {
+            final int mid = (low + high) >>> 1;
+            if(cumulative[mid] <= target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /*
+     * Share of draws landing on the hottest ranks, to put the skew in terms of traffic.
+     */
+    double share(final int ranks) {
+        return cumulative[Math.min(ranks, cumulative.length) - 1] / cumulative[cumulative.length - 1];
+    }
+}
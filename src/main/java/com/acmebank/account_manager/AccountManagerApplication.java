@@ -1,13 +1,23 @@
 package com.acmebank.account_manager;
 
+import com.acmebank.account_manager.services.provisioning.AccountImportRunner;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class AccountManagerApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(AccountManagerApplication.class, args);
+		SpringApplication application = new SpringApplication(AccountManagerApplication.class);
+		if (AccountImportRunner.isImport(args)) {
+			application.setWebApplicationType(WebApplicationType.NONE);
+			application.setAdditionalProfiles(AccountImportRunner.PROFILE);
+			System.exit(SpringApplication.exit(application.run(args)));
+		}
+		application.run(args);
 	}
 
 }
@@ -0,0 +1,14 @@
+package com.acmebank.account_manager.configs;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "acmebank.account-import")
+public class AccountImportProperties {
+    private boolean enabled = false;
+    private int batchSize = 5000;
+    private int maximumRejectedLines = 100;
+}
@@ -0,0 +1,17 @@
+package com.acmebank.account_manager.configs;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "acmebank.async-transfers")
+public class AsyncTransferProperties {
+    private int workers = 4;
+    private int queueCapacity = 10000;
+    private Duration retention = Duration.ofMinutes(10);
+    private int maximumRetained = 100000;
+}
@@ -0,0 +1,16 @@
+package com.acmebank.account_manager.configs;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "acmebank.balance-cache")
+public class BalanceCacheProperties {
+    private boolean enabled = true;
+    private int maximumSize = 100000;
+    private Duration timeToLive = Duration.ofMinutes(5);
+}
@@ -0,0 +1,14 @@
+package com.acmebank.account_manager.configs;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "acmebank.balance-projection")
+public class BalanceProjectionProperties {
+    private boolean enabled = true;
+    private int batchSize = 1000;
+    private int maximumSize = 100000;
+}
@@ -0,0 +1,15 @@
+package com.acmebank.account_manager.configs;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "acmebank.fx")
+public class FxProperties {
+    private String ratesFile = "./fx-rates.properties";
+    private Duration reloadInterval = Duration.ofSeconds(10);
+}
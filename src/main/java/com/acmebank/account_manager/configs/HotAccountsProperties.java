@@ -0,0 +1,13 @@
+package com.acmebank.account_manager.configs;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "acmebank.hot-accounts")
+public class HotAccountsProperties {
+    private boolean enabled = true;
+    private int capacity = 256;
+}
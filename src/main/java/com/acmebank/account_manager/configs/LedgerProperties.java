@@ -0,0 +1,38 @@
+package com.acmebank.account_manager.configs;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "acmebank.ledger")
+public class LedgerProperties {
+    private Engine engine = Engine.JPA;
+    private Concurrency concurrency = Concurrency.PESSIMISTIC;
+    private int optimisticRetries = 5;
+    private int shards = Runtime.getRuntime().availableProcessors();
+    private Duration flushInterval = Duration.ofMillis(50);
+    private int flushBatchSize = 1000;
+    private int idBlockSize = 10000;
+    private String journalDir = "./ledger-journal";
+    private DataSize journalSegmentSize = DataSize.ofMegabytes(64);
+    private boolean journalFsync = true;
+    private String snapshotDir = "./ledger-snapshots";
+    private Duration snapshotInterval = Duration.ofMinutes(5);
+    private boolean groupCommit = false;
+    private Duration groupCommitWindow = Duration.ofMillis(2);
+    private int groupCommitSize = 64;
+    private Duration groupCommitTimeout = Duration.ofSeconds(10);
+
+    public enum Engine {
+        JPA, SHARDED
+    }
+
+    public enum Concurrency {
+        PESSIMISTIC, OPTIMISTIC, CONDITIONAL
+    }
+}
@@ -0,0 +1,28 @@
+package com.acmebank.account_manager.configs;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "acmebank.reconciliation")
+public class ReconciliationProperties {
+    /*
+     * Spring cron expression of scheduled runs, e.g. "0 0 2 * * *" for 2am every night, "-" runs only on request.
+     */
+    private String cron = "-";
+    /*
+     * Transaction ids read by one query.
+     */
+    private int chunkSize = 100_000;
+    /*
+     * Chunks read at the same time, 0 for one per processor. Each holds a connection while it is read.
+     */
+    private int parallelism = 0;
+    /*
+     * Accounts reconciled per pass over the transaction table, bounding the memory of a run.
+     */
+    private int maximumAccounts = 1_000_000;
+    private int maximumReported = 1000;
+}
@@ -0,0 +1,32 @@
+package com.acmebank.account_manager.configs;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "acmebank.sharding")
+public class ShardingProperties {
+    /*
+     * One database per shard, account id mod the number of shards picks the shard. Empty keeps spring.datasource.
+     */
+    private List<ShardDataSource> datasources = new ArrayList<>();
+    private Duration recoveryInterval = Duration.ofSeconds(5);
+    /*
+     * How long a cross-shard transfer may stay debited but not credited before recovery undoes it.
+     */
+    private Duration sagaTimeout = Duration.ofSeconds(30);
+
+    @Getter
+    @Setter
+    public static class ShardDataSource {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
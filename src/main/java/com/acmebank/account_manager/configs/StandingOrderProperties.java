@@ -0,0 +1,19 @@
+package com.acmebank.account_manager.configs;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "acmebank.standing-orders")
+public class StandingOrderProperties {
+    private boolean enabled = true;
+    private int workers = 2;
+    private int batchSize = 200;
+    private Duration tick = Duration.ofSeconds(1);
+    private Duration horizon = Duration.ofMinutes(10);
+    private Duration retryDelay = Duration.ofSeconds(5);
+}
@@ -0,0 +1,18 @@
+package com.acmebank.account_manager.configs;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "acmebank.striped-balances")
+public class StripedBalancesProperties {
+    /*
+     * Account id to number of credit slots, applied on startup; 0 folds the slots back into the account.
+     */
+    private Map<Long, Integer> accounts = new HashMap<>();
+}
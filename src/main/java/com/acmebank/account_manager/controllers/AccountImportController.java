@@ -0,0 +1,35 @@
+package com.acmebank.account_manager.controllers;
+
+import com.acmebank.account_manager.data.models.responses.ImportedAccounts;
+import com.acmebank.account_manager.services.provisioning.AccountImporter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import static com.acmebank.account_manager.shared.Endpoint.IMPORT_ACCOUNTS;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
+
+/*
+ * Off unless acmebank.account-import.enabled is true, the request body is read while the accounts are inserted.
+ */
+@RestController
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@ConditionalOnProperty(prefix = "acmebank.account-import", name = "enabled", havingValue = "true")
+public class AccountImportController {
+    static final String TEXT_CSV_VALUE = "text/csv";
+    private final AccountImporter accountImporter;
+
+    @PostMapping(value = IMPORT_ACCOUNTS, produces = APPLICATION_JSON_VALUE, consumes = {TEXT_CSV_VALUE, TEXT_PLAIN_VALUE})
+    ResponseEntity<ImportedAccounts> importAccounts(InputStream csv) throws IOException {
+        return ResponseEntity.ok(accountImporter.importCsv(new InputStreamReader(csv, UTF_8)));
+    }
+}
@@ -1,31 +1,90 @@
 package com.acmebank.account_manager.controllers;
 
+import com.acmebank.account_manager.data.models.requests.BatchTransferRequest;
+import com.acmebank.account_manager.data.models.requests.StandingOrderRequest;
 import com.acmebank.account_manager.data.models.requests.TransferRequest;
 import com.acmebank.account_manager.data.models.responses.AccountBalance;
-import com.acmebank.account_manager.data.models.responses.Transaction;
+import com.acmebank.account_manager.data.models.responses.BatchTransferResult;
+import com.acmebank.account_manager.data.models.responses.StandingOrderDetails;
+import com.acmebank.account_manager.data.models.responses.TransactionHistory;
+import com.acmebank.account_manager.data.models.responses.TransferStatus;
 import com.acmebank.account_manager.services.AccountManager;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.time.Instant;
+import java.util.List;
 
 import static com.acmebank.account_manager.shared.Endpoint.GET_ACCOUNT;
+import static com.acmebank.account_manager.shared.Endpoint.GET_ACCOUNT_STATEMENT;
+import static com.acmebank.account_manager.shared.Endpoint.GET_ACCOUNT_TRANSACTIONS;
+import static com.acmebank.account_manager.shared.Endpoint.STANDING_ORDER;
+import static com.acmebank.account_manager.shared.Endpoint.STANDING_ORDERS;
 import static com.acmebank.account_manager.shared.Endpoint.TRANSFER;
+import static com.acmebank.account_manager.shared.Endpoint.TRANSFER_BATCH;
+import static com.acmebank.account_manager.shared.Endpoint.TRANSFER_STATUS;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
 @RestController
 @RequiredArgsConstructor(onConstructor = @__(@Autowired))
 public class AccountManagerController {
+    static final String CONSISTENCY_HEADER = "X-Consistency";
     private final AccountManager accountManager;
     @GetMapping(value = GET_ACCOUNT, produces = APPLICATION_JSON_VALUE)
-    ResponseEntity<AccountBalance> getAccountBalance(@PathVariable long id) {
-        return accountManager.getAccountBalance(id);
+    ResponseEntity<AccountBalance> getAccountBalance(@PathVariable long id,
+                                                     @RequestParam(required = false) String consistency,
+                                                     @RequestHeader(name = CONSISTENCY_HEADER, required = false) String consistencyHeader) {
+        return accountManager.getAccountBalance(id, consistency != null ? consistency : consistencyHeader);
+    }
+
+    @GetMapping(value = GET_ACCOUNT_TRANSACTIONS, produces = APPLICATION_JSON_VALUE)
+    ResponseEntity<TransactionHistory> getTransactionHistory(@PathVariable long id,
+                                                             @RequestParam(required = false) String cursor,
+                                                             @RequestParam(defaultValue = "20") int size) {
+        return accountManager.getTransactionHistory(id, cursor, size);
+    }
+
+    @GetMapping(value = GET_ACCOUNT_STATEMENT)
+    ResponseEntity<StreamingResponseBody> getStatement(@PathVariable long id,
+                                                       @RequestParam(defaultValue = "ndjson") String format,
+                                                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        return accountManager.getStatement(id, format, from, to);
     }
 
     @PostMapping(value = TRANSFER, produces = APPLICATION_JSON_VALUE, consumes = APPLICATION_JSON_VALUE)
-    ResponseEntity<Transaction> transfer(@Valid @RequestBody TransferRequest transferRequest) {
-        return accountManager.transfer(transferRequest);
+    ResponseEntity<?> transfer(@Valid @RequestBody TransferRequest transferRequest,
+                               @RequestParam(required = false) String mode) {
+        return accountManager.transfer(transferRequest, mode);
+    }
+
+    @GetMapping(value = TRANSFER_STATUS, produces = APPLICATION_JSON_VALUE)
+    ResponseEntity<TransferStatus> getTransferStatus(@PathVariable String id) {
+        return accountManager.getTransferStatus(id);
+    }
+
+    @PostMapping(value = TRANSFER_BATCH, produces = APPLICATION_JSON_VALUE, consumes = APPLICATION_JSON_VALUE)
+    ResponseEntity<List<BatchTransferResult>> transferBatch(@Valid @RequestBody BatchTransferRequest batchTransferRequest) {
+        return accountManager.transferBatch(batchTransferRequest);
+    }
+
+    @PostMapping(value = STANDING_ORDERS, produces = APPLICATION_JSON_VALUE, consumes = APPLICATION_JSON_VALUE)
+    ResponseEntity<StandingOrderDetails> createStandingOrder(@Valid @RequestBody StandingOrderRequest standingOrderRequest) {
+        return accountManager.createStandingOrder(standingOrderRequest);
+    }
+
+    @GetMapping(value = STANDING_ORDER, produces = APPLICATION_JSON_VALUE)
+    ResponseEntity<StandingOrderDetails> getStandingOrder(@PathVariable long id) {
+        return accountManager.getStandingOrder(id);
+    }
+
+    @DeleteMapping(value = STANDING_ORDER, produces = APPLICATION_JSON_VALUE)
+    ResponseEntity<StandingOrderDetails> cancelStandingOrder(@PathVariable long id) {
+        return accountManager.cancelStandingOrder(id);
     }
 }
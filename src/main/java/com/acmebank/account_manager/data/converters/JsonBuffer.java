@@ -0,0 +1,147 @@
+package com.acmebank.account_manager.data.converters;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/*
+ * Growable byte buffer a JSON body is read into or assembled in. One is kept per thread, so converting a request or
+ * response allocates no buffer of its own; a buffer grown beyond RETAINED_CAPACITY is not kept.
+ */
+final class JsonBuffer {
+    static final int RETAINED_CAPACITY = 64 * 1024;
+    /* Timestamps after 9999-12-31T23:59:59.999Z need more than four year digits. */
+    static final long MAX_TIMESTAMP_MILLIS = 253402300799999L;
+    private static final long MILLIS_PER_DAY = 86400000L;
+    private static final byte[] UTC_OFFSET = "+00:00".getBytes();
+    private byte[] bytes = new byte[512];
+    private int size;
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean retainable() {
+        return bytes.length <= RETAINED_CAPACITY;
+    }
+
+    void reset() {
+        size = 0;
+    }
+
+    JsonBuffer append(final byte[] fragment) {
+        ensureCapacity(fragment.length);
+        System.arraycopy(fragment, 0, bytes, size, fragment.length);
+        size += fragment.length;
+        return this;
+    }
+
+    JsonBuffer append(final long value) {
+        if(value == Long.MIN_VALUE) {
+            return appendAscii(Long.toString(value));
+        }
+        ensureCapacity(20);
+        long remaining = value;
+        if(remaining < 0) {
+            bytes[size++] = '-';
+            remaining = -remaining;
+        }
+        size += digits(remaining);
+        int position = size;
+        do {
+            bytes[--position] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        } while(remaining != 0);
+        return this;
+    }
+
+    /*
+     * Only for strings known to hold ASCII, e.g. numbers and enum names.
+     */
+    JsonBuffer appendAscii(final String value) {
+        ensureCapacity(value.length());
+        for(int i = 0; i < value.length(); i++) {
+            bytes[size++] = (byte) value.charAt(i);
+        }
+        return this;
+    }
+
+    /*
+     * Epoch millis between 1970 and 9999 as yyyy-MM-dd'T'HH:mm:ss.SSS+00:00, the way Jackson writes dates by default.
+     */
+    JsonBuffer appendTimestamp(final long epochMillis) {
+        if(epochMillis < 0 || epochMillis > MAX_TIMESTAMP_MILLIS) {
+            throw new IllegalArgumentException("Timestamp out of range: " + epochMillis);
+        }
+        ensureCapacity(31);
+        /* Civil date from days since epoch, proleptic Gregorian, see http://howardhinnant.github.io/date_algorithms.html */
+        final long days = epochMillis / MILLIS_PER_DAY;
+        final long millisOfDay = epochMillis % MILLIS_PER_DAY;
+        final long z = days + 719468;
+        final long era = z / 146097;
+        final long dayOfEra = z - era * 146097;
+        final long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        final long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        final long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        final int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        final int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        final int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+        bytes[size++] = '"';
+        padded(year, 4).separator('-').padded(month, 2).separator('-').padded(day, 2).separator('T');
+        padded((int) (millisOfDay / 3600000), 2).separator(':');
+        padded((int) (millisOfDay / 60000 % 60), 2).separator(':');
+        padded((int) (millisOfDay / 1000 % 60), 2).separator('.');
+        padded((int) (millisOfDay % 1000), 3).append(UTC_OFFSET);
+        bytes[size++] = '"';
+        return this;
+    }
+
+    void readFrom(final InputStream inputStream) throws IOException {
+        int read;
+        while((read = inputStream.read(bytes, size, bytes.length - size)) != -1) {
+            size += read;
+            ensureCapacity(1);
+        }
+    }
+
+    void writeTo(final OutputStream outputStream) throws IOException {
+        outputStream.write(bytes, 0, size);
+    }
+
+    private JsonBuffer padded(final int value, final int width) {
+        int remaining = value;
+        for(int position = size + width - 1; position >= size; position--) {
+            bytes[position] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        size += width;
+        return this;
+    }
+
+    private JsonBuffer separator(final char separator) {
+        bytes[size++] = (byte) separator;
+        return this;
+    }
+
+    private void ensureCapacity(final int additional) {
+        if(size + additional > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + additional));
+        }
+    }
+
+    private static int digits(final long value) {
+        long bound = 10;
+        for(int digits = 1; digits < 19; digits++) {
+            if(value < bound) {
+                return digits;
+            }
+            bound *= 10;
+        }
+        return 19;
+    }
+}
@@ -0,0 +1,24 @@
+package com.acmebank.account_manager.data.converters;
+
+import com.acmebank.account_manager.shared.Money;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.math.BigDecimal;
+
+/*
+ * Keeps Money columns as DECIMAL so existing data and SQL aggregates are unaffected.
+ */
+@Converter(autoApply = true)
+public class MoneyConverter implements AttributeConverter<Money, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(final Money money) {
+        return money == null ? null : money.toBigDecimal();
+    }
+
+    @Override
+    public Money convertToEntityAttribute(final BigDecimal amount) {
+        return amount == null ? null : Money.of(amount);
+    }
+}
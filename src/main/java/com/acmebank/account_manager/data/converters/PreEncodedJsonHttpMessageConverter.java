@@ -0,0 +1,188 @@
+package com.acmebank.account_manager.data.converters;
+
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.data.models.responses.AccountBalance;
+import com.acmebank.account_manager.data.models.responses.Transaction;
+import com.acmebank.account_manager.shared.AccountType;
+import com.acmebank.account_manager.shared.Currency;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.json.JsonWriteFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.util.StdDateFormat;
+import lombok.val;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.TimeZone;
+import java.util.stream.Stream;
+
+/*
+ * Writes AccountBalance and Transaction responses and reads TransferRequest bodies without Jackson's reflective bean
+ * serialization. Field names, enum names and the object layout are encoded once, per message only numbers and the
+ * timestamp are formatted, into a per-thread buffer sent with one write and a Content-Length. The output is byte for
+ * byte what the application's ObjectMapper writes; with spring.jackson settings changing that layout, every other
+ * type and any charset but UTF-8, messages are left to the Jackson converter. A request body the fast parser does not
+ * take is read by the ObjectMapper, so it gets the same result or error as before.
+ */
+@Component
+public class PreEncodedJsonHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+    private static final ThreadLocal<JsonBuffer> BUFFERS = ThreadLocal.withInitial(JsonBuffer::new);
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] BALANCE = ascii("{\"balance\":");
+    private static final byte[] CURRENCY = ascii(",\"currency\":");
+    private static final byte[] TYPE = ascii(",\"type\":");
+    private static final byte[] TRANSACTION_ID = ascii("{\"transactionId\":");
+    private static final byte[] FROM_ACCOUNT_ID = ascii(",\"fromAccountId\":");
+    private static final byte[] FROM_ACCOUNT_BALANCE = ascii(",\"fromAccountBalance\":");
+    private static final byte[] TO_ACCOUNT_ID = ascii(",\"toAccountId\":");
+    private static final byte[] TO_ACCOUNT_BALANCE = ascii(",\"toAccountBalance\":");
+    private static final byte[] CREATED_AT = ascii(",\"createdAt\":");
+    private static final byte[] END_OBJECT = ascii("}");
+    private static final byte[][] CURRENCIES = quoted(Stream.of(Currency.values()).map(Enum::name).toArray(String[]::new));
+    private static final byte[][] TYPES = quoted(Stream.of(AccountType.values()).map(Enum::name).toArray(String[]::new));
+    private final ObjectMapper objectMapper;
+    private final boolean defaultLayout;
+    private final boolean isoTimestamps;
+
+    PreEncodedJsonHttpMessageConverter(final ObjectMapper objectMapper) {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+        this.objectMapper = objectMapper;
+        val config = objectMapper.getSerializationConfig();
+        val inclusion = config.getDefaultPropertyInclusion().getValueInclusion();
+        this.defaultLayout = config.getPropertyNamingStrategy() == null
+                && (inclusion == JsonInclude.Include.ALWAYS || inclusion == JsonInclude.Include.USE_DEFAULTS)
+                && !config.isEnabled(SerializationFeature.INDENT_OUTPUT)
+                && !objectMapper.isEnabled(JsonGenerator.Feature.WRITE_BIGDECIMAL_AS_PLAIN)
+                && !objectMapper.getFactory().isEnabled(JsonWriteFeature.WRITE_NUMBERS_AS_STRINGS.mappedFeature());
+        this.isoTimestamps = !config.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                && config.getDateFormat() instanceof StdDateFormat
+                && TimeZone.getTimeZone("UTC").hasSameRules(config.getTimeZone());
+    }
+
+    @Override
+    protected boolean supports(final Class<?> clazz) {
+        return clazz == TransferRequest.class || clazz == AccountBalance.class || clazz == Transaction.class;
+    }
+
+    @Override
+    public boolean canRead(final Class<?> clazz, final MediaType mediaType) {
+        return clazz == TransferRequest.class && canRead(mediaType) && utf8(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(final Class<?> clazz, final MediaType mediaType) {
+        return defaultLayout && (clazz == AccountBalance.class || clazz == Transaction.class) && canWrite(mediaType) && utf8(mediaType);
+    }
+
+    @Override
+    protected Object readInternal(final Class<?> clazz, final HttpInputMessage inputMessage) throws IOException {
+        val buffer = buffer();
+        try {
+            buffer.readFrom(inputMessage.getBody());
+            val transferRequest = TransferRequestParser.parse(buffer.bytes(), buffer.size());
+            if(transferRequest != null) {
+                return transferRequest;
+            }
+            try {
+                return objectMapper.readValue(buffer.bytes(), 0, buffer.size(), TransferRequest.class);
+            } catch (JsonProcessingException jpe) {
+                throw new HttpMessageNotReadableException("JSON parse error: " + jpe.getOriginalMessage(), jpe, inputMessage);
+            }
+        } finally {
+            release(buffer);
+        }
+    }
+
+    @Override
+    protected void writeInternal(final Object object, final HttpOutputMessage outputMessage) throws IOException {
+        val buffer = buffer();
+        try {
+            if(object instanceof AccountBalance) {
+                accountBalance(buffer, (AccountBalance) object);
+            } else {
+                transaction(buffer, (Transaction) object);
+            }
+            outputMessage.getHeaders().setContentLength(buffer.size());
+            buffer.writeTo(outputMessage.getBody());
+        } finally {
+            release(buffer);
+        }
+    }
+
+    private void transaction(final JsonBuffer buffer, final Transaction transaction) throws JsonProcessingException {
+        buffer.append(TRANSACTION_ID).append(transaction.getTransactionId())
+                .append(FROM_ACCOUNT_ID).append(transaction.getFromAccountId())
+                .append(FROM_ACCOUNT_BALANCE);
+        accountBalance(buffer, transaction.getFromAccountBalance());
+        buffer.append(TO_ACCOUNT_ID).append(transaction.getToAccountId())
+                .append(TO_ACCOUNT_BALANCE);
+        accountBalance(buffer, transaction.getToAccountBalance());
+        buffer.append(CREATED_AT);
+        timestamp(buffer, transaction.getCreatedAt());
+        buffer.append(END_OBJECT);
+    }
+
+    private void accountBalance(final JsonBuffer buffer, final AccountBalance accountBalance) {
+        if(accountBalance == null) {
+            buffer.append(NULL);
+            return;
+        }
+        buffer.append(BALANCE);
+        if(accountBalance.getBalance() == null) {
+            buffer.append(NULL);
+        } else {
+            buffer.appendAscii(accountBalance.getBalance().toString());
+        }
+        buffer.append(CURRENCY).append(accountBalance.getCurrency() == null ? NULL : CURRENCIES[accountBalance.getCurrency().ordinal()])
+                .append(TYPE).append(accountBalance.getType() == null ? NULL : TYPES[accountBalance.getType().ordinal()])
+                .append(END_OBJECT);
+    }
+
+    private void timestamp(final JsonBuffer buffer, final Timestamp timestamp) throws JsonProcessingException {
+        if(timestamp == null) {
+            buffer.append(NULL);
+        } else if(isoTimestamps && timestamp.getTime() >= 0 && timestamp.getTime() <= JsonBuffer.MAX_TIMESTAMP_MILLIS) {
+            buffer.appendTimestamp(timestamp.getTime());
+        } else {
+            buffer.append(objectMapper.writeValueAsBytes(timestamp));
+        }
+    }
+
+    private static boolean utf8(final MediaType mediaType) {
+        return mediaType == null || mediaType.getCharset() == null || StandardCharsets.UTF_8.equals(mediaType.getCharset());
+    }
+
+    private static JsonBuffer buffer() {
+        val buffer = BUFFERS.get();
+        buffer.reset();
+        return buffer;
+    }
+
+    private static void release(final JsonBuffer buffer) {
+        if(!buffer.retainable()) {
+            BUFFERS.remove();
+        }
+    }
+
+    private static byte[] ascii(final String fragment) {
+        return fragment.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[][] quoted(final String[] names) {
+        val quoted = new byte[names.length][];
+        for(int i = 0; i < names.length; i++) {
+            quoted[i] = ascii('"' + names[i] + '"');
+        }
+        return quoted;
+    }
+}
@@ -0,0 +1,243 @@
+package com.acmebank.account_manager.data.converters;
+
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.shared.Currency;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Reads a TransferRequest from a flat JSON object without building a token stream or a String per key. Only input
+ * Jackson would read the same way is accepted: integer account ids, a plain number or null amount, an unescaped
+ * ASCII string or null currency, and no unknown or repeated fields. Anything else, including malformed
+ * input, returns null so the caller can hand the body to Jackson for the same result or error it gives today.
+ */
+final class TransferRequestParser {
+    private static final byte[] FROM_ACCOUNT_ID = "fromAccountId".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TO_ACCOUNT_ID = "toAccountId".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] AMOUNT = "amount".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CURRENCY = "currency".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[][] CURRENCY_NAMES = currencyNames();
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_LONG_DIGITS = 18;
+    private static final int MAX_NUMBER_LENGTH = 64;
+    private final byte[] json;
+    private final int end;
+    private int position;
+    private long integer;
+
+    private TransferRequestParser(final byte[] json, final int length) {
+        this.json = json;
+        this.end = length;
+    }
+
+    static TransferRequest parse(final byte[] json, final int length) {
+        return new TransferRequestParser(json, length).transferRequest();
+    }
+
+    private TransferRequest transferRequest() {
+        long fromAccountId = 0;
+        long toAccountId = 0;
+        BigDecimal amount = null;
+        String currency = null;
+        int seen = 0;
+        if(!next('{')) {
+            return null;
+        }
+        if(!next('}')) {
+            do {
+                final int keyStart = stringStart();
+                if(keyStart < 0) {
+                    return null;
+                }
+                final int keyEnd = position - 1;
+                if(!next(':')) {
+                    return null;
+                }
+                skipWhitespace();
+                final int field = field(keyStart, keyEnd);
+                if(field == 0 || (seen & field) != 0) {
+                    return null;
+                }
+                seen |= field;
+                if(field == 1 || field == 2) {
+                    if(!integer()) {
+                        return null;
+                    }
+                    if(field == 1) {
+                        fromAccountId = integer;
+                    } else {
+                        toAccountId = integer;
+                    }
+                } else if(field == 4) {
+                    if(literal(NULL)) {
+                        amount = null;
+                    } else {
+                        final int start = position;
+                        if(!number() || position - start > MAX_NUMBER_LENGTH) {
+                            return null;
+                        }
+                        amount = new BigDecimal(new String(json, start, position - start, StandardCharsets.US_ASCII));
+                    }
+                } else {
+                    if(literal(NULL)) {
+                        currency = null;
+                    } else {
+                        final int start = stringStart();
+                        if(start < 0) {
+                            return null;
+                        }
+                        currency = currency(start, position - 1);
+                    }
+                }
+            } while(next(','));
+            if(!next('}')) {
+                return null;
+            }
+        }
+        skipWhitespace();
+        return position == end ? new TransferRequest(fromAccountId, toAccountId, amount, currency) : null;
+    }
+
+    private int field(final int keyStart, final int keyEnd) {
+        if(matches(keyStart, keyEnd, FROM_ACCOUNT_ID)) {
+            return 1;
+        }
+        if(matches(keyStart, keyEnd, TO_ACCOUNT_ID)) {
+            return 2;
+        }
+        if(matches(keyStart, keyEnd, AMOUNT)) {
+            return 4;
+        }
+        return matches(keyStart, keyEnd, CURRENCY) ? 8 : 0;
+    }
+
+    /*
+     * Currency names are returned as the enum's own constant, other values are validated and rejected later.
+     */
+    private String currency(final int start, final int end) {
+        for(int i = 0; i < CURRENCY_NAMES.length; i++) {
+            if(matches(start, end, CURRENCY_NAMES[i])) {
+                return Currency.values()[i].name();
+            }
+        }
+        return new String(json, start, end - start, StandardCharsets.US_ASCII);
+    }
+
+    private boolean matches(final int start, final int end, final byte[] expected) {
+        if(end - start != expected.length) {
+            return false;
+        }
+        for(int i = 0; i < expected.length; i++) {
+            if(json[start + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Skips an opening quote and an unescaped ASCII string, returns where its content starts or -1.
+     */
+    private int stringStart() {
+        if(!next('"')) {
+            return -1;
+        }
+        final int start = position;
+        while(position < end) {
+            final byte b = json[position++];
+            if(b == '"') {
+                return start;
+            }
+            if(b == '\\' || b < 0x20) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private boolean literal(final byte[] literal) {
+        if(end - position >= literal.length && matches(position, position + literal.length, literal)) {
+            position += literal.length;
+            return true;
+        }
+        return false;
+    }
+
+    /*
+     * A JSON integer Jackson reads as a long without coercion, its value is left in integer.
+     */
+    private boolean integer() {
+        final boolean negative = position < end && json[position] == '-';
+        if(negative) {
+            position++;
+        }
+        final int digits = digits();
+        if(digits == 0 || digits > MAX_LONG_DIGITS || (digits > 1 && json[position - digits] == '0')
+                || (position < end && (json[position] == '.' || json[position] == 'e' || json[position] == 'E'))) {
+            return false;
+        }
+        long value = 0;
+        for(int i = position - digits; i < position; i++) {
+            value = value * 10 + (json[i] - '0');
+        }
+        integer = negative ? -value : value;
+        return true;
+    }
+
+    private boolean number() {
+        if(position < end && json[position] == '-') {
+            position++;
+        }
+        final int digits = digits();
+        if(digits == 0 || (digits > 1 && json[position - digits] == '0')) {
+            return false;
+        }
+        if(position < end && json[position] == '.') {
+            position++;
+            if(digits() == 0) {
+                return false;
+            }
+        }
+        if(position < end && (json[position] == 'e' || json[position] == 'E')) {
+            position++;
+            if(position < end && (json[position] == '+' || json[position] == '-')) {
+                position++;
+            }
+            return digits() > 0;
+        }
+        return true;
+    }
+
+    private int digits() {
+        final int start = position;
+        while(position < end && json[position] >= '0' && json[position] <= '9') {
+            position++;
+        }
+        return position - start;
+    }
+
+    private boolean next(final char expected) {
+        skipWhitespace();
+        if(position < end && json[position] == expected) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while(position < end && (json[position] == ' ' || json[position] == '\n' || json[position] == '\r' || json[position] == '\t')) {
+            position++;
+        }
+    }
+
+    private static byte[][] currencyNames() {
+        final Currency[] currencies = Currency.values();
+        final byte[][] names = new byte[currencies.length][];
+        for(int i = 0; i < currencies.length; i++) {
+            names[i] = currencies[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+        return names;
+    }
+}
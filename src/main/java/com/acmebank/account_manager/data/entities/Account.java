@@ -1,23 +1,26 @@
 package com.acmebank.account_manager.data.entities;
 
+import com.acmebank.account_manager.services.cache.AccountBalanceCacheListener;
 import com.acmebank.account_manager.shared.AccountType;
 import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import javax.persistence.*;
 
-import java.math.BigDecimal;
 import java.sql.Timestamp;
 
 import static javax.persistence.GenerationType.IDENTITY;
 
 @Entity
 @Getter
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
+@EntityListeners(AccountBalanceCacheListener.class)
 public class Account {
 
     @Id
@@ -25,7 +28,14 @@ public class Account {
     private Long id;
 
     @Column(nullable = false)
-    private BigDecimal balance;
+    private Money balance;
+
+    /*
+     * Balance the account was created with, what reconciliation adds the account's transactions to. Null on accounts
+     * created before it was recorded, those cannot be reconciled.
+     */
+    @Column(updatable = false)
+    private Money openingBalance;
 
     @Column(nullable = false)
     private Currency currency;
@@ -40,4 +50,23 @@ public class Account {
     @UpdateTimestamp
     @Column(nullable = false)
     private Timestamp updatedAt;
+
+    /*
+     * Number of account_stripe slots taking this account's credits, 0 when the account is not striped.
+     */
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int stripes;
+
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
+    @PrePersist
+    void recordOpeningBalance() {
+        if(openingBalance == null) {
+            openingBalance = balance;
+        }
+    }
 }
@@ -0,0 +1,39 @@
+package com.acmebank.account_manager.data.entities;
+
+import com.acmebank.account_manager.shared.Money;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+import java.io.Serializable;
+
+/*
+ * One credit slot of a striped account, see Account.stripes. Rows are written with plain SQL by StripedBalances.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(AccountStripe.Key.class)
+public class AccountStripe {
+
+    @Id
+    private Long accountId;
+
+    @Id
+    private Integer slot;
+
+    @Column(nullable = false)
+    private Money balance;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long accountId;
+        private Integer slot;
+    }
+}
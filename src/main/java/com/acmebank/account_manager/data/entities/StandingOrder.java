@@ -0,0 +1,74 @@
+package com.acmebank.account_manager.data.entities;
+
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Frequency;
+import com.acmebank.account_manager.shared.Money;
+import com.acmebank.account_manager.shared.StandingOrderOutcome;
+import com.acmebank.account_manager.shared.StandingOrderState;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+import java.sql.Timestamp;
+
+import static javax.persistence.GenerationType.IDENTITY;
+
+/*
+ * A transfer repeated at frequency from firstRunAt, its nextRunAt null once FINISHED. Each firing advances nextRunAt
+ * and runs and sets the last outcome in a single conditional update, so a firing is claimed by exactly one scheduler.
+ * The accounts may live on any shard, orders are kept with the default datasource. Rows are written with plain SQL
+ * by StandingOrders.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(indexes = @Index(name = "idx_standing_order_state_next_run_at", columnList = "state, nextRunAt"))
+public class StandingOrder {
+
+    @Id
+    @GeneratedValue(strategy = IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long fromAccount;
+
+    @Column(nullable = false)
+    private Long toAccount;
+
+    @Column(nullable = false)
+    private Money amount;
+
+    @Column(nullable = false)
+    private Currency currency;
+
+    @Column(nullable = false)
+    private Frequency frequency;
+
+    @Column(nullable = false)
+    private Timestamp firstRunAt;
+
+    private Timestamp nextRunAt;
+
+    @Column(nullable = false)
+    private int runs;
+
+    @Column(nullable = false)
+    private StandingOrderState state;
+
+    private Timestamp lastRunAt;
+
+    private StandingOrderOutcome lastOutcome;
+
+    private Long lastTransactionId;
+
+    private Integer lastErrorCode;
+
+    @Column(nullable = false)
+    private Timestamp createdAt;
+
+    @Column(nullable = false)
+    private Timestamp updatedAt;
+}
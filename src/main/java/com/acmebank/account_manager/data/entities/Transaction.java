@@ -1,6 +1,7 @@
 package com.acmebank.account_manager.data.entities;
 
 import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -12,33 +13,60 @@ import javax.persistence.*;
 import java.math.BigDecimal;
 import java.sql.Timestamp;
 
-import static javax.persistence.GenerationType.IDENTITY;
+import static javax.persistence.FetchType.LAZY;
+import static javax.persistence.GenerationType.SEQUENCE;
 
 @Entity
 @Getter
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
+@Table(indexes = {
+        @Index(name = "idx_transaction_from_account_create_at", columnList = "from_account, createAt, id"),
+        @Index(name = "idx_transaction_to_account_create_at", columnList = "to_account, createAt, id")
+})
 public class Transaction {
+    /*
+     * Ids come from a pooled sequence, one round trip reserves ID_ALLOCATION_SIZE ids ending at the value returned,
+     * so inserts can be deferred to flush time and sent as JDBC batches.
+     */
+    public static final String ID_SEQUENCE = "transaction_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+    /* fraction digits of the exchange rate stored with each transfer */
+    public static final int RATE_SCALE = 8;
 
     @Id
-    @GeneratedValue(strategy = IDENTITY)
+    @GeneratedValue(strategy = SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
-    @OneToOne(cascade = CascadeType.MERGE)
+    @ManyToOne(fetch = LAZY, optional = false)
     @JoinColumn(name = "from_account", referencedColumnName = "id")
     private Account fromAccount;
 
-    @OneToOne(cascade = CascadeType.MERGE)
+    @ManyToOne(fetch = LAZY, optional = false)
     @JoinColumn(name = "to_account", referencedColumnName = "id")
     private Account toAccount;
 
     @Column(nullable = false)
-    private BigDecimal amount;
+    private Money amount;
 
     @Column
     private Currency currency;
 
+    /*
+     * What the to account was credited, in its own currency, at rate units of toCurrency per unit of currency.
+     * Null on transfers recorded before cross-currency transfers, which credited amount in currency.
+     */
+    @Column
+    private Money toAmount;
+
+    @Column
+    private Currency toCurrency;
+
+    @Column(precision = 19, scale = RATE_SCALE)
+    private BigDecimal rate;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private Timestamp createAt;
@@ -0,0 +1,65 @@
+package com.acmebank.account_manager.data.entities;
+
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+import static com.acmebank.account_manager.data.entities.Transaction.RATE_SCALE;
+
+/*
+ * Recovery log of a transfer between accounts on different shards, keyed by its transaction id. The from account's
+ * shard holds the saga from DEBITED to COMPLETED or COMPENSATED; the to account's shard holds a fence row with the
+ * same id, CREDITED once the credit is applied or ABORTED once compensation got there first, so a late credit and a
+ * compensation can never both happen. Rows are written with plain SQL by CrossShardTransferSaga.
+ */
+@Entity
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(indexes = @Index(name = "idx_transfer_saga_state_updated_at", columnList = "state, updatedAt"))
+public class TransferSaga {
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private Long fromAccount;
+
+    @Column(nullable = false)
+    private Long toAccount;
+
+    @Column(nullable = false)
+    private Money amount;
+
+    @Column(nullable = false)
+    private Currency currency;
+
+    @Column(nullable = false)
+    private Money toAmount;
+
+    @Column(nullable = false)
+    private Currency toCurrency;
+
+    @Column(nullable = false, precision = 19, scale = RATE_SCALE)
+    private BigDecimal rate;
+
+    @Column(nullable = false)
+    private State state;
+
+    @Column(nullable = false)
+    private Timestamp createdAt;
+
+    @Column(nullable = false)
+    private Timestamp updatedAt;
+
+    public enum State {
+        DEBITED, COMPLETED, COMPENSATED, CREDITED, ABORTED
+    }
+}
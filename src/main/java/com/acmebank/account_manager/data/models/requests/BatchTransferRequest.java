@@ -0,0 +1,21 @@
+package com.acmebank.account_manager.data.models.requests;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class BatchTransferRequest {
+    @NotNull(message = "Transfers are required!")
+    @Size(min = 1, max = 10000, message = "A batch should contain 1 to 10000 transfers!")
+    private List<@Valid TransferRequest> transfers;
+}
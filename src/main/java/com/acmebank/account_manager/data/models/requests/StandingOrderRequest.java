@@ -0,0 +1,43 @@
+package com.acmebank.account_manager.data.models.requests;
+
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Frequency;
+import com.acmebank.account_manager.validations.ValueOfEnum;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import javax.validation.constraints.*;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Optional;
+
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static com.acmebank.account_manager.shared.Frequency.ONCE;
+
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+public class StandingOrderRequest {
+    @PositiveOrZero(message = "Invalid account ID!")
+    private long fromAccountId;
+    @PositiveOrZero(message = "Invalid account ID!")
+    private long toAccountId;
+    @DecimalMin(value = "100", message = "Minimum transfer amount is HKD 100!")
+    @Digits(integer = 16, fraction = 2, message = "Amount should be with maximum 2 digits fraction and 16 digits integer!")
+    private BigDecimal amount;
+    @ValueOfEnum(enumClass = Currency.class)
+    private String currency;
+    @NotNull(message = "First run time is required!")
+    private Instant firstRunAt;
+    @ValueOfEnum(enumClass = Frequency.class)
+    private String frequency;
+
+    public Currency getCurrency() {
+        return Currency.valueOf(Optional.ofNullable(this.currency).orElse(HKD.name()));
+    }
+
+    public Frequency getFrequency() {
+        return Frequency.valueOf(Optional.ofNullable(this.frequency).orElse(ONCE.name()));
+    }
+}
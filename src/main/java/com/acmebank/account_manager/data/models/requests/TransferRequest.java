@@ -1,7 +1,9 @@
 package com.acmebank.account_manager.data.models.requests;
 
 import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
 import com.acmebank.account_manager.validations.ValueOfEnum;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -21,7 +23,7 @@ public class TransferRequest {
     @PositiveOrZero(message = "Invalid account ID!")
     private long toAccountId;
     @DecimalMin(value = "100", message = "Minimum transfer amount is HKD 100!")
-    @Digits(integer = 32, fraction = 18, message = "Amount should be with maximum 18 digits fraction and 32 digits integer!")
+    @Digits(integer = 16, fraction = 2, message = "Amount should be with maximum 2 digits fraction and 16 digits integer!")
     private BigDecimal amount;
     @ValueOfEnum(enumClass = Currency.class)
     private String currency;
@@ -29,4 +31,9 @@ public class TransferRequest {
     public Currency getCurrency() {
         return Currency.valueOf(Optional.ofNullable(this.currency).orElse(HKD.name()));
     }
+
+    @JsonIgnore
+    public Money getMoney() {
+        return Money.of(this.amount);
+    }
 }
@@ -2,6 +2,7 @@ package com.acmebank.account_manager.data.models.responses;
 
 import com.acmebank.account_manager.shared.AccountType;
 import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
 import lombok.AllArgsConstructor;
 import lombok.Value;
 
@@ -13,4 +14,8 @@ public class AccountBalance {
     private BigDecimal balance;
     private Currency currency;
     private AccountType type;
+
+    public static AccountBalance of(final Money balance, final Currency currency, final AccountType type) {
+        return of(balance.toBigDecimal(), currency, type);
+    }
 }
@@ -0,0 +1,23 @@
+package com.acmebank.account_manager.data.models.responses;
+
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Value;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+
+@Value
+@JsonInclude(NON_NULL)
+public class BatchTransferResult {
+    private int index;
+    private Transaction transaction;
+    private ErrorResponse error;
+
+    public static BatchTransferResult completed(final int index, final Transaction transaction) {
+        return new BatchTransferResult(index, transaction, null);
+    }
+
+    public static BatchTransferResult rejected(final int index, final AccountManagerException ame) {
+        return new BatchTransferResult(index, null, new ErrorResponse(ame.getErrorCode(), ame.getParamsArray()));
+    }
+}
@@ -0,0 +1,16 @@
+package com.acmebank.account_manager.data.models.responses;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+@Value
+public class Discrepancy {
+    private long accountId;
+    /*
+     * Opening balance plus the net of the account's transactions.
+     */
+    private BigDecimal expectedBalance;
+    private BigDecimal balance;
+    private BigDecimal difference;
+}
@@ -4,8 +4,6 @@ import com.acmebank.account_manager.shared.ErrorCode;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 
-import static java.text.MessageFormat.format;
-
 @Getter
 public class ErrorResponse {
     @JsonProperty
@@ -14,6 +12,6 @@ public class ErrorResponse {
     String msg;
     public ErrorResponse(ErrorCode errorCode, String... params){
         this.code = errorCode.getCode();
-        this.msg = format(errorCode.getMsg(), params);
+        this.msg = errorCode.format(params);
     }
 }
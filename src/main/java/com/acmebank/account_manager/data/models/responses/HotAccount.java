@@ -0,0 +1,14 @@
+package com.acmebank.account_manager.data.models.responses;
+
+import lombok.Value;
+
+@Value
+public class HotAccount {
+    private long accountId;
+    private long transfers;
+    private long maxOvercount;
+    private double waitP50Millis;
+    private double waitP99Millis;
+    private double waitP999Millis;
+    private double waitTotalMillis;
+}
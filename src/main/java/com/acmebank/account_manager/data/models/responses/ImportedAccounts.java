@@ -0,0 +1,19 @@
+package com.acmebank.account_manager.data.models.responses;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class ImportedAccounts {
+    private long lines;
+    private long created;
+    private long existing;
+    private long rejected;
+    /*
+     * The first rejected lines with their line number and reason, up to acmebank.account-import.maximum-rejected-lines.
+     */
+    private List<String> rejectedLines;
+    private long millis;
+    private long rowsPerSecond;
+}
@@ -0,0 +1,10 @@
+package com.acmebank.account_manager.data.models.responses;
+
+import lombok.Value;
+
+@Value
+public class ProvisionedAccounts {
+    private long firstAccountId;
+    private long lastAccountId;
+    private int created;
+}
@@ -0,0 +1,33 @@
+package com.acmebank.account_manager.data.models.responses;
+
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.List;
+
+@Value
+public class ReconciliationReport {
+    private Instant startedAt;
+    /*
+     * Transaction rows read, each pass of acmebank.reconciliation.maximum-accounts accounts of a shard reads the rows
+     * with a leg in its accounts, so a transfer between accounts of two passes is counted twice.
+     */
+    private long rows;
+    private long accounts;
+    /*
+     * Accounts without an opening balance, left out.
+     */
+    private long unverifiable;
+    /*
+     * Accounts that did not add up against the scan and were read again on their own, most of them moved by live
+     * transfers while the run was going.
+     */
+    private long rechecked;
+    private long discrepancies;
+    /*
+     * The first discrepancies found, up to acmebank.reconciliation.maximum-reported.
+     */
+    private List<Discrepancy> reported;
+    private long millis;
+    private long rowsPerSecond;
+}
@@ -0,0 +1,32 @@
+package com.acmebank.account_manager.data.models.responses;
+
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Frequency;
+import com.acmebank.account_manager.shared.StandingOrderOutcome;
+import com.acmebank.account_manager.shared.StandingOrderState;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+
+@Value
+@JsonInclude(NON_NULL)
+public class StandingOrderDetails {
+    private long id;
+    private long fromAccountId;
+    private long toAccountId;
+    private BigDecimal amount;
+    private Currency currency;
+    private Frequency frequency;
+    private Instant firstRunAt;
+    private Instant nextRunAt;
+    private int runs;
+    private StandingOrderState state;
+    private Instant lastRunAt;
+    private StandingOrderOutcome lastOutcome;
+    private Long lastTransactionId;
+    private Integer lastErrorCode;
+}
@@ -0,0 +1,21 @@
+package com.acmebank.account_manager.data.models.responses;
+
+import com.acmebank.account_manager.shared.Currency;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/*
+ * One transfer as seen from the statement's account: amount is negative when money left the account,
+ * balance is the account balance right after the transfer.
+ */
+@Value
+public class StatementLine {
+    private long transactionId;
+    private Timestamp createdAt;
+    private long counterpartyAccountId;
+    private BigDecimal amount;
+    private Currency currency;
+    private BigDecimal balance;
+}
@@ -0,0 +1,14 @@
+package com.acmebank.account_manager.data.models.responses;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+@Value
+public class StatementSummary {
+    private long accountId;
+    private BigDecimal openingBalance;
+    private BigDecimal closingBalance;
+    private long rows;
+    private long elapsedMillis;
+}
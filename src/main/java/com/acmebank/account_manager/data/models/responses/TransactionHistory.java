@@ -0,0 +1,16 @@
+package com.acmebank.account_manager.data.models.responses;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Value;
+
+import java.util.List;
+
+/*
+ * One page of an account's transactions, newest first. nextCursor is absent on the last page.
+ */
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TransactionHistory {
+    private List<TransactionHistoryEntry> transactions;
+    private String nextCursor;
+}
@@ -0,0 +1,48 @@
+package com.acmebank.account_manager.data.models.responses;
+
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import static com.acmebank.account_manager.data.entities.Transaction.RATE_SCALE;
+
+@Value
+@AllArgsConstructor
+public class TransactionHistoryEntry {
+    private static final BigDecimal PAR = BigDecimal.ONE.setScale(RATE_SCALE);
+
+    private long transactionId;
+    private long fromAccountId;
+    private long toAccountId;
+    private BigDecimal amount;
+    private Currency currency;
+
+    private Timestamp createdAt;
+
+    private BigDecimal toAmount;
+    private Currency toCurrency;
+    private BigDecimal rate;
+
+    public TransactionHistoryEntry(final long transactionId, final long fromAccountId, final long toAccountId,
+                                   final BigDecimal amount, final Currency currency, final Timestamp createdAt) {
+        this(transactionId, fromAccountId, toAccountId, amount, currency, createdAt, amount, currency, PAR);
+    }
+
+    /*
+     * Used by the JPQL constructor expression, which types timestamp columns as Date.
+     * Transfers stored before cross-currency support have no to amount and were credited as debited.
+     */
+    public TransactionHistoryEntry(final long transactionId, final long fromAccountId, final long toAccountId,
+                                   final Money amount, final Currency currency, final Date createdAt,
+                                   final Money toAmount, final Currency toCurrency, final BigDecimal rate) {
+        this(transactionId, fromAccountId, toAccountId, amount.toBigDecimal(), currency, (Timestamp) createdAt,
+                toAmount == null ? amount.toBigDecimal() : toAmount.toBigDecimal(),
+                toCurrency == null ? currency : toCurrency,
+                rate == null ? PAR : rate);
+    }
+}
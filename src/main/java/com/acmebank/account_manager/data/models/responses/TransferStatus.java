@@ -0,0 +1,20 @@
+package com.acmebank.account_manager.data.models.responses;
+
+import com.acmebank.account_manager.shared.TransferState;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Value;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+
+@Value
+@JsonInclude(NON_NULL)
+public class TransferStatus {
+    private String transferId;
+    private TransferState status;
+    private Transaction transaction;
+    private ErrorResponse error;
+
+    public static TransferStatus of(final String transferId, final TransferState status) {
+        return new TransferStatus(transferId, status, null, null);
+    }
+}
@@ -1,12 +1,15 @@
 package com.acmebank.account_manager.data.repositories;
 
 import com.acmebank.account_manager.data.entities.Account;
+import com.acmebank.account_manager.shared.Currency;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.QueryHints;
 
 import javax.persistence.LockModeType;
 import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface AccountRepository extends JpaRepository<Account, Long> {
@@ -14,6 +17,14 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
     @QueryHints({@QueryHint(name = "javax.persistence.lock.timeout", value = "1000")})
     Optional<Account> findById(Long id);
 
+    Optional<Account> readById(Long id);
+
+    boolean existsByIdAndCurrency(Long id, Currency currency);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints({@QueryHint(name = "javax.persistence.lock.timeout", value = "1000")})
+    List<Account> findByIdInOrderByIdAsc(Collection<Long> ids);
+
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @QueryHints({@QueryHint(name = "javax.persistence.lock.timeout", value = "1000")})
     Account save(Account account);
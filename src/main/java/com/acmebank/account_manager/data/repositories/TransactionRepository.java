@@ -1,7 +1,29 @@
 package com.acmebank.account_manager.data.repositories;
 
 import com.acmebank.account_manager.data.entities.Transaction;
+import com.acmebank.account_manager.data.models.responses.TransactionHistoryEntry;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.sql.Timestamp;
+import java.util.List;
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+    String HISTORY_ENTRY = "SELECT new com.acmebank.account_manager.data.models.responses.TransactionHistoryEntry("
+            + "t.id, t.fromAccount.id, t.toAccount.id, t.amount, t.currency, t.createAt, t.toAmount, t.toCurrency, t.rate) FROM Transaction t ";
+    String BEFORE_CURSOR = " AND (t.createAt < :createAt OR (t.createAt = :createAt AND t.id < :id))"
+            + " ORDER BY t.createAt DESC, t.id DESC";
+
+    /*
+     * Keyset seeks on the (from_account, create_at, id) and (to_account, create_at, id) indexes, only the page is read.
+     */
+    @Query(HISTORY_ENTRY + "WHERE t.fromAccount.id = :accountId" + BEFORE_CURSOR)
+    List<TransactionHistoryEntry> findOutgoingBefore(@Param("accountId") long accountId, @Param("createAt") Timestamp createAt,
+                                                     @Param("id") long id, Pageable pageable);
+
+    @Query(HISTORY_ENTRY + "WHERE t.toAccount.id = :accountId" + BEFORE_CURSOR)
+    List<TransactionHistoryEntry> findIncomingBefore(@Param("accountId") long accountId, @Param("createAt") Timestamp createAt,
+                                                     @Param("id") long id, Pageable pageable);
 }
@@ -0,0 +1,49 @@
+package com.acmebank.account_manager.data.sharding;
+
+import lombok.val;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+
+/*
+ * Hands out connections of the shard set by Shards.on, or of shard 0 when none is set: schema and data.sql
+ * initialization and anything else not tied to an account.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+    private final List<DataSource> shards;
+
+    ShardRoutingDataSource(final List<DataSource> shards) {
+        this.shards = shards;
+        val targets = new HashMap<Object, Object>();
+        for(int shard = 0; shard < shards.size(); shard++) {
+            targets.put(shard, shards.get(shard));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(0));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return Shards.current();
+    }
+
+    @Override
+    public void close() {
+        for(val shard : shards) {
+            if(shard instanceof Closeable) {
+                try {
+                    ((Closeable) shard).close();
+                } catch (IOException ioe) {
+                    throw new UncheckedIOException(ioe);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.acmebank.account_manager.data.sharding;
+
+import lombok.val;
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.mapping.ForeignKey;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+
+/*
+ * Hibernate only manages the schema of the connection it boots on, shard 0. This applies the same
+ * spring.jpa.hibernate.ddl-auto action to every other shard while the session factory is built.
+ * A cross-shard transfer is recorded on both shards with one account missing on each, so the transaction
+ * table gets no foreign keys when sharded.
+ */
+class ShardSchemaIntegrator implements Integrator {
+    private static final String TRANSACTION_TABLE = "transaction";
+    private final Shards shards;
+
+    ShardSchemaIntegrator(final Shards shards) {
+        this.shards = shards;
+    }
+
+    @Override
+    public void integrate(final Metadata metadata, final SessionFactoryImplementor sessionFactory,
+                          final SessionFactoryServiceRegistry serviceRegistry) {
+        for(val namespace : metadata.getDatabase().getNamespaces()) {
+            for(val table : namespace.getTables()) {
+                if(TRANSACTION_TABLE.equals(table.getName())) {
+                    table.getForeignKeys().values().forEach(ForeignKey::disableCreation);
+                }
+            }
+        }
+        val settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+        for(int shard = 1; shard < shards.getCount(); shard++) {
+            shards.run(shard, () -> SchemaManagementToolCoordinator.process(metadata, serviceRegistry, settings, dropAction -> {}));
+        }
+    }
+
+    @Override
+    public void disintegrate(final SessionFactoryImplementor sessionFactory, final SessionFactoryServiceRegistry serviceRegistry) {
+    }
+}
@@ -0,0 +1,48 @@
+package com.acmebank.account_manager.data.sharding;
+
+import com.acmebank.account_manager.configs.LedgerProperties;
+import com.acmebank.account_manager.configs.ShardingProperties;
+import lombok.val;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * With acmebank.sharding.datasources set, the application's DataSource routes to one pool per shard
+ * and spring.datasource is no longer used.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "acmebank.sharding", name = "datasources[0].url")
+public class ShardingConfiguration {
+
+    @Bean
+    @Primary
+    ShardRoutingDataSource dataSource(final ShardingProperties shardingProperties, final LedgerProperties ledgerProperties) {
+        if(ledgerProperties.getEngine() != LedgerProperties.Engine.JPA || ledgerProperties.isGroupCommit()) {
+            throw new IllegalStateException("Sharded datasources need acmebank.ledger.engine=jpa without group commit");
+        }
+        val shards = new ArrayList<DataSource>();
+        for(val shard : shardingProperties.getDatasources()) {
+            shards.add(DataSourceBuilder.create()
+                    .url(shard.getUrl())
+                    .username(shard.getUsername())
+                    .password(shard.getPassword())
+                    .build());
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer shardSchemaCustomizer(final Shards shards) {
+        return properties -> properties.put("hibernate.integrator_provider",
+                (IntegratorProvider) () -> List.of(new ShardSchemaIntegrator(shards)));
+    }
+}
@@ -0,0 +1,52 @@
+package com.acmebank.account_manager.data.sharding;
+
+import com.acmebank.account_manager.configs.ShardingProperties;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/*
+ * Places an account on shard accountId mod count and tells ShardRoutingDataSource which shard the current thread
+ * works on. A transaction is bound to the shard current when it begins, so the shard is chosen before calling into
+ * anything transactional. Without acmebank.sharding.datasources there is a single shard and nothing is routed.
+ */
+@Component
+public class Shards {
+    private static final ThreadLocal<Integer> current = new ThreadLocal<>();
+    @Getter
+    private final int count;
+
+    Shards(final ShardingProperties shardingProperties) {
+        this.count = Math.max(1, shardingProperties.getDatasources().size());
+    }
+
+    public int of(final long accountId) {
+        return Math.floorMod(accountId, count);
+    }
+
+    public <T> T on(final int shard, final Supplier<T> work) {
+        final Integer previous = current.get();
+        current.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if(previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        }
+    }
+
+    public void run(final int shard, final Runnable work) {
+        on(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    static Integer current() {
+        return current.get();
+    }
+}
@@ -2,17 +2,62 @@ package com.acmebank.account_manager.exceptions;
 
 import com.acmebank.account_manager.shared.ErrorCode;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
+/*
+ * Rejections are ordinary traffic, so the exception captures no stack trace and an account id parameter is only
+ * turned into a string when it is read. Rejections without parameters share one instance per ErrorCode, see of.
+ */
 @Getter
-@RequiredArgsConstructor
 public class AccountManagerException extends RuntimeException{
+    private static final String[] NO_PARAMS = new String[0];
+    private static final Map<ErrorCode, AccountManagerException> WITHOUT_PARAMS = new EnumMap<>(ErrorCode.class);
     private final ErrorCode errorCode;
+    @Getter(lombok.AccessLevel.NONE)
     private final List<String> params;
+    @Getter(lombok.AccessLevel.NONE)
+    private final long accountId;
+
+    static {
+        for(final ErrorCode errorCode : ErrorCode.values()) {
+            WITHOUT_PARAMS.put(errorCode, new AccountManagerException(errorCode, List.of()));
+        }
+    }
+
+    public AccountManagerException(final ErrorCode errorCode, final List<String> params) {
+        super(null, null, false, false);
+        this.errorCode = errorCode;
+        this.params = params;
+        this.accountId = 0;
+    }
+
+    public AccountManagerException(final ErrorCode errorCode, final long accountId) {
+        super(null, null, false, false);
+        this.errorCode = errorCode;
+        this.params = null;
+        this.accountId = accountId;
+    }
+
+    public static AccountManagerException of(final ErrorCode errorCode) {
+        return WITHOUT_PARAMS.get(errorCode);
+    }
+
+    public List<String> getParams() {
+        return params != null ? params : List.of(Long.toString(accountId));
+    }
 
     public String[] getParamsArray() {
-        return this.params.toArray(new String[0]);
+        if(params == null) {
+            return new String[]{Long.toString(accountId)};
+        }
+        return params.isEmpty() ? NO_PARAMS : params.toArray(NO_PARAMS);
+    }
+
+    @Override
+    public String getMessage() {
+        return errorCode.format(getParamsArray());
     }
 }
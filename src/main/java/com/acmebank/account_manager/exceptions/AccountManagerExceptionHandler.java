@@ -4,6 +4,8 @@ import com.acmebank.account_manager.data.models.responses.ErrorResponse;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.hibernate.exception.LockAcquisitionException;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -14,14 +16,22 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static com.acmebank.account_manager.shared.ErrorCode.GENERAL_ERROR;
+import static com.acmebank.account_manager.shared.ErrorCode.TRANSFER_QUEUE_FULL;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
 
 @Slf4j
 @ControllerAdvice
 public class AccountManagerExceptionHandler {
+    private static final String RETRY_AFTER_SECONDS = "1";
 
     @ExceptionHandler({AccountManagerException.class})
     public final ResponseEntity<ErrorResponse> handleAccountServicesException(final AccountManagerException ase) {
+        if(ase.getErrorCode() == TRANSFER_QUEUE_FULL) {
+            return ResponseEntity.status(TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .body(new ErrorResponse(ase.getErrorCode(), ase.getParamsArray()));
+        }
         return ResponseEntity.status(BAD_REQUEST).body(new ErrorResponse(ase.getErrorCode(), ase.getParamsArray()));
     }
 
@@ -41,4 +51,10 @@ public class AccountManagerExceptionHandler {
         log.error("Encountered LockAcquisitionException {}, it seems there is concurrency occurred in database.", lae);
         return ResponseEntity.status(BAD_REQUEST).body(new ErrorResponse(GENERAL_ERROR, new String[0]));
     }
+
+    @ExceptionHandler({ConcurrencyFailureException.class})
+    public final ResponseEntity<ErrorResponse> handleConcurrencyFailureException(final ConcurrencyFailureException cfe) {
+        log.error("Encountered ConcurrencyFailureException {}, it seems there is concurrency occurred in database.", cfe);
+        return ResponseEntity.status(BAD_REQUEST).body(new ErrorResponse(GENERAL_ERROR, new String[0]));
+    }
 }
@@ -1,27 +1,42 @@
 package com.acmebank.account_manager.services;
 
-import com.acmebank.account_manager.data.entities.Account;
-import com.acmebank.account_manager.data.entities.Transaction;
+import com.acmebank.account_manager.data.models.requests.BatchTransferRequest;
+import com.acmebank.account_manager.data.models.requests.StandingOrderRequest;
 import com.acmebank.account_manager.data.models.requests.TransferRequest;
 import com.acmebank.account_manager.data.models.responses.AccountBalance;
-import com.acmebank.account_manager.data.repositories.AccountRepository;
-import com.acmebank.account_manager.data.repositories.TransactionRepository;
+import com.acmebank.account_manager.data.models.responses.BatchTransferResult;
+import com.acmebank.account_manager.data.models.responses.StandingOrderDetails;
+import com.acmebank.account_manager.data.models.responses.Transaction;
+import com.acmebank.account_manager.data.models.responses.TransactionHistory;
+import com.acmebank.account_manager.data.models.responses.TransferStatus;
+import com.acmebank.account_manager.data.sharding.Shards;
 import com.acmebank.account_manager.exceptions.AccountManagerException;
-import com.acmebank.account_manager.shared.Currency;
-import lombok.RequiredArgsConstructor;
+import com.acmebank.account_manager.services.async.AsyncTransfers;
+import com.acmebank.account_manager.services.projection.BalanceProjection;
+import com.acmebank.account_manager.services.scheduling.StandingOrders;
+import com.acmebank.account_manager.shared.ErrorCode;
+import com.acmebank.account_manager.shared.ReadConsistency;
+import com.acmebank.account_manager.shared.StatementFormat;
+import com.acmebank.account_manager.shared.TransferMode;
 import lombok.val;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
 
-import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
-import java.util.function.Supplier;
+import java.util.concurrent.TimeUnit;
 
-import static com.acmebank.account_manager.shared.ErrorCode.*;
-import static java.util.Collections.EMPTY_LIST;
+import static com.acmebank.account_manager.shared.Endpoint.STANDING_ORDER;
+import static com.acmebank.account_manager.shared.Endpoint.TRANSFER_STATUS;
+import static com.acmebank.account_manager.shared.ErrorCode.INVALID_CONSISTENCY;
+import static com.acmebank.account_manager.shared.ErrorCode.INVALID_STATEMENT_FORMAT;
+import static com.acmebank.account_manager.shared.ErrorCode.INVALID_TRANSFER_MODE;
 import static org.springframework.http.HttpStatus.CREATED;
 
 /*
@@ -30,67 +45,92 @@ import static org.springframework.http.HttpStatus.CREATED;
 @Service
 @RequiredArgsConstructor(onConstructor = @__(@Autowired))
 public class AccountManager {
-    private final AccountRepository accountRepository;
-    private final TransactionRepository transactionRepository;
+    private final LedgerEngine ledgerEngine;
+    private final TransactionHistoryService transactionHistoryService;
+    private final StatementService statementService;
+    private final Shards shards;
+    private final BalanceProjection balanceProjection;
+    private final AsyncTransfers asyncTransfers;
+    private final StandingOrders standingOrders;
 
     public ResponseEntity<AccountBalance> getAccountBalance(final long id) {
-        val account = accountRepository.findById(id).orElseThrow(() -> new AccountManagerException(ACCOUNT_NOT_FOUND, List.of(Long.toString(id))));
-        return ResponseEntity.ok(AccountBalance.of(account.getBalance(), account.getCurrency(), account.getType()));
+        return ResponseEntity.ok(ledgerEngine.getAccountBalance(id));
     }
 
-    @Transactional(isolation = Isolation.REPEATABLE_READ, timeout = 1000)
-    public ResponseEntity<com.acmebank.account_manager.data.models.responses.Transaction>
-        transfer(final TransferRequest transferRequest) {
-        val fromAccountId = transferRequest.getFromAccountId();
-        val toAccountId = transferRequest.getToAccountId();
-        validateFromAndToAccount(fromAccountId, toAccountId);
-        val amount = transferRequest.getAmount();
-        val currency = transferRequest.getCurrency();
-        val fromAccount = transferAccount(fromAccountId, amount, currency, true);
-        val toAccount = transferAccount(toAccountId, amount, currency, false);
-        val transaction = Transaction.builder().fromAccount(fromAccount).toAccount(toAccount).amount(amount).currency(currency).build();
-        accountRepository.save(fromAccount);
-        accountRepository.save(toAccount);
-        val storedTransaction = transactionRepository.save(transaction);
-        return transactionResponse(fromAccountId, fromAccount, toAccountId, toAccount, storedTransaction);
+    /*
+     * Eventual reads are served from the balance projection with its lag, in milliseconds, in a response header.
+     * Without a projection, or without a consistency, the balance is read like getAccountBalance(id) does.
+     */
+    public ResponseEntity<AccountBalance> getAccountBalance(final long id, final String consistencyName) {
+        val consistency = consistencyName == null ? ReadConsistency.STRONG : parse(ReadConsistency.class, consistencyName, INVALID_CONSISTENCY);
+        if(consistency == ReadConsistency.STRONG || !balanceProjection.isEnabled()) {
+            return getAccountBalance(id);
+        }
+        val balance = balanceProjection.get(id);
+        return ResponseEntity.ok()
+                .header(BalanceProjection.LAG_HEADER, String.valueOf(TimeUnit.NANOSECONDS.toMillis(balanceProjection.lagNanos())))
+                .body(balance);
     }
 
-    private void validateFromAndToAccount(final long fromAccountId, final long toAccountId) {
-        if(fromAccountId == toAccountId) {
-            throw new AccountManagerException(SAME_ACCOUNT, EMPTY_LIST);
-        }
+    public ResponseEntity<TransactionHistory> getTransactionHistory(final long id, final String cursor, final int size) {
+        return ResponseEntity.ok(shards.on(shards.of(id), () -> transactionHistoryService.getTransactionHistory(id, cursor, size)));
     }
 
-    public Account transferAccount(final long accountId, final BigDecimal amount, final Currency currency, final boolean from) {
-        val params = List.of(Long.toString(accountId));
-        val accountNotFoundException = new AccountManagerException(ACCOUNT_NOT_FOUND, params);
-        Supplier exceptionSupplier = () -> accountNotFoundException;
-        val account = accountRepository.findById(accountId).orElseThrow(exceptionSupplier);
-        if (currency != account.getCurrency()) {
-            throw accountNotFoundException;
-        }
-        val balance = account.getBalance();
-        val amountToTransfer = from ? balance.subtract(amount) : balance.add(amount);
-        if(amountToTransfer.compareTo(BigDecimal.ZERO) < 0) {
-            throw new AccountManagerException(INSUFFICIENT_FUND, params);
+    public ResponseEntity<StreamingResponseBody> getStatement(final long id, final String formatName, final Instant from, final Instant to) {
+        val format = parse(StatementFormat.class, formatName, INVALID_STATEMENT_FORMAT);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getMediaType()))
+                .body(statementService.statement(id, format, from, to));
+    }
+
+    public ResponseEntity<Transaction> transfer(final TransferRequest transferRequest) {
+        return ResponseEntity.status(CREATED).body(ledgerEngine.transfer(transferRequest));
+    }
+
+    /*
+     * An async transfer is only queued, the response carries its id and where to poll its status.
+     * Without a mode the transfer is applied like transfer(transferRequest) does.
+     */
+    public ResponseEntity<?> transfer(final TransferRequest transferRequest, final String modeName) {
+        val mode = modeName == null ? TransferMode.SYNC : parse(TransferMode.class, modeName, INVALID_TRANSFER_MODE);
+        if(mode == TransferMode.SYNC) {
+            return transfer(transferRequest);
         }
-        return Account.builder().id(account.getId()).balance(amountToTransfer).currency(account.getCurrency()).type(account.getType()).build();
+        val status = asyncTransfers.submit(transferRequest);
+        return ResponseEntity.accepted()
+                .location(UriComponentsBuilder.fromPath(TRANSFER_STATUS).buildAndExpand(status.getTransferId()).toUri())
+                .body(status);
+    }
+
+    public ResponseEntity<TransferStatus> getTransferStatus(final String transferId) {
+        return ResponseEntity.ok(asyncTransfers.status(transferId));
+    }
+
+    public ResponseEntity<StandingOrderDetails> createStandingOrder(final StandingOrderRequest standingOrderRequest) {
+        val standingOrder = standingOrders.create(standingOrderRequest);
+        return ResponseEntity.created(UriComponentsBuilder.fromPath(STANDING_ORDER).buildAndExpand(standingOrder.getId()).toUri())
+                .body(standingOrder);
+    }
+
+    public ResponseEntity<StandingOrderDetails> getStandingOrder(final long id) {
+        return ResponseEntity.ok(standingOrders.get(id));
+    }
+
+    public ResponseEntity<StandingOrderDetails> cancelStandingOrder(final long id) {
+        return ResponseEntity.ok(standingOrders.cancel(id));
+    }
+
+    public ResponseEntity<List<BatchTransferResult>> transferBatch(final BatchTransferRequest batchTransferRequest) {
+        return ResponseEntity.ok(ledgerEngine.transferBatch(batchTransferRequest.getTransfers()));
     }
 
-    private ResponseEntity<com.acmebank.account_manager.data.models.responses.Transaction> transactionResponse(
-            final long fromAccountId,
-            final Account fromAccount,
-            final long toAccountId,
-            final Account toAccount,
-            final Transaction transaction
-    ){
-        return ResponseEntity.status(CREATED).body(
-                new com.acmebank.account_manager.data.models.responses.Transaction(
-                transaction.getId(),
-                fromAccountId,
-                AccountBalance.of(fromAccount.getBalance(), fromAccount.getCurrency(), fromAccount.getType()),
-                toAccountId,
-                AccountBalance.of(toAccount.getBalance(), toAccount.getCurrency(), toAccount.getType()),
-                transaction.getCreateAt()));
+    /*
+     * Constant of the enum named like the request parameter, ignoring case, or errorCode for any other name.
+     */
+    private static <E extends Enum<E>> E parse(final Class<E> enumClass, final String name, final ErrorCode errorCode) {
+        return Arrays.stream(enumClass.getEnumConstants())
+                .filter(constant -> constant.name().equalsIgnoreCase(name))
+                .findFirst()
+                .orElseThrow(() -> new AccountManagerException(errorCode, List.of(name)));
     }
 }
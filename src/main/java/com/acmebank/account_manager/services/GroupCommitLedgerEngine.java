@@ -0,0 +1,213 @@
+package com.acmebank.account_manager.services;
+
+import com.acmebank.account_manager.configs.LedgerProperties;
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.data.models.responses.AccountBalance;
+import com.acmebank.account_manager.data.models.responses.BatchTransferResult;
+import com.acmebank.account_manager.data.models.responses.Transaction;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.services.metrics.TransferMetrics;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import static com.acmebank.account_manager.shared.ErrorCode.GENERAL_ERROR;
+import static com.acmebank.account_manager.shared.ErrorCode.TRANSFER_OUTCOME_UNKNOWN;
+
+/*
+ * Group commit for the JPA ledger engine. Single transfers are queued and a dispatcher thread coalesces whatever
+ * arrives within acmebank.ledger.group-commit-window, up to acmebank.ledger.group-commit-size transfers, into one
+ * JpaLedgerEngine.transferGroup call: one transaction locking every account in ascending id order, one commit.
+ * Each leg is checked against the locked balances before anything is written, so a rejected leg never reaches the
+ * database and its caller gets its own error while the rest of the group commits. A failure of the whole
+ * transaction, e.g. a lock timeout, is reported to every caller in the group. A caller waits
+ * acmebank.ledger.group-commit-window plus acmebank.ledger.group-commit-timeout for its outcome. A transfer still
+ * queued by then is withdrawn and rejected with GENERAL_ERROR, it can never be applied. One the dispatcher has taken
+ * into a group is waited for as long again, as its commit decides, and only then given up on with
+ * TRANSFER_OUTCOME_UNKNOWN, so a stalled or dead dispatcher does not hang request threads.
+ */
+@Slf4j
+@Primary
+@Service
+@ConditionalOnExpression("'${acmebank.ledger.engine:jpa}' == 'jpa' and ${acmebank.ledger.group-commit:false}")
+public class GroupCommitLedgerEngine implements LedgerEngine {
+    private static final long IDLE_POLL_MILLIS = 100;
+    private final JpaLedgerEngine jpaLedgerEngine;
+    private final TransferMetrics transferMetrics;
+    private final long windowNanos;
+    private final long waitNanos;
+    private final int maxGroupSize;
+    private final BlockingQueue<PendingTransfer> pending = new LinkedBlockingQueue<>();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    GroupCommitLedgerEngine(final JpaLedgerEngine jpaLedgerEngine,
+                            final LedgerProperties ledgerProperties,
+                            final TransferMetrics transferMetrics) {
+        this.jpaLedgerEngine = jpaLedgerEngine;
+        this.transferMetrics = transferMetrics;
+        this.windowNanos = ledgerProperties.getGroupCommitWindow().toNanos();
+        this.waitNanos = windowNanos + ledgerProperties.getGroupCommitTimeout().toNanos();
+        this.maxGroupSize = Math.max(1, ledgerProperties.getGroupCommitSize());
+        this.dispatcher = new Thread(this::dispatch, "ledger-group-commit");
+        this.dispatcher.setDaemon(true);
+    }
+
+    @PostConstruct
+    void start() {
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        dispatcher.join(TimeUnit.MINUTES.toMillis(1));
+        PendingTransfer leftover;
+        while((leftover = pending.poll()) != null) {
+            leftover.getFuture().completeExceptionally(new IllegalStateException("Group commit dispatcher is shut down"));
+        }
+    }
+
+    @Override
+    public AccountBalance getAccountBalance(final long id) {
+        return jpaLedgerEngine.getAccountBalance(id);
+    }
+
+    @Override
+    public Transaction transfer(final TransferRequest transferRequest) {
+        if(!running) {
+            throw new IllegalStateException("Group commit dispatcher is shut down");
+        }
+        val pendingTransfer = new PendingTransfer(transferRequest, new CompletableFuture<>());
+        val future = pendingTransfer.getFuture();
+        pending.add(pendingTransfer);
+        try {
+            if(await(future)) {
+                return outcome(future);
+            }
+            if(pending.remove(pendingTransfer)) {
+                log.warn("Transfer not taken by the group commit dispatcher within {} ms, withdrawn.", TimeUnit.NANOSECONDS.toMillis(waitNanos));
+                throw AccountManagerException.of(GENERAL_ERROR);
+            }
+            /* taken into a group already, whose commit decides */
+            if(await(future)) {
+                return outcome(future);
+            }
+            log.error("Group holding a transfer from account {} not committed within {} ms, its outcome is unknown.",
+                    transferRequest.getFromAccountId(), TimeUnit.NANOSECONDS.toMillis(2 * waitNanos));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            if(pending.remove(pendingTransfer)) {
+                throw AccountManagerException.of(GENERAL_ERROR);
+            }
+        }
+        throw new AccountManagerException(TRANSFER_OUTCOME_UNKNOWN, transferRequest.getFromAccountId());
+    }
+
+    /*
+     * Whether the transfer has an outcome within waitNanos.
+     */
+    private boolean await(final CompletableFuture<Transaction> future) throws InterruptedException {
+        try {
+            future.get(waitNanos, TimeUnit.NANOSECONDS);
+            return true;
+        } catch (ExecutionException ee) {
+            return true;
+        } catch (TimeoutException te) {
+            return false;
+        }
+    }
+
+    private static Transaction outcome(final CompletableFuture<Transaction> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ce) {
+            if(ce.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ce.getCause();
+            }
+            throw ce;
+        }
+    }
+
+    @Override
+    public List<BatchTransferResult> transferBatch(final List<TransferRequest> transferRequests) {
+        return jpaLedgerEngine.transferBatch(transferRequests);
+    }
+
+    private void dispatch() {
+        val group = new ArrayList<PendingTransfer>(maxGroupSize);
+        while((running || !pending.isEmpty()) && !Thread.currentThread().isInterrupted()) {
+            try {
+                val first = pending.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if(first == null) {
+                    continue;
+                }
+                group.add(first);
+                val deadline = System.nanoTime() + windowNanos;
+                while(group.size() < maxGroupSize) {
+                    pending.drainTo(group, maxGroupSize - group.size());
+                    val remaining = deadline - System.nanoTime();
+                    if(group.size() >= maxGroupSize || remaining <= 0) {
+                        break;
+                    }
+                    val next = pending.poll(remaining, TimeUnit.NANOSECONDS);
+                    if(next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if(!group.isEmpty()) {
+                commit(group);
+                group.clear();
+            }
+        }
+    }
+
+    /*
+     * Callers are only released once the group has committed.
+     */
+    private void commit(final List<PendingTransfer> group) {
+        try {
+            val outcomes = jpaLedgerEngine.transferGroup(group.stream().map(PendingTransfer::getRequest).collect(Collectors.toList()));
+            transferMetrics.groupCommitted(group.size());
+            for(int i = 0; i < group.size(); i++) {
+                val outcome = outcomes.get(i);
+                if(outcome.getRejection() != null) {
+                    group.get(i).getFuture().completeExceptionally(outcome.getRejection());
+                } else {
+                    group.get(i).getFuture().complete(outcome.getTransaction());
+                }
+            }
+        } catch (RuntimeException re) {
+            transferMetrics.lockFailure(re);
+            log.debug("Group of {} transfers failed.", group.size(), re);
+            group.forEach(pendingTransfer -> pendingTransfer.getFuture().completeExceptionally(re));
+        }
+    }
+
+    @Value
+    private static class PendingTransfer {
+        TransferRequest request;
+        CompletableFuture<Transaction> future;
+    }
+}
@@ -0,0 +1,221 @@
+package com.acmebank.account_manager.services;
+
+import com.acmebank.account_manager.configs.LedgerProperties;
+import com.acmebank.account_manager.data.entities.Account;
+import com.acmebank.account_manager.data.entities.Transaction;
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.data.models.responses.AccountBalance;
+import com.acmebank.account_manager.data.models.responses.BatchTransferResult;
+import com.acmebank.account_manager.data.repositories.AccountRepository;
+import com.acmebank.account_manager.data.repositories.TransactionRepository;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.services.cache.AccountBalanceCache;
+import com.acmebank.account_manager.services.fx.FxRates;
+import com.acmebank.account_manager.services.metrics.TransferMetrics;
+import com.acmebank.account_manager.services.striping.StripedBalances;
+import com.acmebank.account_manager.services.strategies.TransferStrategy;
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
+import lombok.Value;
+import lombok.val;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.acmebank.account_manager.services.strategies.TransferStrategy.validateFromAndToAccount;
+import static com.acmebank.account_manager.shared.ErrorCode.*;
+
+/*
+ * Default ledger engine, balances live in the account table and single transfers follow acmebank.ledger.concurrency.
+ */
+@Service
+@ConditionalOnProperty(prefix = "acmebank.ledger", name = "engine", havingValue = "jpa", matchIfMissing = true)
+public class JpaLedgerEngine implements LedgerEngine {
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransferStrategy transferStrategy;
+    private final AccountBalanceCache accountBalanceCache;
+    private final TransferMetrics transferMetrics;
+    private final StripedBalances stripedBalances;
+    private final FxRates fxRates;
+
+    JpaLedgerEngine(final AccountRepository accountRepository,
+                    final TransactionRepository transactionRepository,
+                    final List<TransferStrategy> transferStrategies,
+                    final LedgerProperties ledgerProperties,
+                    final AccountBalanceCache accountBalanceCache,
+                    final TransferMetrics transferMetrics,
+                    final StripedBalances stripedBalances,
+                    final FxRates fxRates) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.accountBalanceCache = accountBalanceCache;
+        this.transferMetrics = transferMetrics;
+        this.stripedBalances = stripedBalances;
+        this.fxRates = fxRates;
+        this.transferStrategy = transferStrategies.stream()
+                .filter(strategy -> strategy.getConcurrency() == ledgerProperties.getConcurrency())
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No transfer strategy for " + ledgerProperties.getConcurrency()));
+    }
+
+    @Override
+    public AccountBalance getAccountBalance(final long id) {
+        return accountBalanceCache.get(id, this::loadAccountBalance);
+    }
+
+    private AccountBalance loadAccountBalance(final long id) {
+        val account = accountRepository.findById(id).orElseThrow(() -> new AccountManagerException(ACCOUNT_NOT_FOUND, id));
+        return stripedBalances.withStripes(id, AccountBalance.of(account.getBalance(), account.getCurrency(), account.getType()));
+    }
+
+    /*
+     * Credits of a striped account sit in its slots, a debit its row alone cannot cover is tried once more after a sweep.
+     */
+    @Override
+    public com.acmebank.account_manager.data.models.responses.Transaction transfer(final TransferRequest transferRequest) {
+        try {
+            return strategyTransfer(transferRequest);
+        } catch (AccountManagerException ame) {
+            if(ame.getErrorCode() == INSUFFICIENT_FUND && stripedBalances.sweep(transferRequest.getFromAccountId())) {
+                return strategyTransfer(transferRequest);
+            }
+            throw ame;
+        }
+    }
+
+    private com.acmebank.account_manager.data.models.responses.Transaction strategyTransfer(final TransferRequest transferRequest) {
+        try {
+            return transferStrategy.transfer(transferRequest);
+        } catch (RuntimeException re) {
+            transferMetrics.lockFailure(re);
+            throw re;
+        }
+    }
+
+    /*
+     * Locks every involved account once in ascending id order, so concurrent batches cannot deadlock,
+     * then applies the legs in request order against in-memory balances. A rejected leg never reaches
+     * the database, updates and transaction inserts are sent as JDBC batches.
+     * Balances are only read after their rows are locked, so READ_COMMITTED is enough here; under
+     * REPEATABLE_READ H2 would roll back every batch that waited on a lock held by a committed writer.
+     * Slots of striped accounts are swept into their locked rows first, so the batch sees their whole balance.
+     */
+    @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED, timeout = 1000)
+    public List<BatchTransferResult> transferBatch(final List<TransferRequest> transferRequests) {
+        return applyBatch(transferRequests, BatchTransferResult::completed, BatchTransferResult::rejected);
+    }
+
+    /*
+     * Same as transferBatch, for callers that need each rejection as the exception a single transfer would have thrown.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED, timeout = 1000)
+    public List<GroupOutcome> transferGroup(final List<TransferRequest> transferRequests) {
+        return applyBatch(transferRequests, (index, transaction) -> new GroupOutcome(transaction, null),
+                (index, rejection) -> new GroupOutcome(null, rejection));
+    }
+
+    private <T> List<T> applyBatch(final List<TransferRequest> transferRequests,
+                                   final BiFunction<Integer, com.acmebank.account_manager.data.models.responses.Transaction, T> completed,
+                                   final BiFunction<Integer, AccountManagerException, T> rejected) {
+        val accountIds = new TreeSet<Long>();
+        transferRequests.forEach(request -> {
+            accountIds.add(request.getFromAccountId());
+            accountIds.add(request.getToAccountId());
+        });
+        val accounts = accountRepository.findByIdInOrderByIdAsc(accountIds).stream()
+                .collect(Collectors.toMap(Account::getId, Function.identity()));
+        val balances = new HashMap<Long, Money>();
+        accounts.forEach((id, account) -> {
+            val drained = stripedBalances.drain(id);
+            if(!Money.ZERO.equals(drained)) {
+                balances.put(id, account.getBalance().plus(drained));
+            }
+        });
+        val results = new ArrayList<T>(Collections.<T>nCopies(transferRequests.size(), null));
+        val legs = new ArrayList<Leg>();
+        for(int i = 0; i < transferRequests.size(); i++) {
+            val request = transferRequests.get(i);
+            try {
+                legs.add(applyLeg(i, request, accounts, balances));
+            } catch (AccountManagerException ame) {
+                results.set(i, rejected.apply(i, ame));
+            }
+        }
+        val updatedAccounts = new ArrayList<Account>(balances.size());
+        balances.forEach((id, balance) -> updatedAccounts.add(accounts.get(id).toBuilder().balance(balance).build()));
+        accountRepository.saveAll(updatedAccounts);
+        transactionRepository.saveAllAndFlush(legs.stream().map(Leg::getTransaction).collect(Collectors.toList()));
+        for(val leg : legs) {
+            results.set(leg.getIndex(), completed.apply(leg.getIndex(), new com.acmebank.account_manager.data.models.responses.Transaction(
+                    leg.getTransaction().getId(),
+                    leg.getTransaction().getFromAccount().getId(),
+                    leg.getFromAccountBalance(),
+                    leg.getTransaction().getToAccount().getId(),
+                    leg.getToAccountBalance(),
+                    leg.getTransaction().getCreateAt())));
+        }
+        return results;
+    }
+
+    private Leg applyLeg(final int index, final TransferRequest request, final Map<Long, Account> accounts,
+                         final Map<Long, Money> balances) {
+        val fromAccountId = request.getFromAccountId();
+        val toAccountId = request.getToAccountId();
+        validateFromAndToAccount(fromAccountId, toAccountId);
+        val amount = request.getMoney();
+        val currency = request.getCurrency();
+        val fromAccount = lockedAccount(accounts, fromAccountId, currency);
+        val fromBalance = balances.getOrDefault(fromAccountId, fromAccount.getBalance()).minus(amount);
+        if(fromBalance.isNegative()) {
+            throw new AccountManagerException(INSUFFICIENT_FUND, fromAccountId);
+        }
+        val toAccount = lockedAccount(accounts, toAccountId, null);
+        val conversion = fxRates.convert(amount, currency, toAccount.getCurrency());
+        val toBalance = balances.getOrDefault(toAccountId, toAccount.getBalance()).plus(conversion.getToAmount());
+        balances.put(fromAccountId, fromBalance);
+        balances.put(toAccountId, toBalance);
+        val transaction = Transaction.builder().fromAccount(fromAccount).toAccount(toAccount).amount(amount).currency(currency)
+                .toAmount(conversion.getToAmount()).toCurrency(conversion.getToCurrency()).rate(conversion.getRate()).build();
+        return new Leg(index, transaction,
+                AccountBalance.of(fromBalance, fromAccount.getCurrency(), fromAccount.getType()),
+                AccountBalance.of(toBalance, toAccount.getCurrency(), toAccount.getType()));
+    }
+
+    /*
+     * A null currency accepts the account in any currency.
+     */
+    private static Account lockedAccount(final Map<Long, Account> accounts, final long accountId, final Currency currency) {
+        val account = accounts.get(accountId);
+        if(account == null || (currency != null && currency != account.getCurrency())) {
+            throw new AccountManagerException(ACCOUNT_NOT_FOUND, accountId);
+        }
+        return account;
+    }
+
+    @Value
+    public static class GroupOutcome {
+        com.acmebank.account_manager.data.models.responses.Transaction transaction;
+        AccountManagerException rejection;
+    }
+
+    @Value
+    private static class Leg {
+        int index;
+        Transaction transaction;
+        AccountBalance fromAccountBalance;
+        AccountBalance toAccountBalance;
+    }
+}
@@ -0,0 +1,38 @@
+package com.acmebank.account_manager.services;
+
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.data.models.responses.AccountBalance;
+import com.acmebank.account_manager.data.models.responses.BatchTransferResult;
+import com.acmebank.account_manager.data.models.responses.Transaction;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import lombok.val;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.acmebank.account_manager.data.models.responses.BatchTransferResult.completed;
+import static com.acmebank.account_manager.data.models.responses.BatchTransferResult.rejected;
+
+/*
+ * Owns account balances and applies transfers to them, selected by acmebank.ledger.engine.
+ */
+public interface LedgerEngine {
+    AccountBalance getAccountBalance(long id);
+
+    Transaction transfer(TransferRequest transferRequest);
+
+    /*
+     * Applies every transfer in order, a rejected transfer is reported in its result and does not affect the others.
+     */
+    default List<BatchTransferResult> transferBatch(final List<TransferRequest> transferRequests) {
+        val results = new ArrayList<BatchTransferResult>(transferRequests.size());
+        for(int i = 0; i < transferRequests.size(); i++) {
+            try {
+                results.add(completed(i, transfer(transferRequests.get(i))));
+            } catch (AccountManagerException ame) {
+                results.add(rejected(i, ame));
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,234 @@
+package com.acmebank.account_manager.services;
+
+import com.acmebank.account_manager.data.models.responses.StatementLine;
+import com.acmebank.account_manager.data.models.responses.StatementSummary;
+import com.acmebank.account_manager.data.sharding.Shards;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.StatementFormat;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.val;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collections;
+
+import static com.acmebank.account_manager.services.striping.StripedBalances.BALANCE_WITH_STRIPES;
+import static com.acmebank.account_manager.shared.ErrorCode.ACCOUNT_NOT_FOUND;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/*
+ * Streams an account statement oldest first with a running balance, straight from two forward-only cursors, one per
+ * direction on its (account, create_at, id) index, merged on the fly; nothing is buffered beyond the JDBC fetch window.
+ * The opening balance is the current balance minus everything booked since the statement start, all read in one
+ * REPEATABLE_READ snapshot so the running balance adds up. A timing summary is written as the last record.
+ */
+@Service
+public class StatementService {
+    static final int FETCH_SIZE = 500;
+    private static final Timestamp BEGINNING_OF_TIME = Timestamp.valueOf("1970-01-01 00:00:00");
+    private static final Timestamp END_OF_TIME = Timestamp.valueOf("9999-12-31 23:59:59");
+    private static final String SELECT_ACCOUNT = "SELECT " + BALANCE_WITH_STRIPES + ", \"currency\" FROM \"account\" WHERE \"id\" = ?";
+    /* incoming transfers are booked in the account's currency, transfers without to_amount were never converted */
+    private static final String CREDITED_AMOUNT = "COALESCE(\"to_amount\", \"amount\")";
+    private static final String SUM_OUTGOING = "SELECT COALESCE(SUM(\"amount\"), 0) FROM \"transaction\" WHERE \"from_account\" = ? AND \"create_at\" >= ?";
+    private static final String SUM_INCOMING = "SELECT COALESCE(SUM(" + CREDITED_AMOUNT + "), 0) FROM \"transaction\" WHERE \"to_account\" = ? AND \"create_at\" >= ?";
+    private static final String SELECT_OUTGOING = "SELECT \"id\", \"create_at\", \"to_account\", \"amount\" FROM \"transaction\""
+            + " WHERE \"from_account\" = ? AND \"create_at\" >= ? AND \"create_at\" < ? ORDER BY \"create_at\", \"id\"";
+    private static final String SELECT_INCOMING = "SELECT \"id\", \"create_at\", \"from_account\", " + CREDITED_AMOUNT + " FROM \"transaction\""
+            + " WHERE \"to_account\" = ? AND \"create_at\" >= ? AND \"create_at\" < ? ORDER BY \"create_at\", \"id\"";
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Shards shards;
+
+    StatementService(final JdbcTemplate jdbcTemplate, final PlatformTransactionManager transactionManager, final ObjectMapper objectMapper,
+                     final Shards shards) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.shards = shards;
+    }
+
+    /*
+     * Checks the account up front so an unknown account is still reported as an error response, the rows are
+     * only read once the returned body is written to the response, possibly on another thread, so both pick the
+     * account's shard themselves.
+     */
+    public StreamingResponseBody statement(final long accountId, final StatementFormat format, final Instant from, final Instant to) {
+        val shard = shards.of(accountId);
+        if(shards.on(shard, () -> jdbcTemplate.query(SELECT_ACCOUNT, (rs, i) -> rs.getInt(2), accountId)).isEmpty()) {
+            throw new AccountManagerException(ACCOUNT_NOT_FOUND, accountId);
+        }
+        val fromTimestamp = from == null ? BEGINNING_OF_TIME : Timestamp.from(from);
+        val toTimestamp = to == null ? END_OF_TIME : Timestamp.from(to);
+        return outputStream -> {
+            val startedAt = System.nanoTime();
+            try (LineWriter writer = format == StatementFormat.CSV ? new CsvWriter(outputStream) : new NdjsonWriter(outputStream, objectMapper)) {
+                shards.run(shard, () -> transactionTemplate.executeWithoutResult(status -> write(accountId, fromTimestamp, toTimestamp, writer, startedAt)));
+            } catch (UncheckedIOException uioe) {
+                throw uioe.getCause();
+            }
+        };
+    }
+
+    private void write(final long accountId, final Timestamp from, final Timestamp to, final LineWriter writer, final long startedAt) {
+        val account = jdbcTemplate.queryForObject(SELECT_ACCOUNT, (rs, i) -> new Object[]{rs.getBigDecimal(1), Currency.values()[rs.getInt(2)]}, accountId);
+        val currency = (Currency) account[1];
+        val outgoing = jdbcTemplate.queryForObject(SUM_OUTGOING, BigDecimal.class, accountId, from);
+        val incoming = jdbcTemplate.queryForObject(SUM_INCOMING, BigDecimal.class, accountId, from);
+        val openingBalance = ((BigDecimal) account[0]).add(outgoing).subtract(incoming);
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            enableLazyQueryExecution(connection, true);
+            try (PreparedStatement outgoingRows = cursor(connection, SELECT_OUTGOING, accountId, from, to);
+                 PreparedStatement incomingRows = cursor(connection, SELECT_INCOMING, accountId, from, to)) {
+                ResultSet out = outgoingRows.executeQuery();
+                ResultSet in = incomingRows.executeQuery();
+                BigDecimal balance = openingBalance;
+                long rows = 0;
+                boolean hasOut = out.next();
+                boolean hasIn = in.next();
+                while(hasOut || hasIn) {
+                    val takeOut = hasOut && (!hasIn || isBefore(out, in));
+                    val rs = takeOut ? out : in;
+                    val amount = takeOut ? rs.getBigDecimal(4).negate() : rs.getBigDecimal(4);
+                    balance = balance.add(amount);
+                    writer.line(new StatementLine(rs.getLong(1), rs.getTimestamp(2), rs.getLong(3), amount, currency, balance));
+                    rows++;
+                    if(takeOut) {
+                        hasOut = out.next();
+                    } else {
+                        hasIn = in.next();
+                    }
+                }
+                writer.summary(new StatementSummary(accountId, openingBalance, balance, rows, (System.nanoTime() - startedAt) / 1_000_000));
+            } finally {
+                enableLazyQueryExecution(connection, false);
+            }
+            return null;
+        });
+    }
+
+    private static PreparedStatement cursor(final Connection connection, final String sql, final long accountId,
+                                            final Timestamp from, final Timestamp to) throws SQLException {
+        val ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(FETCH_SIZE);
+        ps.setLong(1, accountId);
+        ps.setTimestamp(2, from);
+        ps.setTimestamp(3, to);
+        return ps;
+    }
+
+    private static boolean isBefore(final ResultSet a, final ResultSet b) throws SQLException {
+        val compared = a.getTimestamp(2).compareTo(b.getTimestamp(2));
+        return compared < 0 || compared == 0 && a.getLong(1) < b.getLong(1);
+    }
+
+    /*
+     * H2 materializes a whole result before returning the first row unless lazy execution is on for the session.
+     */
+    private static void enableLazyQueryExecution(final Connection connection, final boolean enabled) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET LAZY_QUERY_EXECUTION " + enabled);
+        }
+    }
+
+    private interface LineWriter extends AutoCloseable {
+        void line(StatementLine line);
+
+        void summary(StatementSummary summary);
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private static class NdjsonWriter implements LineWriter {
+        private final JsonGenerator generator;
+
+        private NdjsonWriter(final OutputStream outputStream, final ObjectMapper objectMapper) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(outputStream).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void line(final StatementLine line) {
+            writeLine(line);
+        }
+
+        @Override
+        public void summary(final StatementSummary summary) {
+            writeLine(Collections.singletonMap("summary", summary));
+        }
+
+        private void writeLine(final Object value) {
+            try {
+                generator.writeObject(value);
+                generator.writeRaw('\n');
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+
+    private static class CsvWriter implements LineWriter {
+        private final Writer writer;
+
+        private CsvWriter(final OutputStream outputStream) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, UTF_8));
+            writeLine("transactionId,createdAt,counterpartyAccountId,amount,currency,balance");
+        }
+
+        @Override
+        public void line(final StatementLine line) {
+            writeLine(line.getTransactionId() + "," + line.getCreatedAt().toInstant() + "," + line.getCounterpartyAccountId() + ","
+                    + line.getAmount().toPlainString() + "," + line.getCurrency() + "," + line.getBalance().toPlainString());
+        }
+
+        @Override
+        public void summary(final StatementSummary summary) {
+            writeLine("# accountId=" + summary.getAccountId() + ",openingBalance=" + summary.getOpeningBalance().toPlainString()
+                    + ",closingBalance=" + summary.getClosingBalance().toPlainString() + ",rows=" + summary.getRows()
+                    + ",elapsedMillis=" + summary.getElapsedMillis());
+        }
+
+        private void writeLine(final String line) {
+            try {
+                writer.write(line);
+                writer.write('\n');
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.acmebank.account_manager.services;
+
+import com.acmebank.account_manager.data.models.responses.TransactionHistory;
+import com.acmebank.account_manager.data.models.responses.TransactionHistoryEntry;
+import com.acmebank.account_manager.data.repositories.AccountRepository;
+import com.acmebank.account_manager.data.repositories.TransactionRepository;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.acmebank.account_manager.shared.ErrorCode.ACCOUNT_NOT_FOUND;
+import static com.acmebank.account_manager.shared.ErrorCode.INVALID_CURSOR;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/*
+ * Pages through an account's transactions newest first with keyset pagination on (createAt, id): the cursor is the
+ * position of the last returned row, so every page costs the same however deep it is. Outgoing and incoming
+ * transactions are sought separately on their own index and merged, an OR across both columns could use neither.
+ */
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class TransactionHistoryService {
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final Timestamp END_OF_TIME = Timestamp.valueOf("9999-12-31 23:59:59");
+    private static final Comparator<TransactionHistoryEntry> NEWEST_FIRST = Comparator
+            .comparing(TransactionHistoryEntry::getCreatedAt)
+            .thenComparingLong(TransactionHistoryEntry::getTransactionId)
+            .reversed();
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+
+    @Transactional(readOnly = true)
+    public TransactionHistory getTransactionHistory(final long accountId, final String cursor, final int size) {
+        if(!accountRepository.existsById(accountId)) {
+            throw new AccountManagerException(ACCOUNT_NOT_FOUND, accountId);
+        }
+        val pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        val createAt = cursor == null ? END_OF_TIME : decodeCreateAt(cursor);
+        val id = cursor == null ? Long.MAX_VALUE : decodeId(cursor);
+        val pageable = PageRequest.of(0, pageSize + 1);
+        val entries = new ArrayList<TransactionHistoryEntry>(2 * pageSize + 2);
+        entries.addAll(transactionRepository.findOutgoingBefore(accountId, createAt, id, pageable));
+        entries.addAll(transactionRepository.findIncomingBefore(accountId, createAt, id, pageable));
+        entries.sort(NEWEST_FIRST);
+        if(entries.size() <= pageSize) {
+            return new TransactionHistory(entries, null);
+        }
+        val page = new ArrayList<>(entries.subList(0, pageSize));
+        return new TransactionHistory(page, encodeCursor(page.get(pageSize - 1)));
+    }
+
+    static String encodeCursor(final TransactionHistoryEntry entry) {
+        val position = entry.getCreatedAt().toInstant() + "/" + entry.getTransactionId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(UTF_8));
+    }
+
+    private static Timestamp decodeCreateAt(final String cursor) {
+        try {
+            return Timestamp.from(Instant.parse(decode(cursor)[0]));
+        } catch (RuntimeException re) {
+            throw new AccountManagerException(INVALID_CURSOR, List.of(cursor));
+        }
+    }
+
+    private static long decodeId(final String cursor) {
+        try {
+            return Long.parseLong(decode(cursor)[1]);
+        } catch (RuntimeException re) {
+            throw new AccountManagerException(INVALID_CURSOR, List.of(cursor));
+        }
+    }
+
+    private static String[] decode(final String cursor) {
+        return new String(Base64.getUrlDecoder().decode(cursor), UTF_8).split("/", 2);
+    }
+}
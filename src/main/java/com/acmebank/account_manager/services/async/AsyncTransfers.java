@@ -0,0 +1,151 @@
+package com.acmebank.account_manager.services.async;
+
+import com.acmebank.account_manager.configs.AsyncTransferProperties;
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.data.models.responses.ErrorResponse;
+import com.acmebank.account_manager.data.models.responses.TransferStatus;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.services.LedgerEngine;
+import com.acmebank.account_manager.shared.TransferState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.acmebank.account_manager.shared.ErrorCode.GENERAL_ERROR;
+import static com.acmebank.account_manager.shared.ErrorCode.TRANSFER_NOT_FOUND;
+import static com.acmebank.account_manager.shared.ErrorCode.TRANSFER_QUEUE_FULL;
+
+/*
+ * Transfers accepted now and applied later. A submitted transfer waits in a queue of at most
+ * acmebank.async-transfers.queue-capacity transfers, drained by acmebank.async-transfers.workers threads running the
+ * ledger engine like a synchronous transfer would. A full queue rejects the transfer at once instead of letting the
+ * caller wait. Statuses are kept in memory, a finished one for acmebank.async-transfers.retention, and are lost,
+ * together with the queued transfers, when the service stops.
+ */
+@Slf4j
+@Service
+public class AsyncTransfers {
+    public static final String QUEUED = "acmebank.transfer.async.queued";
+    public static final String REJECTED = "acmebank.transfer.async.rejected";
+    private static final long SHUTDOWN_SECONDS = 10;
+    private final LedgerEngine ledgerEngine;
+    private final ThreadPoolExecutor workers;
+    private final long retentionNanos;
+    private final int maximumRetained;
+    private final Map<String, TransferStatus> statuses = new ConcurrentHashMap<>();
+    private final Queue<Finished> finished = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger retained = new AtomicInteger();
+    private final Counter rejected;
+
+    AsyncTransfers(final AsyncTransferProperties properties,
+                   final LedgerEngine ledgerEngine,
+                   final MeterRegistry meterRegistry) {
+        this.ledgerEngine = ledgerEngine;
+        this.retentionNanos = properties.getRetention().toNanos();
+        this.maximumRetained = Math.max(0, properties.getMaximumRetained());
+        val threads = Math.max(1, properties.getWorkers());
+        val threadIds = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())),
+                runnable -> {
+                    val thread = new Thread(runnable, "async-transfer-" + threadIds.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder(QUEUED, workers, executor -> executor.getQueue().size())
+                .description("Asynchronous transfers waiting for a worker")
+                .register(meterRegistry);
+        this.rejected = Counter.builder(REJECTED)
+                .description("Asynchronous transfers turned away because the queue was full")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        workers.shutdown();
+        if(!workers.awaitTermination(SHUTDOWN_SECONDS, TimeUnit.SECONDS)) {
+            log.warn("Stopped with {} asynchronous transfers still queued.", workers.shutdownNow().size());
+        }
+    }
+
+    public TransferStatus submit(final TransferRequest transferRequest) {
+        prune();
+        val transferId = UUID.randomUUID().toString();
+        val queued = TransferStatus.of(transferId, TransferState.QUEUED);
+        statuses.put(transferId, queued);
+        try {
+            workers.execute(() -> apply(transferId, transferRequest));
+        } catch (RejectedExecutionException ree) {
+            statuses.remove(transferId);
+            rejected.increment();
+            throw AccountManagerException.of(TRANSFER_QUEUE_FULL);
+        }
+        return queued;
+    }
+
+    public TransferStatus status(final String transferId) {
+        val status = statuses.get(transferId);
+        if(status == null) {
+            throw new AccountManagerException(TRANSFER_NOT_FOUND, List.of(transferId));
+        }
+        return status;
+    }
+
+    private void apply(final String transferId, final TransferRequest transferRequest) {
+        statuses.put(transferId, TransferStatus.of(transferId, TransferState.RUNNING));
+        TransferStatus status;
+        try {
+            status = new TransferStatus(transferId, TransferState.COMPLETED, ledgerEngine.transfer(transferRequest), null);
+        } catch (AccountManagerException ame) {
+            status = new TransferStatus(transferId, TransferState.REJECTED, null, new ErrorResponse(ame.getErrorCode(), ame.getParamsArray()));
+        } catch (RuntimeException re) {
+            log.error("Asynchronous transfer {} failed.", transferId, re);
+            status = new TransferStatus(transferId, TransferState.FAILED, null, new ErrorResponse(GENERAL_ERROR, new String[0]));
+        }
+        statuses.put(transferId, status);
+        finished.add(new Finished(transferId, System.nanoTime()));
+        retained.incrementAndGet();
+        prune();
+    }
+
+    /*
+     * Forgets finished statuses past their retention, oldest first, and the oldest beyond maximum-retained.
+     */
+    private void prune() {
+        val now = System.nanoTime();
+        Finished head;
+        while((head = finished.peek()) != null && (now - head.at > retentionNanos || retained.get() > maximumRetained)) {
+            if(finished.remove(head)) {
+                retained.decrementAndGet();
+                statuses.remove(head.transferId);
+            }
+        }
+    }
+
+    private static final class Finished {
+        private final String transferId;
+        private final long at;
+
+        private Finished(final String transferId, final long at) {
+            this.transferId = transferId;
+            this.at = at;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.acmebank.account_manager.services.cache;
+
+import com.acmebank.account_manager.configs.BalanceCacheProperties;
+import com.acmebank.account_manager.data.models.responses.AccountBalance;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+
+/*
+ * Bounded LRU cache of account balances with a time to live, split into segments to keep lock hold times short.
+ * Committed writes invalidate the entry instead of overwriting it, so commits finishing out of order cannot
+ * leave an older balance behind. Every invalidation bumps the segment stamp, and a load only gets cached if no
+ * invalidation reached its segment while it was reading, so a read that started before a commit is never cached.
+ * Every write to a balance passes through here, so invalidation listeners learn of each one once it completed.
+ */
+@Component
+public class AccountBalanceCache {
+    private static final int SEGMENTS = 16;
+    private final boolean enabled;
+    private final long timeToLiveNanos;
+    private final LongSupplier nanoClock;
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final List<LongConsumer> invalidationListeners = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public AccountBalanceCache(final BalanceCacheProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    AccountBalanceCache(final BalanceCacheProperties properties, final LongSupplier nanoClock) {
+        this.enabled = properties.isEnabled() && properties.getMaximumSize() > 0;
+        this.timeToLiveNanos = properties.getTimeToLive().toNanos();
+        this.nanoClock = nanoClock;
+        val segmentCapacity = Math.max(1, properties.getMaximumSize() / SEGMENTS);
+        for(int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    public AccountBalance get(final long accountId, final LongFunction<AccountBalance> loader) {
+        if(!enabled) {
+            return loader.apply(accountId);
+        }
+        val segment = segmentOf(accountId);
+        long stamp;
+        synchronized (segment) {
+            val entry = segment.get(accountId);
+            if(entry != null) {
+                if(nanoClock.getAsLong() - entry.expiresAt < 0) {
+                    hits.increment();
+                    return entry.balance;
+                }
+                segment.remove(accountId);
+                evictions.increment();
+            }
+            stamp = segment.stamp;
+        }
+        misses.increment();
+        val balance = loader.apply(accountId);
+        synchronized (segment) {
+            if(segment.stamp == stamp) {
+                segment.put(accountId, new Entry(balance, nanoClock.getAsLong() + timeToLiveNanos));
+                puts.increment();
+            }
+        }
+        return balance;
+    }
+
+    public void invalidate(final long accountId) {
+        val segment = segmentOf(accountId);
+        synchronized (segment) {
+            segment.stamp++;
+            segment.remove(accountId);
+        }
+        for(val listener : invalidationListeners) {
+            listener.accept(accountId);
+        }
+    }
+
+    public void addInvalidationListener(final LongConsumer listener) {
+        invalidationListeners.add(listener);
+    }
+
+    /*
+     * Invalidates once the surrounding transaction commits, or right away when there is none.
+     */
+    public void invalidateOnCommit(final long accountId) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(accountId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(final int status) {
+                invalidate(accountId);
+            }
+        });
+    }
+
+    public long size() {
+        long size = 0;
+        for(val segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    long hitCount() {
+        return hits.sum();
+    }
+
+    long missCount() {
+        return misses.sum();
+    }
+
+    long putCount() {
+        return puts.sum();
+    }
+
+    long evictionCount() {
+        return evictions.sum();
+    }
+
+    private Segment segmentOf(final long accountId) {
+        return segments[(int) (Long.hashCode(accountId) * 0x9E3779B9L >>> 28) & (SEGMENTS - 1)];
+    }
+
+    private static final class Entry {
+        private final AccountBalance balance;
+        private final long expiresAt;
+
+        private Entry(final AccountBalance balance, final long expiresAt) {
+            this.balance = balance;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final class Segment extends LinkedHashMap<Long, Entry> {
+        private final int capacity;
+        private long stamp;
+
+        private Segment(final int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Long, Entry> eldest) {
+            if(size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
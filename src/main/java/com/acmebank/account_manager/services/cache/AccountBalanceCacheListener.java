@@ -0,0 +1,24 @@
+package com.acmebank.account_manager.services.cache;
+
+import com.acmebank.account_manager.data.entities.Account;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/*
+ * Invalidates the cached balance of every account written through JPA once the write commits.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class AccountBalanceCacheListener {
+    private final AccountBalanceCache accountBalanceCache;
+
+    @PostUpdate
+    @PostRemove
+    void invalidate(final Account account) {
+        accountBalanceCache.invalidateOnCommit(account.getId());
+    }
+}
@@ -0,0 +1,46 @@
+package com.acmebank.account_manager.services.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+import org.springframework.stereotype.Component;
+
+/*
+ * Bound to the meter registry by Spring Boot, publishes cache.gets{result=hit|miss}, cache.puts, cache.evictions and cache.size tagged cache=account-balance.
+ */
+@Component
+public class AccountBalanceCacheMetrics extends CacheMeterBinder<AccountBalanceCache> {
+
+    public AccountBalanceCacheMetrics(final AccountBalanceCache accountBalanceCache) {
+        super(accountBalanceCache, "account-balance", Tags.empty());
+    }
+
+    @Override
+    protected Long size() {
+        return getCache().size();
+    }
+
+    @Override
+    protected long hitCount() {
+        return getCache().hitCount();
+    }
+
+    @Override
+    protected Long missCount() {
+        return getCache().missCount();
+    }
+
+    @Override
+    protected Long evictionCount() {
+        return getCache().evictionCount();
+    }
+
+    @Override
+    protected long putCount() {
+        return getCache().putCount();
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(final MeterRegistry registry) {
+    }
+}
@@ -0,0 +1,21 @@
+package com.acmebank.account_manager.services.fx;
+
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/*
+ * What a transfer credits: toAmount in toCurrency, priced at rate units of toCurrency per unit debited.
+ */
+@Value
+public class FxConversion {
+    Money toAmount;
+    Currency toCurrency;
+    BigDecimal rate;
+
+    static FxConversion identity(final Money amount, final Currency currency) {
+        return new FxConversion(amount, currency, FxRateSnapshot.PAR);
+    }
+}
@@ -0,0 +1,69 @@
+package com.acmebank.account_manager.services.fx;
+
+import com.acmebank.account_manager.shared.Currency;
+import lombok.Getter;
+import lombok.val;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static com.acmebank.account_manager.data.entities.Transaction.RATE_SCALE;
+
+/*
+ * One immutable set of exchange rates. Rates are quoted as units of the base currency per unit of each currency,
+ * every cross rate is derived once when the snapshot is built, so pricing a transfer is an array read.
+ */
+public final class FxRateSnapshot {
+    static final BigDecimal PAR = BigDecimal.ONE.setScale(RATE_SCALE);
+    private static final int CURRENCIES = Currency.values().length;
+    @Getter
+    private final Currency base;
+    @Getter
+    private final Instant loadedAt;
+    /* rates[from * CURRENCIES + to], null where either currency has no quote */
+    private final BigDecimal[] rates = new BigDecimal[CURRENCIES * CURRENCIES];
+
+    FxRateSnapshot(final Currency base, final Map<Currency, BigDecimal> quotes, final Instant loadedAt) {
+        this.base = base;
+        this.loadedAt = loadedAt;
+        val withBase = new EnumMap<Currency, BigDecimal>(quotes);
+        withBase.put(base, BigDecimal.ONE);
+        for(val from : withBase.entrySet()) {
+            for(val to : withBase.entrySet()) {
+                rates[from.getKey().ordinal() * CURRENCIES + to.getKey().ordinal()] = from.getKey() == to.getKey()
+                        ? PAR
+                        : from.getValue().divide(to.getValue(), RATE_SCALE, RoundingMode.HALF_EVEN);
+            }
+        }
+    }
+
+    /*
+     * Reads a base=<currency> line and one <currency>=<units of base> line per quoted currency.
+     */
+    static FxRateSnapshot of(final Properties properties, final Instant loadedAt) {
+        val base = Currency.valueOf(properties.getProperty("base", Currency.HKD.name()).trim());
+        val quotes = new EnumMap<Currency, BigDecimal>(Currency.class);
+        for(val name : properties.stringPropertyNames()) {
+            if("base".equals(name)) {
+                continue;
+            }
+            val quote = new BigDecimal(properties.getProperty(name).trim());
+            if(quote.signum() <= 0) {
+                throw new IllegalArgumentException("Rate of " + name + " must be positive: " + quote);
+            }
+            quotes.put(Currency.valueOf(name.trim()), quote);
+        }
+        return new FxRateSnapshot(base, quotes, loadedAt);
+    }
+
+    /*
+     * Units of to per unit of from, null if either is not quoted.
+     */
+    public BigDecimal rate(final Currency from, final Currency to) {
+        return rates[from.ordinal() * CURRENCIES + to.ordinal()];
+    }
+}
@@ -0,0 +1,129 @@
+package com.acmebank.account_manager.services.fx;
+
+import com.acmebank.account_manager.configs.FxProperties;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.acmebank.account_manager.shared.ErrorCode.FX_RATE_UNAVAILABLE;
+
+/*
+ * Prices cross-currency transfers from the rates in acmebank.fx.rates-file, or from the bundled fx-rates.properties
+ * while that file does not exist. The rates are published as an immutable FxRateSnapshot in a volatile field, so a
+ * transfer reads them without a lock or a query and never sees half a reload. The file is checked for changes every
+ * acmebank.fx.reload-interval; a file that cannot be read or parsed is logged and the previous snapshot kept.
+ */
+@Slf4j
+@Component
+public class FxRates {
+    private static final String DEFAULT_RATES = "fx-rates.properties";
+    private final Path ratesFile;
+    private final long reloadIntervalMillis;
+    private volatile FxRateSnapshot snapshot;
+    private FileTime lastModified;
+    private ScheduledExecutorService reloader;
+
+    FxRates(final FxProperties fxProperties) {
+        this.ratesFile = Paths.get(fxProperties.getRatesFile());
+        this.reloadIntervalMillis = fxProperties.getReloadInterval().toMillis();
+        if(!reload()) {
+            try (val defaults = FxRates.class.getClassLoader().getResourceAsStream(DEFAULT_RATES)) {
+                this.snapshot = FxRateSnapshot.of(properties(defaults), Instant.now());
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        if(reloadIntervalMillis <= 0) {
+            return;
+        }
+        reloader = Executors.newSingleThreadScheduledExecutor(r -> {
+            val thread = new Thread(r, "fx-rates-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reloader.scheduleWithFixedDelay(this::reload, reloadIntervalMillis, reloadIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if(reloader != null) {
+            reloader.shutdownNow();
+        }
+    }
+
+    public FxRateSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /*
+     * Prices amount, in from, in to. Rounds half even to Money.SCALE fraction digits.
+     */
+    public FxConversion convert(final Money amount, final Currency from, final Currency to) {
+        if(from == to) {
+            return FxConversion.identity(amount, to);
+        }
+        val rate = snapshot.rate(from, to);
+        if(rate == null) {
+            throw new AccountManagerException(FX_RATE_UNAVAILABLE, List.of(from.name(), to.name()));
+        }
+        val toAmount = Money.of(amount.toBigDecimal().multiply(rate).setScale(Money.SCALE, RoundingMode.HALF_EVEN));
+        return new FxConversion(toAmount, to, rate);
+    }
+
+    /*
+     * Publishes the rates file if it changed since it was last read. Returns false when the file is missing,
+     * unchanged or invalid.
+     */
+    public synchronized boolean reload() {
+        try {
+            if(!Files.isRegularFile(ratesFile)) {
+                return false;
+            }
+            val modified = Files.getLastModifiedTime(ratesFile);
+            if(modified.equals(lastModified)) {
+                return false;
+            }
+            /* an invalid file is not read again until it changes */
+            lastModified = modified;
+            try (val in = Files.newInputStream(ratesFile)) {
+                snapshot = FxRateSnapshot.of(properties(in), Instant.now());
+            }
+            log.info("Loaded exchange rates from {}.", ratesFile);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not load exchange rates from {}, keeping the rates loaded at {}.", ratesFile,
+                    snapshot == null ? null : snapshot.getLoadedAt(), e);
+            return false;
+        }
+    }
+
+    private static Properties properties(final InputStream in) throws IOException {
+        val properties = new Properties();
+        properties.load(in);
+        return properties;
+    }
+}
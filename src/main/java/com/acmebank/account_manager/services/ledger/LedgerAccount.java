@@ -0,0 +1,49 @@
+package com.acmebank.account_manager.services.ledger;
+
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.shared.AccountType;
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
+import lombok.Getter;
+
+
+import static com.acmebank.account_manager.shared.ErrorCode.INSUFFICIENT_FUND;
+
+/*
+ * In-memory account state. The balance, in Money minor units, is only mutated by the owning shard thread and is volatile
+ * so any thread can read it.
+ */
+@Getter
+class LedgerAccount {
+    private final long id;
+    private final Currency currency;
+    private final AccountType type;
+    private volatile long balance;
+
+    LedgerAccount(final long id, final Money balance, final Currency currency, final AccountType type) {
+        this.id = id;
+        this.balance = balance.getMinorUnits();
+        this.currency = currency;
+        this.type = type;
+    }
+
+    long debit(final long amount) {
+        if(balance < amount) {
+            throw new AccountManagerException(INSUFFICIENT_FUND, id);
+        }
+        balance -= amount;
+        return balance;
+    }
+
+    long credit(final long amount) {
+        balance = Math.addExact(balance, amount);
+        return balance;
+    }
+
+    /*
+     * Moves the balance by a transfer that was persisted already, while restoring, so no funds check is due.
+     */
+    void restore(final long delta) {
+        balance = Math.addExact(balance, delta);
+    }
+}
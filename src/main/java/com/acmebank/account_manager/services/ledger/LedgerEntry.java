@@ -0,0 +1,38 @@
+package com.acmebank.account_manager.services.ledger;
+
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+import static com.acmebank.account_manager.data.entities.Transaction.RATE_SCALE;
+
+/*
+ * An accepted transfer as journaled and projected; balances are derived from the entries, never stored in them.
+ * amount is debited in currency, toAmount credited in toCurrency at rate.
+ */
+@Value
+@AllArgsConstructor
+class LedgerEntry {
+    long transactionId;
+    long fromAccountId;
+    long toAccountId;
+    Money amount;
+    Currency currency;
+    Timestamp createdAt;
+    Money toAmount;
+    Currency toCurrency;
+    BigDecimal rate;
+
+    LedgerEntry(final long transactionId, final long fromAccountId, final long toAccountId, final Money amount,
+                final Currency currency, final Timestamp createdAt) {
+        this(transactionId, fromAccountId, toAccountId, amount, currency, createdAt, amount, currency, BigDecimal.ONE.setScale(RATE_SCALE));
+    }
+
+    boolean isConverted() {
+        return currency != toCurrency;
+    }
+}
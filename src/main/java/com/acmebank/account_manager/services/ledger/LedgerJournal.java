@@ -0,0 +1,269 @@
+package com.acmebank.account_manager.services.ledger;
+
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+import static com.acmebank.account_manager.data.entities.Transaction.RATE_SCALE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/*
+ * Append-only journal of accepted transfers, written into memory-mapped segment files of a fixed size.
+ * Each record is [payload length][CRC32 of payload][payload]; reading stops at the first zero length or
+ * checksum mismatch, so a record torn by a crash is ignored together with everything after it.
+ * Records are appended in sequence, and a sequence is durable once a force covering it has returned; concurrent
+ * callers share one force, so a transfer waits for at most one sequential flush of dirty journal pages.
+ * A segment is deleted once the projector has written every entry in it.
+ */
+@Slf4j
+class LedgerJournal implements AutoCloseable {
+    private static final String SEGMENT_PREFIX = "ledger-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final int RECORD_HEADER = 8;
+    private static final int RECORD_PAYLOAD = 8 + 8 + 8 + 4 + 8 + 8;
+    /* a cross-currency entry carries its credited amount, the to currency and the unscaled rate after the same fields */
+    private static final int CONVERTED_RECORD_PAYLOAD = RECORD_PAYLOAD + 8 + 4 + 8;
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean fsync;
+    private final Object forceLock = new Object();
+    private final ArrayDeque<Segment> closedSegments = new ArrayDeque<>();
+    private Segment segment;
+    private long appended;
+    private volatile long durable;
+
+    LedgerJournal(final Path directory, final int segmentSize, final boolean fsync) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+    }
+
+    /*
+     * Passes every intact entry of the existing segments to the consumer in append order, in batches of batchSize.
+     */
+    long replay(final Consumer<List<LedgerEntry>> consumer, final int batchSize) {
+        long replayed = 0;
+        val batch = new ArrayList<LedgerEntry>(batchSize);
+        for(val path : existingSegments()) {
+            try (FileChannel channel = FileChannel.open(path, READ)) {
+                val buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                LedgerEntry entry;
+                while((entry = read(buffer)) != null) {
+                    batch.add(entry);
+                    replayed++;
+                    if(batch.size() == batchSize) {
+                        consumer.accept(batch);
+                        batch.clear();
+                    }
+                }
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+        }
+        if(!batch.isEmpty()) {
+            consumer.accept(batch);
+        }
+        return replayed;
+    }
+
+    /*
+     * Starts a fresh segment; segments left from a previous run are dropped, so they must have been replayed first.
+     */
+    synchronized void open() {
+        try {
+            Files.createDirectories(directory);
+            long index = 0;
+            for(val path : existingSegments()) {
+                index = Math.max(index, segmentIndex(path));
+                Files.delete(path);
+            }
+            segment = newSegment(index + 1);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    /*
+     * Appends the entry and hands it to the listener under the same lock, so listeners see entries in journal order.
+     */
+    synchronized long append(final LedgerEntry entry, final Consumer<LedgerEntry> listener) {
+        val payload = encode(entry);
+        if(segment.buffer.remaining() < RECORD_HEADER + payload.length) {
+            roll();
+        }
+        val crc = new CRC32();
+        crc.update(payload);
+        val buffer = segment.buffer;
+        val position = buffer.position();
+        buffer.position(position + 4);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+        // the length is written last, a reader never sees a length before the rest of the record
+        buffer.putInt(position, payload.length);
+        segment.lastSequence = ++appended;
+        listener.accept(entry);
+        return appended;
+    }
+
+    void awaitDurable(final long sequence) {
+        if(!fsync || durable >= sequence) {
+            return;
+        }
+        synchronized (forceLock) {
+            if(durable >= sequence) {
+                return;
+            }
+            long target;
+            MappedByteBuffer buffer;
+            synchronized (this) {
+                target = appended;
+                buffer = segment.buffer;
+            }
+            buffer.force();
+            durable = target;
+        }
+    }
+
+    /*
+     * Called by the projector with the sequence of the last entry it wrote.
+     */
+    void projected(final long sequence) {
+        List<Segment> obsolete = new ArrayList<>();
+        synchronized (this) {
+            while(!closedSegments.isEmpty() && closedSegments.peekFirst().lastSequence <= sequence) {
+                obsolete.add(closedSegments.pollFirst());
+            }
+        }
+        for(val closed : obsolete) {
+            try {
+                Files.deleteIfExists(closed.path);
+            } catch (IOException ioe) {
+                log.warn("Failed to delete projected journal segment {}.", closed.path, ioe);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if(segment != null) {
+            segment.buffer.force();
+        }
+    }
+
+    private void roll() {
+        segment.buffer.force();
+        closedSegments.addLast(segment);
+        try {
+            segment = newSegment(segmentIndex(segment.path) + 1);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    private Segment newSegment(final long index) throws IOException {
+        val path = directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, CREATE_NEW, READ, WRITE)) {
+            return new Segment(path, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize), appended);
+        }
+    }
+
+    private List<Path> existingSegments() {
+        if(!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (val paths = Files.list(directory)) {
+            return paths.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX) && path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    private static long segmentIndex(final Path path) {
+        val name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    static byte[] encode(final LedgerEntry entry) {
+        val buffer = ByteBuffer.allocate(entry.isConverted() ? CONVERTED_RECORD_PAYLOAD : RECORD_PAYLOAD);
+        buffer.putLong(entry.getTransactionId());
+        buffer.putLong(entry.getFromAccountId());
+        buffer.putLong(entry.getToAccountId());
+        buffer.putInt(entry.getCurrency().ordinal());
+        buffer.putLong(entry.getCreatedAt().getTime());
+        buffer.putLong(entry.getAmount().getMinorUnits());
+        if(entry.isConverted()) {
+            buffer.putLong(entry.getToAmount().getMinorUnits());
+            buffer.putInt(entry.getToCurrency().ordinal());
+            buffer.putLong(entry.getRate().setScale(RATE_SCALE).unscaledValue().longValueExact());
+        }
+        return buffer.array();
+    }
+
+    static LedgerEntry read(final ByteBuffer buffer) {
+        if(buffer.remaining() < RECORD_HEADER) {
+            return null;
+        }
+        val position = buffer.position();
+        val length = buffer.getInt(position);
+        if((length != RECORD_PAYLOAD && length != CONVERTED_RECORD_PAYLOAD) || length > buffer.remaining() - RECORD_HEADER) {
+            return null;
+        }
+        val payload = new byte[length];
+        buffer.position(position + RECORD_HEADER);
+        buffer.get(payload);
+        val crc = new CRC32();
+        crc.update(payload);
+        if((int) crc.getValue() != buffer.getInt(position + 4)) {
+            log.warn("Journal record at {} failed its checksum, ignoring the rest of the segment.", position);
+            buffer.position(position);
+            return null;
+        }
+        val record = ByteBuffer.wrap(payload);
+        val transactionId = record.getLong();
+        val fromAccountId = record.getLong();
+        val toAccountId = record.getLong();
+        val currency = Currency.values()[record.getInt()];
+        val createdAt = new Timestamp(record.getLong());
+        val amount = Money.ofMinorUnits(record.getLong());
+        if(length == RECORD_PAYLOAD) {
+            return new LedgerEntry(transactionId, fromAccountId, toAccountId, amount, currency, createdAt);
+        }
+        val toAmount = Money.ofMinorUnits(record.getLong());
+        val toCurrency = Currency.values()[record.getInt()];
+        val rate = BigDecimal.valueOf(record.getLong(), RATE_SCALE);
+        return new LedgerEntry(transactionId, fromAccountId, toAccountId, amount, currency, createdAt, toAmount, toCurrency, rate);
+    }
+
+    private static class Segment {
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private long lastSequence;
+
+        private Segment(final Path path, final MappedByteBuffer buffer, final long lastSequence) {
+            this.path = path;
+            this.buffer = buffer;
+            this.lastSequence = lastSequence;
+        }
+    }
+}
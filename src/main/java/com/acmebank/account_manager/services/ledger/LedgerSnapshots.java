@@ -0,0 +1,262 @@
+package com.acmebank.account_manager.services.ledger;
+
+import com.acmebank.account_manager.shared.AccountType;
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/*
+ * Binary snapshots of account state, so a restart reads one file and the transactions written since instead of the
+ * whole account table. A snapshot is taken by the write-behind between two batches, when the database holds exactly
+ * what was written so far, and records every account with the lowest transaction id that could still be written
+ * afterwards. Ids are handed out before their transfer is journaled, so a few ids at or above that mark may have been
+ * written already; the snapshot lists them. Restoring applies every transaction from the mark on that is not listed.
+ * A file is [magic][format][mark][listed ids][accounts as id, balance in minor units, currency, type][0][count][CRC32];
+ * a file that does not check out is skipped for the one before it, and without any the accounts are loaded from the table.
+ */
+@Slf4j
+class LedgerSnapshots {
+    private static final String SNAPSHOT_PREFIX = "ledger-";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x4C534E50;
+    private static final int FORMAT = 1;
+    private static final int RETAINED = 2;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final Path directory;
+    private final long intervalNanos;
+    private final LedgerStore ledgerStore;
+    private final AtomicReference<CompletableFuture<Path>> requested = new AtomicReference<>();
+    private long nextAt;
+
+    LedgerSnapshots(final Path directory, final Duration interval, final LedgerStore ledgerStore) {
+        this.directory = directory;
+        this.intervalNanos = interval.toNanos();
+        this.ledgerStore = ledgerStore;
+        this.nextAt = System.nanoTime() + intervalNanos;
+    }
+
+    boolean isEnabled() {
+        return intervalNanos > 0;
+    }
+
+    /*
+     * Takes a snapshot when one is due or was requested; only called while no entries are being written.
+     */
+    void betweenBatches() {
+        val request = requested.getAndSet(null);
+        if(request == null && (!isEnabled() || System.nanoTime() - nextAt < 0)) {
+            return;
+        }
+        try {
+            val path = write();
+            if(request != null) {
+                request.complete(path);
+            }
+        } catch (RuntimeException re) {
+            log.error("Failed to write a ledger snapshot.", re);
+            if(request != null) {
+                request.completeExceptionally(re);
+            }
+        } finally {
+            nextAt = System.nanoTime() + intervalNanos;
+        }
+    }
+
+    /*
+     * Completes with the snapshot taken by the write-behind once it is between two batches.
+     */
+    CompletableFuture<Path> request() {
+        return requested.updateAndGet(current -> current != null ? current : new CompletableFuture<>());
+    }
+
+    Path write() {
+        val started = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            val existing = snapshots();
+            val index = existing.isEmpty() ? 1 : snapshotIndex(existing.get(0)) + 1;
+            val path = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, index, SNAPSHOT_SUFFIX));
+            val temporary = directory.resolve(path.getFileName() + TEMPORARY_SUFFIX);
+            Files.deleteIfExists(temporary);
+            val mark = ledgerStore.lowestUnwrittenId();
+            val written = ledgerStore.loadTransactionIdsFrom(mark);
+            val crc = new CRC32();
+            long accounts;
+            try (val out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary, CREATE_NEW, WRITE), BUFFER_SIZE), crc))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT);
+                out.writeLong(mark);
+                out.writeInt(written.size());
+                for(val transactionId : written) {
+                    out.writeLong(transactionId);
+                }
+                val count = new long[1];
+                ledgerStore.loadAccounts(account -> {
+                    try {
+                        out.writeLong(account.getId());
+                        out.writeLong(account.getBalance());
+                        out.writeByte(account.getCurrency().ordinal());
+                        out.writeByte(account.getType().ordinal());
+                        count[0]++;
+                    } catch (IOException ioe) {
+                        throw new UncheckedIOException(ioe);
+                    }
+                });
+                accounts = count[0];
+                out.writeLong(0);
+                out.writeLong(accounts);
+                out.writeInt((int) crc.getValue());
+            }
+            try (val channel = FileChannel.open(temporary, WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temporary, path, ATOMIC_MOVE);
+            for(val old : existing.subList(Math.min(existing.size(), RETAINED - 1), existing.size())) {
+                Files.deleteIfExists(old);
+            }
+            log.info("Wrote ledger snapshot {} of {} accounts in {} ms.", path, accounts, Duration.ofNanos(System.nanoTime() - started).toMillis());
+            return path;
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    /*
+     * Fills accounts from the newest snapshot that checks out and the transactions written after it.
+     * Returns false, leaving accounts empty, when there is none.
+     */
+    boolean restore(final Map<Long, LedgerAccount> accounts) {
+        val started = System.nanoTime();
+        for(val path : snapshots()) {
+            final Snapshot snapshot;
+            try {
+                snapshot = read(path);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Skipping ledger snapshot {}: {}", path, e.toString());
+                continue;
+            }
+            val caughtUp = new long[1];
+            ledgerStore.loadTransactionsFrom(snapshot.mark, entry -> {
+                if(snapshot.written.contains(entry.getTransactionId())) {
+                    return;
+                }
+                val from = snapshot.accounts.get(entry.getFromAccountId());
+                val to = snapshot.accounts.get(entry.getToAccountId());
+                // accounts created after the snapshot are not restored, they are loaded from the table on first use
+                if(from != null) {
+                    from.restore(-entry.getAmount().getMinorUnits());
+                }
+                if(to != null) {
+                    to.restore(entry.getToAmount().getMinorUnits());
+                }
+                caughtUp[0]++;
+            });
+            accounts.putAll(snapshot.accounts);
+            log.info("Restored {} accounts from ledger snapshot {} and {} transactions written after it in {} ms.",
+                    snapshot.accounts.size(), path, caughtUp[0], Duration.ofNanos(System.nanoTime() - started).toMillis());
+            return true;
+        }
+        return false;
+    }
+
+    private static Snapshot read(final Path path) throws IOException {
+        val crc = new CRC32();
+        try (val in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE), crc))) {
+            if(in.readInt() != MAGIC || in.readInt() != FORMAT) {
+                throw new IOException("not a ledger snapshot");
+            }
+            val mark = in.readLong();
+            val listed = in.readInt();
+            if(listed < 0 || listed > Files.size(path) / Long.BYTES) {
+                throw new IOException("invalid count of listed ids " + listed);
+            }
+            val written = new HashSet<Long>(listed * 2);
+            for(int i = 0; i < listed; i++) {
+                written.add(in.readLong());
+            }
+            val accounts = new HashMap<Long, LedgerAccount>();
+            long id;
+            while((id = in.readLong()) != 0) {
+                val balance = Money.ofMinorUnits(in.readLong());
+                val currency = Currency.values()[in.readByte()];
+                val type = AccountType.values()[in.readByte()];
+                accounts.put(id, new LedgerAccount(id, balance, currency, type));
+            }
+            val count = in.readLong();
+            val expected = (int) crc.getValue();
+            if(in.readInt() != expected || count != accounts.size()) {
+                throw new IOException("checksum mismatch");
+            }
+            if(in.read() != -1) {
+                throw new IOException("trailing bytes");
+            }
+            return new Snapshot(mark, written, accounts);
+        } catch (EOFException eofe) {
+            throw new IOException("truncated");
+        }
+    }
+
+    /*
+     * Snapshot files, newest first.
+     */
+    private List<Path> snapshots() {
+        if(!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (val files = Files.list(directory)) {
+            return files.filter(path -> {
+                        val name = path.getFileName().toString();
+                        return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+                    })
+                    .sorted((a, b) -> Long.compare(snapshotIndex(b), snapshotIndex(a)))
+                    .collect(Collectors.toList());
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    private static long snapshotIndex(final Path path) {
+        val name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    private static final class Snapshot {
+        private final long mark;
+        private final HashSet<Long> written;
+        private final Map<Long, LedgerAccount> accounts;
+
+        private Snapshot(final long mark, final HashSet<Long> written, final Map<Long, LedgerAccount> accounts) {
+            this.mark = mark;
+            this.written = written;
+            this.accounts = accounts;
+        }
+    }
+}
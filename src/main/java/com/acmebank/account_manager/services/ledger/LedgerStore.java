@@ -0,0 +1,168 @@
+package com.acmebank.account_manager.services.ledger;
+
+import com.acmebank.account_manager.configs.LedgerProperties;
+import com.acmebank.account_manager.shared.AccountType;
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static com.acmebank.account_manager.data.entities.Transaction.ID_ALLOCATION_SIZE;
+import static com.acmebank.account_manager.data.entities.Transaction.ID_SEQUENCE;
+import static com.acmebank.account_manager.services.striping.StripedBalances.BALANCE_WITH_STRIPES;
+
+/*
+ * JDBC access for the sharded ledger: loads account state and writes flushed ledger entries.
+ * Writing is idempotent, entries whose transaction already exists are skipped, so a journal replay may overlap
+ * with what the projector had already written before a crash.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@ConditionalOnProperty(prefix = "acmebank.ledger", name = "engine", havingValue = "sharded")
+class LedgerStore {
+    private static final String SELECT_ACCOUNTS = "SELECT \"id\", " + BALANCE_WITH_STRIPES + ", \"currency\", \"type\" FROM \"account\"";
+    private static final String UPDATE_BALANCE = "UPDATE \"account\" SET \"balance\" = \"balance\" + ?, \"version\" = \"version\" + 1, \"updated_at\" = ? WHERE \"id\" = ?";
+    private static final String INSERT_TRANSACTION = "INSERT INTO \"transaction\" (\"id\", \"from_account\", \"to_account\", \"amount\", \"currency\", \"create_at\", \"to_amount\", \"to_currency\", \"rate\") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_TRANSACTION_IDS = "SELECT \"id\" FROM \"transaction\" WHERE \"id\" BETWEEN ? AND ?";
+    private static final String SELECT_LAST_TRANSACTION_ID = "SELECT COALESCE(MAX(\"id\"), 0) FROM \"transaction\"";
+    private static final String SELECT_TRANSACTION_IDS_FROM = "SELECT \"id\" FROM \"transaction\" WHERE \"id\" >= ?";
+    private static final String SELECT_TRANSACTIONS_FROM = "SELECT \"id\", \"from_account\", \"to_account\", \"amount\", \"currency\", \"create_at\","
+            + " COALESCE(\"to_amount\", \"amount\"), COALESCE(\"to_currency\", \"currency\"), COALESCE(\"rate\", 1) FROM \"transaction\" WHERE \"id\" >= ?";
+    private static final String NEXT_ID_BLOCKS = "SELECT NEXT VALUE FOR \"" + ID_SEQUENCE + "\" FROM SYSTEM_RANGE(1, ?)";
+    private static final RowMapper<LedgerAccount> ACCOUNT_ROW_MAPPER = (rs, i) -> new LedgerAccount(
+            rs.getLong(1), Money.of(rs.getBigDecimal(2)), Currency.values()[rs.getInt(3)], AccountType.values()[rs.getInt(4)]);
+    private static final RowMapper<LedgerEntry> ENTRY_ROW_MAPPER = (rs, i) -> new LedgerEntry(
+            rs.getLong(1), rs.getLong(2), rs.getLong(3), Money.of(rs.getBigDecimal(4)), Currency.values()[rs.getInt(5)], rs.getTimestamp(6),
+            Money.of(rs.getBigDecimal(7)), Currency.values()[rs.getInt(8)], rs.getBigDecimal(9));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LedgerProperties ledgerProperties;
+    private long nextTransactionId;
+    private long lastTransactionId = -1;
+    private final ArrayDeque<Long> reservedIdBlocks = new ArrayDeque<>();
+    /* ids handed out and neither written nor released yet */
+    private final ConcurrentSkipListSet<Long> unwrittenIds = new ConcurrentSkipListSet<>();
+
+    void loadAccounts(final Consumer<LedgerAccount> consumer) {
+        jdbcTemplate.query(SELECT_ACCOUNTS, (RowCallbackHandler) rs -> consumer.accept(ACCOUNT_ROW_MAPPER.mapRow(rs, rs.getRow())));
+    }
+
+    LedgerAccount loadAccount(final long id) {
+        val accounts = jdbcTemplate.query(SELECT_ACCOUNTS + " WHERE \"id\" = ?", ACCOUNT_ROW_MAPPER, id);
+        return accounts.isEmpty() ? null : accounts.get(0);
+    }
+
+    /*
+     * Transaction ids are drawn from the same pooled sequence as the JPA engine, each sequence value reserves the
+     * ID_ALLOCATION_SIZE ids ending at it. Several blocks are fetched per round trip, acmebank.ledger.id-block-size ids in total.
+     */
+    synchronized long nextTransactionId() {
+        if(nextTransactionId > lastTransactionId) {
+            if(reservedIdBlocks.isEmpty()) {
+                val blocks = Math.max(1, ledgerProperties.getIdBlockSize() / ID_ALLOCATION_SIZE);
+                reservedIdBlocks.addAll(jdbcTemplate.queryForList(NEXT_ID_BLOCKS, Long.class, blocks));
+            }
+            lastTransactionId = reservedIdBlocks.poll();
+            nextTransactionId = Math.max(1, lastTransactionId - ID_ALLOCATION_SIZE + 1);
+        }
+        unwrittenIds.add(nextTransactionId);
+        return nextTransactionId++;
+    }
+
+    /*
+     * Gives up an id whose transfer was not journaled, it will never be written.
+     */
+    void release(final long transactionId) {
+        unwrittenIds.remove(transactionId);
+    }
+
+    /*
+     * No transaction below this id can be written anymore: it is the lowest id handed out and not yet written or
+     * released, or the one after the last id written. Ids handed out later are higher still.
+     */
+    long lowestUnwrittenId() {
+        val lowestHandedOut = unwrittenIds.ceiling(Long.MIN_VALUE);
+        val afterLastWritten = jdbcTemplate.queryForObject(SELECT_LAST_TRANSACTION_ID, Long.class) + 1;
+        return lowestHandedOut == null ? afterLastWritten : Math.min(lowestHandedOut, afterLastWritten);
+    }
+
+    List<Long> loadTransactionIdsFrom(final long transactionId) {
+        return jdbcTemplate.queryForList(SELECT_TRANSACTION_IDS_FROM, Long.class, transactionId);
+    }
+
+    void loadTransactionsFrom(final long transactionId, final Consumer<LedgerEntry> consumer) {
+        jdbcTemplate.query(SELECT_TRANSACTIONS_FROM, (RowCallbackHandler) rs -> consumer.accept(ENTRY_ROW_MAPPER.mapRow(rs, rs.getRow())), transactionId);
+    }
+
+    void write(final List<LedgerEntry> entries) {
+        transactionTemplate.executeWithoutResult(status -> {
+            val pending = unwritten(entries);
+            if(pending.isEmpty()) {
+                return;
+            }
+            updateBalances(pending);
+            insertTransactions(pending);
+        });
+        entries.forEach(entry -> unwrittenIds.remove(entry.getTransactionId()));
+    }
+
+    private List<LedgerEntry> unwritten(final List<LedgerEntry> entries) {
+        val ids = entries.stream().mapToLong(LedgerEntry::getTransactionId).summaryStatistics();
+        val written = new HashSet<>(jdbcTemplate.queryForList(SELECT_TRANSACTION_IDS, Long.class, ids.getMin(), ids.getMax()));
+        if(written.isEmpty()) {
+            return entries;
+        }
+        return entries.stream().filter(entry -> !written.contains(entry.getTransactionId())).collect(Collectors.toList());
+    }
+
+    /*
+     * Balances are moved by the net amount of the batch, accounts are updated in id order so concurrent writers cannot deadlock.
+     */
+    private void updateBalances(final List<LedgerEntry> entries) {
+        val deltas = new TreeMap<Long, Money>();
+        for(val entry : entries) {
+            deltas.merge(entry.getFromAccountId(), Money.ZERO.minus(entry.getAmount()), Money::plus);
+            deltas.merge(entry.getToAccountId(), entry.getToAmount(), Money::plus);
+        }
+        val now = new Timestamp(System.currentTimeMillis());
+        val args = new ArrayList<Object[]>(deltas.size());
+        for(Map.Entry<Long, Money> delta : deltas.entrySet()) {
+            args.add(new Object[]{delta.getValue().toBigDecimal(), now, delta.getKey()});
+        }
+        jdbcTemplate.batchUpdate(UPDATE_BALANCE, args);
+    }
+
+    private void insertTransactions(final List<LedgerEntry> entries) {
+        val args = new ArrayList<Object[]>(entries.size());
+        entries.forEach(entry -> args.add(new Object[]{
+                entry.getTransactionId(),
+                entry.getFromAccountId(),
+                entry.getToAccountId(),
+                entry.getAmount().toBigDecimal(),
+                entry.getCurrency().ordinal(),
+                entry.getCreatedAt(),
+                entry.getToAmount().toBigDecimal(),
+                entry.getToCurrency().ordinal(),
+                entry.getRate()}));
+        jdbcTemplate.batchUpdate(INSERT_TRANSACTION, args);
+    }
+}
@@ -0,0 +1,106 @@
+package com.acmebank.account_manager.services.ledger;
+
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/*
+ * Drains accepted ledger entries on a single background thread and persists them in batches.
+ * A failed batch is retried, never dropped, so entries reach the database in acceptance order.
+ * After each batch the listener is told how many entries have been written so far. Between batches, and while
+ * idle, the betweenBatches task runs with no write in progress.
+ */
+@Slf4j
+class LedgerWriteBehind implements Runnable {
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 30000;
+    private final LedgerStore ledgerStore;
+    private final Duration flushInterval;
+    private final int flushBatchSize;
+    private final LongConsumer writtenListener;
+    private final Runnable betweenBatches;
+    private final BlockingQueue<LedgerEntry> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong accepted = new AtomicLong();
+    private final Thread thread;
+    private volatile long written;
+    private volatile boolean running = true;
+
+    LedgerWriteBehind(final LedgerStore ledgerStore, final Duration flushInterval, final int flushBatchSize, final LongConsumer writtenListener,
+                      final Runnable betweenBatches) {
+        this.ledgerStore = ledgerStore;
+        this.flushInterval = flushInterval;
+        this.flushBatchSize = flushBatchSize;
+        this.writtenListener = writtenListener;
+        this.betweenBatches = betweenBatches;
+        this.thread = new Thread(this, "ledger-write-behind");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void accept(final LedgerEntry entry) {
+        accepted.incrementAndGet();
+        queue.add(entry);
+    }
+
+    @Override
+    public void run() {
+        val batch = new ArrayList<LedgerEntry>(flushBatchSize);
+        while(running || !queue.isEmpty() || !batch.isEmpty()) {
+            try {
+                if(batch.isEmpty()) {
+                    betweenBatches.run();
+                    val first = queue.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                    if(first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, flushBatchSize - 1);
+                }
+                ledgerStore.write(batch);
+                written += batch.size();
+                batch.clear();
+                writtenListener.accept(written);
+            } catch (InterruptedException ie) {
+                running = false;
+            } catch (RuntimeException re) {
+                log.error("Failed to persist {} ledger entries, retrying.", batch.size(), re);
+                pause();
+            }
+        }
+    }
+
+    /*
+     * Blocks until every entry accepted before the call has been written.
+     */
+    void flush() {
+        val target = accepted.get();
+        while(written < target && thread.isAlive()) {
+            pause();
+        }
+    }
+
+    void stop() throws InterruptedException {
+        running = false;
+        thread.join(SHUTDOWN_TIMEOUT_MILLIS);
+        if(thread.isAlive()) {
+            log.error("Ledger write-behind did not drain within {} ms, {} entries not persisted.", SHUTDOWN_TIMEOUT_MILLIS, accepted.get() - written);
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(Math.max(1, flushInterval.toMillis() / 10));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
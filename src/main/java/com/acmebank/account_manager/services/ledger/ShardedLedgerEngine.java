@@ -0,0 +1,221 @@
+package com.acmebank.account_manager.services.ledger;
+
+import com.acmebank.account_manager.configs.LedgerProperties;
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.data.models.responses.AccountBalance;
+import com.acmebank.account_manager.data.models.responses.Transaction;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.services.LedgerEngine;
+import com.acmebank.account_manager.services.fx.FxRates;
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.acmebank.account_manager.shared.ErrorCode.ACCOUNT_NOT_FOUND;
+import static com.acmebank.account_manager.shared.ErrorCode.SAME_ACCOUNT;
+
+/*
+ * Keeps balances in memory, partitioned by account id into shards. Each shard is owned by a single
+ * writer thread, so a balance is never mutated concurrently and no database lock is taken on transfer.
+ * A cross-shard transfer debits on the source shard first and only then credits on the target shard;
+ * a credit cannot fail, so the pair is never left half applied. Before the credit, the target shard appends
+ * the transfer to the journal, and the transfer is only acknowledged once the journal is forced to disk.
+ * The write-behind projects journaled transfers into the database in batches; on startup whatever it had
+ * not projected is replayed from the journal before any account is loaded. Accounts are then restored from the
+ * latest LedgerSnapshots snapshot and the transactions written after it, or read from the account table without one.
+ */
+@Slf4j
+@Service
+@DependsOnDatabaseInitialization
+@ConditionalOnProperty(prefix = "acmebank.ledger", name = "engine", havingValue = "sharded")
+public class ShardedLedgerEngine implements LedgerEngine {
+    private final LedgerStore ledgerStore;
+    private final FxRates fxRates;
+    private final LedgerJournal journal;
+    private final LedgerWriteBehind writeBehind;
+    private final LedgerSnapshots snapshots;
+    private final int flushBatchSize;
+    private final ExecutorService[] shards;
+    private final ConcurrentMap<Long, LedgerAccount> accounts = new ConcurrentHashMap<>();
+
+    ShardedLedgerEngine(final LedgerStore ledgerStore, final LedgerProperties ledgerProperties, final FxRates fxRates) {
+        this.ledgerStore = ledgerStore;
+        this.fxRates = fxRates;
+        this.journal = new LedgerJournal(Paths.get(ledgerProperties.getJournalDir()),
+                (int) ledgerProperties.getJournalSegmentSize().toBytes(), ledgerProperties.isJournalFsync());
+        this.snapshots = new LedgerSnapshots(Paths.get(ledgerProperties.getSnapshotDir()), ledgerProperties.getSnapshotInterval(), ledgerStore);
+        this.writeBehind = new LedgerWriteBehind(ledgerStore, ledgerProperties.getFlushInterval(), ledgerProperties.getFlushBatchSize(), journal::projected,
+                snapshots::betweenBatches);
+        this.flushBatchSize = ledgerProperties.getFlushBatchSize();
+        this.shards = new ExecutorService[ledgerProperties.getShards()];
+        for(int i = 0; i < shards.length; i++) {
+            val name = "ledger-shard-" + i;
+            shards[i] = Executors.newSingleThreadExecutor(r -> new Thread(r, name));
+        }
+    }
+
+    @PostConstruct
+    void load() {
+        val replayed = journal.replay(ledgerStore::write, flushBatchSize);
+        if(replayed > 0) {
+            log.info("Replayed {} journaled ledger entries.", replayed);
+        }
+        journal.open();
+        if(!snapshots.isEnabled() || !snapshots.restore(accounts)) {
+            ledgerStore.loadAccounts(account -> accounts.put(account.getId(), account));
+        }
+        writeBehind.start();
+        log.info("Loaded {} accounts into {} ledger shards.", accounts.size(), shards.length);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        for(val shard : shards) {
+            shard.shutdown();
+        }
+        for(val shard : shards) {
+            shard.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        writeBehind.stop();
+        journal.close();
+        if(snapshots.isEnabled()) {
+            // every transfer is written by now, the next start restores this snapshot without catching up
+            snapshots.write();
+        }
+    }
+
+    /*
+     * Takes a snapshot between two write-behind batches and blocks until it is written.
+     */
+    Path snapshot() {
+        return snapshots.request().join();
+    }
+
+    @Override
+    public AccountBalance getAccountBalance(final long id) {
+        val account = account(id);
+        return AccountBalance.of(Money.ofMinorUnits(account.getBalance()), account.getCurrency(), account.getType());
+    }
+
+    @Override
+    public Transaction transfer(final TransferRequest transferRequest) {
+        val fromAccountId = transferRequest.getFromAccountId();
+        val toAccountId = transferRequest.getToAccountId();
+        if(fromAccountId == toAccountId) {
+            throw AccountManagerException.of(SAME_ACCOUNT);
+        }
+        val amount = transferRequest.getMoney();
+        val currency = transferRequest.getCurrency();
+        val fromAccount = account(fromAccountId, currency);
+        val toAccount = account(toAccountId);
+        val conversion = fxRates.convert(amount, currency, toAccount.getCurrency());
+        val entry = new LedgerEntry(ledgerStore.nextTransactionId(), fromAccountId, toAccountId, amount, currency,
+                new Timestamp(System.currentTimeMillis()), conversion.getToAmount(), conversion.getToCurrency(), conversion.getRate());
+        final CompletableFuture<Credit> credit;
+        final long fromBalance;
+        try {
+            val debit = CompletableFuture.supplyAsync(() -> fromAccount.debit(amount.getMinorUnits()), shardOf(fromAccountId));
+            credit = debit.thenApplyAsync(debited -> journalAndCredit(entry, toAccount), shardOf(toAccountId));
+            fromBalance = await(debit);
+        } catch (RuntimeException re) {
+            ledgerStore.release(entry.getTransactionId());
+            throw re;
+        }
+        final Credit accepted;
+        try {
+            accepted = await(credit);
+        } catch (RuntimeException re) {
+            // the journal append failed, nothing was credited, so the debit is handed back
+            await(CompletableFuture.supplyAsync(() -> fromAccount.credit(amount.getMinorUnits()), shardOf(fromAccountId)));
+            throw re;
+        }
+        journal.awaitDurable(accepted.sequence);
+        return new Transaction(
+                entry.getTransactionId(),
+                fromAccountId,
+                AccountBalance.of(Money.ofMinorUnits(fromBalance), currency, fromAccount.getType()),
+                toAccountId,
+                AccountBalance.of(Money.ofMinorUnits(accepted.balance), toAccount.getCurrency(), toAccount.getType()),
+                entry.getCreatedAt());
+    }
+
+    /*
+     * Blocks until every transfer accepted so far is persisted.
+     */
+    public void flush() {
+        writeBehind.flush();
+    }
+
+    private LedgerAccount account(final long id) {
+        LedgerAccount account = accounts.get(id);
+        if(account == null) {
+            // accounts provisioned after startup are picked up from the database on first use
+            account = accounts.computeIfAbsent(id, ledgerStore::loadAccount);
+        }
+        if(account == null) {
+            throw new AccountManagerException(ACCOUNT_NOT_FOUND, id);
+        }
+        return account;
+    }
+
+    private LedgerAccount account(final long id, final Currency currency) {
+        val account = account(id);
+        if(currency != account.getCurrency()) {
+            throw new AccountManagerException(ACCOUNT_NOT_FOUND, id);
+        }
+        return account;
+    }
+
+    private ExecutorService shardOf(final long accountId) {
+        return shards[(int) Math.floorMod(accountId, (long) shards.length)];
+    }
+
+    private static <T> T await(final CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ce) {
+            if(ce.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ce.getCause();
+            }
+            throw ce;
+        }
+    }
+
+    private Credit journalAndCredit(final LedgerEntry entry, final LedgerAccount toAccount) {
+        final long sequence;
+        try {
+            sequence = journal.append(entry, writeBehind::accept);
+        } catch (RuntimeException re) {
+            ledgerStore.release(entry.getTransactionId());
+            throw re;
+        }
+        return new Credit(sequence, toAccount.credit(entry.getToAmount().getMinorUnits()));
+    }
+
+    private static class Credit {
+        private final long sequence;
+        private final long balance;
+
+        private Credit(final long sequence, final long balance) {
+            this.sequence = sequence;
+            this.balance = balance;
+        }
+    }
+}
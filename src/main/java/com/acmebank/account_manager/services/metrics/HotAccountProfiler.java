@@ -0,0 +1,175 @@
+package com.acmebank.account_manager.services.metrics;
+
+import com.acmebank.account_manager.configs.HotAccountsProperties;
+import com.acmebank.account_manager.data.models.responses.HotAccount;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/*
+ * Finds the accounts involved in most transfers with a space-saving sketch of fixed capacity: once every slot is
+ * taken, an untracked account replaces the least counted one and inherits its count, so a slot overcounts by at
+ * most maxOvercount and any account above 1/capacity of the traffic is always tracked.
+ * Each slot also keeps a log2 histogram of the time spent waiting on the account, reset when the slot changes hands.
+ * Slots form a binary min-heap on count, so recording is O(log capacity) under one short lock.
+ */
+@Component
+public class HotAccountProfiler {
+    private static final int WAIT_BUCKETS = 48;
+    private final boolean enabled;
+    private final Slot[] heap;
+    private final Map<Long, Slot> slots;
+    private int size;
+
+    @Autowired
+    public HotAccountProfiler(final HotAccountsProperties properties) {
+        this(properties.isEnabled(), properties.getCapacity());
+    }
+
+    HotAccountProfiler(final boolean enabled, final int capacity) {
+        this.enabled = enabled && capacity > 0;
+        this.heap = new Slot[Math.max(capacity, 0)];
+        this.slots = new HashMap<>(Math.max(capacity, 0) * 2);
+    }
+
+    public void record(final long accountId, final long waitNanos) {
+        if(!enabled) {
+            return;
+        }
+        synchronized (this) {
+            Slot slot = slots.get(accountId);
+            if(slot == null) {
+                slot = take(accountId);
+            }
+            slot.count++;
+            slot.waits[bucket(waitNanos)]++;
+            slot.waitTotalNanos += waitNanos;
+            siftDown(slot.index);
+        }
+    }
+
+    public List<HotAccount> top(final int limit) {
+        final List<HotAccount> hotAccounts = new ArrayList<>();
+        synchronized (this) {
+            for(int i = 0; i < size; i++) {
+                hotAccounts.add(heap[i].snapshot());
+            }
+        }
+        return hotAccounts.stream()
+                .sorted(Comparator.comparingLong(HotAccount::getTransfers).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    public synchronized void reset() {
+        for(int i = 0; i < size; i++) {
+            heap[i] = null;
+        }
+        slots.clear();
+        size = 0;
+    }
+
+    private Slot take(final long accountId) {
+        final Slot slot;
+        if(size < heap.length) {
+            slot = new Slot(size);
+            heap[size++] = slot;
+            /* a count of 0 is below every other, the new slot becomes the root and record sifts it down */
+            siftUp(slot.index);
+        } else {
+            slot = heap[0];
+            slots.remove(slot.accountId);
+            slot.maxOvercount = slot.count;
+            slot.waitTotalNanos = 0;
+            Arrays.fill(slot.waits, 0);
+        }
+        slot.accountId = accountId;
+        slots.put(accountId, slot);
+        return slot;
+    }
+
+    private void siftUp(int index) {
+        val slot = heap[index];
+        while(index > 0) {
+            val parent = (index - 1) / 2;
+            if(heap[parent].count <= slot.count) {
+                break;
+            }
+            heap[index] = heap[parent];
+            heap[index].index = index;
+            index = parent;
+        }
+        heap[index] = slot;
+        slot.index = index;
+    }
+
+    private void siftDown(int index) {
+        val slot = heap[index];
+        while(true) {
+            int child = 2 * index + 1;
+            if(child >= size) {
+                break;
+            }
+            if(child + 1 < size && heap[child + 1].count < heap[child].count) {
+                child++;
+            }
+            if(heap[child].count >= slot.count) {
+                break;
+            }
+            heap[index] = heap[child];
+            heap[index].index = index;
+            index = child;
+        }
+        heap[index] = slot;
+        slot.index = index;
+    }
+
+    private static int bucket(final long waitNanos) {
+        return Math.min(WAIT_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(waitNanos, 0)));
+    }
+
+    private static final class Slot {
+        private long accountId;
+        private long count;
+        private long maxOvercount;
+        private long waitTotalNanos;
+        private final long[] waits = new long[WAIT_BUCKETS];
+        private int index;
+
+        private Slot(final int index) {
+            this.index = index;
+        }
+
+        private HotAccount snapshot() {
+            return new HotAccount(accountId, count, maxOvercount,
+                    percentileMillis(0.5), percentileMillis(0.99), percentileMillis(0.999), waitTotalNanos / 1e6);
+        }
+
+        /*
+         * Upper bound of the bucket holding the percentile, so a value is overstated by at most a factor of two.
+         */
+        private double percentileMillis(final double percentile) {
+            long recorded = 0;
+            for(val waitCount : waits) {
+                recorded += waitCount;
+            }
+            val rank = (long) Math.ceil(percentile * recorded);
+            long seen = 0;
+            for(int bucket = 0; bucket < WAIT_BUCKETS; bucket++) {
+                seen += waits[bucket];
+                if(seen >= rank && seen > 0) {
+                    return bucket == 0 ? 0 : (double) ((1L << bucket) - 1) / 1e6;
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.acmebank.account_manager.services.metrics;
+
+import com.acmebank.account_manager.data.models.responses.HotAccount;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/*
+ * GET /actuator/hotaccounts lists the 10 most transferred accounts, GET /actuator/hotaccounts/{limit} that many,
+ * DELETE starts profiling afresh.
+ */
+@Component
+@Endpoint(id = "hotaccounts")
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class HotAccountsEndpoint {
+    private static final int DEFAULT_LIMIT = 10;
+    private final HotAccountProfiler hotAccountProfiler;
+
+    @ReadOperation
+    public List<HotAccount> hotAccounts() {
+        return hotAccountProfiler.top(DEFAULT_LIMIT);
+    }
+
+    @ReadOperation
+    public List<HotAccount> hotAccounts(@Selector final int limit) {
+        return hotAccountProfiler.top(limit);
+    }
+
+    @DeleteOperation
+    public void reset() {
+        hotAccountProfiler.reset();
+    }
+}
@@ -0,0 +1,43 @@
+package com.acmebank.account_manager.services.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Logs how long after the JVM started the service was ready, and how long until its first request was answered,
+ * which also covers the lazy initialisation the first request pays for.
+ */
+@Slf4j
+@Component
+public class StartupTimer extends OncePerRequestFilter {
+    private final AtomicBoolean served = new AtomicBoolean();
+
+    @EventListener(ApplicationReadyEvent.class)
+    void ready() {
+        log.info("Ready for requests {} ms after the JVM started.", uptimeMillis());
+    }
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response, final FilterChain filterChain)
+            throws ServletException, IOException {
+        filterChain.doFilter(request, response);
+        if(!served.get() && served.compareAndSet(false, true)) {
+            log.info("First request, {} {}, answered {} ms after the JVM started.", request.getMethod(), request.getRequestURI(), uptimeMillis());
+        }
+    }
+
+    private static long uptimeMillis() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+}
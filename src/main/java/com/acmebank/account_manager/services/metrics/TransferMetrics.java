@@ -0,0 +1,164 @@
+package com.acmebank.account_manager.services.metrics;
+
+import com.acmebank.account_manager.configs.LedgerProperties.Concurrency;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.val;
+import org.hibernate.exception.LockAcquisitionException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.LockTimeoutException;
+import java.sql.SQLTimeoutException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/*
+ * Times each stage of a JPA transfer into acmebank.transfer.stage, tagged by concurrency and stage, and counts
+ * lock failures into acmebank.transfer.lock.failures, tagged by cause. Timers keep a decaying HdrHistogram
+ * recorded without locks and publish p50, p99 and p999 as acmebank.transfer.stage.percentile.
+ * Disable with management.metrics.enable.acmebank.transfer=false, which swaps in no-op meters.
+ * Stages spent on a single account are also reported to the HotAccountProfiler. Group commits record how many
+ * transfers shared one commit into acmebank.transfer.group.size.
+ */
+@Component
+public class TransferMetrics {
+    public static final String STAGE_TIMER = "acmebank.transfer.stage";
+    public static final String LOCK_FAILURES = "acmebank.transfer.lock.failures";
+    public static final String GROUP_SIZE = "acmebank.transfer.group.size";
+    private final Map<Concurrency, Map<Stage, Timer>> stageTimers = new EnumMap<>(Concurrency.class);
+    private final Map<LockFailure, Counter> lockFailures = new EnumMap<>(LockFailure.class);
+    private final DistributionSummary groupSizes;
+    private final HotAccountProfiler hotAccountProfiler;
+
+    public TransferMetrics(final MeterRegistry meterRegistry, final HotAccountProfiler hotAccountProfiler) {
+        this.hotAccountProfiler = hotAccountProfiler;
+        for(val concurrency : Concurrency.values()) {
+            val timers = new EnumMap<Stage, Timer>(Stage.class);
+            for(val stage : Stage.values()) {
+                timers.put(stage, Timer.builder(STAGE_TIMER)
+                        .description("Time spent in one stage of a transfer")
+                        .tag("concurrency", tagValue(concurrency))
+                        .tag("stage", tagValue(stage))
+                        .publishPercentiles(0.5, 0.99, 0.999)
+                        .register(meterRegistry));
+            }
+            stageTimers.put(concurrency, timers);
+        }
+        for(val cause : LockFailure.values()) {
+            lockFailures.put(cause, Counter.builder(LOCK_FAILURES)
+                    .description("Transfers that failed on a database lock")
+                    .tag("cause", tagValue(cause))
+                    .register(meterRegistry));
+        }
+        this.groupSizes = DistributionSummary.builder(GROUP_SIZE)
+                .description("Transfers applied in one group commit")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    public <T> T time(final Concurrency concurrency, final Stage stage, final Supplier<T> work) {
+        val start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            stageTimers.get(concurrency).get(stage).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public <T> T time(final Concurrency concurrency, final Stage stage, final long accountId, final Supplier<T> work) {
+        val start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            val elapsed = System.nanoTime() - start;
+            stageTimers.get(concurrency).get(stage).record(elapsed, TimeUnit.NANOSECONDS);
+            hotAccountProfiler.record(accountId, elapsed);
+        }
+    }
+
+    /*
+     * Times the commit of the current transaction, from the start of its before-commit callbacks until it has committed.
+     */
+    public void timeCommit(final Concurrency concurrency) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        val timer = stageTimers.get(concurrency).get(Stage.COMMIT);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private long start;
+
+            @Override
+            public void beforeCommit(final boolean readOnly) {
+                start = System.nanoTime();
+            }
+
+            @Override
+            public void afterCommit() {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    public void groupCommitted(final int size) {
+        groupSizes.record(size);
+    }
+
+    /*
+     * Counts the exception if it is a lock failure, returns whether it was counted.
+     */
+    public boolean lockFailure(final Throwable failure) {
+        val cause = LockFailure.of(failure);
+        if(cause == null) {
+            return false;
+        }
+        lockFailures.get(cause).increment();
+        return true;
+    }
+
+    public static String tagValue(final Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    public enum Stage {
+        /* reading one account, under a row lock for pessimistic */
+        LOCK,
+        /* writing the new balances, flushed and version checked for optimistic, one guarded UPDATE per account for conditional */
+        UPDATE,
+        /* inserting the transaction, flushing pending account updates with it */
+        INSERT,
+        COMMIT
+    }
+
+    enum LockFailure {
+        LOCK_TIMEOUT, LOCK_ACQUISITION, OPTIMISTIC_CONFLICT;
+
+        /*
+         * Spring translates every H2 lock error to a PessimisticLockingFailureException, a timeout is told apart by its cause.
+         */
+        static LockFailure of(final Throwable failure) {
+            if(failure instanceof OptimisticLockingFailureException) {
+                return OPTIMISTIC_CONFLICT;
+            }
+            if(!(failure instanceof PessimisticLockingFailureException || failure instanceof LockAcquisitionException
+                    || failure instanceof QueryTimeoutException)) {
+                return null;
+            }
+            for(Throwable cause = failure; cause != null; cause = cause.getCause()) {
+                if(cause instanceof SQLTimeoutException || cause instanceof QueryTimeoutException || cause instanceof LockTimeoutException) {
+                    return LOCK_TIMEOUT;
+                }
+            }
+            return LOCK_ACQUISITION;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.acmebank.account_manager.services.projection;
+
+import com.acmebank.account_manager.configs.BalanceProjectionProperties;
+import com.acmebank.account_manager.configs.LedgerProperties;
+import com.acmebank.account_manager.data.models.responses.AccountBalance;
+import com.acmebank.account_manager.data.sharding.Shards;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.services.cache.AccountBalanceCache;
+import com.acmebank.account_manager.shared.AccountType;
+import com.acmebank.account_manager.shared.Currency;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static com.acmebank.account_manager.services.striping.StripedBalances.BALANCE_WITH_STRIPES;
+import static com.acmebank.account_manager.shared.ErrorCode.ACCOUNT_NOT_FOUND;
+
+/*
+ * Read model of account balances for reads that accept a little staleness, served from a map without touching the
+ * write side's locks. Every completed write to an account is queued as an event, and a single projector thread
+ * re-reads the committed balances of up to acmebank.balance-projection.batch-size changed accounts in one query
+ * and publishes them. Events are numbered; a published balance remembers the last event number issued before its
+ * read started, and only replaces one read earlier, so a slow read can never overwrite a newer balance.
+ * Accounts are projected once read or written, at most acmebank.balance-projection.maximum-size of them: like
+ * AccountBalanceCache the map is split into LRU segments, and an account evicted is read again on its next eventual
+ * read. The lag, how long the oldest event not yet applied has been
+ * waiting, is published as acmebank.balance.projection.lag and returned with every projected read.
+ * The projection needs the jpa engine, the sharded engine keeps its balances in memory and serves them lock-free already.
+ */
+@Slf4j
+@Component
+public class BalanceProjection {
+    public static final String LAG = "acmebank.balance.projection.lag";
+    public static final String EVENTS = "acmebank.balance.projection.events";
+    public static final String SIZE = "acmebank.balance.projection.size";
+    public static final String LAG_HEADER = "X-Projection-Lag-Millis";
+    private static final String SELECT_BALANCES = "SELECT \"id\", " + BALANCE_WITH_STRIPES + ", \"currency\", \"type\" FROM \"account\" WHERE \"id\" = ANY(?)";
+    private static final long RETRY_PAUSE_MILLIS = 100;
+    private static final long IDLE = Long.MIN_VALUE;
+    private static final int SEGMENTS = 16;
+    private final boolean enabled;
+    private final int batchSize;
+    private final JdbcTemplate jdbcTemplate;
+    private final Shards shards;
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final LinkedBlockingQueue<Event> events = new LinkedBlockingQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Counter applied;
+    private volatile long applyingSince = IDLE;
+    private volatile long appliedThrough;
+    private Thread projector;
+
+    BalanceProjection(final BalanceProjectionProperties properties,
+                      final LedgerProperties ledgerProperties,
+                      final JdbcTemplate jdbcTemplate,
+                      final Shards shards,
+                      final AccountBalanceCache accountBalanceCache,
+                      final MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled() && ledgerProperties.getEngine() == LedgerProperties.Engine.JPA;
+        this.batchSize = Math.max(1, properties.getBatchSize());
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        val segmentCapacity = Math.max(1, properties.getMaximumSize() / SEGMENTS);
+        for(int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+        if(enabled) {
+            accountBalanceCache.addInvalidationListener(this::changed);
+        }
+        TimeGauge.builder(LAG, this, TimeUnit.NANOSECONDS, BalanceProjection::lagNanos)
+                .description("Time the oldest balance change not yet projected has been waiting")
+                .register(meterRegistry);
+        Gauge.builder(SIZE, this, BalanceProjection::size)
+                .description("Accounts in the balance projection")
+                .register(meterRegistry);
+        this.applied = Counter.builder(EVENTS)
+                .description("Balance changes applied to the projection")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if(!enabled) {
+            return;
+        }
+        projector = new Thread(this::project, "balance-projection");
+        projector.setDaemon(true);
+        projector.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        if(projector != null) {
+            projector.interrupt();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /*
+     * Projected balance of the account; an account not projected yet is read once without a lock and projected.
+     */
+    public AccountBalance get(final long accountId) {
+        val segment = segmentOf(accountId);
+        Projected projected;
+        synchronized (segment) {
+            projected = segment.get(accountId);
+        }
+        if(projected != null) {
+            return projected.balance;
+        }
+        val readFrom = sequence.get();
+        val loaded = read(List.of(accountId));
+        if(loaded.isEmpty()) {
+            throw new AccountManagerException(ACCOUNT_NOT_FOUND, accountId);
+        }
+        publish(accountId, new Projected(loaded.get(accountId), readFrom));
+        return loaded.get(accountId);
+    }
+
+    public long lagNanos() {
+        val now = System.nanoTime();
+        long oldest = applyingSince;
+        val head = events.peek();
+        if(oldest == IDLE && head != null) {
+            oldest = head.at;
+        }
+        return oldest == IDLE ? 0 : Math.max(0, now - oldest);
+    }
+
+    long size() {
+        long size = 0;
+        for(val segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /*
+     * Applies every change queued so far before returning.
+     */
+    void awaitProjected() throws InterruptedException {
+        val target = sequence.get();
+        while(appliedThrough < target || !events.isEmpty() || applyingSince != IDLE) {
+            Thread.sleep(1);
+        }
+    }
+
+    private void changed(final long accountId) {
+        events.add(new Event(accountId, sequence.incrementAndGet(), System.nanoTime()));
+    }
+
+    private void project() {
+        val batch = new ArrayList<Event>(batchSize);
+        while(!Thread.currentThread().isInterrupted()) {
+            try {
+                if(batch.isEmpty()) {
+                    val first = events.take();
+                    applyingSince = first.at;
+                    batch.add(first);
+                    events.drainTo(batch, batchSize - 1);
+                }
+                apply(batch);
+                applied.increment(batch.size());
+                appliedThrough = Math.max(appliedThrough, batch.stream().mapToLong(event -> event.sequence).max().orElse(0));
+                batch.clear();
+                applyingSince = IDLE;
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException re) {
+                log.warn("Could not project {} balance changes, retrying.", batch.size(), re);
+                try {
+                    Thread.sleep(RETRY_PAUSE_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private void apply(final List<Event> batch) {
+        val readFrom = sequence.get();
+        val accountIds = batch.stream().map(event -> event.accountId).collect(Collectors.toCollection(TreeSet::new));
+        read(accountIds).forEach((accountId, balance) -> publish(accountId, new Projected(balance, readFrom)));
+    }
+
+    private Map<Long, AccountBalance> read(final Collection<Long> accountIds) {
+        val loaded = new ConcurrentHashMap<Long, AccountBalance>(accountIds.size() * 2);
+        accountIds.stream().collect(Collectors.groupingBy(shards::of)).forEach((shard, ids) ->
+                shards.run(shard, () -> jdbcTemplate.query(SELECT_BALANCES, (RowCallbackHandler) rs -> loaded.put(rs.getLong(1),
+                        AccountBalance.of(rs.getBigDecimal(2), Currency.values()[rs.getInt(3)], AccountType.values()[rs.getInt(4)])),
+                        (Object) ids.toArray(new Long[0]))));
+        return loaded;
+    }
+
+    private void publish(final long accountId, final Projected projected) {
+        val segment = segmentOf(accountId);
+        synchronized (segment) {
+            segment.merge(accountId, projected, (current, read) -> read.readFrom >= current.readFrom ? read : current);
+        }
+    }
+
+    private Segment segmentOf(final long accountId) {
+        return segments[(int) (Long.hashCode(accountId) * 0x9E3779B9L >>> 28) & (SEGMENTS - 1)];
+    }
+
+    private static final class Segment extends LinkedHashMap<Long, Projected> {
+        private final int capacity;
+
+        private Segment(final int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Long, Projected> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    private static final class Projected {
+        private final AccountBalance balance;
+        private final long readFrom;
+
+        private Projected(final AccountBalance balance, final long readFrom) {
+            this.balance = balance;
+            this.readFrom = readFrom;
+        }
+    }
+
+    private static final class Event {
+        private final long accountId;
+        private final long sequence;
+        private final long at;
+
+        private Event(final long accountId, final long sequence, final long at) {
+            this.accountId = accountId;
+            this.sequence = sequence;
+            this.at = at;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.acmebank.account_manager.services.provisioning;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/*
+ * java -jar account-manager.jar --import-accounts=accounts.csv imports the file, or every file given, and exits,
+ * with exit code 1 if a line was rejected. AccountManagerApplication starts without a web server in this mode, and
+ * with profile PROFILE, application-import.yaml, turning off the background work of the service: standing orders,
+ * the balance projection, group commit, saga recovery, scheduled reconciliation and rates reloading.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class AccountImportRunner implements ApplicationRunner, ExitCodeGenerator {
+    public static final String OPTION = "import-accounts";
+    public static final String PROFILE = "import";
+    private final AccountImporter accountImporter;
+    private int exitCode;
+
+    public static boolean isImport(final String... args) {
+        return Arrays.stream(args).anyMatch(arg -> arg.startsWith("--" + OPTION + "="));
+    }
+
+    @Override
+    public void run(final ApplicationArguments args) throws Exception {
+        if(!args.containsOption(OPTION)) {
+            return;
+        }
+        for(val file : args.getOptionValues(OPTION)) {
+            try(val reader = Files.newBufferedReader(Path.of(file), UTF_8)) {
+                val imported = accountImporter.importCsv(reader);
+                log.info("Imported {}: {} lines, {} accounts created, {} existing, {} rejected in {} ms, {} rows/s.", file,
+                        imported.getLines(), imported.getCreated(), imported.getExisting(), imported.getRejected(),
+                        imported.getMillis(), imported.getRowsPerSecond());
+                imported.getRejectedLines().forEach(rejected -> log.warn("Rejected {} {}", file, rejected));
+                if(imported.getRejected() > 0) {
+                    exitCode = 1;
+                }
+            }
+        }
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+}
@@ -0,0 +1,148 @@
+package com.acmebank.account_manager.services.provisioning;
+
+import com.acmebank.account_manager.configs.AccountImportProperties;
+import com.acmebank.account_manager.data.models.responses.ImportedAccounts;
+import com.acmebank.account_manager.data.sharding.Shards;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.shared.AccountType;
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+ * Loads accounts from CSV lines of id,balance,currency,type, e.g. 12345678,1000000.00,HKD,CURRENT, with an optional
+ * header line starting with id. Lines are read one at a time and collected into one batch per shard of
+ * acmebank.account-import.batch-size rows, each inserted in its own transaction, so memory use does not depend on the
+ * length of the file. A batch is sorted by id before it is inserted so the primary key is filled in order.
+ * Accounts already present are left as they are and counted as existing. A line that does not parse is counted as
+ * rejected, the first acmebank.account-import.maximum-rejected-lines of them are reported with their reason.
+ */
+@Slf4j
+@Service
+public class AccountImporter {
+    private static final long PROGRESS_LINES = 1_000_000;
+    private static final Comparator<Object[]> BY_ID = Comparator.comparingLong(row -> (Long) row[0]);
+    private final AccountProvisioner accountProvisioner;
+    private final Shards shards;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maximumRejectedLines;
+
+    AccountImporter(final AccountImportProperties properties,
+                    final AccountProvisioner accountProvisioner,
+                    final Shards shards,
+                    final PlatformTransactionManager transactionManager) {
+        this.accountProvisioner = accountProvisioner;
+        this.shards = shards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, properties.getBatchSize());
+        this.maximumRejectedLines = Math.max(0, properties.getMaximumRejectedLines());
+    }
+
+    public ImportedAccounts importCsv(final Reader csv) throws IOException {
+        val started = System.nanoTime();
+        val now = new Timestamp(System.currentTimeMillis());
+        val reader = csv instanceof BufferedReader ? (BufferedReader) csv : new BufferedReader(csv, 1 << 16);
+        val batches = new ArrayList<List<Object[]>>(shards.getCount());
+        for(int shard = 0; shard < shards.getCount(); shard++) {
+            batches.add(new ArrayList<>(batchSize));
+        }
+        val rejectedLines = new ArrayList<String>();
+        long lines = 0;
+        long rows = 0;
+        long created = 0;
+        long rejected = 0;
+        String line;
+        while((line = reader.readLine()) != null) {
+            lines++;
+            if(line.isBlank() || (lines == 1 && line.strip().regionMatches(true, 0, "id", 0, 2))) {
+                continue;
+            }
+            final Object[] row;
+            try {
+                row = parse(line, now);
+            } catch (IllegalArgumentException iae) {
+                if(rejected++ < maximumRejectedLines) {
+                    rejectedLines.add("line " + lines + ": " + iae.getMessage());
+                }
+                continue;
+            }
+            rows++;
+            val shard = shards.of((Long) row[0]);
+            batches.get(shard).add(row);
+            if(batches.get(shard).size() == batchSize) {
+                created += insert(shard, batches.get(shard));
+            }
+            if(lines % PROGRESS_LINES == 0) {
+                log.info("Imported {} lines, {} accounts created, {} lines rejected.", lines, created, rejected);
+            }
+        }
+        for(int shard = 0; shard < shards.getCount(); shard++) {
+            created += insert(shard, batches.get(shard));
+        }
+        val millis = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        return new ImportedAccounts(lines, created, rows - created, rejected, rejectedLines, millis, rows * 1000 / millis);
+    }
+
+    private int insert(final int shard, final List<Object[]> batch) {
+        if(batch.isEmpty()) {
+            return 0;
+        }
+        batch.sort(BY_ID);
+        return shards.on(shard, () -> transactionTemplate.execute(status -> accountProvisioner.insert(shard, batch)));
+    }
+
+    /*
+     * INSERT_ACCOUNT parameters of the line, throws IllegalArgumentException with the reason when it is not an account.
+     */
+    private static Object[] parse(final String line, final Timestamp now) {
+        val fields = line.split(",", -1);
+        if(fields.length != 4) {
+            throw new IllegalArgumentException("expected id,balance,currency,type but got " + fields.length + " fields");
+        }
+        final long accountId;
+        try {
+            accountId = Long.parseLong(fields[0].strip());
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("invalid account id " + fields[0]);
+        }
+        if(accountId <= 0) {
+            throw new IllegalArgumentException("account id must be positive " + accountId);
+        }
+        final Money balance;
+        try {
+            balance = Money.of(new BigDecimal(fields[1].strip()));
+        } catch (NumberFormatException | AccountManagerException e) {
+            throw new IllegalArgumentException("invalid balance " + fields[1]);
+        }
+        if(balance.isNegative()) {
+            throw new IllegalArgumentException("balance cannot be negative " + balance);
+        }
+        final Currency currency;
+        final AccountType type;
+        try {
+            currency = Currency.valueOf(fields[2].strip());
+        } catch (IllegalArgumentException iae) {
+            throw new IllegalArgumentException("unsupported currency " + fields[2]);
+        }
+        try {
+            type = AccountType.valueOf(fields[3].strip());
+        } catch (IllegalArgumentException iae) {
+            throw new IllegalArgumentException("unsupported account type " + fields[3]);
+        }
+        return new Object[]{accountId, balance.toBigDecimal(), balance.toBigDecimal(), currency.ordinal(), type.ordinal(), now, now, accountId};
+    }
+}
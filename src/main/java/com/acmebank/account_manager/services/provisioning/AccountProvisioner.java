@@ -0,0 +1,78 @@
+package com.acmebank.account_manager.services.provisioning;
+
+import com.acmebank.account_manager.data.models.responses.ProvisionedAccounts;
+import com.acmebank.account_manager.data.sharding.Shards;
+import com.acmebank.account_manager.shared.AccountType;
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
+import lombok.val;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Creates a range of accounts with the same opening balance, for load tests against a locally started service.
+ * Accounts already in the range are left as they are, so provisioning the same range twice creates nothing.
+ * Each account is inserted on its shard, batches are collected per shard.
+ */
+@Service
+public class AccountProvisioner {
+    static final int MAX_ACCOUNTS = 10_000_000;
+    private static final int BATCH_SIZE = 1000;
+    private static final String INSERT_ACCOUNT = "INSERT INTO \"account\" (\"id\", \"balance\", \"opening_balance\", \"currency\", \"type\", \"created_at\", \"updated_at\")"
+            + " SELECT ?, ?, ?, ?, ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM \"account\" WHERE \"id\" = ?)";
+    private final JdbcTemplate jdbcTemplate;
+    private final Shards shards;
+
+    AccountProvisioner(final JdbcTemplate jdbcTemplate, final Shards shards) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+    }
+
+    public ProvisionedAccounts provision(final long firstAccountId, final int count, final Money balance,
+                                         final Currency currency, final AccountType type) {
+        if(firstAccountId <= 0 || count <= 0 || count > MAX_ACCOUNTS || firstAccountId > Long.MAX_VALUE - count) {
+            throw new IllegalArgumentException("Cannot provision " + count + " accounts from " + firstAccountId
+                    + ", up to " + MAX_ACCOUNTS + " positive account ids can be provisioned at once");
+        }
+        if(balance.isNegative()) {
+            throw new IllegalArgumentException("Opening balance cannot be negative: " + balance);
+        }
+        val now = new Timestamp(System.currentTimeMillis());
+        val lastAccountId = firstAccountId + count - 1;
+        val batches = new ArrayList<List<Object[]>>(shards.getCount());
+        for(int shard = 0; shard < shards.getCount(); shard++) {
+            batches.add(new ArrayList<>(Math.min(count, BATCH_SIZE)));
+        }
+        int created = 0;
+        for(long accountId = firstAccountId; accountId <= lastAccountId; accountId++) {
+            val shard = shards.of(accountId);
+            batches.get(shard).add(new Object[]{accountId, balance.toBigDecimal(), balance.toBigDecimal(), currency.ordinal(), type.ordinal(), now, now, accountId});
+            if(batches.get(shard).size() == BATCH_SIZE) {
+                created += insert(shard, batches.get(shard));
+            }
+        }
+        for(int shard = 0; shard < shards.getCount(); shard++) {
+            created += insert(shard, batches.get(shard));
+        }
+        return new ProvisionedAccounts(firstAccountId, lastAccountId, created);
+    }
+
+    /*
+     * Inserts the rows of INSERT_ACCOUNT parameters on the shard and empties the batch, returns the accounts created.
+     */
+    int insert(final int shard, final List<Object[]> batch) {
+        if(batch.isEmpty()) {
+            return 0;
+        }
+        int inserted = 0;
+        for(val rows : shards.on(shard, () -> jdbcTemplate.batchUpdate(INSERT_ACCOUNT, batch))) {
+            inserted += rows;
+        }
+        batch.clear();
+        return inserted;
+    }
+}
@@ -0,0 +1,36 @@
+package com.acmebank.account_manager.services.provisioning;
+
+import com.acmebank.account_manager.data.models.responses.ProvisionedAccounts;
+import com.acmebank.account_manager.shared.AccountType;
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+/*
+ * POST /actuator/provisioning {"firstAccountId": 20000001, "count": 10000, "balance": 1000000, "currency": "HKD"}
+ * creates accounts for the load generator, every parameter is required.
+ * Off unless management.endpoint.provisioning.enabled is true, it is not meant for a deployed service.
+ */
+@Component
+@Endpoint(id = "provisioning", enableByDefault = false)
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class AccountProvisioningEndpoint {
+    private final AccountProvisioner accountProvisioner;
+
+    @WriteOperation
+    public ProvisionedAccounts provision(final long firstAccountId, final int count, final BigDecimal balance,
+                                         final String currency) {
+        try {
+            return accountProvisioner.provision(firstAccountId, count, Money.of(balance), Currency.valueOf(currency), AccountType.CURRENT);
+        } catch (IllegalArgumentException iae) {
+            throw new InvalidEndpointRequestException(iae.getMessage(), iae.getMessage());
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.acmebank.account_manager.services.reconciliation;
+
+import com.acmebank.account_manager.configs.ReconciliationProperties;
+import com.acmebank.account_manager.data.models.responses.Discrepancy;
+import com.acmebank.account_manager.data.models.responses.ReconciliationReport;
+import com.acmebank.account_manager.data.sharding.Shards;
+import com.acmebank.account_manager.shared.Money;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.LongStream;
+
+import static com.acmebank.account_manager.services.striping.StripedBalances.BALANCE_WITH_STRIPES;
+
+/*
+ * Checks that every account's balance, including its stripes, is its opening balance plus the net of its transaction
+ * rows, debited amount and credited toAmount. Runs online against the live database without locking anything.
+ * Each shard is reconciled on its own, its accounts in passes of up to acmebank.reconciliation.maximum-accounts ids:
+ * a pass splits the transaction ids into chunks of acmebank.reconciliation.chunk-size, reads the rows of the chunks
+ * with a leg in the pass's accounts in parallel on a fork-join pool summing those legs in primitive maps, then
+ * streams the accounts and compares. A row is read by at most two passes, those of its two accounts. Memory is the pass's sums plus one chunk's per reading thread, however long the table is.
+ * Transfers committing during the run make accounts disagree with the sums read before them, so an account that does
+ * not add up is read again on its own in a single statement summing its transactions, and only reported when it
+ * still does not.
+ */
+@Slf4j
+@Service
+public class LedgerReconciliation {
+    public static final String DISCREPANCIES = "acmebank.reconciliation.discrepancies";
+    public static final String THROUGHPUT = "acmebank.reconciliation.throughput";
+    private static final String SELECT_TRANSACTION_IDS = "SELECT COALESCE(MIN(\"id\"), 0), COALESCE(MAX(\"id\"), -1) FROM \"transaction\"";
+    private static final String SELECT_LEGS = "SELECT \"from_account\", \"to_account\", " + minorUnits("\"amount\"") + ", "
+            + minorUnits("COALESCE(\"to_amount\", \"amount\")") + " FROM \"transaction\" WHERE \"id\" BETWEEN ? AND ?"
+            + " AND (\"from_account\" BETWEEN ? AND ? OR \"to_account\" BETWEEN ? AND ?)";
+    private static final String SELECT_NEXT_PASS = "SELECT \"id\" FROM \"account\" WHERE \"id\" >= ? ORDER BY \"id\" OFFSET ? ROWS FETCH NEXT 1 ROW ONLY";
+    private static final String SELECT_BALANCES = "SELECT \"id\", " + minorUnits("\"opening_balance\"") + ", " + minorUnits(BALANCE_WITH_STRIPES)
+            + " FROM \"account\" WHERE \"id\" BETWEEN ? AND ?";
+    private static final String SELECT_RECHECK = "SELECT " + minorUnits("\"opening_balance\""
+            + " - COALESCE((SELECT SUM(t.\"amount\") FROM \"transaction\" t WHERE t.\"from_account\" = \"account\".\"id\"), 0)"
+            + " + COALESCE((SELECT SUM(COALESCE(t.\"to_amount\", t.\"amount\")) FROM \"transaction\" t WHERE t.\"to_account\" = \"account\".\"id\"), 0)")
+            + ", " + minorUnits(BALANCE_WITH_STRIPES) + " FROM \"account\" WHERE \"id\" = ?";
+    private static final String CRON_DISABLED = "-";
+    private final String cron;
+    private final int chunkSize;
+    private final int parallelism;
+    private final int maximumAccounts;
+    private final int maximumReported;
+    private final JdbcTemplate jdbcTemplate;
+    private final Shards shards;
+    private final ReentrantLock running = new ReentrantLock();
+    private volatile ReconciliationReport lastReport;
+    private ScheduledExecutorService scheduler;
+
+    LedgerReconciliation(final ReconciliationProperties properties,
+                         final JdbcTemplate jdbcTemplate,
+                         final Shards shards,
+                         final MeterRegistry meterRegistry) {
+        this.cron = properties.getCron();
+        this.chunkSize = Math.max(1, properties.getChunkSize());
+        this.parallelism = properties.getParallelism() > 0 ? properties.getParallelism() : Runtime.getRuntime().availableProcessors();
+        this.maximumAccounts = Math.max(1, properties.getMaximumAccounts());
+        this.maximumReported = Math.max(0, properties.getMaximumReported());
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        Gauge.builder(DISCREPANCIES, this, reconciliation -> reconciliation.lastReport == null ? 0 : reconciliation.lastReport.getDiscrepancies())
+                .description("Accounts whose balance did not match their transactions in the last reconciliation")
+                .register(meterRegistry);
+        Gauge.builder(THROUGHPUT, this, reconciliation -> reconciliation.lastReport == null ? 0 : reconciliation.lastReport.getRowsPerSecond())
+                .description("Transaction rows read per second by the last reconciliation")
+                .baseUnit("rows/s")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if(cron == null || cron.isBlank() || CRON_DISABLED.equals(cron.strip())) {
+            return;
+        }
+        val expression = CronExpression.parse(cron);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            val thread = new Thread(r, "ledger-reconciliation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduleNext(expression);
+    }
+
+    @PreDestroy
+    void stop() {
+        if(scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public ReconciliationReport getLastReport() {
+        return lastReport;
+    }
+
+    /*
+     * Reconciles every account on every shard, one run at a time.
+     */
+    public ReconciliationReport reconcile() {
+        if(!running.tryLock()) {
+            throw new IllegalStateException("A reconciliation is running already");
+        }
+        try {
+            val startedAt = Instant.now();
+            val started = System.nanoTime();
+            val run = new Run();
+            val pool = new ForkJoinPool(parallelism);
+            try {
+                for(int shard = 0; shard < shards.getCount(); shard++) {
+                    reconcile(shard, pool, run);
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+            val millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            val rows = run.rows.sum();
+            val report = new ReconciliationReport(startedAt, rows, run.accounts, run.unverifiable, run.rechecked,
+                    run.discrepancies, run.reported, millis, rows * 1000 / millis);
+            lastReport = report;
+            if(report.getDiscrepancies() > 0) {
+                log.warn("Reconciliation found {} of {} accounts not matching their transactions, read {} transaction rows in {} ms, {} rows per second.",
+                        report.getDiscrepancies(), report.getAccounts(), rows, millis, report.getRowsPerSecond());
+            } else {
+                log.info("Reconciled {} accounts, {} rechecked, {} without opening balance, read {} transaction rows in {} ms, {} rows per second.",
+                        report.getAccounts(), report.getRechecked(), report.getUnverifiable(), rows, millis, report.getRowsPerSecond());
+            }
+            return report;
+        } finally {
+            running.unlock();
+        }
+    }
+
+    private void reconcile(final int shard, final ForkJoinPool pool, final Run run) {
+        val transactionIds = shards.on(shard, () -> jdbcTemplate.queryForObject(SELECT_TRANSACTION_IDS,
+                (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2)}));
+        long firstAccountId = Long.MIN_VALUE;
+        while(true) {
+            val first = firstAccountId;
+            val next = shards.on(shard, () -> jdbcTemplate.queryForList(SELECT_NEXT_PASS, Long.class, first, maximumAccounts));
+            val last = next.isEmpty() ? Long.MAX_VALUE : next.get(0) - 1;
+            val flows = new LongLongHashMap();
+            pool.invoke(new NetFlows(shard, first, last, transactionIds[0], transactionIds[1], flows, run));
+            compare(shard, first, last, flows, run);
+            if(next.isEmpty()) {
+                return;
+            }
+            firstAccountId = next.get(0);
+        }
+    }
+
+    /*
+     * Streams the pass's accounts and rechecks the ones not matching the sums read.
+     */
+    private void compare(final int shard, final long firstAccountId, final long lastAccountId, final LongLongHashMap flows, final Run run) {
+        val suspects = LongStream.builder();
+        shards.run(shard, () -> jdbcTemplate.query(SELECT_BALANCES, (RowCallbackHandler) rs -> {
+            run.accounts++;
+            val openingBalance = rs.getLong(2);
+            if(rs.wasNull()) {
+                run.unverifiable++;
+            } else if(openingBalance + flows.get(rs.getLong(1)) != rs.getLong(3)) {
+                suspects.add(rs.getLong(1));
+            }
+        }, firstAccountId, lastAccountId));
+        suspects.build().forEach(accountId -> recheck(shard, accountId, run));
+    }
+
+    private void recheck(final int shard, final long accountId, final Run run) {
+        run.rechecked++;
+        val balances = shards.on(shard, () -> jdbcTemplate.query(SELECT_RECHECK,
+                (rs, i) -> rs.getObject(1) == null ? null : new long[]{rs.getLong(1), rs.getLong(2)}, accountId));
+        if(balances.isEmpty() || balances.get(0) == null) {
+            return;
+        }
+        val expected = balances.get(0)[0];
+        val balance = balances.get(0)[1];
+        if(expected == balance) {
+            return;
+        }
+        if(run.discrepancies++ < maximumReported) {
+            run.reported.add(new Discrepancy(accountId, Money.ofMinorUnits(expected).toBigDecimal(),
+                    Money.ofMinorUnits(balance).toBigDecimal(), Money.ofMinorUnits(balance - expected).toBigDecimal()));
+        }
+    }
+
+    private void scheduleNext(final CronExpression expression) {
+        val next = expression.next(ZonedDateTime.now());
+        if(next == null) {
+            return;
+        }
+        scheduler.schedule(() -> {
+            try {
+                reconcile();
+            } catch (RuntimeException re) {
+                log.warn("Scheduled reconciliation failed.", re);
+            } finally {
+                scheduleNext(expression);
+            }
+        }, Math.max(0, Duration.between(ZonedDateTime.now(), next).toMillis()), TimeUnit.MILLISECONDS);
+    }
+
+    /* amounts are DECIMAL with Money.SCALE fraction digits, summed as exact minor units */
+    private static String minorUnits(final String amount) {
+        return "CAST((" + amount + ") * " + (long) Math.pow(10, Money.SCALE) + " AS BIGINT)";
+    }
+
+    /*
+     * Sums the legs of transaction ids firstId to lastId belonging to accounts of the pass on the shard, halving the
+     * range until it fits a chunk. A chunk is summed in a map of its own, merged into the pass's once read.
+     */
+    private final class NetFlows extends RecursiveAction {
+        private final int shard;
+        private final long firstAccountId;
+        private final long lastAccountId;
+        private final long firstId;
+        private final long lastId;
+        private final LongLongHashMap flows;
+        private final Run run;
+
+        private NetFlows(final int shard, final long firstAccountId, final long lastAccountId, final long firstId,
+                         final long lastId, final LongLongHashMap flows, final Run run) {
+            this.shard = shard;
+            this.firstAccountId = firstAccountId;
+            this.lastAccountId = lastAccountId;
+            this.firstId = firstId;
+            this.lastId = lastId;
+            this.flows = flows;
+            this.run = run;
+        }
+
+        @Override
+        protected void compute() {
+            if(lastId < firstId) {
+                return;
+            }
+            if(lastId - firstId < chunkSize) {
+                read();
+                return;
+            }
+            val middle = firstId + (lastId - firstId) / 2;
+            invokeAll(new NetFlows(shard, firstAccountId, lastAccountId, firstId, middle, flows, run),
+                    new NetFlows(shard, firstAccountId, lastAccountId, middle + 1, lastId, flows, run));
+        }
+
+        private void read() {
+            val chunk = new LongLongHashMap();
+            val rows = new long[1];
+            shards.run(shard, () -> jdbcTemplate.query(SELECT_LEGS, (RowCallbackHandler) rs -> {
+                rows[0]++;
+                add(chunk, rs.getLong(1), -rs.getLong(3));
+                add(chunk, rs.getLong(2), rs.getLong(4));
+            }, firstId, lastId, firstAccountId, lastAccountId, firstAccountId, lastAccountId));
+            synchronized(flows) {
+                flows.addAll(chunk);
+            }
+            run.rows.add(rows[0]);
+        }
+
+        /* a cross-shard transfer is on both shards, each counts the leg of its own account */
+        private void add(final LongLongHashMap chunk, final long accountId, final long amount) {
+            if(accountId >= firstAccountId && accountId <= lastAccountId && shards.of(accountId) == shard) {
+                chunk.add(accountId, amount);
+            }
+        }
+    }
+
+    private static final class Run {
+        private final LongAdder rows = new LongAdder();
+        private final List<Discrepancy> reported = new ArrayList<>();
+        private long accounts;
+        private long unverifiable;
+        private long rechecked;
+        private long discrepancies;
+    }
+}
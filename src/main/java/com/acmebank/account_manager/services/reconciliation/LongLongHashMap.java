@@ -0,0 +1,109 @@
+package com.acmebank.account_manager.services.reconciliation;
+
+import lombok.val;
+
+/*
+ * Open addressing map of long keys to long sums, in two primitive arrays probed linearly, so an account's running
+ * total costs 16 bytes at most twice over instead of a boxed key, a boxed value and an entry object. Key 0 marks a
+ * free slot and is held apart.
+ */
+final class LongLongHashMap {
+    private static final int MINIMUM_CAPACITY = 16;
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private boolean hasZeroKey;
+    private long zeroKeyValue;
+
+    LongLongHashMap() {
+        this(MINIMUM_CAPACITY);
+    }
+
+    LongLongHashMap(final int expectedSize) {
+        int capacity = MINIMUM_CAPACITY;
+        while(capacity < expectedSize * 2L && capacity < 1 << 30) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        values = new long[capacity];
+    }
+
+    int size() {
+        return size + (hasZeroKey ? 1 : 0);
+    }
+
+    /*
+     * Value of the key, 0 when it is absent.
+     */
+    long get(final long key) {
+        if(key == 0) {
+            return zeroKeyValue;
+        }
+        val mask = keys.length - 1;
+        for(int slot = slot(key, mask); keys[slot] != 0; slot = (slot + 1) & mask) {
+            if(keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return 0;
+    }
+
+    /*
+     * Adds delta to the value of the key, a key not present yet starts at 0.
+     */
+    void add(final long key, final long delta) {
+        if(key == 0) {
+            hasZeroKey = true;
+            zeroKeyValue += delta;
+            return;
+        }
+        val mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while(keys[slot] != 0) {
+            if(keys[slot] == key) {
+                values[slot] += delta;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = delta;
+        if(++size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    void addAll(final LongLongHashMap other) {
+        if(other.hasZeroKey) {
+            add(0, other.zeroKeyValue);
+        }
+        for(int slot = 0; slot < other.keys.length; slot++) {
+            if(other.keys[slot] != 0) {
+                add(other.keys[slot], other.values[slot]);
+            }
+        }
+    }
+
+    private void grow() {
+        val oldKeys = keys;
+        val oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldValues.length * 2];
+        val mask = keys.length - 1;
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] != 0) {
+                int slot = slot(oldKeys[i], mask);
+                while(keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /* Fibonacci hashing spreads sequential account ids over the whole table */
+    private static int slot(final long key, final int mask) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+}
@@ -0,0 +1,34 @@
+package com.acmebank.account_manager.services.reconciliation;
+
+import com.acmebank.account_manager.data.models.responses.ReconciliationReport;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/*
+ * GET /actuator/reconciliation shows the report of the last run, POST runs a reconciliation and answers its report.
+ */
+@Component
+@Endpoint(id = "reconciliation")
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class ReconciliationEndpoint {
+    private final LedgerReconciliation ledgerReconciliation;
+
+    @ReadOperation
+    public ReconciliationReport lastReport() {
+        return ledgerReconciliation.getLastReport();
+    }
+
+    @WriteOperation
+    public ReconciliationReport reconcile() {
+        try {
+            return ledgerReconciliation.reconcile();
+        } catch (IllegalStateException ise) {
+            throw new InvalidEndpointRequestException(ise.getMessage(), ise.getMessage());
+        }
+    }
+}
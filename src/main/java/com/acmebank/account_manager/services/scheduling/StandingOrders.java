@@ -0,0 +1,351 @@
+package com.acmebank.account_manager.services.scheduling;
+
+import com.acmebank.account_manager.configs.StandingOrderProperties;
+import com.acmebank.account_manager.data.models.requests.StandingOrderRequest;
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.data.models.responses.StandingOrderDetails;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.services.LedgerEngine;
+import com.acmebank.account_manager.services.metrics.TransferMetrics;
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Frequency;
+import com.acmebank.account_manager.shared.Money;
+import com.acmebank.account_manager.shared.StandingOrderOutcome;
+import com.acmebank.account_manager.shared.StandingOrderState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.acmebank.account_manager.shared.ErrorCode.ACCOUNT_NOT_FOUND;
+import static com.acmebank.account_manager.shared.ErrorCode.SAME_ACCOUNT;
+import static com.acmebank.account_manager.shared.ErrorCode.STANDING_ORDER_NOT_FOUND;
+import static com.acmebank.account_manager.shared.StandingOrderOutcome.COMPLETED;
+import static com.acmebank.account_manager.shared.StandingOrderOutcome.REJECTED;
+import static com.acmebank.account_manager.shared.StandingOrderOutcome.RETRYING;
+import static com.acmebank.account_manager.shared.StandingOrderOutcome.RUNNING;
+import static com.acmebank.account_manager.shared.StandingOrderState.ACTIVE;
+import static com.acmebank.account_manager.shared.StandingOrderState.CANCELLED;
+import static com.acmebank.account_manager.shared.StandingOrderState.FINISHED;
+
+/*
+ * Standing orders, transfers repeated on a schedule, kept in the standing_order table. Only the orders due within
+ * acmebank.standing-orders.horizon are held in memory, in a timing wheel: a loader reads the next horizon's worth
+ * every half horizon, and the first read after a start has no lower bound, so firings missed while the service was
+ * down are made at once. A ticker thread takes the due ids off the wheel every tick and hands them, up to batch-size
+ * at a time, to acmebank.standing-orders.workers threads; the hand-over blocks while every worker is busy, so a
+ * burst such as midnight's waits in the wheel and never takes more than those threads from interactive transfers.
+ * A firing is claimed with a conditional update of the order before its transfer is made, which makes it at most
+ * once even with several instances or duplicate ids in the wheel. A business rejection uses the firing up, any
+ * other failure gives it back to be retried after retry-delay.
+ */
+@Slf4j
+@Service
+public class StandingOrders {
+    public static final String FIRED = "acmebank.standing-orders.fired";
+    public static final String DELAY = "acmebank.standing-orders.delay";
+    public static final String SCHEDULED = "acmebank.standing-orders.scheduled";
+    private static final String COLUMNS = "\"id\", \"from_account\", \"to_account\", \"amount\", \"currency\", \"frequency\", \"first_run_at\", \"next_run_at\", \"runs\", \"state\", \"last_run_at\", \"last_outcome\", \"last_transaction_id\", \"last_error_code\"";
+    private static final String INSERT = "INSERT INTO \"standing_order\" (\"from_account\", \"to_account\", \"amount\", \"currency\", \"frequency\", \"first_run_at\", \"next_run_at\", \"runs\", \"state\", \"created_at\", \"updated_at\") VALUES (?, ?, ?, ?, ?, ?, ?, 0, ?, ?, ?)";
+    private static final String SELECT = "SELECT " + COLUMNS + " FROM \"standing_order\" WHERE \"id\" = ?";
+    private static final String SELECT_ALL = "SELECT " + COLUMNS + " FROM \"standing_order\" WHERE \"id\" = ANY(?)";
+    private static final String SELECT_DUE = "SELECT \"id\", \"next_run_at\" FROM \"standing_order\" WHERE \"state\" = ? AND \"next_run_at\" >= ? AND \"next_run_at\" < ?";
+    private static final String SELECT_OVERDUE = "SELECT \"id\", \"next_run_at\" FROM \"standing_order\" WHERE \"state\" = ? AND \"next_run_at\" < ?";
+    private static final String COUNT_RUNNING = "SELECT COUNT(*) FROM \"standing_order\" WHERE \"last_outcome\" = ?";
+    private static final String CANCEL = "UPDATE \"standing_order\" SET \"state\" = ?, \"updated_at\" = ? WHERE \"id\" = ? AND \"state\" = ?";
+    private static final String CLAIM = "UPDATE \"standing_order\" SET \"next_run_at\" = ?, \"runs\" = \"runs\" + 1, \"state\" = ?, \"last_run_at\" = ?, \"last_outcome\" = ?, \"last_transaction_id\" = NULL, \"last_error_code\" = NULL, \"updated_at\" = ? WHERE \"id\" = ? AND \"state\" = ? AND \"runs\" = ?";
+    private static final String RECORD = "UPDATE \"standing_order\" SET \"last_outcome\" = ?, \"last_transaction_id\" = ?, \"last_error_code\" = ?, \"updated_at\" = ? WHERE \"id\" = ? AND \"runs\" = ?";
+    private static final String GIVE_BACK = "UPDATE \"standing_order\" SET \"next_run_at\" = ?, \"runs\" = \"runs\" - 1, \"state\" = CASE WHEN \"state\" = ? THEN \"state\" ELSE ? END, \"last_outcome\" = ?, \"updated_at\" = ? WHERE \"id\" = ? AND \"runs\" = ?";
+    private static final RowMapper<StandingOrderDetails> ROW_MAPPER = (rs, i) -> new StandingOrderDetails(rs.getLong(1), rs.getLong(2), rs.getLong(3),
+            rs.getBigDecimal(4), Currency.values()[rs.getInt(5)], Frequency.values()[rs.getInt(6)], rs.getTimestamp(7).toInstant(),
+            instant(rs.getTimestamp(8)), rs.getInt(9), StandingOrderState.values()[rs.getInt(10)], instant(rs.getTimestamp(11)),
+            rs.getObject(12) == null ? null : StandingOrderOutcome.values()[rs.getInt(12)],
+            rs.getObject(13, Long.class), rs.getObject(14, Integer.class));
+    private static final long NOTHING_LOADED = Long.MIN_VALUE;
+    private static final long SHUTDOWN_SECONDS = 10;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long tickMillis;
+    private final long horizonMillis;
+    private final long retryDelayMillis;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LedgerEngine ledgerEngine;
+    private final TimingWheel wheel;
+    private final BlockingQueue<long[]> due;
+    private final List<Thread> threads = new ArrayList<>();
+    private final Map<StandingOrderOutcome, Counter> fired = new EnumMap<>(StandingOrderOutcome.class);
+    private final Timer delay;
+    private volatile long loadedUntil = NOTHING_LOADED;
+
+    StandingOrders(final StandingOrderProperties properties,
+                   final JdbcTemplate jdbcTemplate,
+                   final PlatformTransactionManager transactionManager,
+                   final LedgerEngine ledgerEngine,
+                   final MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.batchSize = Math.max(1, properties.getBatchSize());
+        this.tickMillis = Math.max(1, properties.getTick().toMillis());
+        this.horizonMillis = Math.max(tickMillis, properties.getHorizon().toMillis());
+        this.retryDelayMillis = Math.max(tickMillis, properties.getRetryDelay().toMillis());
+        this.jdbcTemplate = jdbcTemplate;
+        /* a firing's state changes commit on their own, never joining whatever the transfer left on the thread */
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setTimeout(2);
+        this.ledgerEngine = ledgerEngine;
+        this.wheel = new TimingWheel(System.currentTimeMillis() / tickMillis);
+        val workers = Math.max(1, properties.getWorkers());
+        this.due = new ArrayBlockingQueue<>(workers);
+        for(int i = 1; i <= workers; i++) {
+            threads.add(new Thread(this::work, "standing-orders-" + i));
+        }
+        Gauge.builder(SCHEDULED, wheel, TimingWheel::size)
+                .description("Standing order firings waiting in the timing wheel")
+                .register(meterRegistry);
+        for(val outcome : List.of(COMPLETED, REJECTED, RETRYING)) {
+            fired.put(outcome, Counter.builder(FIRED)
+                    .description("Standing order firings by outcome")
+                    .tag("outcome", TransferMetrics.tagValue(outcome))
+                    .register(meterRegistry));
+        }
+        this.delay = Timer.builder(DELAY)
+                .description("Time from a standing order falling due to its firing being claimed")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if(!enabled) {
+            return;
+        }
+        val interrupted = jdbcTemplate.queryForObject(COUNT_RUNNING, Integer.class, RUNNING.ordinal());
+        if(interrupted != null && interrupted > 0) {
+            log.warn("{} standing order firings were interrupted by the last stop and are not retried, "
+                    + "check their transfers against the ledger.", interrupted);
+        }
+        threads.add(new Thread(this::tick, "standing-orders-ticker"));
+        threads.forEach(thread -> {
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        threads.forEach(Thread::interrupt);
+        for(val thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(SHUTDOWN_SECONDS));
+        }
+    }
+
+    public StandingOrderDetails create(final StandingOrderRequest request) {
+        if(request.getFromAccountId() == request.getToAccountId()) {
+            throw AccountManagerException.of(SAME_ACCOUNT);
+        }
+        val amount = Money.of(request.getAmount());
+        /* like a transfer, the order is debited in the currency of the from account */
+        if(ledgerEngine.getAccountBalance(request.getFromAccountId()).getCurrency() != request.getCurrency()) {
+            throw new AccountManagerException(ACCOUNT_NOT_FOUND, request.getFromAccountId());
+        }
+        ledgerEngine.getAccountBalance(request.getToAccountId());
+        val now = new Timestamp(System.currentTimeMillis());
+        val firstRunAt = Timestamp.from(request.getFirstRunAt());
+        val keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            val statement = connection.prepareStatement(INSERT, new String[] {"id"});
+            statement.setLong(1, request.getFromAccountId());
+            statement.setLong(2, request.getToAccountId());
+            statement.setBigDecimal(3, amount.toBigDecimal());
+            statement.setInt(4, request.getCurrency().ordinal());
+            statement.setInt(5, request.getFrequency().ordinal());
+            statement.setTimestamp(6, firstRunAt);
+            statement.setTimestamp(7, firstRunAt);
+            statement.setInt(8, ACTIVE.ordinal());
+            statement.setTimestamp(9, now);
+            statement.setTimestamp(10, now);
+            return statement;
+        }, keyHolder);
+        val id = keyHolder.getKeyAs(Long.class);
+        scheduleIfLoaded(id, firstRunAt.getTime());
+        return get(id);
+    }
+
+    public StandingOrderDetails get(final long id) {
+        val orders = jdbcTemplate.query(SELECT, ROW_MAPPER, id);
+        if(orders.isEmpty()) {
+            throw new AccountManagerException(STANDING_ORDER_NOT_FOUND, List.of(String.valueOf(id)));
+        }
+        return orders.get(0);
+    }
+
+    /*
+     * Stops the order from firing again, a firing already claimed still completes. Cancelling an order no longer
+     * active leaves it as it is.
+     */
+    public StandingOrderDetails cancel(final long id) {
+        jdbcTemplate.update(CANCEL, CANCELLED.ordinal(), new Timestamp(System.currentTimeMillis()), id, ACTIVE.ordinal());
+        return get(id);
+    }
+
+    /*
+     * Puts the order in the wheel if the loader has already read past its time, otherwise the loader will.
+     * Scheduling an order twice is harmless, only one firing can claim each run.
+     */
+    private void scheduleIfLoaded(final long id, final long dueMillis) {
+        if(dueMillis < loadedUntil) {
+            wheel.schedule(id, dueTick(dueMillis));
+        }
+    }
+
+    private long dueTick(final long dueMillis) {
+        return Math.floorDiv(dueMillis + tickMillis - 1, tickMillis);
+    }
+
+    private void tick() {
+        long nextLoadAt = 0;
+        long[] pending = new long[0];
+        int offset = 0;
+        while(!Thread.currentThread().isInterrupted()) {
+            try {
+                val now = System.currentTimeMillis();
+                if(now >= nextLoadAt) {
+                    nextLoadAt = now + (load(now) ? Math.max(tickMillis, horizonMillis / 2) : retryDelayMillis);
+                }
+                if(offset == pending.length) {
+                    pending = wheel.advance(now / tickMillis);
+                    offset = 0;
+                }
+                while(offset < pending.length) {
+                    val batch = Arrays.copyOfRange(pending, offset, Math.min(pending.length, offset + batchSize));
+                    if(!due.offer(batch, tickMillis, TimeUnit.MILLISECONDS)) {
+                        break;
+                    }
+                    offset += batch.length;
+                }
+                if(offset == pending.length) {
+                    Thread.sleep(Math.max(1, tickMillis - System.currentTimeMillis() % tickMillis));
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /*
+     * Reads the active orders due before now plus the horizon that have not been read yet into the wheel.
+     */
+    private boolean load(final long now) {
+        val from = loadedUntil;
+        val until = now + horizonMillis;
+        loadedUntil = until;
+        try {
+            RowCallbackHandler schedule = rs -> wheel.schedule(rs.getLong(1), dueTick(rs.getTimestamp(2).getTime()));
+            if(from == NOTHING_LOADED) {
+                jdbcTemplate.query(SELECT_OVERDUE, schedule, ACTIVE.ordinal(), new Timestamp(until));
+            } else {
+                jdbcTemplate.query(SELECT_DUE, schedule, ACTIVE.ordinal(), new Timestamp(from), new Timestamp(until));
+            }
+            return true;
+        } catch (RuntimeException re) {
+            loadedUntil = from;
+            log.warn("Could not load standing orders, retrying in {} ms.", retryDelayMillis, re);
+            return false;
+        }
+    }
+
+    private void work() {
+        while(!Thread.currentThread().isInterrupted()) {
+            long[] ids;
+            try {
+                ids = due.take();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                val now = System.currentTimeMillis();
+                for(val order : jdbcTemplate.query(SELECT_ALL, ROW_MAPPER, (Object) Arrays.stream(ids).boxed().toArray(Long[]::new))) {
+                    if(order.getState() == ACTIVE && order.getNextRunAt().toEpochMilli() <= now) {
+                        fire(order);
+                    }
+                }
+            } catch (RuntimeException re) {
+                /* orders fired already are not due any more and are passed over the second time */
+                log.warn("Could not fire {} standing orders, retrying in {} ms.", ids.length, retryDelayMillis, re);
+                val retryTick = dueTick(System.currentTimeMillis() + retryDelayMillis);
+                for(val id : ids) {
+                    wheel.schedule(id, retryTick);
+                }
+            }
+        }
+    }
+
+    private void fire(final StandingOrderDetails order) {
+        val now = System.currentTimeMillis();
+        val dueAt = order.getNextRunAt();
+        val run = order.getRuns();
+        val next = order.getFrequency().runAt(order.getFirstRunAt(), run + 1);
+        val claimed = update(CLAIM, next == null ? null : Timestamp.from(next), (next == null ? FINISHED : ACTIVE).ordinal(),
+                Timestamp.from(dueAt), RUNNING.ordinal(), new Timestamp(now), order.getId(), ACTIVE.ordinal(), run) == 1;
+        if(!claimed) {
+            return;
+        }
+        delay.record(Math.max(0, now - dueAt.toEpochMilli()), TimeUnit.MILLISECONDS);
+        try {
+            val transaction = ledgerEngine.transfer(new TransferRequest(order.getFromAccountId(), order.getToAccountId(),
+                    order.getAmount(), order.getCurrency().name()));
+            record(order, COMPLETED, transaction.getTransactionId(), null);
+        } catch (AccountManagerException ame) {
+            record(order, REJECTED, null, ame.getErrorCode().getCode());
+        } catch (RuntimeException re) {
+            log.warn("Standing order {} could not fire, retrying in {} ms.", order.getId(), retryDelayMillis, re);
+            update(GIVE_BACK, Timestamp.from(dueAt), CANCELLED.ordinal(), ACTIVE.ordinal(), RETRYING.ordinal(),
+                    new Timestamp(System.currentTimeMillis()), order.getId(), run + 1);
+            fired.get(RETRYING).increment();
+            wheel.schedule(order.getId(), dueTick(System.currentTimeMillis() + retryDelayMillis));
+            return;
+        }
+        if(next != null) {
+            scheduleIfLoaded(order.getId(), next.toEpochMilli());
+        }
+    }
+
+    private void record(final StandingOrderDetails order, final StandingOrderOutcome outcome, final Long transactionId, final Integer errorCode) {
+        update(RECORD, outcome.ordinal(), transactionId, errorCode, new Timestamp(System.currentTimeMillis()),
+                order.getId(), order.getRuns() + 1);
+        fired.get(outcome).increment();
+    }
+
+    private int update(final String sql, final Object... args) {
+        val updated = transactionTemplate.execute(status -> jdbcTemplate.update(sql, args));
+        return updated == null ? 0 : updated;
+    }
+
+    private static Instant instant(final Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant();
+    }
+}
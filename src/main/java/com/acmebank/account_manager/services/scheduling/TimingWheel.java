@@ -0,0 +1,126 @@
+package com.acmebank.account_manager.services.scheduling;
+
+import lombok.val;
+
+import java.util.Arrays;
+
+/*
+ * Hierarchical timing wheel of ids due at whole ticks. LEVELS wheels of SLOTS slots each, a slot of level n holding
+ * the ids due within one SLOTS^n ticks span: an id is put on the lowest level where its due tick and the current tick
+ * only differ in that level's digit, and moves one level down each time the current tick enters its slot's span.
+ * Scheduling is O(1) and every id is moved at most LEVELS times, however many are due at the same tick. Ids due
+ * beyond the top level wait in an overflow bucket, looked at again whenever the top level turns over.
+ */
+final class TimingWheel {
+    static final int SLOT_BITS = 6;
+    static final int SLOTS = 1 << SLOT_BITS;
+    static final int LEVELS = 4;
+    private static final int MASK = SLOTS - 1;
+    private final Bucket[][] levels = new Bucket[LEVELS][SLOTS];
+    private final Bucket overflow = new Bucket();
+    private long tick;
+    private int size;
+
+    /*
+     * Starts at tick, ids due at it or before are due at the next tick.
+     */
+    TimingWheel(final long tick) {
+        this.tick = tick;
+        for(val level : levels) {
+            for(int slot = 0; slot < SLOTS; slot++) {
+                level[slot] = new Bucket();
+            }
+        }
+    }
+
+    synchronized void schedule(final long id, final long dueTick) {
+        place(id, Math.max(dueTick, tick + 1));
+        size++;
+    }
+
+    synchronized long tick() {
+        return tick;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /*
+     * Moves to tick to, returning the ids due on the way in order of their due tick.
+     */
+    synchronized long[] advance(final long to) {
+        long[] due = new long[0];
+        int count = 0;
+        while(tick < to) {
+            tick++;
+            if((tick & ((1L << (SLOT_BITS * LEVELS)) - 1)) == 0) {
+                cascade(overflow);
+            }
+            for(int level = LEVELS - 1; level > 0; level--) {
+                if((tick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(levels[level][(int) (tick >>> (SLOT_BITS * level)) & MASK]);
+                }
+            }
+            val slot = levels[0][(int) tick & MASK];
+            if(count + slot.size / 2 > due.length) {
+                due = Arrays.copyOf(due, Math.max(due.length * 2, count + slot.size / 2));
+            }
+            for(int i = 0; i < slot.size; i += 2) {
+                due[count++] = slot.entries[i];
+            }
+            size -= slot.size / 2;
+            slot.clear();
+        }
+        return count == due.length ? due : Arrays.copyOf(due, count);
+    }
+
+    private void cascade(final Bucket bucket) {
+        if(bucket.size == 0) {
+            return;
+        }
+        val entries = Arrays.copyOf(bucket.entries, bucket.size);
+        bucket.clear();
+        for(int i = 0; i < entries.length; i += 2) {
+            place(entries[i], entries[i + 1]);
+        }
+    }
+
+    private void place(final long id, final long dueTick) {
+        for(int level = 0; level < LEVELS; level++) {
+            val above = SLOT_BITS * (level + 1);
+            if(dueTick >>> above == tick >>> above) {
+                levels[level][(int) (dueTick >>> (SLOT_BITS * level)) & MASK].add(id, dueTick);
+                return;
+            }
+        }
+        overflow.add(id, dueTick);
+    }
+
+    /*
+     * Pairs of id and due tick, kept in one growable primitive array so a million due ids are two million longs
+     * rather than a million boxed entries.
+     */
+    private static final class Bucket {
+        private static final int INITIAL_CAPACITY = 8;
+        private static final int RETAINED_CAPACITY = 1024;
+        private long[] entries = new long[INITIAL_CAPACITY];
+        private int size;
+
+        private void add(final long id, final long dueTick) {
+            if(size + 2 > entries.length) {
+                entries = Arrays.copyOf(entries, entries.length * 2);
+            }
+            entries[size++] = id;
+            entries[size++] = dueTick;
+        }
+
+        /* a bucket emptied after a burst gives its memory back */
+        private void clear() {
+            size = 0;
+            if(entries.length > RETAINED_CAPACITY) {
+                entries = new long[INITIAL_CAPACITY];
+            }
+        }
+    }
+}
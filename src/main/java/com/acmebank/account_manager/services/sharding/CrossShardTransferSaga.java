@@ -0,0 +1,315 @@
+package com.acmebank.account_manager.services.sharding;
+
+import com.acmebank.account_manager.configs.ShardingProperties;
+import com.acmebank.account_manager.data.entities.Transaction;
+import com.acmebank.account_manager.data.entities.TransferSaga.State;
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.data.models.responses.AccountBalance;
+import com.acmebank.account_manager.data.repositories.AccountRepository;
+import com.acmebank.account_manager.data.repositories.TransactionRepository;
+import com.acmebank.account_manager.data.sharding.Shards;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.services.cache.AccountBalanceCache;
+import com.acmebank.account_manager.services.fx.FxConversion;
+import com.acmebank.account_manager.services.fx.FxRates;
+import com.acmebank.account_manager.services.striping.StripedBalances;
+import com.acmebank.account_manager.shared.AccountType;
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.acmebank.account_manager.data.entities.Transaction.ID_ALLOCATION_SIZE;
+import static com.acmebank.account_manager.data.entities.Transaction.ID_SEQUENCE;
+import static com.acmebank.account_manager.data.entities.TransferSaga.State.ABORTED;
+import static com.acmebank.account_manager.data.entities.TransferSaga.State.COMPENSATED;
+import static com.acmebank.account_manager.data.entities.TransferSaga.State.COMPLETED;
+import static com.acmebank.account_manager.data.entities.TransferSaga.State.CREDITED;
+import static com.acmebank.account_manager.data.entities.TransferSaga.State.DEBITED;
+import static com.acmebank.account_manager.services.strategies.TransferStrategy.transactionResponse;
+import static com.acmebank.account_manager.shared.ErrorCode.ACCOUNT_NOT_FOUND;
+import static com.acmebank.account_manager.shared.ErrorCode.INSUFFICIENT_FUND;
+
+/*
+ * Moves money between accounts on different shards without a distributed transaction. The debit, the transaction
+ * row and a DEBITED saga row commit together on the from account's shard; the credit, a copy of the transaction
+ * row under the same id and a CREDITED fence row then commit together on the to account's shard. A credit that
+ * fails is compensated: an ABORTED fence is written on the to account's shard, which a late credit can no longer
+ * pass, and only then the debit is refunded and its transaction row removed. Sagas left DEBITED past
+ * acmebank.sharding.saga-timeout, by a crash between the two commits or a failed compensation, are finished by
+ * the recovery task every acmebank.sharding.recovery-interval: completed when their fence says CREDITED,
+ * compensated otherwise.
+ * Each shard draws transaction ids from its own range of the id sequence, so ids stay unique across shards.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "acmebank.sharding", name = "datasources[0].url")
+public class CrossShardTransferSaga {
+    /* ids of shard n start at n * ID_STRIDE */
+    static final long ID_STRIDE = 1L << 48;
+    private static final String SELECT_CURRENCY = "SELECT \"currency\" FROM \"account\" WHERE \"id\" = ?";
+    private static final String DEBIT = "SELECT \"balance\", \"type\" FROM FINAL TABLE (UPDATE \"account\" SET \"balance\" = \"balance\" - ?, \"version\" = \"version\" + 1, \"updated_at\" = ? WHERE \"id\" = ? AND \"currency\" = ? AND \"balance\" >= ?)";
+    private static final String CREDIT = "SELECT \"balance\", \"type\" FROM FINAL TABLE (UPDATE \"account\" SET \"balance\" = \"balance\" + ?, \"version\" = \"version\" + 1, \"updated_at\" = ? WHERE \"id\" = ? AND \"currency\" = ?)";
+    private static final String REFUND = "UPDATE \"account\" SET \"balance\" = \"balance\" + ?, \"version\" = \"version\" + 1, \"updated_at\" = ? WHERE \"id\" = ?";
+    private static final String INSERT_TRANSACTION = "INSERT INTO \"transaction\" (\"id\", \"from_account\", \"to_account\", \"amount\", \"currency\", \"create_at\", \"to_amount\", \"to_currency\", \"rate\") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_TRANSACTION = "DELETE FROM \"transaction\" WHERE \"id\" = ?";
+    private static final String SAGA_COLUMNS = "\"id\", \"from_account\", \"to_account\", \"amount\", \"currency\", \"to_amount\", \"to_currency\", \"rate\", \"created_at\"";
+    private static final String INSERT_SAGA = "INSERT INTO \"transfer_saga\" (" + SAGA_COLUMNS + ", \"state\", \"updated_at\") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_SAGA_STATE = "SELECT \"state\" FROM \"transfer_saga\" WHERE \"id\" = ?";
+    private static final String UPDATE_SAGA_STATE = "UPDATE \"transfer_saga\" SET \"state\" = ?, \"updated_at\" = ? WHERE \"id\" = ? AND \"state\" = ?";
+    private static final String SELECT_STALE_SAGAS = "SELECT " + SAGA_COLUMNS + " FROM \"transfer_saga\" WHERE \"state\" = ? AND \"updated_at\" < ?";
+    private static final String SELECT_SEQUENCE_BASE = "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = ?";
+    private static final RowMapper<Saga> SAGA_ROW_MAPPER = (rs, i) -> new Saga(rs.getLong(1), rs.getLong(2), rs.getLong(3),
+            Money.of(rs.getBigDecimal(4)), Currency.values()[rs.getInt(5)],
+            new FxConversion(Money.of(rs.getBigDecimal(6)), Currency.values()[rs.getInt(7)], rs.getBigDecimal(8)), rs.getTimestamp(9));
+    private final Shards shards;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final AccountBalanceCache accountBalanceCache;
+    private final StripedBalances stripedBalances;
+    private final FxRates fxRates;
+    private final ShardingProperties shardingProperties;
+    private ScheduledExecutorService recovery;
+
+    CrossShardTransferSaga(final Shards shards,
+                           final JdbcTemplate jdbcTemplate,
+                           final PlatformTransactionManager transactionManager,
+                           final AccountRepository accountRepository,
+                           final TransactionRepository transactionRepository,
+                           final AccountBalanceCache accountBalanceCache,
+                           final StripedBalances stripedBalances,
+                           final FxRates fxRates,
+                           final ShardingProperties shardingProperties) {
+        this.shards = shards;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        /* Hibernate expires a transaction once less than a whole second is left */
+        this.transactionTemplate.setTimeout(2);
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.accountBalanceCache = accountBalanceCache;
+        this.stripedBalances = stripedBalances;
+        this.fxRates = fxRates;
+        this.shardingProperties = shardingProperties;
+    }
+
+    @PostConstruct
+    void start() {
+        for(int shard = 1; shard < shards.getCount(); shard++) {
+            val first = shard * ID_STRIDE;
+            shards.run(shard, () -> {
+                val base = jdbcTemplate.queryForObject(SELECT_SEQUENCE_BASE, Long.class, ID_SEQUENCE);
+                if(base != null && base < first) {
+                    jdbcTemplate.execute("ALTER SEQUENCE \"" + ID_SEQUENCE + "\" RESTART WITH " + (first + ID_ALLOCATION_SIZE));
+                }
+            });
+        }
+        val intervalMillis = shardingProperties.getRecoveryInterval().toMillis();
+        if(intervalMillis <= 0) {
+            return;
+        }
+        recovery = Executors.newSingleThreadScheduledExecutor(r -> {
+            val thread = new Thread(r, "transfer-saga-recovery");
+            thread.setDaemon(true);
+            return thread;
+        });
+        recovery.scheduleWithFixedDelay(this::recover, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if(recovery != null) {
+            recovery.shutdownNow();
+        }
+    }
+
+    /*
+     * Transfers between accounts on different shards, the caller has checked they are.
+     */
+    public com.acmebank.account_manager.data.models.responses.Transaction transfer(final TransferRequest transferRequest) {
+        val fromAccountId = transferRequest.getFromAccountId();
+        val toAccountId = transferRequest.getToAccountId();
+        val amount = transferRequest.getMoney();
+        val currency = transferRequest.getCurrency();
+        val toCurrencies = shards.on(shards.of(toAccountId),
+                () -> jdbcTemplate.query(SELECT_CURRENCY, (rs, i) -> Currency.values()[rs.getInt(1)], toAccountId));
+        if(toCurrencies.isEmpty()) {
+            throw new AccountManagerException(ACCOUNT_NOT_FOUND, toAccountId);
+        }
+        val conversion = fxRates.convert(amount, currency, toCurrencies.get(0));
+        val debited = shards.on(shards.of(fromAccountId),
+                () -> transactionTemplate.execute(status -> debit(fromAccountId, toAccountId, amount, currency, conversion)));
+        val saga = debited.getSaga();
+        AccountBalance toAccountBalance;
+        try {
+            toAccountBalance = shards.on(shards.of(toAccountId), () -> transactionTemplate.execute(status -> credit(saga)));
+        } catch (RuntimeException re) {
+            try {
+                compensate(saga);
+            } catch (RuntimeException ce) {
+                log.warn("Could not compensate transfer {}, left to recovery.", saga.getId(), ce);
+            }
+            throw re;
+        }
+        try {
+            complete(saga);
+        } catch (RuntimeException re) {
+            log.warn("Could not complete transfer {}, left to recovery.", saga.getId(), re);
+        }
+        return transactionResponse(saga.getId(), fromAccountId, debited.getFromAccountBalance(), toAccountId, toAccountBalance, saga.getCreatedAt());
+    }
+
+    /*
+     * Finishes the sagas of every shard left DEBITED for longer than acmebank.sharding.saga-timeout.
+     * Returns how many were finished.
+     */
+    public int recover() {
+        int recovered = 0;
+        for(int shard = 0; shard < shards.getCount(); shard++) {
+            val staleBefore = new Timestamp(System.currentTimeMillis() - shardingProperties.getSagaTimeout().toMillis());
+            val stale = shards.on(shard, () -> jdbcTemplate.query(SELECT_STALE_SAGAS, SAGA_ROW_MAPPER, DEBITED.ordinal(), staleBefore));
+            for(val saga : stale) {
+                try {
+                    log.info("Transfer {} was {} by recovery.", saga.getId(), compensate(saga) ? COMPENSATED : COMPLETED);
+                    recovered++;
+                } catch (RuntimeException re) {
+                    log.warn("Could not recover transfer {}, retrying in {}.", saga.getId(), shardingProperties.getRecoveryInterval(), re);
+                }
+            }
+        }
+        return recovered;
+    }
+
+    private Debited debit(final long fromAccountId, final long toAccountId, final Money amount, final Currency currency,
+                          final FxConversion conversion) {
+        val now = new Timestamp(System.currentTimeMillis());
+        val balances = jdbcTemplate.query(DEBIT, (rs, i) -> AccountBalance.of(rs.getBigDecimal(1), currency, AccountType.values()[rs.getInt(2)]),
+                amount.toBigDecimal(), now, fromAccountId, currency.ordinal(), amount.toBigDecimal());
+        if(balances.isEmpty()) {
+            val errorCode = accountRepository.existsByIdAndCurrency(fromAccountId, currency) ? INSUFFICIENT_FUND : ACCOUNT_NOT_FOUND;
+            throw new AccountManagerException(errorCode, fromAccountId);
+        }
+        val transaction = transactionRepository.saveAndFlush(Transaction.builder()
+                .fromAccount(accountRepository.getReferenceById(fromAccountId))
+                .toAccount(accountRepository.getReferenceById(toAccountId))
+                .amount(amount)
+                .currency(currency)
+                .toAmount(conversion.getToAmount())
+                .toCurrency(conversion.getToCurrency())
+                .rate(conversion.getRate())
+                .build());
+        val saga = new Saga(transaction.getId(), fromAccountId, toAccountId, amount, currency, conversion, transaction.getCreateAt());
+        insertSaga(saga, DEBITED, now);
+        accountBalanceCache.invalidateOnCommit(fromAccountId);
+        return new Debited(saga, stripedBalances.withStripes(fromAccountId, balances.get(0)));
+    }
+
+    private AccountBalance credit(final Saga saga) {
+        val now = new Timestamp(System.currentTimeMillis());
+        if(fence(saga, CREDITED, now) != CREDITED) {
+            throw new OptimisticLockingFailureException("Transfer " + saga.getId() + " was aborted before its credit");
+        }
+        val toAccountId = saga.getToAccountId();
+        val conversion = saga.getConversion();
+        AccountBalance balance;
+        if(stripedBalances.isStriped(toAccountId)) {
+            balance = stripedBalances.credit(toAccountId, conversion.getToAmount(), conversion.getToCurrency());
+        } else {
+            val balances = jdbcTemplate.query(CREDIT, (rs, i) -> AccountBalance.of(rs.getBigDecimal(1), conversion.getToCurrency(), AccountType.values()[rs.getInt(2)]),
+                    conversion.getToAmount().toBigDecimal(), now, toAccountId, conversion.getToCurrency().ordinal());
+            if(balances.isEmpty()) {
+                throw new AccountManagerException(ACCOUNT_NOT_FOUND, toAccountId);
+            }
+            balance = balances.get(0);
+        }
+        jdbcTemplate.update(INSERT_TRANSACTION, saga.getId(), saga.getFromAccountId(), toAccountId, saga.getAmount().toBigDecimal(),
+                saga.getCurrency().ordinal(), saga.getCreatedAt(), conversion.getToAmount().toBigDecimal(),
+                conversion.getToCurrency().ordinal(), conversion.getRate());
+        accountBalanceCache.invalidateOnCommit(toAccountId);
+        return balance;
+    }
+
+    private void complete(final Saga saga) {
+        shards.run(shards.of(saga.getFromAccountId()), () -> jdbcTemplate.update(UPDATE_SAGA_STATE,
+                COMPLETED.ordinal(), new Timestamp(System.currentTimeMillis()), saga.getId(), DEBITED.ordinal()));
+    }
+
+    /*
+     * Refunds the debit unless the credit is already fenced in, in which case the saga is completed instead.
+     * Returns whether the debit was refunded.
+     */
+    private boolean compensate(final Saga saga) {
+        val fenced = shards.on(shards.of(saga.getToAccountId()),
+                () -> transactionTemplate.execute(status -> fence(saga, ABORTED, new Timestamp(System.currentTimeMillis()))));
+        if(fenced == CREDITED) {
+            complete(saga);
+            return false;
+        }
+        shards.run(shards.of(saga.getFromAccountId()), () -> transactionTemplate.executeWithoutResult(status -> {
+            val now = new Timestamp(System.currentTimeMillis());
+            if(jdbcTemplate.update(UPDATE_SAGA_STATE, COMPENSATED.ordinal(), now, saga.getId(), DEBITED.ordinal()) == 1) {
+                jdbcTemplate.update(REFUND, saga.getAmount().toBigDecimal(), now, saga.getFromAccountId());
+                jdbcTemplate.update(DELETE_TRANSACTION, saga.getId());
+                accountBalanceCache.invalidateOnCommit(saga.getFromAccountId());
+            }
+        }));
+        return true;
+    }
+
+    /*
+     * Writes the fence of the saga on the to account's shard, whichever of the credit and the compensation gets there
+     * first decides. Returns the state the fence holds.
+     */
+    private State fence(final Saga saga, final State state, final Timestamp now) {
+        try {
+            insertSaga(saga, state, now);
+            return state;
+        } catch (DuplicateKeyException dke) {
+            return State.values()[jdbcTemplate.queryForObject(SELECT_SAGA_STATE, Integer.class, saga.getId())];
+        }
+    }
+
+    private void insertSaga(final Saga saga, final State state, final Timestamp now) {
+        val conversion = saga.getConversion();
+        jdbcTemplate.update(INSERT_SAGA, saga.getId(), saga.getFromAccountId(), saga.getToAccountId(), saga.getAmount().toBigDecimal(),
+                saga.getCurrency().ordinal(), conversion.getToAmount().toBigDecimal(), conversion.getToCurrency().ordinal(),
+                conversion.getRate(), saga.getCreatedAt(), state.ordinal(), now);
+    }
+
+    @Value
+    private static class Saga {
+        long id;
+        long fromAccountId;
+        long toAccountId;
+        Money amount;
+        Currency currency;
+        FxConversion conversion;
+        Timestamp createdAt;
+    }
+
+    @Value
+    private static class Debited {
+        Saga saga;
+        AccountBalance fromAccountBalance;
+    }
+}
@@ -0,0 +1,101 @@
+package com.acmebank.account_manager.services.sharding;
+
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.data.models.responses.AccountBalance;
+import com.acmebank.account_manager.data.models.responses.BatchTransferResult;
+import com.acmebank.account_manager.data.models.responses.Transaction;
+import com.acmebank.account_manager.data.sharding.Shards;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.services.JpaLedgerEngine;
+import com.acmebank.account_manager.services.LedgerEngine;
+import com.acmebank.account_manager.services.striping.StripedBalances;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+import static com.acmebank.account_manager.data.models.responses.BatchTransferResult.completed;
+import static com.acmebank.account_manager.data.models.responses.BatchTransferResult.rejected;
+import static com.acmebank.account_manager.services.strategies.TransferStrategy.validateFromAndToAccount;
+import static com.acmebank.account_manager.shared.ErrorCode.INSUFFICIENT_FUND;
+
+/*
+ * Runs the JPA ledger engine on the shard owning the accounts. A transfer within one shard keeps its single local
+ * transaction, a transfer across shards goes through CrossShardTransferSaga. A batch is split into one JPA batch
+ * per shard for its same-shard transfers, cross-shard transfers are applied one by one after them.
+ */
+@Primary
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@ConditionalOnProperty(prefix = "acmebank.sharding", name = "datasources[0].url")
+public class ShardRoutingLedgerEngine implements LedgerEngine {
+    private final Shards shards;
+    private final JpaLedgerEngine jpaLedgerEngine;
+    private final CrossShardTransferSaga crossShardTransferSaga;
+    private final StripedBalances stripedBalances;
+
+    @Override
+    public AccountBalance getAccountBalance(final long id) {
+        return shards.on(shards.of(id), () -> jpaLedgerEngine.getAccountBalance(id));
+    }
+
+    @Override
+    public Transaction transfer(final TransferRequest transferRequest) {
+        val fromAccountId = transferRequest.getFromAccountId();
+        val toAccountId = transferRequest.getToAccountId();
+        validateFromAndToAccount(fromAccountId, toAccountId);
+        val fromShard = shards.of(fromAccountId);
+        if(fromShard == shards.of(toAccountId)) {
+            return shards.on(fromShard, () -> jpaLedgerEngine.transfer(transferRequest));
+        }
+        try {
+            return crossShardTransferSaga.transfer(transferRequest);
+        } catch (AccountManagerException ame) {
+            if(ame.getErrorCode() == INSUFFICIENT_FUND && stripedBalances.sweep(fromAccountId)) {
+                return crossShardTransferSaga.transfer(transferRequest);
+            }
+            throw ame;
+        }
+    }
+
+    @Override
+    public List<BatchTransferResult> transferBatch(final List<TransferRequest> transferRequests) {
+        val results = new ArrayList<BatchTransferResult>(Collections.<BatchTransferResult>nCopies(transferRequests.size(), null));
+        val sameShard = new TreeMap<Integer, List<Integer>>();
+        val crossShard = new ArrayList<Integer>();
+        for(int i = 0; i < transferRequests.size(); i++) {
+            val request = transferRequests.get(i);
+            val fromShard = shards.of(request.getFromAccountId());
+            if(fromShard == shards.of(request.getToAccountId())) {
+                sameShard.computeIfAbsent(fromShard, shard -> new ArrayList<>()).add(i);
+            } else {
+                crossShard.add(i);
+            }
+        }
+        sameShard.forEach((shard, indexes) -> {
+            val requests = new ArrayList<TransferRequest>(indexes.size());
+            indexes.forEach(index -> requests.add(transferRequests.get(index)));
+            val shardResults = shards.on(shard, () -> jpaLedgerEngine.transferBatch(requests));
+            for(int i = 0; i < indexes.size(); i++) {
+                val index = indexes.get(i);
+                val result = shardResults.get(i);
+                results.set(index, new BatchTransferResult(index, result.getTransaction(), result.getError()));
+            }
+        });
+        for(val index : crossShard) {
+            try {
+                results.set(index, completed(index, transfer(transferRequests.get(index))));
+            } catch (AccountManagerException ame) {
+                results.set(index, rejected(index, ame));
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,147 @@
+package com.acmebank.account_manager.services.strategies;
+
+import com.acmebank.account_manager.configs.LedgerProperties.Concurrency;
+import com.acmebank.account_manager.data.entities.Transaction;
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.data.models.responses.AccountBalance;
+import com.acmebank.account_manager.data.repositories.AccountRepository;
+import com.acmebank.account_manager.data.repositories.TransactionRepository;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.services.cache.AccountBalanceCache;
+import com.acmebank.account_manager.services.fx.FxConversion;
+import com.acmebank.account_manager.services.fx.FxRates;
+import com.acmebank.account_manager.services.metrics.TransferMetrics;
+import com.acmebank.account_manager.services.striping.StripedBalances;
+import com.acmebank.account_manager.shared.AccountType;
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+import static com.acmebank.account_manager.configs.LedgerProperties.Concurrency.CONDITIONAL;
+import static com.acmebank.account_manager.services.metrics.TransferMetrics.Stage.INSERT;
+import static com.acmebank.account_manager.services.metrics.TransferMetrics.Stage.UPDATE;
+import static com.acmebank.account_manager.services.strategies.TransferStrategy.transactionResponse;
+import static com.acmebank.account_manager.services.strategies.TransferStrategy.validateFromAndToAccount;
+import static com.acmebank.account_manager.shared.ErrorCode.ACCOUNT_NOT_FOUND;
+import static com.acmebank.account_manager.shared.ErrorCode.INSUFFICIENT_FUND;
+
+/*
+ * Applies each leg as one conditional UPDATE, the funds check is part of the WHERE clause so accounts are never
+ * read before they are written. Legs run in ascending account id order so opposite transfers cannot deadlock;
+ * the account is only read when a leg matched no row, to tell a missing account from insufficient fund.
+ * The UPDATEs bypass JPA, so cached balances are invalidated here rather than by the entity listener.
+ * Credits to a striped account update one of its slots instead of the account row.
+ * A credit is first tried in the transfer's currency; only when that matches no row is the account's currency read
+ * and the credit priced in it, so same-currency transfers keep to one statement per leg.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class ConditionalUpdateTransferStrategy implements TransferStrategy {
+    private static final String DEBIT = "SELECT \"balance\", \"type\" FROM FINAL TABLE (UPDATE \"account\" SET \"balance\" = \"balance\" - ?, \"version\" = \"version\" + 1, \"updated_at\" = ? WHERE \"id\" = ? AND \"currency\" = ? AND \"balance\" >= ?)";
+    private static final String SELECT_CURRENCY = "SELECT \"currency\" FROM \"account\" WHERE \"id\" = ?";
+    private static final String CREDIT = "SELECT \"balance\", \"type\" FROM FINAL TABLE (UPDATE \"account\" SET \"balance\" = \"balance\" + ?, \"version\" = \"version\" + 1, \"updated_at\" = ? WHERE \"id\" = ? AND \"currency\" = ?)";
+    private final JdbcTemplate jdbcTemplate;
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final AccountBalanceCache accountBalanceCache;
+    private final TransferMetrics transferMetrics;
+    private final StripedBalances stripedBalances;
+    private final FxRates fxRates;
+
+    @Override
+    public Concurrency getConcurrency() {
+        return CONDITIONAL;
+    }
+
+    @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED, timeout = 1000)
+    public com.acmebank.account_manager.data.models.responses.Transaction transfer(final TransferRequest transferRequest) {
+        val fromAccountId = transferRequest.getFromAccountId();
+        val toAccountId = transferRequest.getToAccountId();
+        validateFromAndToAccount(fromAccountId, toAccountId);
+        val amount = transferRequest.getMoney();
+        val currency = transferRequest.getCurrency();
+        val now = new Timestamp(System.currentTimeMillis());
+        accountBalanceCache.invalidateOnCommit(fromAccountId);
+        accountBalanceCache.invalidateOnCommit(toAccountId);
+        transferMetrics.timeCommit(CONDITIONAL);
+        AccountBalance fromAccountBalance;
+        Credit credit;
+        if(fromAccountId < toAccountId) {
+            fromAccountBalance = transferMetrics.time(CONDITIONAL, UPDATE, fromAccountId, () -> debit(fromAccountId, amount, currency, now));
+            credit = transferMetrics.time(CONDITIONAL, UPDATE, toAccountId, () -> credit(toAccountId, amount, currency, now));
+        } else {
+            credit = transferMetrics.time(CONDITIONAL, UPDATE, toAccountId, () -> credit(toAccountId, amount, currency, now));
+            fromAccountBalance = transferMetrics.time(CONDITIONAL, UPDATE, fromAccountId, () -> debit(fromAccountId, amount, currency, now));
+        }
+        val conversion = credit.getConversion();
+        val transaction = Transaction.builder()
+                .fromAccount(accountRepository.getReferenceById(fromAccountId))
+                .toAccount(accountRepository.getReferenceById(toAccountId))
+                .amount(amount)
+                .currency(currency)
+                .toAmount(conversion.getToAmount())
+                .toCurrency(conversion.getToCurrency())
+                .rate(conversion.getRate())
+                .build();
+        val storedTransaction = transferMetrics.time(CONDITIONAL, INSERT, () -> transactionRepository.saveAndFlush(transaction));
+        return transactionResponse(storedTransaction.getId(), fromAccountId, fromAccountBalance, toAccountId, credit.getBalance(), storedTransaction.getCreateAt());
+    }
+
+    private AccountBalance debit(final long accountId, final Money amount, final Currency currency, final Timestamp now) {
+        val balances = jdbcTemplate.query(DEBIT, (rs, i) -> accountBalance(rs.getBigDecimal(1), currency, rs.getInt(2)),
+                amount.toBigDecimal(), now, accountId, currency.ordinal(), amount.toBigDecimal());
+        if(balances.isEmpty()) {
+            val errorCode = accountRepository.existsByIdAndCurrency(accountId, currency) ? INSUFFICIENT_FUND : ACCOUNT_NOT_FOUND;
+            throw new AccountManagerException(errorCode, accountId);
+        }
+        return stripedBalances.withStripes(accountId, balances.get(0));
+    }
+
+    private Credit credit(final long accountId, final Money amount, final Currency currency, final Timestamp now) {
+        if(stripedBalances.isStriped(accountId)) {
+            val conversion = fxRates.convert(amount, currency, stripedBalances.currencyOf(accountId));
+            return new Credit(stripedBalances.credit(accountId, conversion.getToAmount(), conversion.getToCurrency()), conversion);
+        }
+        val balance = creditAccount(accountId, amount, currency, now);
+        if(balance != null) {
+            return new Credit(balance, fxRates.convert(amount, currency, currency));
+        }
+        val accountCurrency = jdbcTemplate.query(SELECT_CURRENCY, (rs, i) -> Currency.values()[rs.getInt(1)], accountId);
+        if(accountCurrency.isEmpty() || accountCurrency.get(0) == currency) {
+            throw new AccountManagerException(ACCOUNT_NOT_FOUND, accountId);
+        }
+        val conversion = fxRates.convert(amount, currency, accountCurrency.get(0));
+        val convertedBalance = creditAccount(accountId, conversion.getToAmount(), conversion.getToCurrency(), now);
+        if(convertedBalance == null) {
+            throw new AccountManagerException(ACCOUNT_NOT_FOUND, accountId);
+        }
+        return new Credit(convertedBalance, conversion);
+    }
+
+    private AccountBalance creditAccount(final long accountId, final Money amount, final Currency currency, final Timestamp now) {
+        val balances = jdbcTemplate.query(CREDIT, (rs, i) -> accountBalance(rs.getBigDecimal(1), currency, rs.getInt(2)),
+                amount.toBigDecimal(), now, accountId, currency.ordinal());
+        return balances.isEmpty() ? null : balances.get(0);
+    }
+
+    private static AccountBalance accountBalance(final BigDecimal balance, final Currency currency, final int type) {
+        return AccountBalance.of(balance, currency, AccountType.values()[type]);
+    }
+
+    @Value
+    private static class Credit {
+        AccountBalance balance;
+        FxConversion conversion;
+    }
+}
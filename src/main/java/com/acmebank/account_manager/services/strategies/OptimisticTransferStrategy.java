@@ -0,0 +1,151 @@
+package com.acmebank.account_manager.services.strategies;
+
+import com.acmebank.account_manager.configs.LedgerProperties;
+import com.acmebank.account_manager.configs.LedgerProperties.Concurrency;
+import com.acmebank.account_manager.data.entities.Account;
+import com.acmebank.account_manager.data.entities.Transaction;
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.data.models.responses.AccountBalance;
+import com.acmebank.account_manager.data.repositories.AccountRepository;
+import com.acmebank.account_manager.data.repositories.TransactionRepository;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.services.fx.FxConversion;
+import com.acmebank.account_manager.services.fx.FxRates;
+import com.acmebank.account_manager.services.metrics.TransferMetrics;
+import com.acmebank.account_manager.services.striping.StripedBalances;
+import com.acmebank.account_manager.shared.Currency;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.acmebank.account_manager.configs.LedgerProperties.Concurrency.OPTIMISTIC;
+import static com.acmebank.account_manager.services.metrics.TransferMetrics.Stage.INSERT;
+import static com.acmebank.account_manager.services.metrics.TransferMetrics.Stage.LOCK;
+import static com.acmebank.account_manager.services.metrics.TransferMetrics.Stage.UPDATE;
+import static com.acmebank.account_manager.services.strategies.TransferStrategy.transactionResponse;
+import static com.acmebank.account_manager.services.strategies.TransferStrategy.validateFromAndToAccount;
+import static com.acmebank.account_manager.shared.ErrorCode.ACCOUNT_NOT_FOUND;
+import static com.acmebank.account_manager.shared.ErrorCode.INSUFFICIENT_FUND;
+
+/*
+ * Reads both accounts without locks and writes them back guarded by Account.version. A transfer that lost
+ * the race is retried in a new transaction, up to acmebank.ledger.optimistic-retries times with jittered backoff.
+ */
+@Slf4j
+@Component
+public class OptimisticTransferStrategy implements TransferStrategy {
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransferMetrics transferMetrics;
+    private final StripedBalances stripedBalances;
+    private final FxRates fxRates;
+    private final int maxRetries;
+
+    OptimisticTransferStrategy(final AccountRepository accountRepository,
+                               final TransactionRepository transactionRepository,
+                               final PlatformTransactionManager transactionManager,
+                               final LedgerProperties ledgerProperties,
+                               final TransferMetrics transferMetrics,
+                               final StripedBalances stripedBalances,
+                               final FxRates fxRates) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.maxRetries = ledgerProperties.getOptimisticRetries();
+        this.transferMetrics = transferMetrics;
+        this.stripedBalances = stripedBalances;
+        this.fxRates = fxRates;
+    }
+
+    @Override
+    public Concurrency getConcurrency() {
+        return OPTIMISTIC;
+    }
+
+    @Override
+    public com.acmebank.account_manager.data.models.responses.Transaction transfer(final TransferRequest transferRequest) {
+        validateFromAndToAccount(transferRequest.getFromAccountId(), transferRequest.getToAccountId());
+        for(int attempt = 0; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> attemptTransfer(transferRequest));
+            } catch (ConcurrencyFailureException cfe) {
+                if(attempt >= maxRetries) {
+                    throw cfe;
+                }
+                transferMetrics.lockFailure(cfe);
+                log.debug("Transfer {} lost an optimistic race, retry {} of {}.", transferRequest, attempt + 1, maxRetries);
+                backoff(attempt);
+            }
+        }
+    }
+
+    private com.acmebank.account_manager.data.models.responses.Transaction attemptTransfer(final TransferRequest transferRequest) {
+        val fromAccountId = transferRequest.getFromAccountId();
+        val toAccountId = transferRequest.getToAccountId();
+        val amount = transferRequest.getMoney();
+        val currency = transferRequest.getCurrency();
+        transferMetrics.timeCommit(OPTIMISTIC);
+        val fromAccount = transferMetrics.time(OPTIMISTIC, LOCK, fromAccountId, () -> readAccount(fromAccountId, currency));
+        val fromBalance = fromAccount.getBalance().minus(amount);
+        if(fromBalance.isNegative()) {
+            throw new AccountManagerException(INSUFFICIENT_FUND, fromAccountId);
+        }
+        val updatedFromAccount = fromAccount.toBuilder().balance(fromBalance).build();
+        Account updatedToAccount;
+        AccountBalance toAccountBalance;
+        FxConversion conversion;
+        if(stripedBalances.isStriped(toAccountId)) {
+            conversion = fxRates.convert(amount, currency, stripedBalances.currencyOf(toAccountId));
+            transferMetrics.time(OPTIMISTIC, UPDATE, () -> accountRepository.saveAndFlush(updatedFromAccount));
+            toAccountBalance = transferMetrics.time(OPTIMISTIC, UPDATE, toAccountId,
+                    () -> stripedBalances.credit(toAccountId, conversion.getToAmount(), conversion.getToCurrency()));
+            updatedToAccount = accountRepository.getReferenceById(toAccountId);
+        } else {
+            val toAccount = transferMetrics.time(OPTIMISTIC, LOCK, toAccountId, () -> readAccount(toAccountId, null));
+            conversion = fxRates.convert(amount, currency, toAccount.getCurrency());
+            val toBalance = toAccount.getBalance().plus(conversion.getToAmount());
+            val toAccountToSave = toAccount.toBuilder().balance(toBalance).build();
+            transferMetrics.time(OPTIMISTIC, UPDATE, () -> accountRepository.saveAllAndFlush(List.of(updatedFromAccount, toAccountToSave)));
+            toAccountBalance = AccountBalance.of(toBalance, toAccount.getCurrency(), toAccount.getType());
+            updatedToAccount = toAccountToSave;
+        }
+        val transaction = Transaction.builder().fromAccount(updatedFromAccount).toAccount(updatedToAccount).amount(amount).currency(currency)
+                .toAmount(conversion.getToAmount()).toCurrency(conversion.getToCurrency()).rate(conversion.getRate()).build();
+        val storedTransaction = transferMetrics.time(OPTIMISTIC, INSERT, () -> transactionRepository.saveAndFlush(transaction));
+        return transactionResponse(
+                storedTransaction.getId(),
+                fromAccountId,
+                stripedBalances.withStripes(fromAccountId, AccountBalance.of(fromBalance, fromAccount.getCurrency(), fromAccount.getType())),
+                toAccountId,
+                toAccountBalance,
+                storedTransaction.getCreateAt());
+    }
+
+    /*
+     * A null currency accepts the account in any currency.
+     */
+    private Account readAccount(final long accountId, final Currency currency) {
+        val account = accountRepository.readById(accountId).orElse(null);
+        if(account == null || (currency != null && currency != account.getCurrency())) {
+            throw new AccountManagerException(ACCOUNT_NOT_FOUND, accountId);
+        }
+        return account;
+    }
+
+    private static void backoff(final int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1L << Math.min(attempt + 1, 6)));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.acmebank.account_manager.services.strategies;
+
+import com.acmebank.account_manager.configs.LedgerProperties.Concurrency;
+import com.acmebank.account_manager.data.entities.Account;
+import com.acmebank.account_manager.data.entities.Transaction;
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.data.models.responses.AccountBalance;
+import com.acmebank.account_manager.data.repositories.AccountRepository;
+import com.acmebank.account_manager.data.repositories.TransactionRepository;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.services.fx.FxRates;
+import com.acmebank.account_manager.services.metrics.TransferMetrics;
+import com.acmebank.account_manager.services.striping.StripedBalances;
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static com.acmebank.account_manager.configs.LedgerProperties.Concurrency.PESSIMISTIC;
+import static com.acmebank.account_manager.services.metrics.TransferMetrics.Stage.INSERT;
+import static com.acmebank.account_manager.services.metrics.TransferMetrics.Stage.LOCK;
+import static com.acmebank.account_manager.services.metrics.TransferMetrics.Stage.UPDATE;
+import static com.acmebank.account_manager.services.strategies.TransferStrategy.transactionResponse;
+import static com.acmebank.account_manager.services.strategies.TransferStrategy.validateFromAndToAccount;
+import static com.acmebank.account_manager.shared.ErrorCode.*;
+
+/*
+ * Reads both accounts under row locks and writes them back, concurrent transfers on the same account wait or fail.
+ * The credit is priced in the to account's currency once its row is read.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class PessimisticTransferStrategy implements TransferStrategy {
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransferMetrics transferMetrics;
+    private final StripedBalances stripedBalances;
+    private final FxRates fxRates;
+
+    @Override
+    public Concurrency getConcurrency() {
+        return PESSIMISTIC;
+    }
+
+    @Override
+    @Transactional(isolation = Isolation.REPEATABLE_READ, timeout = 1000)
+    public com.acmebank.account_manager.data.models.responses.Transaction transfer(final TransferRequest transferRequest) {
+        val fromAccountId = transferRequest.getFromAccountId();
+        val toAccountId = transferRequest.getToAccountId();
+        validateFromAndToAccount(fromAccountId, toAccountId);
+        val amount = transferRequest.getMoney();
+        val currency = transferRequest.getCurrency();
+        transferMetrics.timeCommit(PESSIMISTIC);
+        /* A striped credit goes first, so its slot is claimed before the REPEATABLE_READ snapshot is taken. */
+        val toStriped = stripedBalances.isStriped(toAccountId);
+        val stripedConversion = toStriped ? fxRates.convert(amount, currency, stripedBalances.currencyOf(toAccountId)) : null;
+        val stripedBalance = toStriped
+                ? transferMetrics.time(PESSIMISTIC, UPDATE, toAccountId, () -> stripedBalances.credit(toAccountId, stripedConversion.getToAmount(), stripedConversion.getToCurrency()))
+                : null;
+        val fromAccount = transferMetrics.time(PESSIMISTIC, LOCK, fromAccountId, () -> debitAccount(fromAccountId, amount, currency));
+        val lockedToAccount = toStriped
+                ? accountRepository.getReferenceById(toAccountId)
+                : transferMetrics.time(PESSIMISTIC, LOCK, toAccountId, () -> lockAccount(toAccountId));
+        val conversion = toStriped ? stripedConversion : fxRates.convert(amount, currency, lockedToAccount.getCurrency());
+        val toAccount = toStriped
+                ? lockedToAccount
+                : lockedToAccount.toBuilder().balance(lockedToAccount.getBalance().plus(conversion.getToAmount())).build();
+        val toAccountBalance = toStriped
+                ? stripedBalance
+                : AccountBalance.of(toAccount.getBalance(), toAccount.getCurrency(), toAccount.getType());
+        val transaction = Transaction.builder().fromAccount(fromAccount).toAccount(toAccount).amount(amount).currency(currency)
+                .toAmount(conversion.getToAmount()).toCurrency(conversion.getToCurrency()).rate(conversion.getRate()).build();
+        transferMetrics.time(PESSIMISTIC, UPDATE, () -> {
+            val savedFromAccount = accountRepository.save(fromAccount);
+            return toStriped ? savedFromAccount : accountRepository.save(toAccount);
+        });
+        val storedTransaction = transferMetrics.time(PESSIMISTIC, INSERT, () -> transactionRepository.saveAndFlush(transaction));
+        return transactionResponse(
+                storedTransaction.getId(),
+                fromAccountId,
+                stripedBalances.withStripes(fromAccountId, AccountBalance.of(fromAccount.getBalance(), fromAccount.getCurrency(), fromAccount.getType())),
+                toAccountId,
+                toAccountBalance,
+                storedTransaction.getCreateAt());
+    }
+
+    /*
+     * The amount is debited in the currency it was requested in, which has to be the account's.
+     */
+    private Account debitAccount(final long accountId, final Money amount, final Currency currency) {
+        val account = lockAccount(accountId);
+        if (currency != account.getCurrency()) {
+            throw new AccountManagerException(ACCOUNT_NOT_FOUND, accountId);
+        }
+        val balance = account.getBalance().minus(amount);
+        if(balance.isNegative()) {
+            throw new AccountManagerException(INSUFFICIENT_FUND, accountId);
+        }
+        return account.toBuilder().balance(balance).build();
+    }
+
+    private Account lockAccount(final long accountId) {
+        return accountRepository.findById(accountId).orElseThrow(() -> new AccountManagerException(ACCOUNT_NOT_FOUND, accountId));
+    }
+}
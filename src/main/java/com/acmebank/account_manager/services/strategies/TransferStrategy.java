@@ -0,0 +1,37 @@
+package com.acmebank.account_manager.services.strategies;
+
+import com.acmebank.account_manager.configs.LedgerProperties.Concurrency;
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.data.models.responses.AccountBalance;
+import com.acmebank.account_manager.data.models.responses.Transaction;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+
+import java.sql.Timestamp;
+
+import static com.acmebank.account_manager.shared.ErrorCode.SAME_ACCOUNT;
+
+/*
+ * How the JPA ledger engine keeps a transfer consistent under concurrency, selected by acmebank.ledger.concurrency.
+ */
+public interface TransferStrategy {
+    Concurrency getConcurrency();
+
+    Transaction transfer(TransferRequest transferRequest);
+
+    static void validateFromAndToAccount(final long fromAccountId, final long toAccountId) {
+        if(fromAccountId == toAccountId) {
+            throw AccountManagerException.of(SAME_ACCOUNT);
+        }
+    }
+
+    static Transaction transactionResponse(
+            final long transactionId,
+            final long fromAccountId,
+            final AccountBalance fromAccountBalance,
+            final long toAccountId,
+            final AccountBalance toAccountBalance,
+            final Timestamp createdAt
+    ){
+        return new Transaction(transactionId, fromAccountId, fromAccountBalance, toAccountId, toAccountBalance, createdAt);
+    }
+}
@@ -0,0 +1,246 @@
+package com.acmebank.account_manager.services.striping;
+
+import com.acmebank.account_manager.configs.StripedBalancesProperties;
+import com.acmebank.account_manager.data.models.responses.AccountBalance;
+import com.acmebank.account_manager.data.sharding.Shards;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.services.cache.AccountBalanceCache;
+import com.acmebank.account_manager.shared.AccountType;
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
+import lombok.Getter;
+import lombok.val;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.acmebank.account_manager.shared.ErrorCode.ACCOUNT_NOT_FOUND;
+
+/*
+ * Opt-in striping for accounts receiving many concurrent credits. A striped account's balance is its account row plus
+ * its account_stripe slots: credits go to a random slot and never lock the account row, debits keep going through the
+ * row and sweep every slot into it when the row alone cannot cover them. The row is always locked before its slots.
+ * Each credit claims a slot no other in-flight credit of this instance holds until its transaction completes, so
+ * credits only meet on a slot when more of them are in flight than there are slots.
+ * Striping and sweeping run in transactions of their own on the account's shard.
+ */
+@Component
+public class StripedBalances {
+    /*
+     * Balance of an "account" row including its slots, for queries reading the balance straight from the table.
+     */
+    public static final String BALANCE_WITH_STRIPES = "\"balance\" + COALESCE((SELECT SUM(s.\"balance\") FROM \"account_stripe\" s WHERE s.\"account_id\" = \"account\".\"id\"), 0)";
+    private static final String SELECT_STRIPED = "SELECT \"id\", \"stripes\", \"currency\", \"type\" FROM \"account\" WHERE \"stripes\" > 0";
+    private static final String LOCK_ACCOUNT = "SELECT \"currency\", \"type\" FROM \"account\" WHERE \"id\" = ? FOR UPDATE";
+    private static final String LOCK_STRIPES = "SELECT \"balance\" FROM \"account_stripe\" WHERE \"account_id\" = ? FOR UPDATE";
+    private static final String SUM_STRIPES = "SELECT COALESCE(SUM(\"balance\"), 0) FROM \"account_stripe\" WHERE \"account_id\" = ?";
+    private static final String EMPTY_STRIPES = "UPDATE \"account_stripe\" SET \"balance\" = 0 WHERE \"account_id\" = ? AND \"balance\" <> 0";
+    private static final String DELETE_STRIPES = "DELETE FROM \"account_stripe\" WHERE \"account_id\" = ?";
+    private static final String INSERT_STRIPE = "INSERT INTO \"account_stripe\" (\"account_id\", \"slot\", \"balance\") VALUES (?, ?, 0)";
+    private static final String CREDIT_STRIPE = "UPDATE \"account_stripe\" SET \"balance\" = \"balance\" + ? WHERE \"account_id\" = ? AND \"slot\" = ?";
+    private static final String CREDIT_ACCOUNT = "UPDATE \"account\" SET \"balance\" = \"balance\" + ?, \"version\" = \"version\" + 1, \"updated_at\" = ? WHERE \"id\" = ?";
+    private static final String SET_STRIPES = "UPDATE \"account\" SET \"stripes\" = ?, \"version\" = \"version\" + 1, \"updated_at\" = ? WHERE \"id\" = ?";
+    private static final String SELECT_BALANCE = "SELECT " + BALANCE_WITH_STRIPES + " FROM \"account\" WHERE \"id\" = ?";
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountBalanceCache accountBalanceCache;
+    private final StripedBalancesProperties properties;
+    private final Shards shards;
+    private final Map<Long, StripedAccount> stripedAccounts = new ConcurrentHashMap<>();
+
+    StripedBalances(final JdbcTemplate jdbcTemplate,
+                    final PlatformTransactionManager transactionManager,
+                    final AccountBalanceCache accountBalanceCache,
+                    final StripedBalancesProperties properties,
+                    final Shards shards) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.transactionTemplate.setTimeout(1);
+        this.accountBalanceCache = accountBalanceCache;
+        this.properties = properties;
+        this.shards = shards;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        properties.getAccounts().forEach(this::stripe);
+        for(int shard = 0; shard < shards.getCount(); shard++) {
+            shards.run(shard, () -> jdbcTemplate.query(SELECT_STRIPED, (RowCallbackHandler) rs -> stripedAccounts.put(rs.getLong(1),
+                    new StripedAccount(rs.getInt(2), Currency.values()[rs.getInt(3)], AccountType.values()[rs.getInt(4)]))));
+        }
+    }
+
+    public boolean isStriped(final long accountId) {
+        return stripedAccounts.containsKey(accountId);
+    }
+
+    /*
+     * Currency of a striped account, null for accounts that are not striped.
+     */
+    public Currency currencyOf(final long accountId) {
+        val stripedAccount = stripedAccounts.get(accountId);
+        return stripedAccount == null ? null : stripedAccount.getCurrency();
+    }
+
+    /*
+     * Gives the account the number of credit slots, whatever its slots held so far is moved into the account row first.
+     */
+    public void stripe(final long accountId, final int stripes) {
+        if(stripes < 0) {
+            throw new IllegalArgumentException("Stripes of account " + accountId + " cannot be negative: " + stripes);
+        }
+        val stripedAccount = shards.on(shards.of(accountId), () -> transactionTemplate.execute(status -> {
+            val account = lockAccount(accountId);
+            val now = new Timestamp(System.currentTimeMillis());
+            moveStripesIntoAccount(accountId, now);
+            jdbcTemplate.update(DELETE_STRIPES, accountId);
+            jdbcTemplate.batchUpdate(INSERT_STRIPE, IntStream.range(0, stripes)
+                    .mapToObj(slot -> new Object[]{accountId, slot})
+                    .collect(Collectors.toList()));
+            jdbcTemplate.update(SET_STRIPES, stripes, now, accountId);
+            return new StripedAccount(stripes, account.getCurrency(), account.getType());
+        }));
+        if(stripes == 0) {
+            stripedAccounts.remove(accountId);
+        } else {
+            stripedAccounts.put(accountId, stripedAccount);
+        }
+    }
+
+    /*
+     * Credits a free slot of a striped account, only that slot is locked. Returns the balance including every slot.
+     */
+    public AccountBalance credit(final long accountId, final Money amount, final Currency currency) {
+        val stripedAccount = stripedAccounts.get(accountId);
+        if(stripedAccount == null || currency != stripedAccount.getCurrency()) {
+            throw new AccountManagerException(ACCOUNT_NOT_FOUND, accountId);
+        }
+        val slot = stripedAccount.claim();
+        if(jdbcTemplate.update(CREDIT_STRIPE, amount.toBigDecimal(), accountId, slot) == 0) {
+            throw new OptimisticLockingFailureException("Stripes of account " + accountId + " changed during the transfer");
+        }
+        accountBalanceCache.invalidateOnCommit(accountId);
+        val balance = jdbcTemplate.queryForObject(SELECT_BALANCE, BigDecimal.class, accountId);
+        return AccountBalance.of(balance, currency, stripedAccount.getType());
+    }
+
+    /*
+     * Adds what the slots hold to a balance read from the account row alone, unchanged for accounts that are not striped.
+     */
+    public AccountBalance withStripes(final long accountId, final AccountBalance accountBalance) {
+        if(!isStriped(accountId)) {
+            return accountBalance;
+        }
+        val stripes = jdbcTemplate.queryForObject(SUM_STRIPES, BigDecimal.class, accountId);
+        return AccountBalance.of(accountBalance.getBalance().add(stripes), accountBalance.getCurrency(), accountBalance.getType());
+    }
+
+    /*
+     * Moves every slot of a striped account into its row in a transaction of its own, so a debit the row alone could
+     * not cover can be tried again. Returns false when the slots held nothing.
+     */
+    public boolean sweep(final long accountId) {
+        if(!isStriped(accountId)) {
+            return false;
+        }
+        return Boolean.TRUE.equals(shards.on(shards.of(accountId), () -> transactionTemplate.execute(status -> {
+            lockAccount(accountId);
+            return moveStripesIntoAccount(accountId, new Timestamp(System.currentTimeMillis()));
+        })));
+    }
+
+    /*
+     * Empties the slots of an account whose row the caller has already locked and returns what they held,
+     * the caller adds it to the row.
+     */
+    public Money drain(final long accountId) {
+        return isStriped(accountId) ? emptyStripes(accountId) : Money.ZERO;
+    }
+
+    private boolean moveStripesIntoAccount(final long accountId, final Timestamp now) {
+        val drained = emptyStripes(accountId);
+        if(Money.ZERO.equals(drained)) {
+            return false;
+        }
+        jdbcTemplate.update(CREDIT_ACCOUNT, drained.toBigDecimal(), now, accountId);
+        return true;
+    }
+
+    private Money emptyStripes(final long accountId) {
+        Money drained = Money.ZERO;
+        for(val balance : jdbcTemplate.queryForList(LOCK_STRIPES, BigDecimal.class, accountId)) {
+            drained = drained.plus(Money.of(balance));
+        }
+        if(!Money.ZERO.equals(drained)) {
+            jdbcTemplate.update(EMPTY_STRIPES, accountId);
+        }
+        return drained;
+    }
+
+    private StripedAccount lockAccount(final long accountId) {
+        val accounts = jdbcTemplate.query(LOCK_ACCOUNT,
+                (rs, i) -> new StripedAccount(0, Currency.values()[rs.getInt(1)], AccountType.values()[rs.getInt(2)]), accountId);
+        if(accounts.isEmpty()) {
+            throw new AccountManagerException(ACCOUNT_NOT_FOUND, accountId);
+        }
+        return accounts.get(0);
+    }
+
+    @Getter
+    private static final class StripedAccount {
+        private final int stripes;
+        private final Currency currency;
+        private final AccountType type;
+        private final AtomicIntegerArray claimed;
+
+        private StripedAccount(final int stripes, final Currency currency, final AccountType type) {
+            this.stripes = stripes;
+            this.currency = currency;
+            this.type = type;
+            this.claimed = new AtomicIntegerArray(stripes);
+        }
+
+        /*
+         * Takes the first unclaimed slot from a random start, released once the surrounding transaction completes.
+         * With every slot claimed the random start is shared.
+         */
+        private int claim() {
+            val start = ThreadLocalRandom.current().nextInt(stripes);
+            for(int i = 0; i < stripes; i++) {
+                val slot = (start + i) % stripes;
+                if(claimed.compareAndSet(slot, 0, 1)) {
+                    if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+                        claimed.set(slot, 0);
+                        return slot;
+                    }
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void afterCompletion(final int status) {
+                            claimed.set(slot, 0);
+                        }
+                    });
+                    return slot;
+                }
+            }
+            return start;
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.acmebank.account_manager.shared;
 
+/*
+ * Stored by ordinal, new currencies are appended. Every currency is held with Money.SCALE fraction digits.
+ */
 public enum Currency {
-    HKD, XXX
+    HKD, XXX, USD, EUR, GBP, CNY, SGD
 }
@@ -2,5 +2,12 @@ package com.acmebank.account_manager.shared;
 
 public class Endpoint {
     public static final String GET_ACCOUNT = "/account/{id}";
+    public static final String GET_ACCOUNT_TRANSACTIONS = "/account/{id}/transactions";
+    public static final String GET_ACCOUNT_STATEMENT = "/account/{id}/statement";
     public static final String TRANSFER = "/accounts/transfer";
+    public static final String TRANSFER_STATUS = "/accounts/transfer/{id}";
+    public static final String TRANSFER_BATCH = "/accounts/transfers/batch";
+    public static final String STANDING_ORDERS = "/accounts/standing-orders";
+    public static final String STANDING_ORDER = "/accounts/standing-orders/{id}";
+    public static final String IMPORT_ACCOUNTS = "/admin/accounts/import";
 }
@@ -2,18 +2,69 @@ package com.acmebank.account_manager.shared;
 
 import lombok.Getter;
 
+import java.util.ArrayList;
+
 @Getter
 public enum ErrorCode {
     GENERAL_ERROR(1000, "Service is busy or unavailable, please try again later."),
     ACCOUNT_NOT_FOUND(1001, "Specified account {0} not found!"),
     INSUFFICIENT_FUND(1002, "Insufficient fund in account {0}!"),
-    SAME_ACCOUNT(1003, "Cannot transfer from same account!");
+    SAME_ACCOUNT(1003, "Cannot transfer from same account!"),
+    INVALID_CURSOR(1004, "Invalid page cursor {0}!"),
+    INVALID_STATEMENT_FORMAT(1005, "Unsupported statement format {0}!"),
+    INVALID_AMOUNT(1006, "Amount {0} is out of range or has too many fraction digits!"),
+    FX_RATE_UNAVAILABLE(1007, "No exchange rate from {0} to {1}!"),
+    INVALID_CONSISTENCY(1008, "Unsupported read consistency {0}!"),
+    INVALID_TRANSFER_MODE(1009, "Unsupported transfer mode {0}!"),
+    TRANSFER_QUEUE_FULL(1010, "Too many transfers queued, please try again later."),
+    TRANSFER_NOT_FOUND(1011, "Specified transfer {0} not found!"),
+    STANDING_ORDER_NOT_FOUND(1012, "Specified standing order {0} not found!"),
+    TRANSFER_OUTCOME_UNKNOWN(1013, "Outcome of the transfer from account {0} is unknown, check its transactions before retrying!");
 
     final int code;
     final String msg;
+    /*
+     * msg split around its {n} placeholders once, fragments has one more entry than arguments.
+     */
+    private final String[] fragments;
+    private final int[] arguments;
 
     ErrorCode(final int code, final String msg) {
         this.code = code;
         this.msg = msg;
+        final ArrayList<String> fragments = new ArrayList<>();
+        final ArrayList<Integer> arguments = new ArrayList<>();
+        int from = 0;
+        int open;
+        while((open = msg.indexOf('{', from)) >= 0) {
+            final int close = msg.indexOf('}', open);
+            fragments.add(msg.substring(from, open));
+            arguments.add(Integer.parseInt(msg.substring(open + 1, close)));
+            from = close + 1;
+        }
+        fragments.add(msg.substring(from));
+        this.fragments = fragments.toArray(new String[0]);
+        this.arguments = arguments.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /*
+     * Same text as MessageFormat.format(msg, params) for these templates, which only hold plain {n} placeholders,
+     * without parsing the template per call. A message without placeholders is returned as is.
+     */
+    public String format(final String... params) {
+        if(arguments.length == 0) {
+            return msg;
+        }
+        final StringBuilder formatted = new StringBuilder(msg.length() + 16);
+        for(int i = 0; i < arguments.length; i++) {
+            formatted.append(fragments[i]);
+            final int argument = arguments[i];
+            if(argument < params.length) {
+                formatted.append(params[argument]);
+            } else {
+                formatted.append('{').append(argument).append('}');
+            }
+        }
+        return formatted.append(fragments[arguments.length]).toString();
     }
 }
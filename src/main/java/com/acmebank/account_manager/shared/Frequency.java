@@ -0,0 +1,30 @@
+package com.acmebank.account_manager.shared;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+public enum Frequency {
+    ONCE,
+    DAILY,
+    WEEKLY,
+    MONTHLY;
+
+    /*
+     * Time of run number run, counting from 0 at first, or null once there are no more runs. Runs are counted from
+     * the first in UTC rather than from the previous run, so a monthly order on the 31st comes back to the 31st.
+     */
+    public Instant runAt(final Instant first, final int run) {
+        final ZonedDateTime start = first.atZone(ZoneOffset.UTC);
+        switch(this) {
+            case DAILY:
+                return start.plusDays(run).toInstant();
+            case WEEKLY:
+                return start.plusWeeks(run).toInstant();
+            case MONTHLY:
+                return start.plusMonths(run).toInstant();
+            default:
+                return run == 0 ? first : null;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.acmebank.account_manager.shared;
+
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import lombok.EqualsAndHashCode;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+import static com.acmebank.account_manager.shared.ErrorCode.INVALID_AMOUNT;
+
+/*
+ * An amount held as a long count of minor units, SCALE matches the two fraction digits of the ledger columns and of HKD.
+ * Arithmetic is overflow checked and allocates nothing beyond the result, BigDecimal is only used where amounts
+ * enter or leave the service.
+ */
+@EqualsAndHashCode
+public final class Money implements Comparable<Money> {
+    public static final int SCALE = 2;
+    public static final Money ZERO = new Money(0);
+    private final long minorUnits;
+
+    private Money(final long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    public static Money ofMinorUnits(final long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    /*
+     * Rejects amounts with more fraction digits than SCALE or beyond the long range rather than rounding them.
+     */
+    public static Money of(final BigDecimal amount) {
+        try {
+            return ofMinorUnits(amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact());
+        } catch (ArithmeticException ae) {
+            throw new AccountManagerException(INVALID_AMOUNT, List.of(amount.toPlainString()));
+        }
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public Money plus(final Money other) {
+        try {
+            return ofMinorUnits(Math.addExact(minorUnits, other.minorUnits));
+        } catch (ArithmeticException ae) {
+            throw new AccountManagerException(INVALID_AMOUNT, List.of(toBigDecimal().add(other.toBigDecimal()).toPlainString()));
+        }
+    }
+
+    public Money minus(final Money other) {
+        try {
+            return ofMinorUnits(Math.subtractExact(minorUnits, other.minorUnits));
+        } catch (ArithmeticException ae) {
+            throw new AccountManagerException(INVALID_AMOUNT, List.of(toBigDecimal().subtract(other.toBigDecimal()).toPlainString()));
+        }
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    @Override
+    public int compareTo(final Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,9 @@
+package com.acmebank.account_manager.shared;
+
+/*
+ * How fresh a balance read has to be: STRONG reads the account row like a transfer would, EVENTUAL is served
+ * from the balance projection and may trail committed transfers by the projection lag.
+ */
+public enum ReadConsistency {
+    STRONG, EVENTUAL
+}
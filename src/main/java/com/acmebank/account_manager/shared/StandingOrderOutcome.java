@@ -0,0 +1,8 @@
+package com.acmebank.account_manager.shared;
+
+public enum StandingOrderOutcome {
+    RUNNING,
+    COMPLETED,
+    REJECTED,
+    RETRYING
+}
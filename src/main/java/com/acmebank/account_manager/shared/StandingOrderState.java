@@ -0,0 +1,7 @@
+package com.acmebank.account_manager.shared;
+
+public enum StandingOrderState {
+    ACTIVE,
+    FINISHED,
+    CANCELLED
+}
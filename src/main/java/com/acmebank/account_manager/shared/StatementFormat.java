@@ -0,0 +1,15 @@
+package com.acmebank.account_manager.shared;
+
+import lombok.Getter;
+
+@Getter
+public enum StatementFormat {
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    final String mediaType;
+
+    StatementFormat(final String mediaType) {
+        this.mediaType = mediaType;
+    }
+}
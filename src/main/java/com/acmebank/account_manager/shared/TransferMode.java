@@ -0,0 +1,6 @@
+package com.acmebank.account_manager.shared;
+
+public enum TransferMode {
+    SYNC,
+    ASYNC
+}
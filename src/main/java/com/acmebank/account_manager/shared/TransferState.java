@@ -0,0 +1,9 @@
+package com.acmebank.account_manager.shared;
+
+public enum TransferState {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    REJECTED,
+    FAILED
+}
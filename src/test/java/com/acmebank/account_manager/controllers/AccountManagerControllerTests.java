@@ -1,46 +1,73 @@
 package com.acmebank.account_manager.controllers;
 
+import com.acmebank.account_manager.data.models.requests.BatchTransferRequest;
+import com.acmebank.account_manager.data.models.requests.StandingOrderRequest;
 import com.acmebank.account_manager.data.models.requests.TransferRequest;
 import com.acmebank.account_manager.data.models.responses.AccountBalance;
+import com.acmebank.account_manager.data.models.responses.BatchTransferResult;
 import com.acmebank.account_manager.data.models.responses.ErrorResponse;
 import com.acmebank.account_manager.data.models.responses.Transaction;
+import com.acmebank.account_manager.data.models.responses.StandingOrderDetails;
+import com.acmebank.account_manager.data.models.responses.TransactionHistory;
+import com.acmebank.account_manager.data.models.responses.TransactionHistoryEntry;
+import com.acmebank.account_manager.data.models.responses.TransferStatus;
 import com.acmebank.account_manager.exceptions.AccountManagerException;
 import com.acmebank.account_manager.services.AccountManager;
+import com.acmebank.account_manager.shared.StandingOrderState;
+import com.acmebank.account_manager.shared.TransferState;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.val;
 import org.hibernate.exception.LockAcquisitionException;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
+import java.net.URI;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 
 import static com.acmebank.account_manager.shared.AccountType.CURRENT;
 import static com.acmebank.account_manager.shared.AccountType.SAVING;
 import static com.acmebank.account_manager.shared.Currency.HKD;
 import static com.acmebank.account_manager.shared.Endpoint.GET_ACCOUNT;
+import static com.acmebank.account_manager.shared.Endpoint.GET_ACCOUNT_STATEMENT;
+import static com.acmebank.account_manager.shared.Endpoint.GET_ACCOUNT_TRANSACTIONS;
+import static com.acmebank.account_manager.shared.Endpoint.STANDING_ORDER;
+import static com.acmebank.account_manager.shared.Endpoint.STANDING_ORDERS;
 import static com.acmebank.account_manager.shared.Endpoint.TRANSFER;
+import static com.acmebank.account_manager.shared.Endpoint.TRANSFER_BATCH;
+import static com.acmebank.account_manager.shared.Endpoint.TRANSFER_STATUS;
 import static com.acmebank.account_manager.shared.ErrorCode.*;
+import static com.acmebank.account_manager.shared.Frequency.MONTHLY;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.HttpStatus.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(AccountManagerController.class)
@@ -75,17 +102,87 @@ public class AccountManagerControllerTests {
     @ParameterizedTest
     @MethodSource("getAccountBalanceParamsProvider")
     void givenAccountServicesController_whenCallsGetAccountBalance_thenExpectedMatched(final long accountId, final HttpStatus httpStatus, final Object responseObject) {
-        when(accountManager.getAccountBalance(currentAccountId))
+        when(accountManager.getAccountBalance(currentAccountId, null))
                 .thenReturn(ResponseEntity.ok(currentAccountBalance));
         doThrow(invalidAccountManagerException)
-                .when(accountManager).getAccountBalance(invalidAccountId);
+                .when(accountManager).getAccountBalance(invalidAccountId, null);
         doThrow(new LockAcquisitionException("Account Locked!", new SQLException()))
-                .when(accountManager).getAccountBalance(lockAccountId);
+                .when(accountManager).getAccountBalance(lockAccountId, null);
         mockMvc.perform(get(GET_ACCOUNT, accountId))
                 .andExpect(status().is(httpStatus.value()))
                 .andExpect(content().json(mapper.writeValueAsString(responseObject)));
     }
 
+    /*
+     * Only PreEncodedJsonHttpMessageConverter sends a Content-Length, Jackson's converter streams the body.
+     */
+    @Test
+    @SneakyThrows
+    void givenAccountBalance_whenCallsGetAccountBalance_thenWrittenFromPreEncodedJson() {
+        when(accountManager.getAccountBalance(currentAccountId, null)).thenReturn(ResponseEntity.ok(currentAccountBalance));
+        val expected = mapper.writeValueAsString(currentAccountBalance);
+        mockMvc.perform(get(GET_ACCOUNT, currentAccountId))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, expected.length()))
+                .andExpect(content().string(expected));
+    }
+
+    @Test
+    @SneakyThrows
+    void givenConsistencyParameterOrHeader_whenCallsGetAccountBalance_thenPassedOnWithParameterFirst() {
+        when(accountManager.getAccountBalance(currentAccountId, "eventual")).thenReturn(ResponseEntity.ok()
+                .header("X-Projection-Lag-Millis", "3").body(currentAccountBalance));
+        when(accountManager.getAccountBalance(currentAccountId, "strong")).thenReturn(ResponseEntity.ok(currentAccountBalance));
+        mockMvc.perform(get(GET_ACCOUNT, currentAccountId).param("consistency", "eventual"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Projection-Lag-Millis", "3"));
+        mockMvc.perform(get(GET_ACCOUNT, currentAccountId).header(AccountManagerController.CONSISTENCY_HEADER, "eventual"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Projection-Lag-Millis", "3"));
+        mockMvc.perform(get(GET_ACCOUNT, currentAccountId).param("consistency", "strong").header(AccountManagerController.CONSISTENCY_HEADER, "eventual"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Projection-Lag-Millis"));
+    }
+
+    static Stream<Arguments> getTransactionHistoryParamsProvider() {
+        val history = new TransactionHistory(List.of(new TransactionHistoryEntry(
+                1L, currentAccountId, savingAccountId, BigDecimal.valueOf(100), HKD, Timestamp.valueOf(LocalDateTime.now()))), "next");
+        return Stream.of(
+                Arguments.of(currentAccountId, OK, history),
+                Arguments.of(invalidAccountId, BAD_REQUEST, invalidAccountErrorResponse)
+        );
+    }
+
+    @SneakyThrows
+    @ParameterizedTest
+    @MethodSource("getTransactionHistoryParamsProvider")
+    void givenAccountServicesController_whenCallsGetTransactionHistory_thenExpectedMatched(final long accountId, final HttpStatus httpStatus, final Object responseObject) {
+        if(responseObject instanceof TransactionHistory) {
+            when(accountManager.getTransactionHistory(accountId, "cursor", 5)).thenReturn(ResponseEntity.ok((TransactionHistory) responseObject));
+        } else {
+            doThrow(invalidAccountManagerException).when(accountManager).getTransactionHistory(accountId, "cursor", 5);
+        }
+        mockMvc.perform(get(GET_ACCOUNT_TRANSACTIONS, accountId).param("cursor", "cursor").param("size", "5"))
+                .andExpect(status().is(httpStatus.value()))
+                .andExpect(content().json(mapper.writeValueAsString(responseObject)));
+    }
+
+    @Test
+    @SneakyThrows
+    void givenAccountServicesController_whenCallsGetStatement_thenBodyStreamed() {
+        val csv = "transactionId,createdAt,counterpartyAccountId,amount,currency,balance\n";
+        when(accountManager.getStatement(currentAccountId, "csv", null, null))
+                .thenReturn(ResponseEntity.ok().contentType(org.springframework.http.MediaType.parseMediaType("text/csv"))
+                        .body(outputStream -> outputStream.write(csv.getBytes())));
+        val result = mockMvc.perform(get(GET_ACCOUNT_STATEMENT, currentAccountId).param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(content().string(csv));
+    }
+
     static Stream<Arguments> getTransferResponseProvider() {
         val validAmount = BigDecimal.valueOf(100.00);
         val validRequest = new TransferRequest(currentAccountId, savingAccountId, validAmount, HKD.name());
@@ -113,9 +210,113 @@ public class AccountManagerControllerTests {
     @ParameterizedTest
     @MethodSource("getTransferResponseProvider")
     void givenAccountServicesController_whenCallsPostTransfer_thenExpectedMatched(final TransferRequest request, final ResponseEntity response) {
-        when(accountManager.transfer(request)).thenReturn(response);
+        when(accountManager.transfer(request, null)).thenReturn(response);
         mockMvc.perform(post(TRANSFER).content(mapper.writeValueAsString(request)).contentType(APPLICATION_JSON))
                 .andExpect(status().is(response.getStatusCodeValue()))
                 .andExpect(content().json(mapper.writeValueAsString(response.getBody())));
     }
+
+    @Test
+    @SneakyThrows
+    void givenAsyncMode_whenCallsPostTransfer_thenAcceptedOrTurnedAwayWhenQueueFull() {
+        val request = new TransferRequest(currentAccountId, savingAccountId, BigDecimal.valueOf(100), HKD.name());
+        val queued = TransferStatus.of("c0ffee", TransferState.QUEUED);
+        doReturn(ResponseEntity.accepted().location(URI.create("/accounts/transfer/c0ffee")).body(queued))
+                .doThrow(AccountManagerException.of(TRANSFER_QUEUE_FULL))
+                .when(accountManager).transfer(request, "async");
+        mockMvc.perform(post(TRANSFER).param("mode", "async").content(mapper.writeValueAsString(request)).contentType(APPLICATION_JSON))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "/accounts/transfer/c0ffee"))
+                .andExpect(content().json(mapper.writeValueAsString(queued)));
+        mockMvc.perform(post(TRANSFER).param("mode", "async").content(mapper.writeValueAsString(request)).contentType(APPLICATION_JSON))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+                .andExpect(content().json(mapper.writeValueAsString(new ErrorResponse(TRANSFER_QUEUE_FULL, new String[]{}))));
+    }
+
+    @Test
+    @SneakyThrows
+    void givenTransferId_whenCallsGetTransferStatus_thenStatusOrNotFound() {
+        val completed = new TransferStatus("c0ffee", TransferState.COMPLETED, new Transaction(
+                1L,
+                currentAccountId,
+                AccountBalance.of(balance, HKD, CURRENT),
+                savingAccountId,
+                AccountBalance.of(balance, HKD, SAVING),
+                Timestamp.valueOf(LocalDateTime.now())), null);
+        when(accountManager.getTransferStatus("c0ffee")).thenReturn(ResponseEntity.ok(completed));
+        when(accountManager.getTransferStatus("unknown")).thenThrow(new AccountManagerException(TRANSFER_NOT_FOUND, List.of("unknown")));
+        mockMvc.perform(get(TRANSFER_STATUS, "c0ffee"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(completed)));
+        mockMvc.perform(get(TRANSFER_STATUS, "unknown"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json(mapper.writeValueAsString(new ErrorResponse(TRANSFER_NOT_FOUND, new String[]{"unknown"}))));
+    }
+
+    static Stream<Arguments> getTransferBatchResponseProvider() {
+        val validAmount = BigDecimal.valueOf(100.00);
+        val validRequest = new TransferRequest(currentAccountId, savingAccountId, validAmount, HKD.name());
+        val insufficientFundRequest = new TransferRequest(insufficientFundAccountId, savingAccountId, validAmount, HKD.name());
+        val validResponse = new Transaction(
+                1L,
+                currentAccountId,
+                AccountBalance.of(balance.subtract(validAmount), HKD, CURRENT),
+                savingAccountId,
+                AccountBalance.of(balance.add(validAmount), HKD, SAVING),
+                Timestamp.valueOf(LocalDateTime.now()));
+        val insufficientFundException = new AccountManagerException(INSUFFICIENT_FUND, List.of(Long.toString(insufficientFundAccountId)));
+        val invalidAmountRequest = new TransferRequest(currentAccountId, savingAccountId, BigDecimal.ONE, HKD.name());
+        return Stream.of(
+                Arguments.of(new BatchTransferRequest(List.of(validRequest, insufficientFundRequest)), ResponseEntity.ok(List.of(
+                        BatchTransferResult.completed(0, validResponse),
+                        BatchTransferResult.rejected(1, insufficientFundException)))),
+                Arguments.of(new BatchTransferRequest(List.of(validRequest, invalidAmountRequest)), ResponseEntity.status(BAD_REQUEST).body(
+                        Map.of("transfers[1].amount", "Minimum transfer amount is HKD 100!"))),
+                Arguments.of(new BatchTransferRequest(List.of()), ResponseEntity.status(BAD_REQUEST).body(
+                        Map.of("transfers", "A batch should contain 1 to 10000 transfers!")))
+        );
+    }
+
+    @SneakyThrows
+    @ParameterizedTest
+    @MethodSource("getTransferBatchResponseProvider")
+    void givenAccountServicesController_whenCallsPostTransferBatch_thenExpectedMatched(final BatchTransferRequest request, final ResponseEntity response) {
+        when(accountManager.transferBatch(request)).thenReturn(response);
+        mockMvc.perform(post(TRANSFER_BATCH).content(mapper.writeValueAsString(request)).contentType(APPLICATION_JSON))
+                .andExpect(status().is(response.getStatusCodeValue()))
+                .andExpect(content().json(mapper.writeValueAsString(response.getBody())));
+    }
+
+    @Test
+    @SneakyThrows
+    void givenStandingOrder_whenCreatedReadAndCancelled_thenDetailsReturnedAndInvalidRequestsRejected() {
+        val firstRunAt = Instant.parse("2030-01-31T00:00:00Z");
+        val request = new StandingOrderRequest(currentAccountId, savingAccountId, BigDecimal.valueOf(100), HKD.name(), firstRunAt, MONTHLY.name());
+        val active = new StandingOrderDetails(7L, currentAccountId, savingAccountId, BigDecimal.valueOf(100), HKD, MONTHLY,
+                firstRunAt, firstRunAt, 0, StandingOrderState.ACTIVE, null, null, null, null);
+        val cancelled = new StandingOrderDetails(7L, currentAccountId, savingAccountId, BigDecimal.valueOf(100), HKD, MONTHLY,
+                firstRunAt, firstRunAt, 0, StandingOrderState.CANCELLED, null, null, null, null);
+        when(accountManager.createStandingOrder(request)).thenReturn(ResponseEntity.created(URI.create("/accounts/standing-orders/7")).body(active));
+        when(accountManager.getStandingOrder(7L)).thenReturn(ResponseEntity.ok(active));
+        when(accountManager.getStandingOrder(8L)).thenThrow(new AccountManagerException(STANDING_ORDER_NOT_FOUND, List.of("8")));
+        when(accountManager.cancelStandingOrder(7L)).thenReturn(ResponseEntity.ok(cancelled));
+        mockMvc.perform(post(STANDING_ORDERS).content(mapper.writeValueAsString(request)).contentType(APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(HttpHeaders.LOCATION, "/accounts/standing-orders/7"))
+                .andExpect(content().json(mapper.writeValueAsString(active)));
+        mockMvc.perform(post(STANDING_ORDERS).contentType(APPLICATION_JSON).content(mapper.writeValueAsString(
+                        new StandingOrderRequest(currentAccountId, savingAccountId, BigDecimal.valueOf(100), HKD.name(), null, null))))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json(mapper.writeValueAsString(Map.of("firstRunAt", "First run time is required!"))));
+        mockMvc.perform(get(STANDING_ORDER, 7L))
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(active)));
+        mockMvc.perform(get(STANDING_ORDER, 8L))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json(mapper.writeValueAsString(new ErrorResponse(STANDING_ORDER_NOT_FOUND, new String[]{"8"}))));
+        mockMvc.perform(delete(STANDING_ORDER, 7L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("CANCELLED"));
+    }
 }
@@ -0,0 +1,123 @@
+package com.acmebank.account_manager.data.converters;
+
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.data.models.responses.AccountBalance;
+import com.acmebank.account_manager.data.models.responses.ErrorResponse;
+import com.acmebank.account_manager.data.models.responses.Transaction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.JsonTest;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.acmebank.account_manager.shared.AccountType.CURRENT;
+import static com.acmebank.account_manager.shared.AccountType.SAVING;
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_XML;
+
+@JsonTest
+public class PreEncodedJsonHttpMessageConverterTests {
+    @Autowired
+    private ObjectMapper objectMapper;
+    private PreEncodedJsonHttpMessageConverter converter;
+
+    @BeforeEach
+    void createConverter() {
+        converter = new PreEncodedJsonHttpMessageConverter(objectMapper);
+    }
+
+    static Stream<Arguments> responsesProvider() {
+        return Stream.of(
+                Arguments.of(AccountBalance.of(BigDecimal.valueOf(1000000), HKD, CURRENT)),
+                Arguments.of(AccountBalance.of(new BigDecimal("-0.05"), HKD, SAVING)),
+                Arguments.of(AccountBalance.of(new BigDecimal("0.0000001"), HKD, SAVING)),
+                Arguments.of(AccountBalance.of(new BigDecimal("1E+3"), null, null)),
+                Arguments.of(AccountBalance.of((BigDecimal) null, HKD, CURRENT)),
+                Arguments.of(transaction(0L)),
+                Arguments.of(transaction(1700000000123L)),
+                Arguments.of(transaction(951782400000L)),
+                Arguments.of(transaction(1709164799999L)),
+                Arguments.of(transaction(253402300799999L)),
+                Arguments.of(transaction(253402300800000L)),
+                Arguments.of(transaction(-1L)),
+                Arguments.of(new Transaction(Long.MIN_VALUE, -1L, null, Long.MAX_VALUE, null, null)));
+    }
+
+    @SneakyThrows
+    @ParameterizedTest
+    @MethodSource("responsesProvider")
+    void givenResponse_whenWritten_thenSameBytesAsObjectMapper(final Object response) {
+        assertThat(converter.canWrite(response.getClass(), APPLICATION_JSON)).isTrue();
+        val outputMessage = new MockHttpOutputMessage();
+        converter.write(response, APPLICATION_JSON, outputMessage);
+        assertThat(outputMessage.getBodyAsString(StandardCharsets.UTF_8)).isEqualTo(objectMapper.writeValueAsString(response));
+        assertThat(outputMessage.getHeaders().getContentLength()).isEqualTo(outputMessage.getBodyAsBytes().length);
+    }
+
+    @SneakyThrows
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"fromAccountId\":88888888,\"toAccountId\":12345678,\"amount\":100,\"currency\":\"HKD\"}",
+            " {\n \"amount\" : 100.50 , \"toAccountId\": 12345678, \"fromAccountId\" : 88888888\n} ",
+            "{\"fromAccountId\":-1,\"toAccountId\":0,\"amount\":1e2,\"currency\":null}",
+            "{\"fromAccountId\":88888888,\"toAccountId\":12345678,\"amount\":null,\"currency\":\"USD\"}",
+            "{}",
+            "{\"fromAccountId\":\"88888888\",\"toAccountId\":12345678,\"amount\":\"100\",\"currency\":\"HKD\"}",
+            "{\"fromAccountId\":88888888.0,\"toAccountId\":12345678,\"amount\":100,\"currency\":\"H\\u004bD\"}",
+            "{\"fromAccountId\":88888888,\"toAccountId\":12345678,\"amount\":100,\"note\":\"rent\"}",
+            "{\"fromAccountId\":1,\"fromAccountId\":2,\"toAccountId\":12345678,\"amount\":100}"
+    })
+    void givenTransferRequestJson_whenRead_thenSameAsObjectMapper(final String json) {
+        assertThat(converter.canRead(TransferRequest.class, APPLICATION_JSON)).isTrue();
+        val transferRequest = converter.read(TransferRequest.class, new MockHttpInputMessage(json.getBytes(StandardCharsets.UTF_8)));
+        assertThat(fields((TransferRequest) transferRequest)).isEqualTo(fields(objectMapper.readValue(json, TransferRequest.class)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "{", "{\"fromAccountId\":01}", "{\"amount\":1.}", "[1]", "{\"toAccountId\":1,}"})
+    void givenMalformedJson_whenRead_thenNotReadable(final String json) {
+        assertThrows(HttpMessageNotReadableException.class,
+                () -> converter.read(TransferRequest.class, new MockHttpInputMessage(json.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void givenOtherTypeOrMediaType_whenCheckedByConverter_thenLeftToJackson() {
+        assertThat(converter.canWrite(ErrorResponse.class, APPLICATION_JSON)).isFalse();
+        assertThat(converter.canRead(AccountBalance.class, APPLICATION_JSON)).isFalse();
+        assertThat(converter.canWrite(AccountBalance.class, APPLICATION_XML)).isFalse();
+        assertThat(converter.canRead(TransferRequest.class, new org.springframework.http.MediaType(APPLICATION_JSON, StandardCharsets.UTF_16))).isFalse();
+    }
+
+    /*
+     * getCurrency() rejects unknown names, so the raw field is compared.
+     */
+    private static List<Object> fields(final TransferRequest transferRequest) {
+        return Arrays.asList(transferRequest.getFromAccountId(), transferRequest.getToAccountId(), transferRequest.getAmount(),
+                ReflectionTestUtils.getField(transferRequest, "currency"));
+    }
+
+    private static Transaction transaction(final long createdAt) {
+        return new Transaction(1000001L, 12345678L, AccountBalance.of(new BigDecimal("999900.00"), HKD, CURRENT),
+                88888888L, AccountBalance.of(new BigDecimal("1000100.00"), HKD, SAVING), new Timestamp(createdAt));
+    }
+}
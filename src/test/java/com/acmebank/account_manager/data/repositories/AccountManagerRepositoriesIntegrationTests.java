@@ -4,6 +4,7 @@ import com.acmebank.account_manager.data.entities.Account;
 import com.acmebank.account_manager.data.entities.Transaction;
 import com.acmebank.account_manager.shared.AccountType;
 import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
 import lombok.RequiredArgsConstructor;
 import lombok.val;
 import org.junit.jupiter.api.Order;
@@ -39,12 +40,13 @@ public class AccountManagerRepositoriesIntegrationTests {
         val account = Account.builder()
                 .id(accountId)
                 .currency(currency)
-                .balance(balance)
-                .type(type).build();
+                .balance(Money.of(balance))
+                .type(type)
+                .version(accountRepository.findById(accountId).map(Account::getVersion).orElse(null)).build();
         val storedAccount = accountRepository.save(account);
         assertThat(storedAccount.getId()).isEqualTo(accountId);
         assertThat(storedAccount.getCurrency()).isEqualTo(currency);
-        assertThat(storedAccount.getBalance()).isEqualTo(balance);
+        assertThat(storedAccount.getBalance()).isEqualTo(Money.of(balance));
         assertThat(storedAccount.getType()).isEqualTo(type);
     }
 
@@ -57,12 +59,12 @@ public class AccountManagerRepositoriesIntegrationTests {
         val transaction = Transaction.builder()
                 .fromAccount(fromAccount.orElseThrow())
                 .toAccount(toAccount.orElseThrow())
-                .amount(amount)
+                .amount(Money.of(amount))
                 .currency(HKD).build();
         val storedTransaction = transactionRepository.save(transaction);
         assertThat(storedTransaction.getFromAccount()).isEqualTo(fromAccount.orElseThrow());
         assertThat(storedTransaction.getToAccount()).isEqualTo(toAccount.orElseThrow());
-        assertThat(storedTransaction.getAmount()).isEqualTo(amount);
+        assertThat(storedTransaction.getAmount()).isEqualTo(Money.of(amount));
         assertThat(storedTransaction.getCurrency()).isEqualTo(HKD);
     }
 }
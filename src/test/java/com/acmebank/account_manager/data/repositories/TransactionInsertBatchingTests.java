@@ -0,0 +1,131 @@
+package com.acmebank.account_manager.data.repositories;
+
+import com.acmebank.account_manager.data.models.requests.BatchTransferRequest;
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.services.AccountManager;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.acmebank.account_manager.data.entities.Transaction.ID_ALLOCATION_SIZE;
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.jdbc.batch_size=" + TransactionInsertBatchingTests.batchSize)
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class TransactionInsertBatchingTests {
+    static final int batchSize = 100;
+    static final AtomicInteger transactionInsertRoundTrips = new AtomicInteger();
+    static final AtomicInteger sequenceRoundTrips = new AtomicInteger();
+    final AccountManager accountManager;
+
+    @Test
+    void givenBatchOfTransfers_whenTransferBatch_thenTransactionsInsertedInJdbcBatches() {
+        val transfers = 250;
+        val requests = new ArrayList<TransferRequest>();
+        for(int i = 0; i < transfers; i++) {
+            requests.add(i % 2 == 0
+                    ? new TransferRequest(12345678L, 88888888L, BigDecimal.ONE, HKD.name())
+                    : new TransferRequest(88888888L, 12345678L, BigDecimal.ONE, HKD.name()));
+        }
+        transactionInsertRoundTrips.set(0);
+        sequenceRoundTrips.set(0);
+
+        val results = accountManager.transferBatch(new BatchTransferRequest(requests)).getBody();
+
+        assertThat(results).hasSize(transfers).allMatch(result -> result.getError() == null);
+        assertThat(results).extracting(result -> result.getTransaction().getTransactionId()).doesNotHaveDuplicates();
+        assertThat(transactionInsertRoundTrips.get()).isEqualTo((transfers + batchSize - 1) / batchSize);
+        assertThat(sequenceRoundTrips.get()).isLessThanOrEqualTo(transfers / ID_ALLOCATION_SIZE + 2);
+    }
+
+    @Test
+    void givenSingleTransfer_whenTransferred_thenInsertFlushedAndCreationTimeReturned() {
+        transactionInsertRoundTrips.set(0);
+
+        val transaction = accountManager.transfer(new TransferRequest(12345678L, 88888888L, BigDecimal.ONE, HKD.name())).getBody();
+
+        assertThat(transaction.getCreatedAt()).isNotNull();
+        assertThat(transactionInsertRoundTrips.get()).isEqualTo(1);
+    }
+
+    /*
+     * Counts executions of transaction inserts and sequence calls on every pooled connection.
+     */
+    @TestConfiguration
+    static class RoundTripCountingConfiguration {
+        @Bean
+        static BeanPostProcessor roundTripCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(final Object bean, final String beanName) {
+                    return bean instanceof DataSource ? new RoundTripCountingDataSource((DataSource) bean) : bean;
+                }
+            };
+        }
+    }
+
+    static class RoundTripCountingDataSource extends DelegatingDataSource {
+        RoundTripCountingDataSource(final DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return countingConnection(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(final String username, final String password) throws SQLException {
+            return countingConnection(super.getConnection(username, password));
+        }
+
+        private static Connection countingConnection(final Connection connection) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                val result = invoke(connection, method, args);
+                if(result instanceof PreparedStatement && args != null && args[0] instanceof String) {
+                    return countingStatement((PreparedStatement) result, ((String) args[0]).toLowerCase(Locale.ROOT));
+                }
+                return result;
+            });
+        }
+
+        private static PreparedStatement countingStatement(final PreparedStatement statement, final String sql) {
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                if(method.getName().startsWith("execute")) {
+                    if(sql.startsWith("insert into \"transaction\"")) {
+                        transactionInsertRoundTrips.incrementAndGet();
+                    } else if(sql.contains("next value for")) {
+                        sequenceRoundTrips.incrementAndGet();
+                    }
+                }
+                return invoke(statement, method, args);
+            });
+        }
+
+        private static Object invoke(final Object target, final java.lang.reflect.Method method, final Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException ite) {
+                throw ite.getCause();
+            }
+        }
+    }
+}
@@ -3,15 +3,20 @@ package com.acmebank.account_manager.exceptions;
 import com.acmebank.account_manager.data.models.responses.ErrorResponse;
 import com.acmebank.account_manager.shared.ErrorCode;
 import lombok.val;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.text.MessageFormat;
 import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
+import static com.acmebank.account_manager.shared.ErrorCode.INSUFFICIENT_FUND;
+import static com.acmebank.account_manager.shared.ErrorCode.SAME_ACCOUNT;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class AccountManagerExceptionTests {
@@ -31,4 +36,22 @@ public class AccountManagerExceptionTests {
             params.forEach(m -> assertThat(errorResponse.getMsg()).contains(m));
         }
     }
+
+    @ParameterizedTest
+    @EnumSource(ErrorCode.class)
+    void givenErrorCode_whenFormatted_thenSameAsMessageFormat(final ErrorCode code) {
+        assertThat(code.format("12345678")).isEqualTo(MessageFormat.format(code.getMsg(), "12345678"));
+        assertThat(code.format()).isEqualTo(MessageFormat.format(code.getMsg(), new Object[0]));
+        assertThat(new AccountManagerException(code, 12345678L).getMessage()).isEqualTo(MessageFormat.format(code.getMsg(), "12345678"));
+    }
+
+    @Test
+    void givenRejection_whenThrown_thenNoStackTraceCaptured() {
+        val exception = new AccountManagerException(INSUFFICIENT_FUND, 12345678L);
+        assertThat(exception.getStackTrace()).isEmpty();
+        assertThat(exception.getParams()).containsExactly("12345678");
+        assertThat(AccountManagerException.of(SAME_ACCOUNT)).isSameAs(AccountManagerException.of(SAME_ACCOUNT));
+        assertThat(AccountManagerException.of(SAME_ACCOUNT).getStackTrace()).isEmpty();
+        assertThat(AccountManagerException.of(SAME_ACCOUNT).getParamsArray()).isEmpty();
+    }
 }
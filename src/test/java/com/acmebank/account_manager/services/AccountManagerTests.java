@@ -1,12 +1,15 @@
 package com.acmebank.account_manager.services;
 
 import com.acmebank.account_manager.data.entities.Account;
+import com.acmebank.account_manager.data.models.requests.BatchTransferRequest;
 import com.acmebank.account_manager.data.models.requests.TransferRequest;
 import com.acmebank.account_manager.data.models.responses.AccountBalance;
 import com.acmebank.account_manager.data.models.responses.Transaction;
 import com.acmebank.account_manager.data.repositories.AccountRepository;
+import com.acmebank.account_manager.data.repositories.TransactionRepository;
 import com.acmebank.account_manager.exceptions.AccountManagerException;
 import com.acmebank.account_manager.shared.ErrorCode;
+import com.acmebank.account_manager.shared.Money;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
@@ -19,7 +22,11 @@ import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.sql.Timestamp;
@@ -45,14 +52,21 @@ import static org.springframework.http.HttpStatus.OK;
 public class AccountManagerTests {
     final AccountManager accountManager;
     final AccountRepository accountRepository;
+    final TransactionRepository transactionRepository;
+    final JdbcTemplate jdbcTemplate;
+    final PlatformTransactionManager transactionManager;
     static final BigDecimal balance = BigDecimal.valueOf(1000000);
-    static final Account currentAccount = Account.builder().id(12345678L).balance(balance).currency(HKD).type(CURRENT).build();
-    static final Account savingAccount = Account.builder().id(88888888L).balance(balance).currency(HKD).type(SAVING).build();
+    static final Account currentAccount = Account.builder().id(12345678L).balance(Money.of(balance)).currency(HKD).type(CURRENT).build();
+    static final Account savingAccount = Account.builder().id(88888888L).balance(Money.of(balance)).currency(HKD).type(SAVING).build();
     static final long accountNotFoundAccountId = 123456789L;
 
     @BeforeEach
     void setup() {
-        accountRepository.saveAllAndFlush(List.of(currentAccount, savingAccount));
+        accountRepository.saveAllAndFlush(List.of(reset(currentAccount), reset(savingAccount)));
+    }
+
+    private Account reset(final Account account) {
+        return account.toBuilder().version(accountRepository.findById(account.getId()).orElseThrow().getVersion()).build();
     }
 
     static Stream<Arguments> accountProvider() {
@@ -88,9 +102,9 @@ public class AccountManagerTests {
                                new Transaction(
                                        1L,
                                        currentAccount.getId(),
-                                       AccountBalance.of(currentAccount.getBalance().subtract(amount), currentAccount.getCurrency(), currentAccount.getType()),
+                                       AccountBalance.of(currentAccount.getBalance().minus(Money.of(amount)), currentAccount.getCurrency(), currentAccount.getType()),
                                        savingAccount.getId(),
-                                       AccountBalance.of(savingAccount.getBalance().add(amount), savingAccount.getCurrency(), savingAccount.getType()),
+                                       AccountBalance.of(savingAccount.getBalance().plus(Money.of(amount)), savingAccount.getCurrency(), savingAccount.getType()),
                                        Timestamp.valueOf(LocalDateTime.now()))), null),
                 Arguments.of(new TransferRequest(accountNotFoundAccountId, savingAccount.getId(), amount, HKD.name()), null, ACCOUNT_NOT_FOUND),
                 Arguments.of(new TransferRequest(currentAccount.getId(), savingAccount.getId(), amount, XXX.name()), null, ACCOUNT_NOT_FOUND),
@@ -127,18 +141,28 @@ public class AccountManagerTests {
         val currentToSavingRequest = new TransferRequest(currentAccount.getId(), savingAccount.getId(), amount, HKD.name());
         val numberOfThreads = 2;
         ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+        CountDownLatch start = new CountDownLatch(1);
         CountDownLatch latch = new CountDownLatch(numberOfThreads);
         for (int i = numberOfThreads; i > 0; i--) {
             executorService.execute(() -> {
                 try {
+                    start.await();
                     accountManager.transfer(currentToSavingRequest);
-                } catch (LockAcquisitionException lae) {
-                    log.error("Encountered LockAcquisitionException {}, it seems there is concurrency occurred in database.", lae);
+                } catch (LockAcquisitionException | ConcurrencyFailureException e) {
+                    log.error("Encountered {}, it seems there is concurrency occurred in database.", e.getClass().getSimpleName(), e);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
                 } finally {
                     latch.countDown();
                 }
             });
         }
+        // both transfers queue on a row lock held here, so they are guaranteed to overlap once it is released
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.queryForObject("SELECT \"balance\" FROM \"account\" WHERE \"id\" = ? FOR UPDATE", BigDecimal.class, currentAccount.getId());
+            start.countDown();
+            awaitBlockedSessions(numberOfThreads);
+        });
         latch.await();
         val currentAccountBalance = accountManager.getAccountBalance(currentAccount.getId());
         val savingAccountBalance = accountManager.getAccountBalance(savingAccount.getId());
@@ -149,4 +173,55 @@ public class AccountManagerTests {
         assertThat(currentBalanceAmount.compareTo(balance.subtract(amount))).isEqualTo(0);
         assertThat(savingBalanceAmount.compareTo(balance.add(amount))).isEqualTo(0);
     }
+
+    @Test
+    void givenAccountService_whenTransferBatch_thenEveryItemReportedAndOnlyValidLegsApplied() {
+        val amount = BigDecimal.valueOf(100);
+        val transactionCount = transactionRepository.count();
+        val batch = new BatchTransferRequest(List.of(
+                new TransferRequest(currentAccount.getId(), savingAccount.getId(), amount, HKD.name()),
+                new TransferRequest(currentAccount.getId(), savingAccount.getId(), balance, HKD.name()),
+                new TransferRequest(accountNotFoundAccountId, savingAccount.getId(), amount, HKD.name()),
+                new TransferRequest(savingAccount.getId(), savingAccount.getId(), amount, HKD.name()),
+                new TransferRequest(savingAccount.getId(), currentAccount.getId(), amount.add(amount), HKD.name())));
+        val results = accountManager.transferBatch(batch).getBody();
+
+        assertThat(results).hasSize(5);
+        assertThat(results.get(0).getError()).isNull();
+        assertThat(results.get(0).getTransaction().getFromAccountBalance().getBalance()).isEqualByComparingTo(balance.subtract(amount));
+        assertThat(results.get(1).getError().getCode()).isEqualTo(INSUFFICIENT_FUND.getCode());
+        assertThat(results.get(2).getError().getCode()).isEqualTo(ACCOUNT_NOT_FOUND.getCode());
+        assertThat(results.get(3).getError().getCode()).isEqualTo(SAME_ACCOUNT.getCode());
+        assertThat(results.get(4).getTransaction().getToAccountBalance().getBalance()).isEqualByComparingTo(balance.add(amount));
+        assertThat(results.get(4).getTransaction().getTransactionId()).isGreaterThan(results.get(0).getTransaction().getTransactionId());
+        assertThat(transactionRepository.count()).isEqualTo(transactionCount + 2);
+        assertThat(accountManager.getAccountBalance(currentAccount.getId()).getBody().getBalance()).isEqualByComparingTo(balance.add(amount));
+        assertThat(accountManager.getAccountBalance(savingAccount.getId()).getBody().getBalance()).isEqualByComparingTo(balance.subtract(amount));
+    }
+
+    @Test
+    @SneakyThrows
+    void givenAccountService_whenOppositeBatchesRunConcurrently_thenNoDeadlockAndTotalAmountKept() {
+        val amount = BigDecimal.valueOf(100);
+        val currentToSaving = new BatchTransferRequest(List.of(new TransferRequest(currentAccount.getId(), savingAccount.getId(), amount, HKD.name())));
+        val savingToCurrent = new BatchTransferRequest(List.of(new TransferRequest(savingAccount.getId(), currentAccount.getId(), amount, HKD.name())));
+        val rounds = 20;
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        val first = executorService.submit(() -> { for (int i = 0; i < rounds; i++) accountManager.transferBatch(currentToSaving); });
+        val second = executorService.submit(() -> { for (int i = 0; i < rounds; i++) accountManager.transferBatch(savingToCurrent); });
+        first.get();
+        second.get();
+        executorService.shutdown();
+        assertThat(accountManager.getAccountBalance(currentAccount.getId()).getBody().getBalance()).isEqualByComparingTo(balance);
+        assertThat(accountManager.getAccountBalance(savingAccount.getId()).getBody().getBalance()).isEqualByComparingTo(balance);
+    }
+
+    @SneakyThrows
+    private void awaitBlockedSessions(final int sessions) {
+        val deadline = System.currentTimeMillis() + 5000;
+        while(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SESSIONS WHERE BLOCKER_ID IS NOT NULL", Integer.class) < sessions
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
 }
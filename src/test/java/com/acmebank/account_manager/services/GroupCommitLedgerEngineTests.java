@@ -0,0 +1,165 @@
+package com.acmebank.account_manager.services;
+
+import com.acmebank.account_manager.configs.LedgerProperties;
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.data.models.responses.Transaction;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.services.metrics.TransferMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static com.acmebank.account_manager.shared.ErrorCode.GENERAL_ERROR;
+import static com.acmebank.account_manager.shared.ErrorCode.INSUFFICIENT_FUND;
+import static com.acmebank.account_manager.shared.ErrorCode.TRANSFER_OUTCOME_UNKNOWN;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {"acmebank.ledger.group-commit=true", "acmebank.ledger.group-commit-window=50ms"})
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class GroupCommitLedgerEngineTests {
+    private final LedgerEngine ledgerEngine;
+    private final MeterRegistry meterRegistry;
+    private final TransferMetrics transferMetrics;
+    private final JdbcTemplate jdbcTemplate;
+    static final AtomicLong accountIds = new AtomicLong(30000000L);
+    static final BigDecimal balance = BigDecimal.valueOf(1000);
+    static final BigDecimal amount = BigDecimal.valueOf(100);
+
+    @Test
+    void givenGroupCommitEnabled_whenLedgerEngineInjected_thenGroupCommitEngineUsed() {
+        assertThat(ledgerEngine).isInstanceOf(GroupCommitLedgerEngine.class);
+    }
+
+    /*
+     * Every caller drains its own account into the same target, the last caller asks for more than its account holds.
+     * Started together, they share commits, and only the overdrawing caller is rejected.
+     */
+    @Test
+    @SneakyThrows
+    void givenConcurrentTransfers_whenGroupCommitted_thenEachCallerGetsOwnOutcome() {
+        val targetAccountId = createAccount();
+        val numberOfCallers = 8;
+        val executorService = Executors.newFixedThreadPool(numberOfCallers);
+        val start = new CountDownLatch(1);
+        val futures = new ArrayList<Future<?>>();
+        val sourceAccountIds = new ArrayList<Long>();
+        val groupsBefore = meterRegistry.get(TransferMetrics.GROUP_SIZE).summary().count();
+        for(int i = 0; i < numberOfCallers; i++) {
+            val sourceAccountId = createAccount();
+            sourceAccountIds.add(sourceAccountId);
+            val transferAmount = i == numberOfCallers - 1 ? balance.add(amount) : amount;
+            futures.add(executorService.submit((Callable<Object>) () -> {
+                start.await();
+                return ledgerEngine.transfer(new TransferRequest(sourceAccountId, targetAccountId, transferAmount, HKD.name()));
+            }));
+        }
+        start.countDown();
+        for(int i = 0; i < numberOfCallers - 1; i++) {
+            assertThat(futures.get(i).get()).isNotNull();
+        }
+        try {
+            futures.get(numberOfCallers - 1).get();
+            throw new AssertionError("Overdrawing transfer was accepted");
+        } catch (ExecutionException ee) {
+            assertThat(ee.getCause()).isInstanceOf(AccountManagerException.class);
+            assertThat(((AccountManagerException) ee.getCause()).getErrorCode()).isEqualTo(INSUFFICIENT_FUND);
+        }
+        executorService.shutdown();
+
+        assertThat(storedBalance(targetAccountId)).isEqualByComparingTo(balance.add(amount.multiply(BigDecimal.valueOf(numberOfCallers - 1))));
+        for(int i = 0; i < numberOfCallers - 1; i++) {
+            assertThat(storedBalance(sourceAccountIds.get(i))).isEqualByComparingTo(balance.subtract(amount));
+        }
+        assertThat(storedBalance(sourceAccountIds.get(numberOfCallers - 1))).isEqualByComparingTo(balance);
+        assertThat(meterRegistry.get(TransferMetrics.GROUP_SIZE).summary().count() - groupsBefore).isLessThan(numberOfCallers);
+    }
+
+    @Test
+    @SneakyThrows
+    void givenStalledDispatcher_whenTransferred_thenOutcomeUnknownForTakenAndGeneralErrorForQueued() {
+        val release = new CountDownLatch(1);
+        val stalledEngine = mock(JpaLedgerEngine.class);
+        when(stalledEngine.transferGroup(anyList())).thenAnswer(invocation -> {
+            release.await();
+            throw new IllegalStateException("Released");
+        });
+        val ledgerProperties = new LedgerProperties();
+        ledgerProperties.setGroupCommitWindow(Duration.ofMillis(1));
+        ledgerProperties.setGroupCommitTimeout(Duration.ofMillis(200));
+        val groupCommitLedgerEngine = new GroupCommitLedgerEngine(stalledEngine, ledgerProperties, transferMetrics);
+        groupCommitLedgerEngine.start();
+        try {
+            val taken = assertThrows(AccountManagerException.class,
+                    () -> groupCommitLedgerEngine.transfer(new TransferRequest(12345678L, 88888888L, amount, HKD.name())));
+            assertThat(taken.getErrorCode()).isEqualTo(TRANSFER_OUTCOME_UNKNOWN);
+            val queued = assertThrows(AccountManagerException.class,
+                    () -> groupCommitLedgerEngine.transfer(new TransferRequest(12345678L, 88888888L, amount, HKD.name())));
+            assertThat(queued.getErrorCode()).isEqualTo(GENERAL_ERROR);
+        } finally {
+            release.countDown();
+            groupCommitLedgerEngine.shutdown();
+        }
+    }
+
+    /*
+     * The group takes longer than the timeout, its caller is not told of a failure for a transfer that commits.
+     */
+    @Test
+    @SneakyThrows
+    void givenGroupCommitSlowerThanTimeout_whenTransferred_thenCommittedTransactionReturned() {
+        val slowEngine = mock(JpaLedgerEngine.class);
+        when(slowEngine.transferGroup(anyList())).thenAnswer(invocation -> {
+            Thread.sleep(450);
+            val outcomes = new ArrayList<JpaLedgerEngine.GroupOutcome>();
+            for(val request : invocation.<List<TransferRequest>>getArgument(0)) {
+                outcomes.add(new JpaLedgerEngine.GroupOutcome(new Transaction(1L, request.getFromAccountId(), null,
+                        request.getToAccountId(), null, null), null));
+            }
+            return outcomes;
+        });
+        val ledgerProperties = new LedgerProperties();
+        ledgerProperties.setGroupCommitWindow(Duration.ofMillis(1));
+        ledgerProperties.setGroupCommitTimeout(Duration.ofMillis(300));
+        val groupCommitLedgerEngine = new GroupCommitLedgerEngine(slowEngine, ledgerProperties, transferMetrics);
+        groupCommitLedgerEngine.start();
+        try {
+            val transaction = groupCommitLedgerEngine.transfer(new TransferRequest(12345678L, 88888888L, amount, HKD.name()));
+            assertThat(transaction.getFromAccountId()).isEqualTo(12345678L);
+            assertThat(transaction.getToAccountId()).isEqualTo(88888888L);
+        } finally {
+            groupCommitLedgerEngine.shutdown();
+        }
+    }
+
+    private long createAccount() {
+        val accountId = accountIds.incrementAndGet();
+        jdbcTemplate.update("INSERT INTO \"account\" (\"id\", \"balance\", \"currency\", \"type\", \"created_at\", \"updated_at\") VALUES (?, ?, ?, ?, now(), now())",
+                accountId, balance, HKD.ordinal(), 0);
+        return accountId;
+    }
+
+    private BigDecimal storedBalance(final long accountId) {
+        return jdbcTemplate.queryForObject("SELECT \"balance\" FROM \"account\" WHERE \"id\" = ?", BigDecimal.class, accountId);
+    }
+}
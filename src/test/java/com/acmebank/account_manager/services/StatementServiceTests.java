@@ -0,0 +1,136 @@
+package com.acmebank.account_manager.services;
+
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.data.models.responses.Transaction;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.shared.StatementFormat;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static com.acmebank.account_manager.shared.ErrorCode.ACCOUNT_NOT_FOUND;
+import static com.acmebank.account_manager.shared.ErrorCode.INVALID_STATEMENT_FORMAT;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class StatementServiceTests {
+    private final AccountManager accountManager;
+    private final StatementService statementService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    static final AtomicLong accountIds = new AtomicLong(90000000L);
+    static final BigDecimal balance = BigDecimal.valueOf(1000000);
+
+    @Test
+    @SneakyThrows
+    void givenTransfersBothWays_whenStreamNdjsonStatement_thenRunningBalanceEndsAtCurrentBalance() {
+        val accountId = createAccount();
+        val otherAccountId = createAccount();
+        val transactions = transfers(accountId, otherAccountId);
+
+        val lines = ndjson(accountId, null);
+
+        assertThat(lines).hasSize(transactions.size() + 1);
+        for(int i = 0; i < transactions.size(); i++) {
+            val transaction = transactions.get(i);
+            val line = lines.get(i);
+            val outgoing = transaction.getFromAccountId() == accountId;
+            assertThat(line.get("transactionId").asLong()).isEqualTo(transaction.getTransactionId());
+            assertThat(line.get("counterpartyAccountId").asLong()).isEqualTo(otherAccountId);
+            assertThat(line.get("amount").decimalValue().signum()).isEqualTo(outgoing ? -1 : 1);
+            val expectedBalance = outgoing ? transaction.getFromAccountBalance() : transaction.getToAccountBalance();
+            assertThat(line.get("balance").decimalValue()).isEqualByComparingTo(expectedBalance.getBalance());
+        }
+        val summary = lines.get(lines.size() - 1).get("summary");
+        assertThat(summary.get("openingBalance").decimalValue()).isEqualByComparingTo(balance);
+        assertThat(summary.get("closingBalance").decimalValue()).isEqualByComparingTo(accountManager.getAccountBalance(accountId).getBody().getBalance());
+        assertThat(summary.get("rows").asLong()).isEqualTo(transactions.size());
+        assertThat(summary.has("elapsedMillis")).isTrue();
+    }
+
+    @Test
+    @SneakyThrows
+    void givenStartTime_whenStreamStatement_thenOpeningBalanceIsBalanceAtStart() {
+        val accountId = createAccount();
+        val otherAccountId = createAccount();
+        val transactions = transfers(accountId, otherAccountId);
+        val third = transactions.get(2);
+
+        val lines = ndjson(accountId, third.getCreatedAt().toInstant());
+
+        assertThat(lines).hasSize(transactions.size() - 2 + 1);
+        assertThat(lines.get(0).get("transactionId").asLong()).isEqualTo(third.getTransactionId());
+        val second = transactions.get(1);
+        val balanceAtStart = second.getFromAccountId() == accountId ? second.getFromAccountBalance() : second.getToAccountBalance();
+        assertThat(lines.get(lines.size() - 1).get("summary").get("openingBalance").decimalValue()).isEqualByComparingTo(balanceAtStart.getBalance());
+    }
+
+    @Test
+    @SneakyThrows
+    void givenTransfers_whenStreamCsvStatement_thenHeaderRowsAndSummaryWritten() {
+        val accountId = createAccount();
+        val transactions = transfers(accountId, createAccount());
+        val out = new ByteArrayOutputStream();
+
+        statementService.statement(accountId, StatementFormat.CSV, null, null).writeTo(out);
+
+        val lines = out.toString(UTF_8).split("\n");
+        assertThat(lines).hasSize(transactions.size() + 2);
+        assertThat(lines[0]).isEqualTo("transactionId,createdAt,counterpartyAccountId,amount,currency,balance");
+        assertThat(lines[1]).startsWith(transactions.get(0).getTransactionId() + ",");
+        assertThat(lines[lines.length - 1]).startsWith("# accountId=" + accountId + ",openingBalance=1000000.00,");
+    }
+
+    @Test
+    void givenUnknownAccountOrFormat_whenGetStatement_thenRejected() {
+        val accountNotFound = assertThrows(AccountManagerException.class, () -> accountManager.getStatement(123456789L, "csv", null, null));
+        assertThat(accountNotFound.getErrorCode()).isEqualTo(ACCOUNT_NOT_FOUND);
+        val invalidFormat = assertThrows(AccountManagerException.class, () -> accountManager.getStatement(12345678L, "xml", null, null));
+        assertThat(invalidFormat.getErrorCode()).isEqualTo(INVALID_STATEMENT_FORMAT);
+    }
+
+    private List<Transaction> transfers(final long accountId, final long otherAccountId) {
+        val transactions = new ArrayList<Transaction>();
+        for(int i = 0; i < 6; i++) {
+            val request = i % 3 == 1
+                    ? new TransferRequest(otherAccountId, accountId, BigDecimal.valueOf(300 + i), HKD.name())
+                    : new TransferRequest(accountId, otherAccountId, BigDecimal.valueOf(100 + i), HKD.name());
+            transactions.add(accountManager.transfer(request).getBody());
+        }
+        return transactions;
+    }
+
+    @SneakyThrows
+    private List<JsonNode> ndjson(final long accountId, final Instant from) {
+        val out = new ByteArrayOutputStream();
+        statementService.statement(accountId, StatementFormat.NDJSON, from, null).writeTo(out);
+        val lines = new ArrayList<JsonNode>();
+        for(val line : out.toString(UTF_8).split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+
+    private long createAccount() {
+        val id = accountIds.incrementAndGet();
+        jdbcTemplate.update("INSERT INTO \"account\" (\"id\", \"balance\", \"currency\", \"type\", \"created_at\", \"updated_at\", \"version\") VALUES (?, ?, 0, 0, now(), now(), 0)", id, balance);
+        return id;
+    }
+}
@@ -0,0 +1,97 @@
+package com.acmebank.account_manager.services;
+
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.data.models.responses.TransactionHistoryEntry;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static com.acmebank.account_manager.shared.ErrorCode.ACCOUNT_NOT_FOUND;
+import static com.acmebank.account_manager.shared.ErrorCode.INVALID_CURSOR;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class TransactionHistoryServiceTests {
+    private final AccountManager accountManager;
+    private final TransactionHistoryService transactionHistoryService;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    static final AtomicLong accountIds = new AtomicLong(80000000L);
+    static final BigDecimal amount = BigDecimal.valueOf(100);
+
+    @Test
+    void givenTransfersBothWays_whenPagingThroughHistory_thenEveryTransactionReturnedOnceNewestFirst() {
+        val accountId = createAccount();
+        val otherAccountId = createAccount();
+        val unrelatedAccountId = createAccount();
+        val transactionIds = new HashSet<Long>();
+        for(int i = 0; i < 11; i++) {
+            val request = i % 3 == 0
+                    ? new TransferRequest(otherAccountId, accountId, amount, HKD.name())
+                    : new TransferRequest(accountId, otherAccountId, amount, HKD.name());
+            transactionIds.add(accountManager.transfer(request).getBody().getTransactionId());
+        }
+        accountManager.transfer(new TransferRequest(otherAccountId, unrelatedAccountId, amount, HKD.name()));
+        val statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        val entityLoads = statistics.getEntityLoadCount();
+
+        val entries = new ArrayList<TransactionHistoryEntry>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            val page = transactionHistoryService.getTransactionHistory(accountId, cursor, 4);
+            assertThat(page.getTransactions()).hasSizeLessThanOrEqualTo(4);
+            entries.addAll(page.getTransactions());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(entries).extracting(TransactionHistoryEntry::getTransactionId).containsExactlyInAnyOrderElementsOf(transactionIds);
+        for(int i = 1; i < entries.size(); i++) {
+            val newer = entries.get(i - 1);
+            val older = entries.get(i);
+            assertThat(newer.getCreatedAt().compareTo(older.getCreatedAt()) > 0
+                    || newer.getCreatedAt().equals(older.getCreatedAt()) && newer.getTransactionId() > older.getTransactionId()).isTrue();
+        }
+        assertThat(entries).allMatch(entry -> entry.getFromAccountId() == accountId || entry.getToAccountId() == accountId);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(entityLoads);
+    }
+
+    @Test
+    void givenAccountWithoutTransfers_whenGetHistory_thenEmptyLastPage() {
+        val page = transactionHistoryService.getTransactionHistory(createAccount(), null, 20);
+        assertThat(page.getTransactions()).isEmpty();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void givenUnknownAccountOrInvalidCursor_whenGetHistory_thenRejected() {
+        val accountNotFound = assertThrows(AccountManagerException.class,
+                () -> transactionHistoryService.getTransactionHistory(123456789L, null, 20));
+        assertThat(accountNotFound.getErrorCode()).isEqualTo(ACCOUNT_NOT_FOUND);
+        val invalidCursor = assertThrows(AccountManagerException.class,
+                () -> transactionHistoryService.getTransactionHistory(12345678L, "not-a-cursor", 20));
+        assertThat(invalidCursor.getErrorCode()).isEqualTo(INVALID_CURSOR);
+    }
+
+    private long createAccount() {
+        val id = accountIds.incrementAndGet();
+        jdbcTemplate.update("INSERT INTO \"account\" (\"id\", \"balance\", \"currency\", \"type\", \"created_at\", \"updated_at\", \"version\") VALUES (?, 1000000, 0, 0, now(), now(), 0)", id);
+        return id;
+    }
+}
@@ -0,0 +1,144 @@
+package com.acmebank.account_manager.services.async;
+
+import com.acmebank.account_manager.configs.AsyncTransferProperties;
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.data.models.responses.AccountBalance;
+import com.acmebank.account_manager.data.models.responses.Transaction;
+import com.acmebank.account_manager.data.models.responses.TransferStatus;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.services.LedgerEngine;
+import com.acmebank.account_manager.shared.TransferState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.PessimisticLockingFailureException;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static com.acmebank.account_manager.shared.AccountType.CURRENT;
+import static com.acmebank.account_manager.shared.AccountType.SAVING;
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static com.acmebank.account_manager.shared.ErrorCode.GENERAL_ERROR;
+import static com.acmebank.account_manager.shared.ErrorCode.INSUFFICIENT_FUND;
+import static com.acmebank.account_manager.shared.ErrorCode.TRANSFER_NOT_FOUND;
+import static com.acmebank.account_manager.shared.ErrorCode.TRANSFER_QUEUE_FULL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AsyncTransfersTests {
+    static final BigDecimal amount = BigDecimal.valueOf(100);
+    static final TransferRequest request = new TransferRequest(12345678L, 88888888L, amount, HKD.name());
+    static final TransferRequest insufficientFundRequest = new TransferRequest(11111111L, 88888888L, amount, HKD.name());
+    static final TransferRequest lockedRequest = new TransferRequest(99999999L, 88888888L, amount, HKD.name());
+    static final Transaction transaction = new Transaction(1L,
+            12345678L, AccountBalance.of(BigDecimal.valueOf(900), HKD, CURRENT),
+            88888888L, AccountBalance.of(BigDecimal.valueOf(1100), HKD, SAVING),
+            new Timestamp(System.currentTimeMillis()));
+
+    @Test
+    @SneakyThrows
+    void givenWorkerBusyAndQueueFull_whenSubmitted_thenTurnedAwayAtOnce() {
+        val release = new CountDownLatch(1);
+        val ledgerEngine = mock(LedgerEngine.class);
+        when(ledgerEngine.transfer(request)).thenAnswer(invocation -> {
+            release.await();
+            return transaction;
+        });
+        val meterRegistry = new SimpleMeterRegistry();
+        val asyncTransfers = asyncTransfers(ledgerEngine, 1, Duration.ofMinutes(1), meterRegistry);
+        try {
+            val running = asyncTransfers.submit(request);
+            awaitState(asyncTransfers, running.getTransferId(), TransferState.RUNNING);
+            val queued = asyncTransfers.submit(request);
+            assertThat(queued.getStatus()).isEqualTo(TransferState.QUEUED);
+            assertThat(meterRegistry.get(AsyncTransfers.QUEUED).gauge().value()).isEqualTo(1);
+
+            val started = System.nanoTime();
+            val exception = assertThrows(AccountManagerException.class, () -> asyncTransfers.submit(request));
+            assertThat(exception.getErrorCode()).isEqualTo(TRANSFER_QUEUE_FULL);
+            assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(1));
+            assertThat(meterRegistry.get(AsyncTransfers.REJECTED).counter().count()).isEqualTo(1);
+
+            release.countDown();
+            assertThat(awaitState(asyncTransfers, running.getTransferId(), TransferState.COMPLETED).getTransaction()).isEqualTo(transaction);
+            assertThat(awaitState(asyncTransfers, queued.getTransferId(), TransferState.COMPLETED).getTransaction()).isEqualTo(transaction);
+        } finally {
+            release.countDown();
+            asyncTransfers.stop();
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void givenFailingTransfers_whenPolled_thenRejectedOrFailedWithError() {
+        val ledgerEngine = mock(LedgerEngine.class);
+        when(ledgerEngine.transfer(insufficientFundRequest)).thenThrow(new AccountManagerException(INSUFFICIENT_FUND, List.of("11111111")));
+        when(ledgerEngine.transfer(lockedRequest)).thenThrow(new PessimisticLockingFailureException("locked"));
+        val asyncTransfers = asyncTransfers(ledgerEngine, 10, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        try {
+            val rejected = awaitState(asyncTransfers, asyncTransfers.submit(insufficientFundRequest).getTransferId(), TransferState.REJECTED);
+            assertThat(rejected.getError().getCode()).isEqualTo(INSUFFICIENT_FUND.getCode());
+            assertThat(rejected.getError().getMsg()).isEqualTo("Insufficient fund in account 11111111!");
+            val failed = awaitState(asyncTransfers, asyncTransfers.submit(lockedRequest).getTransferId(), TransferState.FAILED);
+            assertThat(failed.getError().getCode()).isEqualTo(GENERAL_ERROR.getCode());
+
+            val exception = assertThrows(AccountManagerException.class, () -> asyncTransfers.status("unknown"));
+            assertThat(exception.getErrorCode()).isEqualTo(TRANSFER_NOT_FOUND);
+        } finally {
+            asyncTransfers.stop();
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void givenNoRetention_whenTransferFinished_thenStatusForgotten() {
+        val ledgerEngine = mock(LedgerEngine.class);
+        when(ledgerEngine.transfer(request)).thenReturn(transaction);
+        val asyncTransfers = asyncTransfers(ledgerEngine, 10, Duration.ZERO, new SimpleMeterRegistry());
+        try {
+            val transferId = asyncTransfers.submit(request).getTransferId();
+            val deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            AccountManagerException exception = null;
+            while(exception == null && System.nanoTime() < deadline) {
+                try {
+                    asyncTransfers.status(transferId);
+                    Thread.sleep(1);
+                } catch (AccountManagerException ame) {
+                    exception = ame;
+                }
+            }
+            assertThat(exception).isNotNull();
+            assertThat(exception.getErrorCode()).isEqualTo(TRANSFER_NOT_FOUND);
+            verify(ledgerEngine).transfer(request);
+        } finally {
+            asyncTransfers.stop();
+        }
+    }
+
+    static AsyncTransfers asyncTransfers(final LedgerEngine ledgerEngine, final int queueCapacity, final Duration retention, final SimpleMeterRegistry meterRegistry) {
+        val properties = new AsyncTransferProperties();
+        properties.setWorkers(1);
+        properties.setQueueCapacity(queueCapacity);
+        properties.setRetention(retention);
+        return new AsyncTransfers(properties, ledgerEngine, meterRegistry);
+    }
+
+    @SneakyThrows
+    static TransferStatus awaitState(final AsyncTransfers asyncTransfers, final String transferId, final TransferState state) {
+        val deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        TransferStatus status;
+        while((status = asyncTransfers.status(transferId)).getStatus() != state && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(status.getStatus()).isEqualTo(state);
+        return status;
+    }
+}
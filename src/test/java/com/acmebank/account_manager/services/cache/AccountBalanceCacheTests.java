@@ -0,0 +1,96 @@
+package com.acmebank.account_manager.services.cache;
+
+import com.acmebank.account_manager.configs.BalanceCacheProperties;
+import com.acmebank.account_manager.data.models.responses.AccountBalance;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+import static com.acmebank.account_manager.shared.AccountType.CURRENT;
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccountBalanceCacheTests {
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final LongFunction<AccountBalance> loader = id -> {
+        loads.incrementAndGet();
+        return AccountBalance.of(BigDecimal.valueOf(id), HKD, CURRENT);
+    };
+
+    @Test
+    void givenCachedBalance_whenGetAgain_thenServedWithoutLoading() {
+        val cache = cache(100, Duration.ofMinutes(1));
+        val first = cache.get(1L, loader);
+        val second = cache.get(1L, loader);
+        assertThat(second).isEqualTo(first);
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(cache.missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void givenExpiredBalance_whenGet_thenReloaded() {
+        val cache = cache(100, Duration.ofSeconds(1));
+        cache.get(1L, loader);
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        cache.get(1L, loader);
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(cache.evictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void givenFullCache_whenGetMoreAccounts_thenLeastRecentlyUsedEvicted() {
+        val cache = cache(160, Duration.ofMinutes(1));
+        for(long id = 0; id < 1000; id++) {
+            cache.get(id, loader);
+        }
+        assertThat(cache.size()).isLessThanOrEqualTo(160);
+        assertThat(cache.evictionCount()).isEqualTo(1000 - cache.size());
+    }
+
+    @Test
+    void givenInvalidatedBalance_whenGet_thenReloaded() {
+        val cache = cache(100, Duration.ofMinutes(1));
+        cache.get(1L, loader);
+        cache.invalidate(1L);
+        cache.get(1L, loader);
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void givenInvalidationDuringLoad_whenGet_thenLoadedBalanceNotCached() {
+        val cache = cache(100, Duration.ofMinutes(1));
+        val stale = cache.get(1L, id -> {
+            cache.invalidate(id);
+            return loader.apply(id);
+        });
+        assertThat(stale).isNotNull();
+        cache.get(1L, loader);
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(cache.putCount()).isEqualTo(1);
+    }
+
+    @Test
+    void givenDisabledCache_whenGet_thenAlwaysLoaded() {
+        val properties = new BalanceCacheProperties();
+        properties.setEnabled(false);
+        val cache = new AccountBalanceCache(properties, clock::get);
+        cache.get(1L, loader);
+        cache.get(1L, loader);
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(cache.size()).isZero();
+    }
+
+    private AccountBalanceCache cache(final int maximumSize, final Duration timeToLive) {
+        val properties = new BalanceCacheProperties();
+        properties.setMaximumSize(maximumSize);
+        properties.setTimeToLive(timeToLive);
+        return new AccountBalanceCache(properties, clock::get);
+    }
+}
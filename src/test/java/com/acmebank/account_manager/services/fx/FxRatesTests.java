@@ -0,0 +1,90 @@
+package com.acmebank.account_manager.services.fx;
+
+import com.acmebank.account_manager.configs.FxProperties;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.shared.Money;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static com.acmebank.account_manager.shared.Currency.EUR;
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static com.acmebank.account_manager.shared.Currency.USD;
+import static com.acmebank.account_manager.shared.Currency.XXX;
+import static com.acmebank.account_manager.shared.ErrorCode.FX_RATE_UNAVAILABLE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FxRatesTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    void givenBundledRates_whenConvert_thenCrossRateAppliedAndRoundedHalfEven() {
+        val fxRates = fxRates(directory.resolve("missing.properties"));
+        val toUsd = fxRates.convert(Money.of(BigDecimal.valueOf(100)), HKD, USD);
+        assertThat(toUsd.getToAmount()).isEqualTo(Money.of(new BigDecimal("12.80")));
+        assertThat(toUsd.getToCurrency()).isEqualTo(USD);
+        assertThat(toUsd.getRate()).isEqualByComparingTo("0.128");
+        /* 8.475 / 7.8125 = 1.08480000 */
+        assertThat(fxRates.convert(Money.of(new BigDecimal("0.05")), EUR, USD).getToAmount()).isEqualTo(Money.of(new BigDecimal("0.05")));
+        assertThat(fxRates.convert(Money.of(new BigDecimal("10.00")), EUR, USD).getToAmount()).isEqualTo(Money.of(new BigDecimal("10.85")));
+
+        val same = fxRates.convert(Money.of(BigDecimal.TEN), HKD, HKD);
+        assertThat(same.getToAmount()).isEqualTo(Money.of(BigDecimal.TEN));
+        assertThat(same.getRate()).isEqualByComparingTo(BigDecimal.ONE);
+    }
+
+    @Test
+    void givenCurrencyWithoutRate_whenConvert_thenRateUnavailable() {
+        val fxRates = fxRates(directory.resolve("missing.properties"));
+        val thrown = assertThrows(AccountManagerException.class, () -> fxRates.convert(Money.of(BigDecimal.TEN), HKD, XXX));
+        assertThat(thrown.getErrorCode()).isEqualTo(FX_RATE_UNAVAILABLE);
+        assertThat(thrown.getMessage()).isEqualTo("No exchange rate from HKD to XXX!");
+    }
+
+    @Test
+    @SneakyThrows
+    void givenRatesFile_whenChanged_thenNewSnapshotPublishedAndInvalidFileIgnored() {
+        val ratesFile = directory.resolve("fx-rates.properties");
+        Files.writeString(ratesFile, "base=HKD\nUSD=8\n");
+        val fxRates = fxRates(ratesFile);
+        val first = fxRates.getSnapshot();
+        assertThat(first.rate(USD, HKD)).isEqualByComparingTo("8");
+        assertThat(fxRates.reload()).isFalse();
+
+        Files.writeString(ratesFile, "base=HKD\nUSD=7.5\n");
+        touch(ratesFile, 1);
+        assertThat(fxRates.reload()).isTrue();
+        assertThat(fxRates.getSnapshot()).isNotSameAs(first);
+        assertThat(fxRates.getSnapshot().rate(USD, HKD)).isEqualByComparingTo("7.5");
+        assertThat(first.rate(USD, HKD)).isEqualByComparingTo("8");
+
+        val second = fxRates.getSnapshot();
+        Files.writeString(ratesFile, "base=HKD\nUSD=-1\n");
+        touch(ratesFile, 2);
+        assertThat(fxRates.reload()).isFalse();
+        assertThat(fxRates.getSnapshot()).isSameAs(second);
+    }
+
+    private static FxRates fxRates(final Path ratesFile) {
+        val fxProperties = new FxProperties();
+        fxProperties.setRatesFile(ratesFile.toString());
+        fxProperties.setReloadInterval(Duration.ZERO);
+        return new FxRates(fxProperties);
+    }
+
+    /* file systems with coarse timestamps would not see two writes within the same second as a change */
+    @SneakyThrows
+    private static void touch(final Path file, final int seconds) {
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(seconds)));
+    }
+}
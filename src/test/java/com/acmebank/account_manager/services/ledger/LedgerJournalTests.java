@@ -0,0 +1,108 @@
+package com.acmebank.account_manager.services.ledger;
+
+import com.acmebank.account_manager.shared.Money;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static com.acmebank.account_manager.shared.Currency.USD;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LedgerJournalTests {
+    private static final int SEGMENT_SIZE = 4096;
+    @TempDir
+    Path directory;
+
+    @Test
+    void givenAppendedEntries_whenReplayed_thenReadBackInOrder() {
+        val entries = entries(3);
+        val accepted = new ArrayList<LedgerEntry>();
+        try (val journal = new LedgerJournal(directory, SEGMENT_SIZE, true)) {
+            journal.open();
+            for(val entry : entries) {
+                journal.awaitDurable(journal.append(entry, accepted::add));
+            }
+        }
+        assertThat(accepted).containsExactlyElementsOf(entries);
+        assertThat(replay(new LedgerJournal(directory, SEGMENT_SIZE, true))).containsExactlyElementsOf(entries);
+    }
+
+    @Test
+    void givenEntriesSpanningSegments_whenProjected_thenOnlyUnprojectedSegmentsKept() {
+        val entries = entries(200);
+        try (val journal = new LedgerJournal(directory, SEGMENT_SIZE, false)) {
+            journal.open();
+            entries.forEach(entry -> journal.append(entry, e -> {}));
+            assertThat(segments()).hasSizeGreaterThan(2);
+            journal.projected(150);
+        }
+        val replayed = replay(new LedgerJournal(directory, SEGMENT_SIZE, false));
+        assertThat(replayed).isNotEmpty().isEqualTo(entries.subList(entries.size() - replayed.size(), entries.size()));
+        assertThat(replayed.size()).isLessThan(entries.size()).isGreaterThanOrEqualTo(50);
+    }
+
+    @Test
+    @SneakyThrows
+    void givenTornLastRecord_whenReplayed_thenIntactPrefixReturned() {
+        val entries = entries(3);
+        try (val journal = new LedgerJournal(directory, SEGMENT_SIZE, true)) {
+            journal.open();
+            entries.forEach(entry -> journal.append(entry, e -> {}));
+        }
+        val lastRecord = 8 + LedgerJournal.encode(entries.get(0)).length + 8 + LedgerJournal.encode(entries.get(1)).length;
+        try (val file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            // flip a byte inside the payload of the last record
+            file.seek(lastRecord + 12);
+            file.write(file.read() ^ 0xFF);
+        }
+        assertThat(replay(new LedgerJournal(directory, SEGMENT_SIZE, true))).containsExactlyElementsOf(entries.subList(0, 2));
+    }
+
+    @Test
+    void givenReplayedJournal_whenOpened_thenOldSegmentsDropped() {
+        try (val journal = new LedgerJournal(directory, SEGMENT_SIZE, true)) {
+            journal.open();
+            entries(2).forEach(entry -> journal.append(entry, e -> {}));
+        }
+        val journal = new LedgerJournal(directory, SEGMENT_SIZE, true);
+        assertThat(journal.replay(batch -> {}, 10)).isEqualTo(2);
+        journal.open();
+        journal.close();
+        assertThat(replay(new LedgerJournal(directory, SEGMENT_SIZE, true))).isEmpty();
+    }
+
+    private static List<LedgerEntry> entries(final int count) {
+        val entries = new ArrayList<LedgerEntry>(count);
+        for(int i = 1; i <= count; i++) {
+            entries.add(i % 2 == 0
+                    ? new LedgerEntry(i, 1000L + i, 2000L + i, Money.ofMinorUnits(10025L * i), HKD, new Timestamp(1700000000000L + i),
+                            Money.ofMinorUnits(1283L * i), USD, new BigDecimal("0.12800000"))
+                    : new LedgerEntry(i, 1000L + i, 2000L + i, Money.ofMinorUnits(10025L * i), HKD, new Timestamp(1700000000000L + i)));
+        }
+        return entries;
+    }
+
+    private static List<LedgerEntry> replay(final LedgerJournal journal) {
+        val replayed = new ArrayList<LedgerEntry>();
+        journal.replay(replayed::addAll, 7);
+        return replayed;
+    }
+
+    @SneakyThrows
+    private List<Path> segments() {
+        try (val paths = Files.list(directory)) {
+            return paths.sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.acmebank.account_manager.services.ledger;
+
+import com.acmebank.account_manager.configs.LedgerProperties;
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.services.AccountManager;
+import com.acmebank.account_manager.services.fx.FxRates;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.acmebank.account_manager.shared.AccountType.CURRENT;
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static com.acmebank.account_manager.shared.Currency.USD;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {"acmebank.ledger.engine=sharded", "acmebank.ledger.shards=4"})
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class LedgerSnapshotsTests {
+    private final AccountManager accountManager;
+    private final ShardedLedgerEngine shardedLedgerEngine;
+    private final LedgerStore ledgerStore;
+    private final LedgerProperties ledgerProperties;
+    private final FxRates fxRates;
+    private final JdbcTemplate jdbcTemplate;
+    static final AtomicLong accountIds = new AtomicLong(75000000L);
+    static final BigDecimal balance = BigDecimal.valueOf(1000000);
+    static final BigDecimal amount = BigDecimal.valueOf(100);
+
+    @Test
+    @SneakyThrows
+    void givenSnapshotAndLaterTransfers_whenRestarted_thenBalancesRestoredFromSnapshotAndCaughtUp() {
+        val fromAccountId = createAccount(HKD);
+        val toAccountId = createAccount(USD);
+        accountManager.transfer(new TransferRequest(fromAccountId, toAccountId, amount, HKD.name()));
+        shardedLedgerEngine.snapshot();
+        accountManager.transfer(new TransferRequest(fromAccountId, toAccountId, amount, HKD.name()));
+        val createdLater = createAccount(HKD);
+        accountManager.transfer(new TransferRequest(createdLater, fromAccountId, amount, HKD.name()));
+        shardedLedgerEngine.flush();
+
+        val properties = new LedgerProperties();
+        properties.setShards(2);
+        properties.setJournalDir(Files.createTempDirectory("acmebank-journal").toString());
+        properties.setSnapshotDir(ledgerProperties.getSnapshotDir());
+        val restarted = new ShardedLedgerEngine(ledgerStore, properties, fxRates);
+        restarted.load();
+        try {
+            for(val accountId : new long[]{fromAccountId, toAccountId, createdLater}) {
+                assertThat(restarted.getAccountBalance(accountId)).isEqualTo(accountManager.getAccountBalance(accountId).getBody());
+            }
+            assertThat(restarted.getAccountBalance(fromAccountId).getBalance()).isEqualByComparingTo(balance.subtract(amount));
+        } finally {
+            restarted.shutdown();
+        }
+    }
+
+    /*
+     * Transfers keep running while snapshots are taken, so ids handed out before a snapshot are written after it.
+     */
+    @Test
+    @SneakyThrows
+    void givenSnapshotsTakenDuringConcurrentTransfers_whenRestored_thenEveryBalanceMatches() {
+        val accounts = new long[8];
+        for(int i = 0; i < accounts.length; i++) {
+            accounts[i] = createAccount(HKD);
+        }
+        val numberOfThreads = 4;
+        val executorService = Executors.newFixedThreadPool(numberOfThreads);
+        val latch = new CountDownLatch(numberOfThreads);
+        val stop = new AtomicBoolean();
+        for(int t = 0; t < numberOfThreads; t++) {
+            executorService.execute(() -> {
+                try {
+                    val random = ThreadLocalRandom.current();
+                    while(!stop.get()) {
+                        val from = accounts[random.nextInt(accounts.length)];
+                        val to = accounts[random.nextInt(accounts.length)];
+                        if(from != to) {
+                            accountManager.transfer(new TransferRequest(from, to, amount, HKD.name()));
+                        }
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        for(int i = 0; i < 5; i++) {
+            shardedLedgerEngine.snapshot();
+        }
+        stop.set(true);
+        latch.await();
+        executorService.shutdown();
+        shardedLedgerEngine.flush();
+
+        val restored = new HashMap<Long, LedgerAccount>();
+        assertThat(new LedgerSnapshots(Paths.get(ledgerProperties.getSnapshotDir()), Duration.ZERO, ledgerStore).restore(restored)).isTrue();
+        var total = 0L;
+        for(val accountId : accounts) {
+            val inMemory = accountManager.getAccountBalance(accountId).getBody().getBalance();
+            assertThat(BigDecimal.valueOf(restored.get(accountId).getBalance(), 2)).isEqualByComparingTo(inMemory);
+            total += restored.get(accountId).getBalance();
+        }
+        assertThat(BigDecimal.valueOf(total, 2)).isEqualByComparingTo(balance.multiply(BigDecimal.valueOf(accounts.length)));
+    }
+
+    @Test
+    @SneakyThrows
+    void givenCorruptSnapshots_whenRestored_thenOlderSnapshotOrAccountTableUsed() {
+        val fromAccountId = createAccount(HKD);
+        val toAccountId = createAccount(HKD);
+        val directory = Files.createTempDirectory("acmebank-snapshots");
+        val snapshots = new LedgerSnapshots(directory, Duration.ZERO, ledgerStore);
+        val older = snapshots.write();
+        accountManager.transfer(new TransferRequest(fromAccountId, toAccountId, amount, HKD.name()));
+        shardedLedgerEngine.flush();
+        val newer = snapshots.write();
+        val bytes = Files.readAllBytes(newer);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(newer, bytes);
+
+        val restored = new HashMap<Long, LedgerAccount>();
+        assertThat(snapshots.restore(restored)).isTrue();
+        assertThat(restored.get(fromAccountId).getBalance()).isEqualTo(balance.subtract(amount).movePointRight(2).longValueExact());
+        assertThat(restored.get(toAccountId).getBalance()).isEqualTo(balance.add(amount).movePointRight(2).longValueExact());
+
+        Files.write(older, new byte[]{1, 2, 3});
+        val none = new HashMap<Long, LedgerAccount>();
+        assertThat(snapshots.restore(none)).isFalse();
+        assertThat(none).isEmpty();
+    }
+
+    private long createAccount(final com.acmebank.account_manager.shared.Currency currency) {
+        val accountId = accountIds.incrementAndGet();
+        jdbcTemplate.update("INSERT INTO \"account\" (\"id\", \"balance\", \"currency\", \"type\", \"created_at\", \"updated_at\") VALUES (?, ?, ?, ?, now(), now())",
+                accountId, balance, currency.ordinal(), CURRENT.ordinal());
+        return accountId;
+    }
+}
@@ -0,0 +1,163 @@
+package com.acmebank.account_manager.services.ledger;
+
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.services.AccountManager;
+import com.acmebank.account_manager.shared.AccountType;
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.acmebank.account_manager.shared.AccountType.CURRENT;
+import static com.acmebank.account_manager.shared.AccountType.SAVING;
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static com.acmebank.account_manager.shared.Currency.USD;
+import static com.acmebank.account_manager.shared.Currency.XXX;
+import static com.acmebank.account_manager.shared.ErrorCode.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {"acmebank.ledger.engine=sharded", "acmebank.ledger.shards=4"})
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class ShardedLedgerEngineTests {
+    private final AccountManager accountManager;
+    private final ShardedLedgerEngine shardedLedgerEngine;
+    private final JdbcTemplate jdbcTemplate;
+    private final LedgerStore ledgerStore;
+    static final AtomicLong accountIds = new AtomicLong(70000000L);
+    static final BigDecimal balance = BigDecimal.valueOf(1000000);
+    static final BigDecimal amount = BigDecimal.valueOf(100);
+
+    @Test
+    void givenShardedLedger_whenTransfer_thenBalancesMovedInMemoryAndPersistedBehind() {
+        val fromAccountId = createAccount(HKD, CURRENT);
+        val toAccountId = createAccount(HKD, SAVING);
+        val transaction = accountManager.transfer(new TransferRequest(fromAccountId, toAccountId, amount, HKD.name())).getBody();
+        assertThat(transaction.getFromAccountBalance().getBalance()).isEqualByComparingTo(balance.subtract(amount));
+        assertThat(transaction.getToAccountBalance().getBalance()).isEqualByComparingTo(balance.add(amount));
+        assertThat(transaction.getToAccountBalance().getType()).isEqualTo(SAVING);
+        assertThat(accountManager.getAccountBalance(fromAccountId).getBody().getBalance()).isEqualByComparingTo(balance.subtract(amount));
+
+        shardedLedgerEngine.flush();
+        assertThat(storedBalance(fromAccountId)).isEqualByComparingTo(balance.subtract(amount));
+        assertThat(storedBalance(toAccountId)).isEqualByComparingTo(balance.add(amount));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"transaction\" WHERE \"id\" = ? AND \"from_account\" = ? AND \"to_account\" = ?",
+                Long.class, transaction.getTransactionId(), fromAccountId, toAccountId)).isEqualTo(1L);
+    }
+
+    @Test
+    void givenAccountsInDifferentCurrencies_whenTransfer_thenCreditConvertedAndPersistedWithRate() {
+        val fromAccountId = createAccount(HKD, CURRENT);
+        val toAccountId = createAccount(USD, SAVING);
+        val credited = new BigDecimal("12.80");
+        val transaction = accountManager.transfer(new TransferRequest(fromAccountId, toAccountId, amount, HKD.name())).getBody();
+        assertThat(transaction.getToAccountBalance().getBalance()).isEqualByComparingTo(balance.add(credited));
+        assertThat(transaction.getToAccountBalance().getCurrency()).isEqualTo(USD);
+
+        shardedLedgerEngine.flush();
+        assertThat(storedBalance(fromAccountId)).isEqualByComparingTo(balance.subtract(amount));
+        assertThat(storedBalance(toAccountId)).isEqualByComparingTo(balance.add(credited));
+        assertThat(jdbcTemplate.queryForObject("SELECT \"to_amount\" FROM \"transaction\" WHERE \"id\" = ? AND \"rate\" = 0.128 AND \"to_currency\" = ?",
+                BigDecimal.class, transaction.getTransactionId(), USD.ordinal())).isEqualByComparingTo(credited);
+    }
+
+    @Test
+    void givenShardedLedger_whenTransferRejected_thenErrorCodeMatchedAndBalancesUntouched() {
+        val fromAccountId = createAccount(HKD, CURRENT);
+        val toAccountId = createAccount(HKD, SAVING);
+        val foreignAccountId = createAccount(XXX, SAVING);
+        assertErrorCode(new TransferRequest(fromAccountId, 123456789L, amount, HKD.name()), ACCOUNT_NOT_FOUND);
+        assertErrorCode(new TransferRequest(fromAccountId, foreignAccountId, amount, HKD.name()), FX_RATE_UNAVAILABLE);
+        assertErrorCode(new TransferRequest(fromAccountId, toAccountId, balance.add(amount), HKD.name()), INSUFFICIENT_FUND);
+        assertErrorCode(new TransferRequest(fromAccountId, fromAccountId, amount, HKD.name()), SAME_ACCOUNT);
+        assertThat(accountManager.getAccountBalance(fromAccountId).getBody().getBalance()).isEqualByComparingTo(balance);
+        assertThat(accountManager.getAccountBalance(toAccountId).getBody().getBalance()).isEqualByComparingTo(balance);
+    }
+
+    @Test
+    @SneakyThrows
+    void givenShardedLedger_whenTransferRunsConcurrentlyAcrossShards_thenTotalAmountKeptAndPersisted() {
+        val accountIds = new long[8];
+        for(int i = 0; i < accountIds.length; i++) {
+            accountIds[i] = createAccount(HKD, CURRENT);
+        }
+        val numberOfThreads = 8;
+        val transfersPerThread = 200;
+        val executorService = Executors.newFixedThreadPool(numberOfThreads);
+        val latch = new CountDownLatch(numberOfThreads);
+        for(int t = 0; t < numberOfThreads; t++) {
+            executorService.execute(() -> {
+                try {
+                    val random = ThreadLocalRandom.current();
+                    for(int i = 0; i < transfersPerThread; i++) {
+                        val from = accountIds[random.nextInt(accountIds.length)];
+                        val to = accountIds[random.nextInt(accountIds.length)];
+                        if(from != to) {
+                            accountManager.transfer(new TransferRequest(from, to, amount, HKD.name()));
+                        }
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        executorService.shutdown();
+
+        shardedLedgerEngine.flush();
+        var total = BigDecimal.ZERO;
+        for(val accountId : accountIds) {
+            val inMemory = accountManager.getAccountBalance(accountId).getBody().getBalance();
+            assertThat(storedBalance(accountId)).isEqualByComparingTo(inMemory);
+            total = total.add(inMemory);
+        }
+        assertThat(total).isEqualByComparingTo(balance.multiply(BigDecimal.valueOf(accountIds.length)));
+    }
+
+    @Test
+    void givenJournaledEntries_whenReplayedTwice_thenAppliedOnce() {
+        val fromAccountId = createAccount(HKD, CURRENT);
+        val toAccountId = createAccount(HKD, SAVING);
+        val now = new Timestamp(System.currentTimeMillis());
+        val entries = List.of(
+                new LedgerEntry(ledgerStore.nextTransactionId(), fromAccountId, toAccountId, Money.of(amount), HKD, now),
+                new LedgerEntry(ledgerStore.nextTransactionId(), toAccountId, fromAccountId, Money.of(amount.add(amount)), HKD, now));
+        ledgerStore.write(entries.subList(0, 1));
+        ledgerStore.write(entries);
+        ledgerStore.write(entries);
+        assertThat(storedBalance(fromAccountId)).isEqualByComparingTo(balance.add(amount));
+        assertThat(storedBalance(toAccountId)).isEqualByComparingTo(balance.subtract(amount));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"transaction\" WHERE \"from_account\" IN (?, ?)",
+                Long.class, fromAccountId, toAccountId)).isEqualTo(2L);
+    }
+
+    private void assertErrorCode(final TransferRequest request, final com.acmebank.account_manager.shared.ErrorCode errorCode) {
+        val thrown = assertThrows(AccountManagerException.class, () -> accountManager.transfer(request));
+        assertThat(thrown.getErrorCode()).isEqualTo(errorCode);
+    }
+
+    private long createAccount(final Currency currency, final AccountType type) {
+        val accountId = accountIds.incrementAndGet();
+        jdbcTemplate.update("INSERT INTO \"account\" (\"id\", \"balance\", \"currency\", \"type\", \"created_at\", \"updated_at\") VALUES (?, ?, ?, ?, now(), now())",
+                accountId, balance, currency.ordinal(), type.ordinal());
+        return accountId;
+    }
+
+    private BigDecimal storedBalance(final long accountId) {
+        return jdbcTemplate.queryForObject("SELECT \"balance\" FROM \"account\" WHERE \"id\" = ?", BigDecimal.class, accountId);
+    }
+}
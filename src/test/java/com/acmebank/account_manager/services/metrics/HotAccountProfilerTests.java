@@ -0,0 +1,83 @@
+package com.acmebank.account_manager.services.metrics;
+
+import com.acmebank.account_manager.data.models.responses.HotAccount;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HotAccountProfilerTests {
+
+    @Test
+    void givenFewHotAccountsAmongMillions_whenRecorded_thenTopAccountsFoundWithinCapacity() {
+        val profiler = new HotAccountProfiler(true, 64);
+        val random = new Random(42);
+        for(int i = 0; i < 1_000_000; i++) {
+            val draw = random.nextInt(100);
+            final long accountId;
+            if(draw < 30) {
+                accountId = 88888888L;
+            } else if(draw < 40) {
+                accountId = 12345678L;
+            } else if(draw < 45) {
+                accountId = 55555555L;
+            } else {
+                accountId = 100_000_000L + random.nextInt(5_000_000);
+            }
+            profiler.record(accountId, 1000);
+        }
+        val top = profiler.top(1000);
+        assertThat(top).hasSize(64);
+        assertThat(top.subList(0, 3)).extracting(HotAccount::getAccountId).containsExactly(88888888L, 12345678L, 55555555L);
+        val payroll = top.get(0);
+        assertThat(payroll.getTransfers() - payroll.getMaxOvercount()).isLessThanOrEqualTo(300_000 + 5_000L).isGreaterThan(290_000L);
+    }
+
+    @Test
+    void givenHotAccountRecordedFirst_whenCapacityFilledWithOneHitAccounts_thenHotAccountKept() {
+        val profiler = new HotAccountProfiler(true, 16);
+        for(int i = 0; i < 1000; i++) {
+            profiler.record(88888888L, 1000);
+        }
+        for(long accountId = 100_000_000L; accountId < 100_000_100L; accountId++) {
+            profiler.record(accountId, 1000);
+        }
+        val top = profiler.top(1);
+        assertThat(top).extracting(HotAccount::getAccountId).containsExactly(88888888L);
+        assertThat(top.get(0).getTransfers()).isEqualTo(1000);
+    }
+
+    @Test
+    void givenLockWaits_whenRecorded_thenPercentilesWithinFactorOfTwo() {
+        val profiler = new HotAccountProfiler(true, 8);
+        for(int i = 0; i < 990; i++) {
+            profiler.record(88888888L, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        for(int i = 0; i < 10; i++) {
+            profiler.record(88888888L, TimeUnit.MILLISECONDS.toNanos(200));
+        }
+        val hotAccount = profiler.top(1).get(0);
+        assertThat(hotAccount.getTransfers()).isEqualTo(1000);
+        assertThat(hotAccount.getWaitP50Millis()).isBetween(1.0, 2.0);
+        assertThat(hotAccount.getWaitP99Millis()).isBetween(1.0, 2.0);
+        assertThat(hotAccount.getWaitP999Millis()).isBetween(200.0, 400.0);
+        assertThat(hotAccount.getWaitTotalMillis()).isEqualTo(2990.0);
+    }
+
+    @Test
+    void givenDisabledOrReset_whenTopRequested_thenNothingTracked() {
+        val disabled = new HotAccountProfiler(false, 8);
+        disabled.record(1L, 1000);
+        assertThat(disabled.top(10)).isEmpty();
+
+        val profiler = new HotAccountProfiler(true, 8);
+        profiler.record(1L, 1000);
+        profiler.reset();
+        assertThat(profiler.top(10)).isEmpty();
+        profiler.record(2L, 1000);
+        assertThat(profiler.top(10)).extracting(HotAccount::getAccountId).containsExactly(2L);
+    }
+}
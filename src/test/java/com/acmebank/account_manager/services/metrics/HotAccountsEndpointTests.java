@@ -0,0 +1,43 @@
+package com.acmebank.account_manager.services.metrics;
+
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.services.AccountManager;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "management.endpoints.web.exposure.include=hotaccounts")
+@AutoConfigureMockMvc
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class HotAccountsEndpointTests {
+    private final MockMvc mockMvc;
+    private final AccountManager accountManager;
+
+    @Test
+    void givenTransfers_whenHotAccountsRequested_thenMostTransferredAccountListedFirst() throws Exception {
+        mockMvc.perform(delete("/actuator/hotaccounts")).andExpect(status().isNoContent());
+        for(int i = 0; i < 3; i++) {
+            accountManager.transfer(new TransferRequest(12345678L, 88888888L, BigDecimal.valueOf(100), HKD.name()));
+        }
+        accountManager.transfer(new TransferRequest(88888888L, 12345678L, BigDecimal.valueOf(100), HKD.name()));
+        mockMvc.perform(get("/actuator/hotaccounts/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].transfers").value(4))
+                .andExpect(jsonPath("$[0].waitP99Millis").isNumber());
+        mockMvc.perform(get("/actuator/hotaccounts"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+}
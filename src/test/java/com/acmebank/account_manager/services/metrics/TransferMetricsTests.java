@@ -0,0 +1,71 @@
+package com.acmebank.account_manager.services.metrics;
+
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.val;
+import org.hibernate.exception.LockAcquisitionException;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.List;
+
+import static com.acmebank.account_manager.configs.LedgerProperties.Concurrency.CONDITIONAL;
+import static com.acmebank.account_manager.configs.LedgerProperties.Concurrency.PESSIMISTIC;
+import static com.acmebank.account_manager.services.metrics.TransferMetrics.LOCK_FAILURES;
+import static com.acmebank.account_manager.services.metrics.TransferMetrics.STAGE_TIMER;
+import static com.acmebank.account_manager.services.metrics.TransferMetrics.Stage.COMMIT;
+import static com.acmebank.account_manager.services.metrics.TransferMetrics.Stage.LOCK;
+import static com.acmebank.account_manager.shared.ErrorCode.INSUFFICIENT_FUND;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TransferMetricsTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TransferMetrics transferMetrics = new TransferMetrics(meterRegistry, new HotAccountProfiler(true, 16));
+
+    @Test
+    void givenStage_whenTimed_thenRecordedWithPercentilesEvenWhenFailed() {
+        for(int i = 0; i < 10; i++) {
+            assertThat(transferMetrics.time(PESSIMISTIC, LOCK, () -> "locked")).isEqualTo("locked");
+        }
+        assertThrows(AccountManagerException.class, () -> transferMetrics.time(PESSIMISTIC, LOCK, () -> {
+            throw new AccountManagerException(INSUFFICIENT_FUND, List.of("1"));
+        }));
+        val timer = meterRegistry.get(STAGE_TIMER).tags("concurrency", "pessimistic", "stage", "lock").timer();
+        assertThat(timer.count()).isEqualTo(11);
+        assertThat(timer.takeSnapshot().percentileValues()).extracting(percentile -> percentile.percentile()).containsExactly(0.5, 0.99, 0.999);
+        assertThat(meterRegistry.get(STAGE_TIMER).tags("concurrency", "conditional", "stage", "lock").timer().count()).isZero();
+    }
+
+    @Test
+    void givenTransaction_whenCommitted_thenCommitTimed() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            transferMetrics.timeCommit(CONDITIONAL);
+            TransactionSynchronizationManager.getSynchronizations().forEach(synchronization -> synchronization.beforeCommit(false));
+            TransactionSynchronizationManager.getSynchronizations().forEach(synchronization -> synchronization.afterCommit());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(meterRegistry.get(STAGE_TIMER).tags("concurrency", "conditional", "stage", COMMIT.name().toLowerCase()).timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void givenFailures_whenCounted_thenOnlyLockFailuresCountedByCause() {
+        val deadlock = new CannotAcquireLockException("deadlock", new LockAcquisitionException("deadlock", new SQLException("deadlock")));
+        val timeout = new CannotAcquireLockException("timeout", new LockAcquisitionException("timeout", new SQLTimeoutException("timeout")));
+        val conflict = new ObjectOptimisticLockingFailureException("account", 1L);
+        assertThat(transferMetrics.lockFailure(deadlock)).isTrue();
+        assertThat(transferMetrics.lockFailure(new LockAcquisitionException("deadlock", new SQLException("deadlock")))).isTrue();
+        assertThat(transferMetrics.lockFailure(timeout)).isTrue();
+        assertThat(transferMetrics.lockFailure(conflict)).isTrue();
+        assertThat(transferMetrics.lockFailure(new AccountManagerException(INSUFFICIENT_FUND, List.of("1")))).isFalse();
+        assertThat(meterRegistry.get(LOCK_FAILURES).tag("cause", "lock-acquisition").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(LOCK_FAILURES).tag("cause", "lock-timeout").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(LOCK_FAILURES).tag("cause", "optimistic-conflict").counter().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,145 @@
+package com.acmebank.account_manager.services.projection;
+
+import com.acmebank.account_manager.configs.BalanceCacheProperties;
+import com.acmebank.account_manager.configs.BalanceProjectionProperties;
+import com.acmebank.account_manager.configs.LedgerProperties;
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.data.sharding.Shards;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.services.AccountManager;
+import com.acmebank.account_manager.services.cache.AccountBalanceCache;
+import com.acmebank.account_manager.services.provisioning.AccountProvisioner;
+import com.acmebank.account_manager.shared.AccountType;
+import com.acmebank.account_manager.shared.Money;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static com.acmebank.account_manager.shared.ErrorCode.ACCOUNT_NOT_FOUND;
+import static com.acmebank.account_manager.shared.ErrorCode.INVALID_CONSISTENCY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class BalanceProjectionTests {
+    private final AccountManager accountManager;
+    private final BalanceProjection balanceProjection;
+    private final AccountProvisioner accountProvisioner;
+    private final MeterRegistry meterRegistry;
+    private final JdbcTemplate jdbcTemplate;
+    private final Shards shards;
+    static final AtomicLong accountIds = new AtomicLong(22000000L);
+    static final BigDecimal balance = BigDecimal.valueOf(10000);
+    static final BigDecimal amount = BigDecimal.valueOf(100);
+
+    @Test
+    @SneakyThrows
+    void givenProjectedAccounts_whenTransferred_thenEventualReadsCatchUpWithLagReported() {
+        val fromAccountId = createAccounts(2);
+        val toAccountId = fromAccountId + 1;
+        assertThat(eventualBalance(fromAccountId)).isEqualByComparingTo("10000");
+        val eventualEvents = meterRegistry.get(BalanceProjection.EVENTS).counter().count();
+
+        accountManager.transfer(new TransferRequest(fromAccountId, toAccountId, amount, HKD.name()));
+        balanceProjection.awaitProjected();
+
+        val response = accountManager.getAccountBalance(fromAccountId, "EVENTUAL");
+        assertThat(response.getBody().getBalance()).isEqualByComparingTo("9900");
+        assertThat(response.getHeaders().getFirst(BalanceProjection.LAG_HEADER)).isEqualTo("0");
+        assertThat(eventualBalance(toAccountId)).isEqualByComparingTo("10100");
+        assertThat(meterRegistry.get(BalanceProjection.EVENTS).counter().count()).isGreaterThanOrEqualTo(eventualEvents + 2);
+        assertThat(meterRegistry.get(BalanceProjection.LAG).timeGauge().value(TimeUnit.MILLISECONDS)).isZero();
+        assertThat(accountManager.getAccountBalance(fromAccountId, "strong").getHeaders().containsKey(BalanceProjection.LAG_HEADER)).isFalse();
+    }
+
+    /*
+     * Readers keep reading the projection while transfers commit, once the projector caught up it matches the account table.
+     */
+    @Test
+    @SneakyThrows
+    void givenConcurrentTransfersAndEventualReads_whenProjected_thenProjectionMatchesStrongReads() {
+        val accounts = 4;
+        val firstAccountId = createAccounts(accounts);
+        val numberOfThreads = 4;
+        val executorService = Executors.newFixedThreadPool(numberOfThreads);
+        val latch = new CountDownLatch(numberOfThreads);
+        for(int t = 0; t < numberOfThreads; t++) {
+            executorService.execute(() -> {
+                try {
+                    for(int i = 0; i < 25; i++) {
+                        val random = ThreadLocalRandom.current();
+                        val from = firstAccountId + random.nextInt(accounts);
+                        val to = firstAccountId + (from - firstAccountId + 1 + random.nextInt(accounts - 1)) % accounts;
+                        try {
+                            accountManager.transfer(new TransferRequest(from, to, amount, HKD.name()));
+                        } catch (RuntimeException re) {
+                            /* lock conflicts are expected under contention */
+                        }
+                        eventualBalance(to);
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        executorService.shutdown();
+        balanceProjection.awaitProjected();
+
+        BigDecimal total = BigDecimal.ZERO;
+        for(long accountId = firstAccountId; accountId < firstAccountId + accounts; accountId++) {
+            val strong = accountManager.getAccountBalance(accountId).getBody().getBalance();
+            assertThat(eventualBalance(accountId)).isEqualByComparingTo(strong);
+            total = total.add(strong);
+        }
+        assertThat(total).isEqualByComparingTo(balance.multiply(BigDecimal.valueOf(accounts)));
+    }
+
+    @Test
+    void givenMoreAccountsThanMaximumSize_whenRead_thenLeastRecentlyUsedEvicted() {
+        val properties = new BalanceProjectionProperties();
+        properties.setMaximumSize(32);
+        val boundedProjection = new BalanceProjection(properties, new LedgerProperties(), jdbcTemplate, shards,
+                new AccountBalanceCache(new BalanceCacheProperties()), new SimpleMeterRegistry());
+        val accounts = 200;
+        val firstAccountId = createAccounts(accounts);
+        for(long accountId = firstAccountId; accountId < firstAccountId + accounts; accountId++) {
+            assertThat(boundedProjection.get(accountId).getBalance()).isEqualByComparingTo(balance);
+        }
+        assertThat(boundedProjection.size()).isLessThanOrEqualTo(32);
+        assertThat(boundedProjection.get(firstAccountId).getBalance()).isEqualByComparingTo(balance);
+    }
+
+    @Test
+    void givenUnknownConsistencyOrAccount_whenEventualRead_thenRejected() {
+        val invalid = assertThrows(AccountManagerException.class, () -> accountManager.getAccountBalance(12345678L, "linearizable"));
+        assertThat(invalid.getErrorCode()).isEqualTo(INVALID_CONSISTENCY);
+        val missing = assertThrows(AccountManagerException.class, () -> accountManager.getAccountBalance(22999999L, "eventual"));
+        assertThat(missing.getErrorCode()).isEqualTo(ACCOUNT_NOT_FOUND);
+    }
+
+    private BigDecimal eventualBalance(final long accountId) {
+        return accountManager.getAccountBalance(accountId, "eventual").getBody().getBalance();
+    }
+
+    private long createAccounts(final int count) {
+        val firstAccountId = accountIds.getAndAdd(count);
+        accountProvisioner.provision(firstAccountId, count, Money.of(balance), HKD, AccountType.CURRENT);
+        return firstAccountId;
+    }
+}
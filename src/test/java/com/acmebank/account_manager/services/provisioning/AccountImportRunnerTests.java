@@ -0,0 +1,43 @@
+package com.acmebank.account_manager.services.provisioning;
+
+import com.acmebank.account_manager.configs.FxProperties;
+import com.acmebank.account_manager.configs.LedgerProperties;
+import com.acmebank.account_manager.configs.ReconciliationProperties;
+import com.acmebank.account_manager.configs.ShardingProperties;
+import com.acmebank.account_manager.configs.StandingOrderProperties;
+import com.acmebank.account_manager.services.projection.BalanceProjection;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles(AccountImportRunner.PROFILE)
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class AccountImportRunnerTests {
+    private final StandingOrderProperties standingOrderProperties;
+    private final ReconciliationProperties reconciliationProperties;
+    private final ShardingProperties shardingProperties;
+    private final FxProperties fxProperties;
+    private final LedgerProperties ledgerProperties;
+    private final BalanceProjection balanceProjection;
+
+    @Test
+    void givenImportArguments_whenChecked_thenImportModeDetected() {
+        assertThat(AccountImportRunner.isImport("--import-accounts=accounts.csv")).isTrue();
+        assertThat(AccountImportRunner.isImport("--server.port=8080")).isFalse();
+    }
+
+    @Test
+    void givenImportProfile_whenStarted_thenBackgroundWorkTurnedOff() {
+        assertThat(standingOrderProperties.isEnabled()).isFalse();
+        assertThat(reconciliationProperties.getCron()).isEqualTo("-");
+        assertThat(shardingProperties.getRecoveryInterval()).isZero();
+        assertThat(fxProperties.getReloadInterval()).isZero();
+        assertThat(ledgerProperties.isGroupCommit()).isFalse();
+        assertThat(balanceProjection.isEnabled()).isFalse();
+    }
+}
@@ -0,0 +1,125 @@
+package com.acmebank.account_manager.services.provisioning;
+
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.services.AccountManager;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static com.acmebank.account_manager.shared.Currency.USD;
+import static com.acmebank.account_manager.shared.Endpoint.IMPORT_ACCOUNTS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"acmebank.account-import.enabled=true", "acmebank.account-import.batch-size=1000",
+        "acmebank.account-import.maximum-rejected-lines=3"})
+@AutoConfigureMockMvc
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class AccountImporterTests {
+    private final AccountImporter accountImporter;
+    private final AccountManager accountManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final MockMvc mockMvc;
+
+    @Test
+    @SneakyThrows
+    void givenCsvWithInvalidLines_whenImported_thenValidAccountsCreatedAndRejectedLinesReported() {
+        val csv = "id,balance,currency,type\n"
+                + "23000001,1000.50,HKD,CURRENT\n"
+                + "23000002, 250 ,USD,SAVING\n"
+                + "\n"
+                + "23000003,100,JPY,CURRENT\n"
+                + "23000004,-1,HKD,CURRENT\n"
+                + "23000005,1.001,HKD,CURRENT\n"
+                + "23000006,100,HKD\n"
+                + "12345678,1,HKD,CURRENT\n";
+        val imported = accountImporter.importCsv(new StringReader(csv));
+
+        assertThat(imported.getLines()).isEqualTo(9);
+        assertThat(imported.getCreated()).isEqualTo(2);
+        assertThat(imported.getExisting()).isEqualTo(1);
+        assertThat(imported.getRejected()).isEqualTo(4);
+        assertThat(imported.getRejectedLines()).containsExactly(
+                "line 5: unsupported currency JPY",
+                "line 6: balance cannot be negative -1.00",
+                "line 7: invalid balance 1.001");
+        assertThat(accountManager.getAccountBalance(23000001L).getBody().getBalance()).isEqualByComparingTo("1000.50");
+        assertThat(accountManager.getAccountBalance(23000002L).getBody().getCurrency()).isEqualTo(USD);
+        assertThat(accountManager.getAccountBalance(12345678L).getBody().getBalance()).isNotEqualByComparingTo(BigDecimal.ONE);
+    }
+
+    /*
+     * Lines are generated while they are read, the file is never held in memory.
+     */
+    @Test
+    @SneakyThrows
+    void givenLargeStreamedCsv_whenImported_thenEveryAccountCreatedAndTransferable() {
+        val firstAccountId = 23100000L;
+        val count = 25_000;
+        val imported = accountImporter.importCsv(new GeneratedCsv(firstAccountId, count));
+
+        assertThat(imported.getCreated()).isEqualTo(count);
+        assertThat(imported.getRejected()).isZero();
+        assertThat(imported.getRowsPerSecond()).isPositive();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"account\" WHERE \"id\" BETWEEN ? AND ?", Long.class,
+                firstAccountId, firstAccountId + count - 1)).isEqualTo(count);
+        accountManager.transfer(new TransferRequest(firstAccountId, firstAccountId + count - 1, BigDecimal.valueOf(100), HKD.name()));
+        assertThat(accountManager.getAccountBalance(firstAccountId + count - 1).getBody().getBalance()).isEqualByComparingTo("600");
+    }
+
+    @Test
+    @SneakyThrows
+    void givenCsvBody_whenPostedToImportEndpoint_thenReported() {
+        mockMvc.perform(post(IMPORT_ACCOUNTS).contentType("text/csv")
+                        .content("23200001,100,HKD,CURRENT\n23200002,100,EUR,SAVING\n23200003,100,HKD,LOAN\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.rejectedLines[0]").value("line 3: unsupported account type LOAN"));
+    }
+
+    static final class GeneratedCsv extends Reader {
+        private final long firstAccountId;
+        private final int count;
+        private int next;
+        private String line = "";
+        private int position;
+
+        GeneratedCsv(final long firstAccountId, final int count) {
+            this.firstAccountId = firstAccountId;
+            this.count = count;
+        }
+
+        @Override
+        public int read(final char[] buffer, final int offset, final int length) {
+            if(position == line.length()) {
+                if(next == count) {
+                    return -1;
+                }
+                line = (firstAccountId + next++) + ",500.00,HKD,CURRENT\n";
+                position = 0;
+            }
+            val read = Math.min(length, line.length() - position);
+            line.getChars(position, position + read, buffer, offset);
+            position += read;
+            return read;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
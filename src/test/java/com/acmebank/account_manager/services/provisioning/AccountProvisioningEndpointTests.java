@@ -0,0 +1,61 @@
+package com.acmebank.account_manager.services.provisioning;
+
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.services.AccountManager;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"management.endpoint.provisioning.enabled=true", "management.endpoints.web.exposure.include=provisioning"})
+@AutoConfigureMockMvc
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class AccountProvisioningEndpointTests {
+    private final MockMvc mockMvc;
+    private final AccountManager accountManager;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    void givenAccountRange_whenProvisionedTwice_thenAccountsCreatedOnceAndTransferable() throws Exception {
+        mockMvc.perform(post("/actuator/provisioning").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstAccountId\": 20000001, \"count\": 2500, \"balance\": 500, \"currency\": \"HKD\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastAccountId").value(20002500))
+                .andExpect(jsonPath("$.created").value(2500));
+        mockMvc.perform(post("/actuator/provisioning").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstAccountId\": 20002001, \"count\": 1000, \"balance\": 1000000, \"currency\": \"HKD\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(500));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"account\" WHERE \"id\" BETWEEN 20000001 AND 20003000", Long.class))
+                .isEqualTo(3000L);
+        accountManager.transfer(new TransferRequest(20000001L, 20003000L, BigDecimal.valueOf(100), HKD.name()));
+        assertThat(accountManager.getAccountBalance(20000001L).getBody().getBalance()).isEqualByComparingTo(BigDecimal.valueOf(400));
+        assertThat(accountManager.getAccountBalance(20003000L).getBody().getBalance()).isEqualByComparingTo(BigDecimal.valueOf(1000100));
+    }
+
+    @Test
+    void givenInvalidRange_whenProvisioned_thenBadRequest() throws Exception {
+        mockMvc.perform(post("/actuator/provisioning").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstAccountId\": 20010001, \"count\": 0, \"balance\": 1000, \"currency\": \"HKD\"}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/actuator/provisioning").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstAccountId\": 20010001, \"count\": 10, \"balance\": 1000, \"currency\": \"JPY\"}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/actuator/provisioning").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstAccountId\": 20010001, \"count\": 10}"))
+                .andExpect(status().isBadRequest());
+    }
+}
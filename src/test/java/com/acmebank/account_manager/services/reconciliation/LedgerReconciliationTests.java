@@ -0,0 +1,128 @@
+package com.acmebank.account_manager.services.reconciliation;
+
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.data.models.responses.Discrepancy;
+import com.acmebank.account_manager.data.models.responses.ReconciliationReport;
+import com.acmebank.account_manager.services.LedgerEngine;
+import com.acmebank.account_manager.services.provisioning.AccountImporter;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "acmebank.reconciliation.chunk-size=5",
+        "acmebank.reconciliation.parallelism=4",
+        "acmebank.reconciliation.maximum-accounts=3"
+})
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class LedgerReconciliationTests {
+    private final LedgerReconciliation ledgerReconciliation;
+    private final LedgerEngine ledgerEngine;
+    private final AccountImporter accountImporter;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    void givenTransfersAndTamperedBalance_whenReconciled_thenOnlyTamperedAccountReported() {
+        createAccounts(25000001L, 4, "HKD");
+        createAccounts(25000005L, 1, "USD");
+        for(int i = 0; i < 20; i++) {
+            transfer(25000001L + i % 4, 25000001L + (i + 1) % 4, "10.25");
+        }
+        transfer(25000001L, 25000005L, "100");
+        transfer(25000002L, 25000005L, "0.01");
+        jdbcTemplate.update("UPDATE \"account\" SET \"balance\" = \"balance\" + 1.50 WHERE \"id\" = ?", 25000003L);
+
+        val report = ledgerReconciliation.reconcile();
+
+        assertThat(reported(report, 25000001L, 25000005L)).singleElement().satisfies(discrepancy -> {
+            assertThat(discrepancy.getAccountId()).isEqualTo(25000003L);
+            assertThat(discrepancy.getExpectedBalance()).isEqualByComparingTo("1000");
+            assertThat(discrepancy.getBalance()).isEqualByComparingTo("1001.50");
+            assertThat(discrepancy.getDifference()).isEqualByComparingTo("1.50");
+        });
+        assertThat(report.getRows()).isGreaterThanOrEqualTo(22)
+                .isLessThanOrEqualTo(2 * jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"transaction\"", Long.class));
+        assertThat(report.getAccounts()).isGreaterThanOrEqualTo(5);
+        assertThat(report.getRowsPerSecond()).isPositive();
+        assertThat(ledgerReconciliation.getLastReport()).isSameAs(report);
+    }
+
+    @Test
+    void givenTransfersCommittingWhileRunning_whenReconciled_thenNoDiscrepancyReported() throws InterruptedException {
+        createAccounts(25001001L, 10, "HKD");
+        for(int i = 0; i < 50; i++) {
+            transfer(25001001L + i % 10, 25001001L + (i + 3) % 10, "1");
+        }
+        val stopped = new AtomicBoolean();
+        val transfers = new AtomicLong();
+        val transferring = new Thread(() -> {
+            while(!stopped.get()) {
+                val from = 25001001L + ThreadLocalRandom.current().nextInt(10);
+                val to = 25001001L + (from - 25001001L + 1 + ThreadLocalRandom.current().nextInt(9)) % 10;
+                transfer(from, to, "0.37");
+                transfers.incrementAndGet();
+            }
+        });
+        transferring.start();
+
+        ReconciliationReport report;
+        try {
+            while(transfers.get() < 20) {
+                Thread.sleep(1);
+            }
+            report = ledgerReconciliation.reconcile();
+        } finally {
+            stopped.set(true);
+            transferring.join();
+        }
+
+        assertThat(reported(report, 25001001L, 25001010L)).isEmpty();
+        assertThat(ledgerReconciliation.reconcile().getReported()).noneMatch(discrepancy -> discrepancy.getAccountId() >= 25001001L
+                && discrepancy.getAccountId() <= 25001010L);
+    }
+
+    @Test
+    void givenAccountWithoutOpeningBalance_whenReconciled_thenCountedUnverifiableNotReported() {
+        jdbcTemplate.update("INSERT INTO \"account\" (\"id\", \"balance\", \"currency\", \"type\", \"created_at\", \"updated_at\") VALUES (?, 500, 0, 0, now(), now())",
+                25002001L);
+
+        val report = ledgerReconciliation.reconcile();
+
+        assertThat(report.getUnverifiable()).isPositive();
+        assertThat(reported(report, 25002001L, 25002001L)).isEmpty();
+    }
+
+    @SneakyThrows
+    private void createAccounts(final long firstAccountId, final int count, final String currency) {
+        val csv = new StringBuilder();
+        for(int i = 0; i < count; i++) {
+            csv.append(firstAccountId + i).append(",1000,").append(currency).append(",CURRENT\n");
+        }
+        assertThat(accountImporter.importCsv(new StringReader(csv.toString())).getCreated()).isEqualTo(count);
+    }
+
+    private void transfer(final long fromAccountId, final long toAccountId, final String amount) {
+        ledgerEngine.transfer(new TransferRequest(fromAccountId, toAccountId, new BigDecimal(amount), HKD.name()));
+    }
+
+    private static List<Discrepancy> reported(final ReconciliationReport report, final long firstAccountId, final long lastAccountId) {
+        return report.getReported().stream()
+                .filter(discrepancy -> discrepancy.getAccountId() >= firstAccountId && discrepancy.getAccountId() <= lastAccountId)
+                .collect(Collectors.toList());
+    }
+}
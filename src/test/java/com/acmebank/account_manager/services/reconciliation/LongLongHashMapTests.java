@@ -0,0 +1,47 @@
+package com.acmebank.account_manager.services.reconciliation;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LongLongHashMapTests {
+
+    @Test
+    void givenRandomAdditions_whenSummed_thenSameAsBoxedMap() {
+        val random = new Random(25);
+        val map = new LongLongHashMap();
+        val expected = new HashMap<Long, Long>();
+        for(int i = 0; i < 200_000; i++) {
+            val key = random.nextInt(50_000) - 1_000L;
+            val delta = random.nextInt(2_000_001) - 1_000_000L;
+            map.add(key, delta);
+            expected.merge(key, delta, Long::sum);
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        expected.forEach((key, sum) -> assertThat(map.get(key)).as("key %d", key).isEqualTo(sum));
+        assertThat(map.get(60_000)).isZero();
+    }
+
+    @Test
+    void givenTwoMaps_whenAddedAll_thenSumsOfBoth() {
+        val map = new LongLongHashMap();
+        map.add(0, 5);
+        map.add(25000001L, -100);
+        val other = new LongLongHashMap(1);
+        other.add(0, 1);
+        other.add(25000001L, 40);
+        other.add(25000002L, 60);
+
+        map.addAll(other);
+
+        assertThat(map.size()).isEqualTo(3);
+        assertThat(map.get(0)).isEqualTo(6);
+        assertThat(map.get(25000001L)).isEqualTo(-60);
+        assertThat(map.get(25000002L)).isEqualTo(60);
+    }
+}
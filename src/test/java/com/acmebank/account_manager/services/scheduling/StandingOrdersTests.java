@@ -0,0 +1,189 @@
+package com.acmebank.account_manager.services.scheduling;
+
+import com.acmebank.account_manager.configs.StandingOrderProperties;
+import com.acmebank.account_manager.data.models.requests.StandingOrderRequest;
+import com.acmebank.account_manager.data.models.responses.StandingOrderDetails;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.services.AccountManager;
+import com.acmebank.account_manager.services.LedgerEngine;
+import com.acmebank.account_manager.services.provisioning.AccountImporter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.function.Predicate;
+
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static com.acmebank.account_manager.shared.Currency.USD;
+import static com.acmebank.account_manager.shared.ErrorCode.ACCOUNT_NOT_FOUND;
+import static com.acmebank.account_manager.shared.ErrorCode.INSUFFICIENT_FUND;
+import static com.acmebank.account_manager.shared.ErrorCode.STANDING_ORDER_NOT_FOUND;
+import static com.acmebank.account_manager.shared.Frequency.DAILY;
+import static com.acmebank.account_manager.shared.Frequency.MONTHLY;
+import static com.acmebank.account_manager.shared.StandingOrderOutcome.COMPLETED;
+import static com.acmebank.account_manager.shared.StandingOrderOutcome.REJECTED;
+import static com.acmebank.account_manager.shared.StandingOrderState.ACTIVE;
+import static com.acmebank.account_manager.shared.StandingOrderState.CANCELLED;
+import static com.acmebank.account_manager.shared.StandingOrderState.FINISHED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {"acmebank.standing-orders.tick=100ms", "acmebank.standing-orders.horizon=1m",
+        "acmebank.standing-orders.batch-size=50"})
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class StandingOrdersTests {
+    static final BigDecimal amount = BigDecimal.valueOf(100);
+    private final StandingOrders standingOrders;
+    private final AccountManager accountManager;
+    private final AccountImporter accountImporter;
+    private final LedgerEngine ledgerEngine;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Test
+    void givenDailyOrderStartedDaysAgo_whenCreated_thenEveryMissedFiringMadeOnceAndNextRunTomorrow() {
+        createAccounts(24000001L, 2, "1000");
+        val firstRunAt = Instant.now().minus(2, ChronoUnit.DAYS).minus(1, ChronoUnit.MINUTES).truncatedTo(ChronoUnit.MILLIS);
+        val created = standingOrders.create(new StandingOrderRequest(24000001L, 24000002L, amount, HKD.name(), firstRunAt, DAILY.name()));
+
+        val fired = await(created.getId(), order -> order.getRuns() == 3 && order.getLastOutcome() == COMPLETED);
+
+        assertThat(fired.getState()).isEqualTo(ACTIVE);
+        assertThat(fired.getNextRunAt()).isEqualTo(firstRunAt.plus(3, ChronoUnit.DAYS));
+        assertThat(fired.getLastTransactionId()).isNotNull();
+        assertThat(balance(24000001L)).isEqualByComparingTo("700");
+        assertThat(balance(24000002L)).isEqualByComparingTo("1300");
+    }
+
+    @Test
+    void givenInsufficientFund_whenOnceOrderFires_thenRejectedAndFinished() {
+        createAccounts(24000011L, 2, "50");
+        val created = standingOrders.create(new StandingOrderRequest(24000011L, 24000012L, amount, HKD.name(), Instant.now(), null));
+
+        val fired = await(created.getId(), order -> order.getState() == FINISHED && order.getLastOutcome() == REJECTED);
+
+        assertThat(fired.getRuns()).isEqualTo(1);
+        assertThat(fired.getNextRunAt()).isNull();
+        assertThat(fired.getLastErrorCode()).isEqualTo(INSUFFICIENT_FUND.getCode());
+        assertThat(balance(24000011L)).isEqualByComparingTo("50");
+    }
+
+    @Test
+    void givenFutureOrder_whenCancelled_thenCancelledAndNeverFired() {
+        createAccounts(24000021L, 2, "1000");
+        val created = standingOrders.create(new StandingOrderRequest(24000021L, 24000022L, amount, HKD.name(),
+                Instant.now().plusSeconds(1), MONTHLY.name()));
+
+        val cancelled = standingOrders.cancel(created.getId());
+        sleep(Duration.ofMillis(1500));
+
+        assertThat(cancelled.getState()).isEqualTo(CANCELLED);
+        assertThat(standingOrders.cancel(created.getId()).getState()).isEqualTo(CANCELLED);
+        assertThat(standingOrders.get(created.getId()).getRuns()).isZero();
+        assertThat(balance(24000021L)).isEqualByComparingTo("1000");
+        val notFound = assertThrows(AccountManagerException.class, () -> standingOrders.get(-1));
+        assertThat(notFound.getErrorCode()).isEqualTo(STANDING_ORDER_NOT_FOUND);
+    }
+
+    @Test
+    void givenCurrencyOtherThanFromAccount_whenCreated_thenRejected() {
+        createAccounts(24000041L, 2, "1000");
+        val mismatched = assertThrows(AccountManagerException.class, () -> standingOrders.create(
+                new StandingOrderRequest(24000041L, 24000042L, amount, USD.name(), Instant.now(), DAILY.name())));
+        assertThat(mismatched.getErrorCode()).isEqualTo(ACCOUNT_NOT_FOUND);
+        assertThat(mismatched.getParams()).containsExactly("24000041");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"standing_order\" WHERE \"from_account\" = ?", Integer.class, 24000041L)).isZero();
+    }
+
+    /*
+     * A second scheduler starting on a table holding an order overdue since before it started, as after a restart,
+     * makes the missed firings on its first load; the claim keeps both schedulers from making one twice.
+     */
+    @Test
+    @SneakyThrows
+    void givenOrderOverdueInTable_whenSchedulerStarts_thenMissedFiringsMadeExactlyOnce() {
+        createAccounts(24000031L, 2, "1000");
+        val firstRunAt = Timestamp.from(Instant.now().minus(1, ChronoUnit.DAYS).minus(1, ChronoUnit.MINUTES));
+        val now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.update("INSERT INTO \"standing_order\" (\"from_account\", \"to_account\", \"amount\", \"currency\", \"frequency\", "
+                        + "\"first_run_at\", \"next_run_at\", \"runs\", \"state\", \"created_at\", \"updated_at\") VALUES (?, ?, ?, ?, ?, ?, ?, 0, ?, ?, ?)",
+                24000031L, 24000032L, amount, HKD.ordinal(), DAILY.ordinal(), firstRunAt, firstRunAt, ACTIVE.ordinal(), now, now);
+        val id = jdbcTemplate.queryForObject("SELECT \"id\" FROM \"standing_order\" WHERE \"from_account\" = ?", Long.class, 24000031L);
+        val properties = new StandingOrderProperties();
+        properties.setTick(Duration.ofMillis(100));
+        val restarted = new StandingOrders(properties, jdbcTemplate, transactionManager, ledgerEngine, new SimpleMeterRegistry());
+        restarted.start();
+        try {
+            await(id, order -> order.getRuns() == 2 && order.getLastOutcome() == COMPLETED);
+        } finally {
+            restarted.stop();
+        }
+        sleep(Duration.ofMillis(500));
+
+        assertThat(standingOrders.get(id).getRuns()).isEqualTo(2);
+        assertThat(balance(24000031L)).isEqualByComparingTo("800");
+    }
+
+    @Test
+    void givenBurstOfOrdersDueAtOnce_whenFired_thenEveryOrderCompletedInBatches() {
+        val accounts = 20;
+        val perAccount = 15;
+        createAccounts(24001001L, accounts, "10000");
+        val dueAt = Instant.now().plusMillis(500);
+        val ids = new ArrayList<Long>();
+        for(int i = 0; i < accounts * perAccount; i++) {
+            val from = 24001001L + i % accounts;
+            val to = 24001001L + (i + 1) % accounts;
+            ids.add(standingOrders.create(new StandingOrderRequest(from, to, amount, HKD.name(), dueAt, null)).getId());
+        }
+
+        ids.forEach(id -> await(id, order -> order.getLastOutcome() == COMPLETED));
+
+        for(int i = 0; i < accounts; i++) {
+            assertThat(balance(24001001L + i)).isEqualByComparingTo("10000");
+        }
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"transaction\" WHERE \"from_account\" BETWEEN ? AND ?",
+                Long.class, 24001001L, 24001001L + accounts - 1)).isEqualTo(accounts * perAccount);
+    }
+
+    @SneakyThrows
+    private void createAccounts(final long firstAccountId, final int count, final String balance) {
+        val csv = new StringBuilder();
+        for(int i = 0; i < count; i++) {
+            csv.append(firstAccountId + i).append(',').append(balance).append(",HKD,CURRENT\n");
+        }
+        assertThat(accountImporter.importCsv(new StringReader(csv.toString())).getCreated()).isEqualTo(count);
+    }
+
+    private BigDecimal balance(final long accountId) {
+        return accountManager.getAccountBalance(accountId).getBody().getBalance();
+    }
+
+    private StandingOrderDetails await(final long id, final Predicate<StandingOrderDetails> condition) {
+        val deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        StandingOrderDetails order;
+        while(!condition.test(order = standingOrders.get(id))) {
+            assertThat(System.nanoTime()).as("standing order %d: %s", id, order).isLessThan(deadline);
+            sleep(Duration.ofMillis(20));
+        }
+        return order;
+    }
+
+    @SneakyThrows
+    private static void sleep(final Duration duration) {
+        Thread.sleep(duration.toMillis());
+    }
+}
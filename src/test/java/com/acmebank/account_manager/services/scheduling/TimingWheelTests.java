@@ -0,0 +1,55 @@
+package com.acmebank.account_manager.services.scheduling;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TimingWheelTests {
+
+    @Test
+    void givenIdsDueOnEveryLevelAndBeyond_whenAdvanced_thenEachEmittedAtItsDueTickOnly() {
+        val start = 1_000_003L;
+        val wheel = new TimingWheel(start);
+        val delays = new long[] {1, 63, 64, 65, 4_095, 4_096, 300_000, 20_000_000};
+        for(int i = 0; i < delays.length; i++) {
+            wheel.schedule(i, start + delays[i]);
+        }
+        assertThat(wheel.size()).isEqualTo(delays.length);
+
+        for(int i = 0; i < delays.length; i++) {
+            assertThat(wheel.advance(start + delays[i] - 1)).isEmpty();
+            assertThat(wheel.advance(start + delays[i])).containsExactly(i);
+        }
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void givenIdDueAlready_whenScheduled_thenDueAtNextTick() {
+        val wheel = new TimingWheel(500);
+        wheel.schedule(7, 10);
+        wheel.schedule(8, 500);
+
+        assertThat(wheel.advance(501)).containsExactly(7, 8);
+        assertThat(wheel.tick()).isEqualTo(501);
+    }
+
+    @Test
+    void givenBurstAtOneTick_whenAdvancedPastIt_thenEveryIdEmittedOnceInDueOrder() {
+        val wheel = new TimingWheel(0);
+        val burst = 100_000;
+        LongStream.range(0, burst).forEach(id -> wheel.schedule(id, 3_600));
+        wheel.schedule(burst, 3_599);
+        wheel.schedule(burst + 1, 3_601);
+
+        val due = wheel.advance(3_700);
+
+        assertThat(due).hasSize(burst + 2);
+        assertThat(due[0]).isEqualTo(burst);
+        assertThat(due[burst + 1]).isEqualTo(burst + 1);
+        assertThat(LongStream.of(due).distinct().count()).isEqualTo(burst + 2);
+        assertThat(wheel.size()).isZero();
+    }
+}
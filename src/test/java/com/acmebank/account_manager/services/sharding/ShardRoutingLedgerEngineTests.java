@@ -0,0 +1,236 @@
+package com.acmebank.account_manager.services.sharding;
+
+import com.acmebank.account_manager.data.entities.TransferSaga.State;
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.data.sharding.Shards;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.services.AccountManager;
+import com.acmebank.account_manager.services.LedgerEngine;
+import com.acmebank.account_manager.services.provisioning.AccountProvisioner;
+import com.acmebank.account_manager.services.striping.StripedBalances;
+import com.acmebank.account_manager.shared.AccountType;
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.Money;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.acmebank.account_manager.data.entities.TransferSaga.State.ABORTED;
+import static com.acmebank.account_manager.data.entities.TransferSaga.State.COMPENSATED;
+import static com.acmebank.account_manager.data.entities.TransferSaga.State.COMPLETED;
+import static com.acmebank.account_manager.data.entities.TransferSaga.State.CREDITED;
+import static com.acmebank.account_manager.data.entities.TransferSaga.State.DEBITED;
+import static com.acmebank.account_manager.services.sharding.CrossShardTransferSaga.ID_STRIDE;
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static com.acmebank.account_manager.shared.Currency.USD;
+import static com.acmebank.account_manager.shared.ErrorCode.ACCOUNT_NOT_FOUND;
+import static com.acmebank.account_manager.shared.ErrorCode.INSUFFICIENT_FUND;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {
+        "acmebank.sharding.datasources[0].url=jdbc:h2:file:./target/sharding-tests/${random.uuid}",
+        "acmebank.sharding.datasources[0].username=sa",
+        "acmebank.sharding.datasources[1].url=jdbc:h2:file:./target/sharding-tests/${random.uuid}",
+        "acmebank.sharding.datasources[1].username=sa",
+        "acmebank.sharding.datasources[2].url=jdbc:h2:file:./target/sharding-tests/${random.uuid}",
+        "acmebank.sharding.datasources[2].username=sa",
+        "acmebank.sharding.recovery-interval=0s"
+})
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class ShardRoutingLedgerEngineTests {
+    private final LedgerEngine ledgerEngine;
+    private final AccountManager accountManager;
+    private final CrossShardTransferSaga crossShardTransferSaga;
+    private final AccountProvisioner accountProvisioner;
+    private final StripedBalances stripedBalances;
+    private final Shards shards;
+    private final JdbcTemplate jdbcTemplate;
+    /* three accounts in a row land on shards 0, 1 and 2, every test gets nine */
+    static final AtomicLong accountIds = new AtomicLong(21000000L);
+    static final BigDecimal balance = BigDecimal.valueOf(1000);
+    static final BigDecimal amount = BigDecimal.valueOf(100);
+
+    @Test
+    void givenShardedDatasources_whenStarted_thenRoutingEngineAndDisjointIdRangesPerShard() {
+        assertThat(ledgerEngine).isInstanceOf(ShardRoutingLedgerEngine.class);
+        assertThat(shards.getCount()).isEqualTo(3);
+        for(int shard = 1; shard < 3; shard++) {
+            val base = shards.on(shard, () -> jdbcTemplate.queryForObject(
+                    "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'transaction_seq'", Long.class));
+            assertThat(base).isGreaterThan(shard * ID_STRIDE);
+        }
+    }
+
+    @Test
+    void givenAccountsOnSameShard_whenTransfer_thenAppliedOnThatShardOnly() {
+        val fromAccountId = createAccounts(4);
+        val toAccountId = fromAccountId + 3;
+        assertThat(shards.of(fromAccountId)).isEqualTo(shards.of(toAccountId));
+
+        val transaction = ledgerEngine.transfer(new TransferRequest(fromAccountId, toAccountId, amount, HKD.name()));
+
+        assertThat(transaction.getFromAccountBalance().getBalance()).isEqualByComparingTo("900");
+        assertThat(transaction.getToAccountBalance().getBalance()).isEqualByComparingTo("1100");
+        val shard = shards.of(fromAccountId);
+        assertThat(transactionRows(shard, transaction.getTransactionId())).isEqualTo(1);
+        assertThat(transactionRows((shard + 1) % 3, transaction.getTransactionId())).isZero();
+        assertThat(sagaState(shard, transaction.getTransactionId())).isNull();
+    }
+
+    @Test
+    void givenAccountsOnDifferentShards_whenTransfer_thenRecordedOnBothShardsAndSagaCompleted() {
+        val fromAccountId = createAccounts(2);
+        val toAccountId = fromAccountId + 1;
+        accountProvisioner.provision(toAccountId + 1, 1, Money.of(balance), USD, AccountType.CURRENT);
+        val usdAccountId = toAccountId + 1;
+
+        val transaction = ledgerEngine.transfer(new TransferRequest(fromAccountId, toAccountId, amount, HKD.name()));
+        val converted = ledgerEngine.transfer(new TransferRequest(fromAccountId, usdAccountId, amount, HKD.name()));
+
+        assertThat(transaction.getFromAccountBalance().getBalance()).isEqualByComparingTo("900");
+        assertThat(transaction.getToAccountBalance().getBalance()).isEqualByComparingTo("1100");
+        assertThat(converted.getToAccountBalance().getBalance()).isEqualByComparingTo("1012.80");
+        assertThat(ledgerEngine.getAccountBalance(fromAccountId).getBalance()).isEqualByComparingTo("800");
+        assertThat(ledgerEngine.getAccountBalance(toAccountId).getBalance()).isEqualByComparingTo("1100");
+        val id = transaction.getTransactionId();
+        assertThat(transactionRows(shards.of(fromAccountId), id)).isEqualTo(1);
+        assertThat(transactionRows(shards.of(toAccountId), id)).isEqualTo(1);
+        assertThat(sagaState(shards.of(fromAccountId), id)).isEqualTo(COMPLETED);
+        assertThat(sagaState(shards.of(toAccountId), id)).isEqualTo(CREDITED);
+
+        val fromHistory = accountManager.getTransactionHistory(fromAccountId, null, 10).getBody().getTransactions();
+        assertThat(fromHistory).extracting("transactionId").containsExactly(converted.getTransactionId(), id);
+        val toHistory = accountManager.getTransactionHistory(toAccountId, null, 10).getBody().getTransactions();
+        assertThat(toHistory).extracting("transactionId").containsExactly(id);
+        assertThat(statement(usdAccountId)).contains("," + fromAccountId + ",12.80,USD,1012.80");
+    }
+
+    @Test
+    void givenCreditFails_whenCrossShardTransfer_thenDebitCompensatedAndCreditFenced() {
+        val fromAccountId = createAccounts(2);
+        val toAccountId = fromAccountId + 1;
+        stripedBalances.stripe(toAccountId, 2);
+        /* the credit finds no slot to update */
+        shards.run(shards.of(toAccountId), () -> jdbcTemplate.update("DELETE FROM \"account_stripe\" WHERE \"account_id\" = ?", toAccountId));
+
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> ledgerEngine.transfer(new TransferRequest(fromAccountId, toAccountId, amount, HKD.name())));
+        stripedBalances.stripe(toAccountId, 0);
+
+        assertThat(ledgerEngine.getAccountBalance(fromAccountId).getBalance()).isEqualByComparingTo("1000");
+        assertThat(ledgerEngine.getAccountBalance(toAccountId).getBalance()).isEqualByComparingTo("1000");
+        val id = shards.on(shards.of(fromAccountId), () -> jdbcTemplate.queryForObject(
+                "SELECT \"id\" FROM \"transfer_saga\" WHERE \"from_account\" = ?", Long.class, fromAccountId));
+        assertThat(sagaState(shards.of(fromAccountId), id)).isEqualTo(COMPENSATED);
+        assertThat(sagaState(shards.of(toAccountId), id)).isEqualTo(ABORTED);
+        assertThat(transactionRows(shards.of(fromAccountId), id)).isZero();
+        assertThat(transactionRows(shards.of(toAccountId), id)).isZero();
+
+        val missing = assertThrows(AccountManagerException.class,
+                () -> ledgerEngine.transfer(new TransferRequest(fromAccountId, toAccountId + 3, amount, HKD.name())));
+        assertThat(missing.getErrorCode()).isEqualTo(ACCOUNT_NOT_FOUND);
+        val insufficient = assertThrows(AccountManagerException.class,
+                () -> ledgerEngine.transfer(new TransferRequest(fromAccountId, toAccountId, BigDecimal.valueOf(5000), HKD.name())));
+        assertThat(insufficient.getErrorCode()).isEqualTo(INSUFFICIENT_FUND);
+        assertThat(ledgerEngine.getAccountBalance(fromAccountId).getBalance()).isEqualByComparingTo("1000");
+    }
+
+    /*
+     * Two transfers whose process stopped after the debit: the credit of the first had committed, the second had not.
+     */
+    @Test
+    void givenStaleDebitedSagas_whenRecovered_thenCreditedOneCompletedAndOtherCompensated() {
+        val fromAccountId = createAccounts(2);
+        val toAccountId = fromAccountId + 1;
+        val fromShard = shards.of(fromAccountId);
+        val toShard = shards.of(toAccountId);
+        val stale = new Timestamp(System.currentTimeMillis() - 60_000);
+        val creditedId = fromShard * ID_STRIDE + 1_000_000 + toAccountId;
+        val lostId = creditedId + 1;
+        for(val id : List.of(creditedId, lostId)) {
+            shards.run(fromShard, () -> {
+                jdbcTemplate.update("UPDATE \"account\" SET \"balance\" = \"balance\" - ? WHERE \"id\" = ?", amount, fromAccountId);
+                jdbcTemplate.update("INSERT INTO \"transaction\" (\"id\", \"from_account\", \"to_account\", \"amount\", \"currency\", \"create_at\")"
+                        + " VALUES (?, ?, ?, ?, ?, ?)", id, fromAccountId, toAccountId, amount, HKD.ordinal(), stale);
+                insertSaga(id, fromAccountId, toAccountId, DEBITED, stale);
+            });
+        }
+        shards.run(toShard, () -> {
+            jdbcTemplate.update("UPDATE \"account\" SET \"balance\" = \"balance\" + ? WHERE \"id\" = ?", amount, toAccountId);
+            insertSaga(creditedId, fromAccountId, toAccountId, CREDITED, stale);
+        });
+
+        assertThat(crossShardTransferSaga.recover()).isEqualTo(2);
+        assertThat(crossShardTransferSaga.recover()).isZero();
+
+        assertThat(sagaState(fromShard, creditedId)).isEqualTo(COMPLETED);
+        assertThat(sagaState(fromShard, lostId)).isEqualTo(COMPENSATED);
+        assertThat(sagaState(toShard, lostId)).isEqualTo(ABORTED);
+        assertThat(transactionRows(fromShard, creditedId)).isEqualTo(1);
+        assertThat(transactionRows(fromShard, lostId)).isZero();
+        assertThat(ledgerEngine.getAccountBalance(fromAccountId).getBalance()).isEqualByComparingTo("900");
+        assertThat(ledgerEngine.getAccountBalance(toAccountId).getBalance()).isEqualByComparingTo("1100");
+    }
+
+    @Test
+    void givenMixedBatch_whenTransferBatch_thenEachTransferRoutedAndResultsInRequestOrder() {
+        val firstAccountId = createAccounts(6);
+        val results = ledgerEngine.transferBatch(List.of(
+                new TransferRequest(firstAccountId, firstAccountId + 1, amount, HKD.name()),
+                new TransferRequest(firstAccountId, firstAccountId + 3, amount, HKD.name()),
+                new TransferRequest(firstAccountId + 1, firstAccountId + 4, BigDecimal.valueOf(5000), HKD.name()),
+                new TransferRequest(firstAccountId + 2, firstAccountId + 5, amount, HKD.name()),
+                new TransferRequest(firstAccountId + 5, firstAccountId + 6, amount, HKD.name())));
+
+        assertThat(results).extracting("index").containsExactly(0, 1, 2, 3, 4);
+        assertThat(results.get(0).getTransaction().getToAccountBalance().getBalance()).isEqualByComparingTo("1100");
+        /* same-shard transfers are applied before cross-shard ones */
+        assertThat(results.get(1).getTransaction().getFromAccountBalance().getBalance()).isEqualByComparingTo("900");
+        assertThat(results.get(0).getTransaction().getFromAccountBalance().getBalance()).isEqualByComparingTo("800");
+        assertThat(results.get(2).getError().getCode()).isEqualTo(INSUFFICIENT_FUND.getCode());
+        assertThat(results.get(3).getTransaction().getToAccountBalance().getBalance()).isEqualByComparingTo("1100");
+        assertThat(results.get(4).getError().getCode()).isEqualTo(ACCOUNT_NOT_FOUND.getCode());
+        assertThat(ledgerEngine.getAccountBalance(firstAccountId).getBalance()).isEqualByComparingTo("800");
+    }
+
+    private long createAccounts(final int count) {
+        val firstAccountId = accountIds.getAndAdd(9);
+        accountProvisioner.provision(firstAccountId, count, Money.of(balance), HKD, AccountType.CURRENT);
+        return firstAccountId;
+    }
+
+    private long transactionRows(final int shard, final long id) {
+        return shards.on(shard, () -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"transaction\" WHERE \"id\" = ?", Long.class, id));
+    }
+
+    private State sagaState(final int shard, final long id) {
+        val states = shards.on(shard, () -> jdbcTemplate.queryForList("SELECT \"state\" FROM \"transfer_saga\" WHERE \"id\" = ?", Integer.class, id));
+        return states.isEmpty() ? null : State.values()[states.get(0)];
+    }
+
+    private void insertSaga(final long id, final long fromAccountId, final long toAccountId, final State state, final Timestamp at) {
+        jdbcTemplate.update("INSERT INTO \"transfer_saga\" (\"id\", \"from_account\", \"to_account\", \"amount\", \"currency\", \"to_amount\","
+                        + " \"to_currency\", \"rate\", \"state\", \"created_at\", \"updated_at\") VALUES (?, ?, ?, ?, ?, ?, ?, 1, ?, ?, ?)",
+                id, fromAccountId, toAccountId, amount, HKD.ordinal(), amount, HKD.ordinal(), state.ordinal(), at, at);
+    }
+
+    @SneakyThrows
+    private String statement(final long accountId) {
+        val out = new ByteArrayOutputStream();
+        accountManager.getStatement(accountId, "csv", null, null).getBody().writeTo(out);
+        return out.toString(UTF_8);
+    }
+}
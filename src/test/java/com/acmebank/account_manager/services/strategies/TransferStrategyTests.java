@@ -0,0 +1,158 @@
+package com.acmebank.account_manager.services.strategies;
+
+import com.acmebank.account_manager.configs.LedgerProperties.Concurrency;
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.shared.Currency;
+import com.acmebank.account_manager.shared.ErrorCode;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static com.acmebank.account_manager.shared.Currency.USD;
+import static com.acmebank.account_manager.shared.Currency.XXX;
+import static com.acmebank.account_manager.shared.ErrorCode.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Slf4j
+@SpringBootTest
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class TransferStrategyTests {
+    private final List<TransferStrategy> transferStrategies;
+    private final JdbcTemplate jdbcTemplate;
+    static final AtomicLong accountIds = new AtomicLong(60000000L);
+    static final BigDecimal balance = BigDecimal.valueOf(1000000);
+    static final BigDecimal amount = BigDecimal.valueOf(100);
+
+    @ParameterizedTest
+    @EnumSource(Concurrency.class)
+    void givenTransferStrategy_whenTransferRejected_thenErrorCodeMatchedAndBalancesUntouched(final Concurrency concurrency) {
+        val strategy = strategy(concurrency);
+        val fromAccountId = createAccount();
+        val toAccountId = createAccount();
+        assertErrorCode(strategy, new TransferRequest(fromAccountId, 123456789L, amount, HKD.name()), ACCOUNT_NOT_FOUND);
+        assertErrorCode(strategy, new TransferRequest(123456789L, toAccountId, amount, HKD.name()), ACCOUNT_NOT_FOUND);
+        assertErrorCode(strategy, new TransferRequest(fromAccountId, toAccountId, amount, XXX.name()), ACCOUNT_NOT_FOUND);
+        assertErrorCode(strategy, new TransferRequest(fromAccountId, toAccountId, balance.add(amount), HKD.name()), INSUFFICIENT_FUND);
+        assertErrorCode(strategy, new TransferRequest(toAccountId, fromAccountId, balance.add(amount), HKD.name()), INSUFFICIENT_FUND);
+        assertErrorCode(strategy, new TransferRequest(fromAccountId, fromAccountId, amount, HKD.name()), SAME_ACCOUNT);
+        assertThat(storedBalance(fromAccountId)).isEqualByComparingTo(balance);
+        assertThat(storedBalance(toAccountId)).isEqualByComparingTo(balance);
+    }
+
+    /*
+     * 100 HKD at 7.8125 HKD per USD credits 12.80 USD, the transaction keeps both legs and the rate.
+     */
+    @ParameterizedTest
+    @EnumSource(Concurrency.class)
+    void givenAccountsInDifferentCurrencies_whenTransfer_thenCreditConvertedAndRateStored(final Concurrency concurrency) {
+        val strategy = strategy(concurrency);
+        val fromAccountId = createAccount();
+        val toAccountId = createAccount(USD);
+        val transaction = strategy.transfer(new TransferRequest(fromAccountId, toAccountId, amount, HKD.name()));
+        val credited = new BigDecimal("12.80");
+        assertThat(transaction.getFromAccountBalance().getBalance()).isEqualByComparingTo(balance.subtract(amount));
+        assertThat(transaction.getToAccountBalance().getBalance()).isEqualByComparingTo(balance.add(credited));
+        assertThat(transaction.getToAccountBalance().getCurrency()).isEqualTo(USD);
+        assertThat(storedBalance(fromAccountId)).isEqualByComparingTo(balance.subtract(amount));
+        assertThat(storedBalance(toAccountId)).isEqualByComparingTo(balance.add(credited));
+        val stored = jdbcTemplate.queryForMap("SELECT \"amount\", \"to_amount\", \"to_currency\", \"rate\" FROM \"transaction\" WHERE \"id\" = ?",
+                transaction.getTransactionId());
+        assertThat((BigDecimal) stored.get("amount")).isEqualByComparingTo(amount);
+        assertThat((BigDecimal) stored.get("to_amount")).isEqualByComparingTo(credited);
+        assertThat(stored.get("to_currency")).isEqualTo(USD.ordinal());
+        assertThat((BigDecimal) stored.get("rate")).isEqualByComparingTo("0.128");
+
+        assertErrorCode(strategy, new TransferRequest(fromAccountId, createAccount(XXX), amount, HKD.name()), FX_RATE_UNAVAILABLE);
+        assertErrorCode(strategy, new TransferRequest(toAccountId, fromAccountId, amount, HKD.name()), ACCOUNT_NOT_FOUND);
+        assertThat(storedBalance(fromAccountId)).isEqualByComparingTo(balance.subtract(amount));
+    }
+
+    /*
+     * Every thread moves money back and forth between the same two accounts, the worst case for row contention.
+     * Throughput is logged so the strategies can be compared on the machine running the build.
+     */
+    @SneakyThrows
+    @ParameterizedTest
+    @EnumSource(Concurrency.class)
+    void givenTransferStrategy_whenTransfersContendOnSameAccounts_thenTotalAmountKept(final Concurrency concurrency) {
+        val strategy = strategy(concurrency);
+        val firstAccountId = createAccount();
+        val secondAccountId = createAccount();
+        val numberOfThreads = 4;
+        val transfersPerThread = 50;
+        val completed = new AtomicInteger();
+        val failed = new AtomicInteger();
+        val executorService = Executors.newFixedThreadPool(numberOfThreads);
+        val latch = new CountDownLatch(numberOfThreads);
+        val start = System.nanoTime();
+        for(int t = 0; t < numberOfThreads; t++) {
+            val forward = t % 2 == 0;
+            executorService.execute(() -> {
+                try {
+                    for(int i = 0; i < transfersPerThread; i++) {
+                        try {
+                            strategy.transfer(forward
+                                    ? new TransferRequest(firstAccountId, secondAccountId, amount, HKD.name())
+                                    : new TransferRequest(secondAccountId, firstAccountId, amount, HKD.name()));
+                            completed.incrementAndGet();
+                        } catch (ConcurrencyFailureException cfe) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        val elapsedNanos = System.nanoTime() - start;
+        executorService.shutdown();
+        log.info("{} strategy: {} completed, {} failed on contention, {} transfers/s.",
+                concurrency, completed.get(), failed.get(), String.format("%.0f", completed.get() * 1e9 / elapsedNanos));
+
+        assertThat(completed.get() + failed.get()).isEqualTo(numberOfThreads * transfersPerThread);
+        assertThat(completed.get()).isPositive();
+        assertThat(storedBalance(firstAccountId).add(storedBalance(secondAccountId))).isEqualByComparingTo(balance.add(balance));
+    }
+
+    private TransferStrategy strategy(final Concurrency concurrency) {
+        return transferStrategies.stream().filter(s -> s.getConcurrency() == concurrency).findFirst().orElseThrow();
+    }
+
+    private static void assertErrorCode(final TransferStrategy strategy, final TransferRequest request, final ErrorCode errorCode) {
+        val thrown = assertThrows(AccountManagerException.class, () -> strategy.transfer(request));
+        assertThat(thrown.getErrorCode()).isEqualTo(errorCode);
+    }
+
+    private long createAccount() {
+        return createAccount(HKD);
+    }
+
+    private long createAccount(final Currency currency) {
+        val accountId = accountIds.incrementAndGet();
+        jdbcTemplate.update("INSERT INTO \"account\" (\"id\", \"balance\", \"currency\", \"type\", \"created_at\", \"updated_at\") VALUES (?, ?, ?, ?, now(), now())",
+                accountId, balance, currency.ordinal(), 0);
+        return accountId;
+    }
+
+    private BigDecimal storedBalance(final long accountId) {
+        return jdbcTemplate.queryForObject("SELECT \"balance\" FROM \"account\" WHERE \"id\" = ?", BigDecimal.class, accountId);
+    }
+}
@@ -0,0 +1,146 @@
+package com.acmebank.account_manager.services.striping;
+
+import com.acmebank.account_manager.configs.LedgerProperties.Concurrency;
+import com.acmebank.account_manager.data.models.requests.TransferRequest;
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import com.acmebank.account_manager.services.LedgerEngine;
+import com.acmebank.account_manager.services.strategies.TransferStrategy;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.acmebank.account_manager.shared.Currency.HKD;
+import static com.acmebank.account_manager.shared.Currency.XXX;
+import static com.acmebank.account_manager.shared.ErrorCode.FX_RATE_UNAVAILABLE;
+import static com.acmebank.account_manager.shared.ErrorCode.INSUFFICIENT_FUND;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Slf4j
+@SpringBootTest
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class StripedBalancesTests {
+    private final StripedBalances stripedBalances;
+    private final List<TransferStrategy> transferStrategies;
+    private final LedgerEngine ledgerEngine;
+    private final JdbcTemplate jdbcTemplate;
+    static final AtomicLong accountIds = new AtomicLong(40000000L);
+    static final BigDecimal balance = BigDecimal.valueOf(1000000);
+    static final BigDecimal amount = BigDecimal.valueOf(100);
+
+    /*
+     * Every thread credits the same striped account from an account of its own, the account row is never written.
+     */
+    @SneakyThrows
+    @ParameterizedTest
+    @EnumSource(Concurrency.class)
+    void givenStripedAccount_whenCreditedConcurrently_thenCreditsSpreadOverSlotsAndAccountRowUntouched(final Concurrency concurrency) {
+        val strategy = transferStrategies.stream().filter(s -> s.getConcurrency() == concurrency).findFirst().orElseThrow();
+        val stripedAccountId = createAccount(balance);
+        stripedBalances.stripe(stripedAccountId, 8);
+        val version = storedVersion(stripedAccountId);
+        val numberOfThreads = 4;
+        val transfersPerThread = 50;
+        val completed = new AtomicInteger();
+        val executorService = Executors.newFixedThreadPool(numberOfThreads);
+        val latch = new CountDownLatch(numberOfThreads);
+        val start = System.nanoTime();
+        for(int t = 0; t < numberOfThreads; t++) {
+            val fromAccountId = createAccount(balance);
+            executorService.execute(() -> {
+                try {
+                    for(int i = 0; i < transfersPerThread; i++) {
+                        try {
+                            strategy.transfer(new TransferRequest(fromAccountId, stripedAccountId, amount, HKD.name()));
+                            completed.incrementAndGet();
+                        } catch (RuntimeException re) {
+                            log.debug("Credit to striped account failed.", re);
+                        }
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        executorService.shutdown();
+        val elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        log.info("{} credits to a striped account: {} of {} completed, {} credits/s.", concurrency, completed.get(),
+                numberOfThreads * transfersPerThread, Math.round(completed.get() / elapsedSeconds));
+
+        val expected = balance.add(amount.multiply(BigDecimal.valueOf(completed.get())));
+        assertThat(completed.get()).isEqualTo(numberOfThreads * transfersPerThread);
+        assertThat(ledgerEngine.getAccountBalance(stripedAccountId).getBalance()).isEqualByComparingTo(expected);
+        assertThat(storedVersion(stripedAccountId)).isEqualTo(version);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"account_stripe\" WHERE \"account_id\" = ? AND \"balance\" > 0",
+                Integer.class, stripedAccountId)).isGreaterThan(1);
+    }
+
+    @Test
+    void givenStripedAccount_whenDebitExceedsAccountRow_thenSlotsSweptBeforeRejecting() {
+        val stripedAccountId = createAccount(BigDecimal.ZERO);
+        val otherAccountId = createAccount(balance);
+        stripedBalances.stripe(stripedAccountId, 4);
+        for(int i = 0; i < 10; i++) {
+            ledgerEngine.transfer(new TransferRequest(otherAccountId, stripedAccountId, amount, HKD.name()));
+        }
+        assertThat(storedBalance(stripedAccountId)).isEqualByComparingTo(BigDecimal.ZERO);
+
+        val debit = ledgerEngine.transfer(new TransferRequest(stripedAccountId, otherAccountId, BigDecimal.valueOf(700), HKD.name()));
+        assertThat(debit.getFromAccountBalance().getBalance()).isEqualByComparingTo(BigDecimal.valueOf(300));
+        assertThat(storedBalance(stripedAccountId)).isEqualByComparingTo(BigDecimal.valueOf(300));
+        val exception = assertThrows(AccountManagerException.class,
+                () -> ledgerEngine.transfer(new TransferRequest(stripedAccountId, otherAccountId, BigDecimal.valueOf(301), HKD.name())));
+        assertThat(exception.getErrorCode()).isEqualTo(INSUFFICIENT_FUND);
+        val noRate = assertThrows(AccountManagerException.class,
+                () -> ledgerEngine.transfer(new TransferRequest(otherAccountId, stripedAccountId, amount, XXX.name())));
+        assertThat(noRate.getErrorCode()).isEqualTo(FX_RATE_UNAVAILABLE);
+
+        ledgerEngine.transfer(new TransferRequest(otherAccountId, stripedAccountId, amount, HKD.name()));
+        val batch = ledgerEngine.transferBatch(List.of(new TransferRequest(stripedAccountId, otherAccountId, BigDecimal.valueOf(400), HKD.name())));
+        assertThat(batch.get(0).getTransaction().getFromAccountBalance().getBalance()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(ledgerEngine.getAccountBalance(otherAccountId).getBalance()).isEqualByComparingTo(balance);
+    }
+
+    @Test
+    void givenStripedAccount_whenUnstriped_thenSlotsFoldedIntoAccountRow() {
+        val stripedAccountId = createAccount(balance);
+        val otherAccountId = createAccount(balance);
+        stripedBalances.stripe(stripedAccountId, 2);
+        ledgerEngine.transfer(new TransferRequest(otherAccountId, stripedAccountId, amount, HKD.name()));
+        stripedBalances.stripe(stripedAccountId, 0);
+        assertThat(stripedBalances.isStriped(stripedAccountId)).isFalse();
+        assertThat(storedBalance(stripedAccountId)).isEqualByComparingTo(balance.add(amount));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM \"account_stripe\" WHERE \"account_id\" = ?",
+                Integer.class, stripedAccountId)).isZero();
+    }
+
+    private long createAccount(final BigDecimal initialBalance) {
+        val accountId = accountIds.incrementAndGet();
+        jdbcTemplate.update("INSERT INTO \"account\" (\"id\", \"balance\", \"currency\", \"type\", \"created_at\", \"updated_at\") VALUES (?, ?, ?, ?, now(), now())",
+                accountId, initialBalance, HKD.ordinal(), 0);
+        return accountId;
+    }
+
+    private BigDecimal storedBalance(final long accountId) {
+        return jdbcTemplate.queryForObject("SELECT \"balance\" FROM \"account\" WHERE \"id\" = ?", BigDecimal.class, accountId);
+    }
+
+    private long storedVersion(final long accountId) {
+        return jdbcTemplate.queryForObject("SELECT \"version\" FROM \"account\" WHERE \"id\" = ?", Long.class, accountId);
+    }
+}
@@ -0,0 +1,37 @@
+package com.acmebank.account_manager.shared;
+
+import com.acmebank.account_manager.exceptions.AccountManagerException;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static com.acmebank.account_manager.shared.ErrorCode.INVALID_AMOUNT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MoneyTests {
+    @Test
+    void givenDecimalAmount_whenConverted_thenMinorUnitsRoundTrip() {
+        val money = Money.of(new BigDecimal("1234.5"));
+        assertThat(money.getMinorUnits()).isEqualTo(123450L);
+        assertThat(money.toBigDecimal()).isEqualTo(new BigDecimal("1234.50"));
+        assertThat(money.plus(Money.of(BigDecimal.ONE)).minus(Money.ofMinorUnits(50))).isEqualTo(Money.of(new BigDecimal("1235")));
+        assertThat(Money.ZERO.minus(money).isNegative()).isTrue();
+    }
+
+    @Test
+    void givenTooPreciseOrTooLargeAmount_whenConverted_thenInvalidAmount() {
+        assertThat(assertThrows(AccountManagerException.class, () -> Money.of(new BigDecimal("0.001"))).getErrorCode()).isEqualTo(INVALID_AMOUNT);
+        assertThat(assertThrows(AccountManagerException.class, () -> Money.of(new BigDecimal("1E17"))).getErrorCode()).isEqualTo(INVALID_AMOUNT);
+    }
+
+    @Test
+    void givenBalanceNearLimit_whenAdded_thenOverflowRejected() {
+        val max = Money.ofMinorUnits(Long.MAX_VALUE);
+        val overflow = assertThrows(AccountManagerException.class, () -> max.plus(Money.ofMinorUnits(1)));
+        assertThat(overflow.getErrorCode()).isEqualTo(INVALID_AMOUNT);
+        assertThat(overflow.getMessage()).contains("92233720368547758.08");
+        assertThat(assertThrows(AccountManagerException.class, () -> Money.ofMinorUnits(Long.MIN_VALUE).minus(Money.ofMinorUnits(1))).getErrorCode()).isEqualTo(INVALID_AMOUNT);
+    }
+}